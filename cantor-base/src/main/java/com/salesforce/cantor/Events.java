@@ -8,6 +8,7 @@
 package com.salesforce.cantor;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -84,10 +85,185 @@ public interface Events {
     }
 
     /**
-     * Enum representing all available aggregation functions.
+     * Callback receiving events one at a time, used to stream events without holding all of them in memory.
+     */
+    @FunctionalInterface
+    interface EventHandler {
+        /**
+         * Handle the next event.
+         *
+         * @param event the event
+         * @return true to keep receiving events, false to stop
+         * @throws IOException exception thrown while handling the event; stops the stream
+         */
+        boolean handle(Event event) throws IOException;
+    }
+
+    /**
+     * Order of events in a page by timestamp, or of groups by aggregated value.
+     */
+    enum Order {
+        ASCENDING, DESCENDING
+    }
+
+    /**
+     * A page of events, with the continuation token to pass to get the next page; the token is null on the last page.
+     */
+    class Page {
+        private final List<Event> events;
+        private final String continuationToken;
+
+        public Page(final List<Event> events, final String continuationToken) {
+            this.events = events;
+            this.continuationToken = continuationToken;
+        }
+
+        /**
+         * Create a page of at most limit events out of the given events, which must be ordered by timestamp and start
+         * at or after the position of the given token; events after the page are only used to tell if there are more.
+         *
+         * @param orderedEvents events ordered by timestamp, starting at or after the position of the token
+         * @param limit maximum number of events in the page
+         * @param after position of the last event of the previous page, or null for the first page
+         * @return page of events, with a continuation token if there are more events
+         */
+        public static Page of(final List<Event> orderedEvents, final int limit, final PageToken after) {
+            int fromIndex = 0;
+            // skip events with the same timestamp as the last event of the previous page, returned already
+            while (after != null
+                    && fromIndex < after.getSkip()
+                    && fromIndex < orderedEvents.size()
+                    && orderedEvents.get(fromIndex).getTimestampMillis() == after.getTimestampMillis()) {
+                ++fromIndex;
+            }
+            final int toIndex = Math.min(orderedEvents.size(), fromIndex + limit);
+            final List<Event> events = new ArrayList<>(orderedEvents.subList(fromIndex, toIndex));
+            if (toIndex == orderedEvents.size() || events.isEmpty()) {
+                return new Page(events, null);
+            }
+            // count all events returned so far with the timestamp of the last event
+            final long lastTimestampMillis = events.get(events.size() - 1).getTimestampMillis();
+            int skip = 0;
+            for (int i = toIndex - 1; i >= 0 && orderedEvents.get(i).getTimestampMillis() == lastTimestampMillis; --i) {
+                ++skip;
+            }
+            return new Page(events, new PageToken(lastTimestampMillis, skip).encode());
+        }
+
+        /**
+         * Get the events in this page.
+         * @return list of events, ordered by timestamp
+         */
+        public List<Event> getEvents() {
+            return this.events;
+        }
+
+        /**
+         * Get the token to pass to get the next page.
+         * @return the continuation token, or null if this is the last page
+         */
+        public String getContinuationToken() {
+            return this.continuationToken;
+        }
+    }
+
+    /**
+     * Position of the last event of a page, encoded as an opaque continuation token: the timestamp of the event and the
+     * number of events with that timestamp returned so far.
+     */
+    final class PageToken {
+        private final long timestampMillis;
+        private final int skip;
+
+        public PageToken(final long timestampMillis, final int skip) {
+            this.timestampMillis = timestampMillis;
+            this.skip = skip;
+        }
+
+        /**
+         * Decode a continuation token.
+         *
+         * @param continuationToken token returned with a page
+         * @return the position of the last event of the page
+         * @throws IllegalArgumentException if the token is not valid
+         */
+        public static PageToken decode(final String continuationToken) {
+            try {
+                final String[] parts = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8).split(":");
+                if (parts.length == 2) {
+                    return new PageToken(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("invalid continuation token", e);
+            }
+            throw new IllegalArgumentException("invalid continuation token");
+        }
+
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((this.timestampMillis + ":" + this.skip).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public long getTimestampMillis() {
+            return this.timestampMillis;
+        }
+
+        public int getSkip() {
+            return this.skip;
+        }
+    }
+
+    /**
+     * Aggregated value of a dimension over the events of one group, i.e., events with the same values for the group-by
+     * metadata keys, in one time bucket.
+     */
+    class GroupAggregate {
+        private final Map<String, String> group;
+        private final long timestampMillis;
+        private final double value;
+
+        public GroupAggregate(final Map<String, String> group, final long timestampMillis, final double value) {
+            this.group = group;
+            this.timestampMillis = timestampMillis;
+            this.value = value;
+        }
+
+        /**
+         * Get the values of the group-by metadata keys for this group.
+         * @return map of group-by metadata key to value
+         */
+        public Map<String, String> getGroup() {
+            return this.group;
+        }
+
+        /**
+         * Get the start of the time bucket.
+         * @return start timestamp of the bucket, or start timestamp of the query if not bucketed by time
+         */
+        public long getTimestampMillis() {
+            return this.timestampMillis;
+        }
+
+        /**
+         * Get the aggregated value.
+         * @return value of the aggregation function over events of the group in the bucket
+         */
+        public double getValue() {
+            return this.value;
+        }
+
+        @Override
+        public String toString() {
+            return "GroupAggregate(" + this.group + ", " + this.timestampMillis + ", " + this.value + ")";
+        }
+    }
+
+    /**
+     * Enum representing all available aggregation functions. Percentiles (P50 to P99) are estimated within 1% of the
+     * true value, and DISTINCT_COUNT within a few percent past a few hundred distinct values.
      */
     enum AggregationFunction {
-        AVG, MIN, MAX, SUM, COUNT, STDDEV_POP, STDDEV_SAMP, VAR_POP, VAR_SAMP
+        AVG, MIN, MAX, SUM, COUNT, STDDEV_POP, STDDEV_SAMP, VAR_POP, VAR_SAMP, P50, P90, P95, P99, DISTINCT_COUNT
     }
 
     /**
@@ -263,6 +439,204 @@ public interface Events {
                     Map<String, String> dimensionsQuery,
                     boolean includePayloads) throws IOException;
 
+    /**
+     * Get all events in the given namespace, with timestamp between the start and end, and metadata and dimensions
+     * matching the given queries, with only the given metadata and dimension keys in the returned events. Queries
+     * follow the same format as {@link #get(String, long, long, Map, Map, boolean)}.
+     * <p>
+     * Implementations should only read the requested keys from storage; the default implementation falls back to
+     * calling get and removes the other keys from the results.
+     *
+     * @param namespace the namespace identifier
+     * @param startTimestampMillis start UTC timestamp in milli-seconds
+     * @param endTimestampMillis end UTC timestamp in milli-seconds
+     * @param metadataQuery map of string to string representing a query to run against events metadata
+     * @param dimensionsQuery map of string to string representing a query to run against events dimensions
+     * @param includePayloads flag to include payloads in the response or not; if false, event.getPayload() returns null
+     * @param metadataKeys metadata keys to include in the returned events; null to include all
+     * @param dimensionKeys dimension keys to include in the returned events; null to include all
+     * @return list of all events in the namespace with timestamp between start/end
+     * and metadata/dimensions matching the query
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default List<Event> get(String namespace,
+                            long startTimestampMillis,
+                            long endTimestampMillis,
+                            Map<String, String> metadataQuery,
+                            Map<String, String> dimensionsQuery,
+                            boolean includePayloads,
+                            Set<String> metadataKeys,
+                            Set<String> dimensionKeys) throws IOException {
+        final List<Event> events = get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads
+        );
+        if (metadataKeys == null && dimensionKeys == null) {
+            return events;
+        }
+        final List<Event> results = new ArrayList<>(events.size());
+        for (final Event event : events) {
+            final Map<String, String> metadata = new HashMap<>(event.getMetadata());
+            if (metadataKeys != null) {
+                metadata.keySet().retainAll(metadataKeys);
+            }
+            final Map<String, Double> dimensions = new HashMap<>(event.getDimensions());
+            if (dimensionKeys != null) {
+                dimensions.keySet().retainAll(dimensionKeys);
+            }
+            results.add(new Event(event.getTimestampMillis(), metadata, dimensions, event.getPayload()));
+        }
+        return results;
+    }
+
+    /**
+     * Stream all events in the given namespace, with timestamp between the start and end, and metadata and dimensions
+     * matching the given queries, to the given handler in timestamp order. Streaming stops when the handler returns
+     * false. Queries follow the same format as {@link #get(String, long, long, Map, Map, boolean)}.
+     * <p>
+     * Implementations should pass events to the handler as they are read, without materializing all matching events;
+     * the default implementation falls back to calling get.
+     *
+     * @param namespace the namespace identifier
+     * @param startTimestampMillis start UTC timestamp in milli-seconds
+     * @param endTimestampMillis end UTC timestamp in milli-seconds
+     * @param metadataQuery map of string to string representing a query to run against events metadata
+     * @param dimensionsQuery map of string to string representing a query to run against events dimensions
+     * @param includePayloads flag to include payloads in the response or not; if false, event.getPayload() returns null
+     * @param handler handler receiving matching events in timestamp order
+     * @throws IOException exception thrown from the underlying storage implementation or the handler
+     */
+    default void stream(String namespace,
+                        long startTimestampMillis,
+                        long endTimestampMillis,
+                        Map<String, String> metadataQuery,
+                        Map<String, String> dimensionsQuery,
+                        boolean includePayloads,
+                        EventHandler handler) throws IOException {
+        if (handler == null) {
+            throw new IllegalArgumentException("null handler");
+        }
+        final List<Event> events = get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads
+        );
+        for (final Event event : events) {
+            if (!handler.handle(event)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get a page of at most limit events in the given namespace, with timestamp between the start and end, and metadata
+     * and dimensions matching the given queries, in the given order. Pass the continuation token of a page to get the
+     * next one; implementations return events with the same timestamp in the same order on every call. Queries follow
+     * the same format as {@link #get(String, long, long, Map, Map, boolean)}.
+     * <p>
+     * Implementations should only read as many events as needed for the page, e.g., only the newest chunks of data to
+     * get the latest events; the default implementation falls back to calling get.
+     *
+     * @param namespace the namespace identifier
+     * @param startTimestampMillis start UTC timestamp in milli-seconds
+     * @param endTimestampMillis end UTC timestamp in milli-seconds
+     * @param metadataQuery map of string to string representing a query to run against events metadata
+     * @param dimensionsQuery map of string to string representing a query to run against events dimensions
+     * @param includePayloads flag to include payloads in the response or not; if false, event.getPayload() returns null
+     * @param order order of events by timestamp
+     * @param limit maximum number of events in the page
+     * @param continuationToken token returned with the previous page, or null to get the first page
+     * @return page of events, with the token to get the next page
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default Page get(String namespace,
+                     long startTimestampMillis,
+                     long endTimestampMillis,
+                     Map<String, String> metadataQuery,
+                     Map<String, String> dimensionsQuery,
+                     boolean includePayloads,
+                     Order order,
+                     int limit,
+                     String continuationToken) throws IOException {
+        if (order == null) {
+            throw new IllegalArgumentException("null order");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        final PageToken after = continuationToken != null ? PageToken.decode(continuationToken) : null;
+        final boolean ascending = order == Order.ASCENDING;
+        final List<Event> events = new ArrayList<>(get(namespace,
+                after != null && ascending ? Math.max(startTimestampMillis, after.getTimestampMillis()) : startTimestampMillis,
+                after != null && !ascending ? Math.min(endTimestampMillis, after.getTimestampMillis()) : endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads
+        ));
+        final Comparator<Event> byTimestamp = Comparator.comparingLong(Event::getTimestampMillis);
+        events.sort(ascending ? byTimestamp : byTimestamp.reversed());
+        return Page.of(events, limit, after);
+    }
+
+    /**
+     * Count events in the given namespace, with timestamp between the start and end, and metadata and dimensions
+     * matching the given queries. Queries follow the same format as {@link #get(String, long, long, Map, Map, boolean)}.
+     * <p>
+     * Implementations should count events where they are stored; the default implementation falls back to calling get.
+     *
+     * @param namespace the namespace identifier
+     * @param startTimestampMillis start UTC timestamp in milli-seconds
+     * @param endTimestampMillis end UTC timestamp in milli-seconds
+     * @param metadataQuery map of string to string representing a query to run against events metadata
+     * @param dimensionsQuery map of string to string representing a query to run against events dimensions
+     * @return number of events in the namespace with timestamp between start/end and metadata/dimensions matching the
+     * query
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default long count(String namespace,
+                       long startTimestampMillis,
+                       long endTimestampMillis,
+                       Map<String, String> metadataQuery,
+                       Map<String, String> dimensionsQuery) throws IOException {
+        return get(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, false).size();
+    }
+
+    /**
+     * Check if there is any event in the given namespace, with timestamp between the start and end, and metadata and
+     * dimensions matching the given queries. Queries follow the same format as
+     * {@link #get(String, long, long, Map, Map, boolean)}.
+     *
+     * @param namespace the namespace identifier
+     * @param startTimestampMillis start UTC timestamp in milli-seconds
+     * @param endTimestampMillis end UTC timestamp in milli-seconds
+     * @param metadataQuery map of string to string representing a query to run against events metadata
+     * @param dimensionsQuery map of string to string representing a query to run against events dimensions
+     * @return true if at least one event matches
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default boolean exists(String namespace,
+                           long startTimestampMillis,
+                           long endTimestampMillis,
+                           Map<String, String> metadataQuery,
+                           Map<String, String> dimensionsQuery) throws IOException {
+        // the newest events are the most likely to match
+        return !get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                false,
+                Order.DESCENDING,
+                1,
+                null
+        ).getEvents().isEmpty();
+    }
+
     /**
      * Delete all events in the given namespace, matching start/end timestamps and metadata/dimension query objects
      * and return the number of events deleted.
@@ -304,6 +678,39 @@ public interface Events {
                                 int aggregateIntervalMillis,
                                 AggregationFunction aggregationFunction) throws IOException;
 
+    /**
+     * Get result of an aggregate function for all events in the given namespace, with timestamp between the start
+     * and end, and metadata and dimensions matching the given queries, grouped by the values of the given metadata keys
+     * and optionally by time buckets. Only the top groups are returned, ranked by the aggregated value of each group
+     * over the whole time range; for example, the ten hosts with the highest sum of latency, with their sum of latency
+     * per minute. Events without all group-by metadata keys or without the dimension are ignored.
+     *
+     * @param namespace the namespace identifier
+     * @param dimension the dimension to aggregate
+     * @param startTimestampMillis start timestamp in milli-seconds
+     * @param endTimestampMillis end timestamp in milli-seconds
+     * @param metadataQuery map of string to string representing a query to run against events metadata
+     * @param dimensionsQuery map of string to string representing a query to run against events dimensions
+     * @param groupByMetadataKeys metadata keys to group events by
+     * @param aggregateIntervalMillis interval of the time buckets in milli-seconds, or 0 to not bucket by time
+     * @param aggregationFunction the aggregation function
+     * @param order descending to return the groups with the highest values, ascending for the lowest
+     * @param limit maximum number of groups to return, or 0 to return all groups
+     * @return aggregates of the top groups in rank order, and each group's buckets in timestamp order
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    List<GroupAggregate> aggregateGroups(String namespace,
+                                         String dimension,
+                                         long startTimestampMillis,
+                                         long endTimestampMillis,
+                                         Map<String, String> metadataQuery,
+                                         Map<String, String> dimensionsQuery,
+                                         List<String> groupByMetadataKeys,
+                                         int aggregateIntervalMillis,
+                                         AggregationFunction aggregationFunction,
+                                         Order order,
+                                         int limit) throws IOException;
+
     /**
      * Get distinct metadata values for the given metadata key for events in the given namespace, with timestamp between
      * the start and end, metadata and dimensions matching the given queries.
@@ -324,6 +731,49 @@ public interface Events {
                          Map<String, String> metadataQuery,
                          Map<String, String> dimensionsQuery) throws IOException;
 
+    /**
+     * Get up to limit distinct metadata values starting with the given prefix, for the given metadata key for events
+     * in the given namespace, with timestamp between the start and end, metadata and dimensions matching the given
+     * queries; meant for autocomplete-style callers, which need a few values fast rather than all of them.
+     * Implementations should stop looking as soon as enough values are found; the default implementation falls back
+     * to calling metadata and filtering the results.
+     *
+     * @param namespace the namespace identifier
+     * @param metadataKey the metadata key
+     * @param startTimestampMillis start timestamp in milli-seconds
+     * @param endTimestampMillis end timestamp in milli-seconds
+     * @param metadataQuery map of string to string representing a query to run against events metadata
+     * @param dimensionsQuery map of string to string representing a query to run against events dimensions
+     * @param prefix only return values starting with this prefix, or null for all values
+     * @param limit maximum number of values to return, or 0 to return all values
+     * @return set of at most limit metadata values, starting with the prefix
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default Set<String> metadata(String namespace,
+                                 String metadataKey,
+                                 long startTimestampMillis,
+                                 long endTimestampMillis,
+                                 Map<String, String> metadataQuery,
+                                 Map<String, String> dimensionsQuery,
+                                 String prefix,
+                                 int limit) throws IOException {
+        final Set<String> results = new HashSet<>();
+        for (final String value : metadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery)) {
+            if (limit > 0 && results.size() >= limit) {
+                break;
+            }
+            if (prefix == null || value.startsWith(prefix)) {
+                results.add(value);
+            }
+        }
+        return results;
+    }
+
     /**
      * Expire all events with timestamp before the given end timestamp.
      *
@@ -331,5 +781,39 @@ public interface Events {
      * @throws IOException exception thrown from the underlying storage implementation
      */
     void expire(String namespace, long endTimestampMillis) throws IOException;
+
+    /**
+     * Set the retention period of events in the namespace; events older than the retention period are expired by
+     * calls to {@link #expire(String)}, e.g., periodically from a background scheduler. Retention of zero removes the
+     * retention policy of the namespace.
+     *
+     * @param namespace the namespace identifier
+     * @param retentionMillis retention period in milli-seconds, or zero to keep events until expired explicitly
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    void setRetention(String namespace, long retentionMillis) throws IOException;
+
+    /**
+     * Get the retention period of events in the namespace.
+     *
+     * @param namespace the namespace identifier
+     * @return retention period in milli-seconds, or zero if the namespace has no retention policy
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    long getRetention(String namespace) throws IOException;
+
+    /**
+     * Expire events in the namespace older than its retention period; does nothing if the namespace has no retention
+     * policy.
+     *
+     * @param namespace the namespace identifier
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default void expire(String namespace) throws IOException {
+        final long retentionMillis = getRetention(namespace);
+        if (retentionMillis > 0) {
+            expire(namespace, Math.max(0, System.currentTimeMillis() - retentionMillis));
+        }
+    }
 }
 
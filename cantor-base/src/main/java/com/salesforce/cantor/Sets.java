@@ -18,6 +18,52 @@ import java.util.Map;
  */
 public interface Sets {
 
+    /**
+     * Enum representing how weights of an entry found in more than one set are combined.
+     */
+    enum Aggregate {
+        SUM, MIN, MAX
+    }
+
+    /**
+     * Entries claimed from a set, with the lease to pass to acknowledge or release them.
+     */
+    class Claim {
+        private final String leaseId;
+        private final long leaseExpiresMillis;
+        private final Map<String, Long> entries;
+
+        public Claim(final String leaseId, final long leaseExpiresMillis, final Map<String, Long> entries) {
+            this.leaseId = leaseId;
+            this.leaseExpiresMillis = leaseExpiresMillis;
+            this.entries = entries;
+        }
+
+        /**
+         * Get the identifier of the lease on the claimed entries.
+         * @return the lease identifier
+         */
+        public String getLeaseId() {
+            return this.leaseId;
+        }
+
+        /**
+         * Get the time the lease expires at, after which the claimed entries are put back in the set.
+         * @return the lease expiry timestamp in milli-seconds
+         */
+        public long getLeaseExpiresMillis() {
+            return this.leaseExpiresMillis;
+        }
+
+        /**
+         * Get the claimed entries.
+         * @return map of claimed entries to weights
+         */
+        public Map<String, Long> getEntries() {
+            return this.entries;
+        }
+    }
+
     /**
      * Get list of all namespaces.
      *
@@ -218,9 +264,37 @@ public interface Sets {
      */
     void delete(String namespace, String set, Collection<String> entries) throws IOException;
 
+    /**
+     * Return union of entries stored in any of the given sets, with weights of entries found in more than one set
+     * combined using the given aggregate, with start and count and aggregated weight more than min, less than max.
+     * Unlike {@link #union(String, Collection, long, long, int, int, boolean)}, min and max apply to the aggregated
+     * weight, and entries are grouped before they are ordered and paged.
+     *
+     * @param namespace the namespace
+     * @param sets name of the sorted sets to do union over
+     * @param min the minimum aggregated weight
+     * @param max the maximum aggregated weight
+     * @param start start offset
+     * @param count maximum number of entries to return; -1 for infinite
+     * @param ascending ordered ascending or descending by aggregated weight
+     * @param aggregate how weights of an entry in each of the sets are combined
+     * @return map of entries to aggregated weights, matching the given criteria
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    Map<String, Long> union(String namespace,
+                            Collection<String> sets,
+                            long min,
+                            long max,
+                            int start,
+                            int count,
+                            boolean ascending,
+                            Aggregate aggregate) throws IOException;
+
     /**
      * Return union of entries and weights stored in any of the given sets,
-     * with start and count and weight more than min, less than max.
+     * with start and count and weight more than min, less than max; min and max apply to the weight of an entry in
+     * each set. An entry found in more than one set is returned once, with one of its weights; use
+     * {@link #union(String, Collection, long, long, int, int, boolean, Aggregate)} to combine them instead.
      *
      * @param namespace the namespace
      * @param sets name of the sorted sets to do union over
@@ -264,7 +338,58 @@ public interface Sets {
     }
 
     /**
-     * Return intersection of entries and weights stored in all of the given sets,
+     * Store the union of the given sets in the destination set, replacing its content, with weights of entries
+     * found in more than one set combined using the given aggregate. The destination may be one of the given sets.
+     *
+     * @param namespace the namespace
+     * @param destination name of the sorted set to store the union in
+     * @param sets name of the sorted sets to do union over
+     * @param aggregate how weights of an entry in each of the sets are combined
+     * @return number of entries in the destination set
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    int unionStore(String namespace, String destination, Collection<String> sets, Aggregate aggregate) throws IOException;
+
+    /**
+     * Store the union of the given sets in the destination set, replacing its content, with the sum of weights of
+     * entries found in more than one set.
+     *
+     * @param namespace the namespace
+     * @param destination name of the sorted set to store the union in
+     * @param sets name of the sorted sets to do union over
+     * @return number of entries in the destination set
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default int unionStore(String namespace, String destination, Collection<String> sets) throws IOException {
+        return unionStore(namespace, destination, sets, Aggregate.SUM);
+    }
+
+    /**
+     * Return intersection of entries stored in all of the given sets, with weights of each entry combined using the
+     * given aggregate, with start and count and aggregated weight more than min, less than max.
+     *
+     * @param namespace the namespace
+     * @param sets name of the sorted sets to do intersection over
+     * @param min the minimum aggregated weight
+     * @param max the maximum aggregated weight
+     * @param start start offset
+     * @param count maximum number of entries to return; -1 for infinite
+     * @param ascending ordered ascending or descending by aggregated weight
+     * @param aggregate how weights of an entry in each of the sets are combined
+     * @return map of entries to aggregated weights, matching the given criteria
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    Map<String, Long> intersect(String namespace,
+                                Collection<String> sets,
+                                long min,
+                                long max,
+                                int start,
+                                int count,
+                                boolean ascending,
+                                Aggregate aggregate) throws IOException;
+
+    /**
+     * Return intersection of entries stored in all of the given sets, with the sum of their weights,
      * with start and count and weight more than min, less than max.
      *
      * @param namespace the namespace
@@ -277,8 +402,10 @@ public interface Sets {
      * @return map of entries to weights, matching the given criteria
      * @throws IOException exception thrown from the underlying storage implementation
      */
-    Map<String, Long> intersect(String namespace, Collection<String> sets, long min, long max, int start, int count, boolean ascending)
-            throws IOException;
+    default Map<String, Long> intersect(String namespace, Collection<String> sets, long min, long max, int start, int count, boolean ascending)
+            throws IOException {
+        return intersect(namespace, sets, min, max, start, count, ascending, Aggregate.SUM);
+    }
 
     /**
      * Return intersect of all entries stored in the given sets, ordered by weight ascending
@@ -308,6 +435,107 @@ public interface Sets {
         return intersect(namespace, sets, Long.MIN_VALUE, Long.MAX_VALUE, start, count, true);
     }
 
+    /**
+     * Store the intersection of the given sets in the destination set, replacing its content, with weights of each
+     * entry combined using the given aggregate. The destination may be one of the given sets.
+     *
+     * @param namespace the namespace
+     * @param destination name of the sorted set to store the intersection in
+     * @param sets name of the sorted sets to do intersection over
+     * @param aggregate how weights of an entry in each of the sets are combined
+     * @return number of entries in the destination set
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    int interStore(String namespace, String destination, Collection<String> sets, Aggregate aggregate) throws IOException;
+
+    /**
+     * Store the intersection of the given sets in the destination set, replacing its content, with the sum of
+     * weights of each entry.
+     *
+     * @param namespace the namespace
+     * @param destination name of the sorted set to store the intersection in
+     * @param sets name of the sorted sets to do intersection over
+     * @return number of entries in the destination set
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default int interStore(String namespace, String destination, Collection<String> sets) throws IOException {
+        return interStore(namespace, destination, sets, Aggregate.SUM);
+    }
+
+    /**
+     * Return entries of the set that are not in any of the other given sets, with their weight in the set,
+     * with start and count and weight more than min, less than max.
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set to take entries from
+     * @param sets name of the sorted sets whose entries are excluded
+     * @param min the minimum weight
+     * @param max the maximum weight
+     * @param start start offset
+     * @param count maximum number of entries to return; -1 for infinite
+     * @param ascending ordered ascending or descending by weight
+     * @return map of entries to weights, matching the given criteria
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    Map<String, Long> diff(String namespace,
+                           String set,
+                           Collection<String> sets,
+                           long min,
+                           long max,
+                           int start,
+                           int count,
+                           boolean ascending) throws IOException;
+
+    /**
+     * Return all entries of the set that are not in any of the other given sets, ordered by weight ascending
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set to take entries from
+     * @param sets name of the sorted sets whose entries are excluded
+     * @return map of entries to weights
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default Map<String, Long> diff(String namespace, String set, Collection<String> sets) throws IOException {
+        return diff(namespace, set, sets, Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true);
+    }
+
+    /**
+     * Store entries of the set that are not in any of the other given sets in the destination set, replacing its
+     * content. The destination may be one of the given sets.
+     *
+     * @param namespace the namespace
+     * @param destination name of the sorted set to store the difference in
+     * @param set name of the sorted set to take entries from
+     * @param sets name of the sorted sets whose entries are excluded
+     * @return number of entries in the destination set
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    int diffStore(String namespace, String destination, String set, Collection<String> sets) throws IOException;
+
+    /**
+     * Atomically move an entry with its weight from the source set to the destination set, overwriting its weight
+     * if the destination set already contains it.
+     *
+     * @param namespace the namespace
+     * @param source name of the sorted set to move the entry from
+     * @param destination name of the sorted set to move the entry to
+     * @param entry the entry
+     * @return true if the entry was found in the source set and moved, false otherwise
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    boolean move(String namespace, String source, String destination, String entry) throws IOException;
+
+    /**
+     * Copy all entries and weights of the source set to the destination set, replacing its content.
+     *
+     * @param namespace the namespace
+     * @param source name of the sorted set to copy
+     * @param destination name of the sorted set to copy to
+     * @return number of entries in the destination set
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    int copy(String namespace, String source, String destination) throws IOException;
+
     /**
      * Return and atomically remove entries and weights stored in the set
      * with start and count and weight more than min, less than max.
@@ -353,6 +581,65 @@ public interface Sets {
         return pop(namespace, set, Long.MIN_VALUE, Long.MAX_VALUE, start, count, true);
     }
 
+    /**
+     * Claim entries from the set for processing, for use of the set as a work queue with at-least-once delivery.
+     * Claimed entries are removed from the set and leased to the caller; each one must be acknowledged with
+     * {@link #ack(String, String, String, Collection)} once processed, or released with
+     * {@link #nack(String, String, String, Collection)}, passing the lease identifier of the claim. Entries not
+     * acknowledged before their lease expires are put back in the set, to be claimed again. Concurrent callers claim
+     * distinct entries.
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set
+     * @param min the minimum weight
+     * @param max the maximum weight
+     * @param count maximum number of entries to claim
+     * @param ascending claim entries in ascending or descending order of weight
+     * @param leaseMillis time in milli-seconds after which unacknowledged entries are put back in the set
+     * @return the claimed entries and their lease
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    Claim claim(String namespace, String set, long min, long max, int count, boolean ascending, long leaseMillis)
+            throws IOException;
+
+    /**
+     * Claim up to count entries from the set with lowest weight, leased for the given time.
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set
+     * @param count maximum number of entries to claim
+     * @param leaseMillis time in milli-seconds after which unacknowledged entries are put back in the set
+     * @return the claimed entries and their lease
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default Claim claim(String namespace, String set, int count, long leaseMillis) throws IOException {
+        return claim(namespace, set, Long.MIN_VALUE, Long.MAX_VALUE, count, true, leaseMillis);
+    }
+
+    /**
+     * Acknowledge claimed entries as processed, removing them for good; no-op for entries not claimed under the
+     * given lease or whose lease has expired, since they may have been claimed again by another caller.
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set
+     * @param leaseId identifier of the lease the entries were claimed under
+     * @param entries the claimed entries
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    void ack(String namespace, String set, String leaseId, Collection<String> entries) throws IOException;
+
+    /**
+     * Release claimed entries without processing them, putting them back in the set with their weight right away;
+     * no-op for entries not claimed under the given lease or whose lease has expired.
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set
+     * @param leaseId identifier of the lease the entries were claimed under
+     * @param entries the claimed entries
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    void nack(String namespace, String set, String leaseId, Collection<String> entries) throws IOException;
+
     /**
      * Returns list of all sets in the given namespace.
      *
@@ -423,5 +710,43 @@ public interface Sets {
      * @throws IOException exception thrown from the underlying storage implementation
      */
     void inc(String namespace, String set, String entry, long count) throws IOException;
+
+    /**
+     * Atomic operation to increment weights of entries in the set by the given counts; entries not in the set
+     * are left alone if update only, otherwise they are added with their count as weight.
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set
+     * @param entries map of entries to counts to increment their weight by
+     * @param updateOnly if true, only entries already in the set are incremented, as with a single entry increment
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    void inc(String namespace, String set, Map<String, Long> entries, boolean updateOnly) throws IOException;
+
+    /**
+     * Atomic operation to increment weights of entries in the set by the given counts; entries not in the set
+     * are added with their count as weight.
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set
+     * @param entries map of entries to counts to increment their weight by
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    default void inc(String namespace, String set, Map<String, Long> entries) throws IOException {
+        inc(namespace, set, entries, false);
+    }
+
+    /**
+     * Atomic operation to set an entry's weight in the set, only if its current weight is the expected one.
+     *
+     * @param namespace the namespace
+     * @param set name of the sorted set
+     * @param entry the entry
+     * @param expected the expected current weight; null to add the entry only if it is not in the set
+     * @param weight the new weight
+     * @return true if the weight was set, false if the current weight is not the expected one
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    boolean compareAndSet(String namespace, String set, String entry, Long expected, long weight) throws IOException;
 }
 
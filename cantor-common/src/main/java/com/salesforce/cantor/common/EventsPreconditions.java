@@ -12,6 +12,7 @@ import com.salesforce.cantor.Events.AggregationFunction;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +38,68 @@ public class EventsPreconditions extends CommonPreconditions {
         checkDimensionsQuery(dimensionsQuery);
     }
 
+    public static void checkGet(final String namespace,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final Set<String> metadataKeys,
+                                final Set<String> dimensionKeys) {
+        checkGet(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        if (metadataKeys != null) {
+            for (final String metadataKey : metadataKeys) {
+                checkString(metadataKey, "null/empty metadata key");
+            }
+        }
+        if (dimensionKeys != null) {
+            for (final String dimensionKey : dimensionKeys) {
+                checkString(dimensionKey, "null/empty dimension key");
+            }
+        }
+    }
+
+    public static void checkStream(final String namespace,
+                                   final long startTimestampMillis,
+                                   final long endTimestampMillis,
+                                   final Map<String, String> metadataQuery,
+                                   final Map<String, String> dimensionsQuery,
+                                   final Events.EventHandler handler) {
+        checkGet(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        checkArgument(handler != null, "null handler");
+    }
+
+    public static void checkGet(final String namespace,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final Events.Order order,
+                                final int limit,
+                                final String continuationToken) {
+        checkGet(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        checkArgument(order != null, "null order");
+        checkArgument(limit > 0, "limit must be positive");
+        if (continuationToken != null) {
+            Events.PageToken.decode(continuationToken);
+        }
+    }
+
+    public static void checkCount(final String namespace,
+                                  final long startTimestampMillis,
+                                  final long endTimestampMillis,
+                                  final Map<String, String> metadataQuery,
+                                  final Map<String, String> dimensionsQuery) {
+        checkGet(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+    }
+
+    public static void checkExists(final String namespace,
+                                   final long startTimestampMillis,
+                                   final long endTimestampMillis,
+                                   final Map<String, String> metadataQuery,
+                                   final Map<String, String> dimensionsQuery) {
+        checkGet(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+    }
+
     public static void checkDelete(final String namespace,
                                    final long startTimestampMillis,
                                    final long endTimestampMillis,
@@ -65,6 +128,34 @@ public class EventsPreconditions extends CommonPreconditions {
         checkDimensionsQuery(dimensionsQuery);
     }
 
+    public static void checkAggregateGroups(final String namespace,
+                                            final String dimension,
+                                            final long startTimestampMillis,
+                                            final long endTimestampMillis,
+                                            final Map<String, String> metadataQuery,
+                                            final Map<String, String> dimensionsQuery,
+                                            final List<String> groupByMetadataKeys,
+                                            final int aggregationIntervalMillis,
+                                            final AggregationFunction aggregationFunction,
+                                            final Events.Order order,
+                                            final int limit) {
+        checkNamespace(namespace);
+        checkString(dimension);
+        checkTimestamps(startTimestampMillis, endTimestampMillis);
+        checkArgument(aggregationIntervalMillis >= 0 && aggregationIntervalMillis <= TimeUnit.HOURS.toMillis(1),
+                "aggregate interval must be 0 or less than or equal to " + TimeUnit.HOURS.toMillis(1));
+        checkMetadataQuery(metadataQuery);
+        checkDimensionsQuery(dimensionsQuery);
+        checkArgument(groupByMetadataKeys != null && !groupByMetadataKeys.isEmpty(), "null/empty group by keys");
+        for (final String metadataKey : groupByMetadataKeys) {
+            checkString(metadataKey, "null/empty group by key");
+        }
+        checkArgument(new HashSet<>(groupByMetadataKeys).size() == groupByMetadataKeys.size(), "duplicate group by keys");
+        checkArgument(aggregationFunction != null, "null aggregation function");
+        checkArgument(order != null, "null order");
+        checkArgument(limit >= 0, "limit must not be negative");
+    }
+
     public static void checkMetadata(final String namespace,
                                      final String metadataKey,
                                      final long startTimestampMillis,
@@ -78,11 +169,32 @@ public class EventsPreconditions extends CommonPreconditions {
         checkDimensionsQuery(dimensionsQuery);
     }
 
+    public static void checkMetadata(final String namespace,
+                                     final String metadataKey,
+                                     final long startTimestampMillis,
+                                     final long endTimestampMillis,
+                                     final Map<String, String> metadataQuery,
+                                     final Map<String, String> dimensionsQuery,
+                                     final String prefix,
+                                     final int limit) {
+        checkMetadata(namespace, metadataKey, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        checkArgument(limit >= 0, "invalid limit");
+    }
+
     public static void checkExpire(final String namespace, final long endTimestampMillis) {
         checkNamespace(namespace);
         checkArgument(endTimestampMillis >= 0, "invalid end timestamp");
     }
 
+    public static void checkSetRetention(final String namespace, final long retentionMillis) {
+        checkNamespace(namespace);
+        checkArgument(retentionMillis >= 0, "invalid retention");
+    }
+
+    public static void checkGetRetention(final String namespace) {
+        checkNamespace(namespace);
+    }
+
     static void checkTimestamps(final long startTimestampMillis, final long endTimestampMillis) {
         checkArgument(startTimestampMillis >= 0, "invalid start timestamp");
         checkArgument(endTimestampMillis >= startTimestampMillis, "end timestamp cannot be before start timestamp");
@@ -7,6 +7,8 @@
 
 package com.salesforce.cantor.common;
 
+import com.salesforce.cantor.Sets.Aggregate;
+
 import java.util.Collection;
 import java.util.Map;
 
@@ -26,6 +28,28 @@ public class SetsPreconditions extends CommonPreconditions {
         checkArgument(count >= 0 || (count == -1 && start == 0), "invalid count");
     }
 
+    public static void checkUnion(final String namespace,
+                                  final Collection<String> sets,
+                                  final long min,
+                                  final long max,
+                                  final int start,
+                                  final int count,
+                                  final boolean ascendingIgnored,
+                                  final Aggregate aggregate) {
+        checkArgument(aggregate != null, "null aggregate");
+        checkUnion(namespace, sets, min, max, start, count, ascendingIgnored);
+    }
+
+    public static void checkUnionStore(final String namespace,
+                                       final String destination,
+                                       final Collection<String> sets,
+                                       final Aggregate aggregate) {
+        checkNamespace(namespace);
+        checkString(destination);
+        checkArgument(sets != null && !sets.isEmpty(), "null/empty sets");
+        checkArgument(aggregate != null, "null aggregate");
+    }
+
     public static void checkUnion(final String namespace,
                                   final Collection<String> sets,
                                   final long min,
@@ -40,6 +64,18 @@ public class SetsPreconditions extends CommonPreconditions {
         checkArgument(count >= 0 || (count == -1 && start == 0), "invalid count");
     }
 
+    public static void checkIntersect(final String namespace,
+                                      final Collection<String> sets,
+                                      final long min,
+                                      final long max,
+                                      final int start,
+                                      final int count,
+                                      final boolean ascendingIgnored,
+                                      final Aggregate aggregate) {
+        checkArgument(aggregate != null, "null aggregate");
+        checkIntersect(namespace, sets, min, max, start, count, ascendingIgnored);
+    }
+
     public static void checkIntersect(final String namespace,
                                       final Collection<String> sets,
                                       final long min,
@@ -54,6 +90,58 @@ public class SetsPreconditions extends CommonPreconditions {
         checkArgument(count >= 0 || (count == -1 && start == 0), "invalid count");
     }
 
+    public static void checkInterStore(final String namespace,
+                                       final String destination,
+                                       final Collection<String> sets,
+                                       final Aggregate aggregate) {
+        checkNamespace(namespace);
+        checkString(destination);
+        checkArgument(sets != null && !sets.isEmpty(), "null/empty sets");
+        checkArgument(aggregate != null, "null aggregate");
+    }
+
+    public static void checkDiff(final String namespace,
+                                 final String set,
+                                 final Collection<String> sets,
+                                 final long min,
+                                 final long max,
+                                 final int start,
+                                 final int count,
+                                 final boolean ascendingIgnored) {
+        checkNamespace(namespace);
+        checkString(set);
+        checkArgument(sets != null, "null sets");
+        checkArgument(min <= max, "invalid min/max");
+        checkArgument(start >= 0, "invalid start");
+        checkArgument(count >= 0 || (count == -1 && start == 0), "invalid count");
+    }
+
+    public static void checkDiffStore(final String namespace,
+                                      final String destination,
+                                      final String set,
+                                      final Collection<String> sets) {
+        checkNamespace(namespace);
+        checkString(destination);
+        checkString(set);
+        checkArgument(sets != null, "null sets");
+    }
+
+    public static void checkMove(final String namespace,
+                                 final String source,
+                                 final String destination,
+                                 final String entry) {
+        checkNamespace(namespace);
+        checkString(source);
+        checkString(destination);
+        checkString(entry);
+    }
+
+    public static void checkCopy(final String namespace, final String source, final String destination) {
+        checkNamespace(namespace);
+        checkString(source);
+        checkString(destination);
+    }
+
     public static void checkPop(final String namespace,
                                 final String set,
                                 final long min,
@@ -68,6 +156,34 @@ public class SetsPreconditions extends CommonPreconditions {
         checkArgument(count >= 0 || (count == -1 && start == 0), "invalid count");
     }
 
+    public static void checkClaim(final String namespace,
+                                  final String set,
+                                  final long min,
+                                  final long max,
+                                  final int count,
+                                  final boolean ascendingIgnored,
+                                  final long leaseMillis) {
+        checkNamespace(namespace);
+        checkString(set);
+        checkArgument(min <= max, "invalid min/max");
+        checkArgument(count > 0, "invalid count");
+        checkArgument(leaseMillis > 0, "invalid lease");
+    }
+
+    public static void checkAck(final String namespace, final String set, final String leaseId, final Collection<String> entries) {
+        checkNamespace(namespace);
+        checkString(set);
+        checkString(leaseId);
+        checkArgument(entries != null, "null entries");
+    }
+
+    public static void checkNack(final String namespace, final String set, final String leaseId, final Collection<String> entries) {
+        checkNamespace(namespace);
+        checkString(set);
+        checkString(leaseId);
+        checkArgument(entries != null, "null entries");
+    }
+
     public static void checkAdd(final String namespace, final String set, final String entry, final long weightIgnored) {
         checkNamespace(namespace);
         checkString(set);
@@ -146,4 +262,24 @@ public class SetsPreconditions extends CommonPreconditions {
         checkString(set);
         checkString(entry);
     }
+
+    public static void checkInc(final String namespace, final String set, final Map<String, Long> entries) {
+        checkNamespace(namespace);
+        checkString(set);
+        checkArgument(entries != null, "null entries");
+        for (final Map.Entry<String, Long> entry : entries.entrySet()) {
+            checkString(entry.getKey());
+            checkArgument(entry.getValue() != null, "null count");
+        }
+    }
+
+    public static void checkCompareAndSet(final String namespace,
+                                          final String set,
+                                          final String entry,
+                                          final Long expectedIgnored,
+                                          final long weightIgnored) {
+        checkNamespace(namespace);
+        checkString(set);
+        checkString(entry);
+    }
 }
@@ -15,6 +15,7 @@ import org.testng.annotations.Test;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.*;
 
@@ -309,6 +310,218 @@ public abstract class AbstractBaseEventsTest extends AbstractBaseCantorTest {
         }
     }
 
+    @Test
+    public void testStream() throws Exception {
+        final Events events = getEvents();
+        final long dayMillis = TimeUnit.DAYS.toMillis(1);
+        final long startTimestamp = System.currentTimeMillis() - 3 * dayMillis;
+        // events spread over a few days, with two different sets of metadata keys interleaved
+        final List<Events.Event> storedEvents = new ArrayList<>();
+        for (int i = 0; i < 1_000; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put(i % 2 == 0 ? "even" : "odd", String.valueOf(i));
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", (double) i);
+            storedEvents.add(new Events.Event(startTimestamp + i * (3 * dayMillis / 1_000), metadata, dimensions));
+        }
+        events.store(this.namespace, storedEvents);
+
+        final List<Events.Event> streamed = new ArrayList<>();
+        events.stream(this.namespace, startTimestamp, startTimestamp + 3 * dayMillis, null, null, false, streamed::add);
+        assertEquals(streamed.size(), storedEvents.size());
+        for (int i = 0; i < storedEvents.size(); ++i) {
+            assertEquals(streamed.get(i).getTimestampMillis(), storedEvents.get(i).getTimestampMillis());
+            assertEquals(streamed.get(i).getMetadata(), storedEvents.get(i).getMetadata());
+            assertEquals(streamed.get(i).getDimensions(), storedEvents.get(i).getDimensions());
+        }
+
+        // handler can stop the stream
+        final List<Events.Event> firstTen = new ArrayList<>();
+        events.stream(this.namespace, startTimestamp, startTimestamp + 3 * dayMillis, null, null, false,
+                event -> firstTen.add(event) && firstTen.size() < 10
+        );
+        assertEquals(firstTen.size(), 10);
+        assertEquals(firstTen.get(9).getTimestampMillis(), storedEvents.get(9).getTimestampMillis());
+
+        // queries are applied to streamed events
+        final Map<String, String> metadataQuery = new HashMap<>();
+        metadataQuery.put("odd", "~.*");
+        final List<Events.Event> oddEvents = new ArrayList<>();
+        events.stream(this.namespace, startTimestamp, startTimestamp + 3 * dayMillis, metadataQuery, null, false, oddEvents::add);
+        assertEquals(oddEvents.size(), storedEvents.size() / 2);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> events.stream(this.namespace, 0, 1, null, null, false, null));
+    }
+
+    @Test
+    public void testGetPages() throws Exception {
+        final Events events = getEvents();
+        final long dayMillis = TimeUnit.DAYS.toMillis(1);
+        final long startTimestamp = System.currentTimeMillis() - 3 * dayMillis;
+        // events spread over a few days, three events per timestamp, with two sets of metadata keys
+        final List<Events.Event> storedEvents = new ArrayList<>();
+        for (int i = 0; i < 300; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put(i % 2 == 0 ? "even" : "odd", String.valueOf(i));
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", (double) i);
+            storedEvents.add(new Events.Event(startTimestamp + (i / 3) * (3 * dayMillis / 100), metadata, dimensions));
+        }
+        events.store(this.namespace, storedEvents);
+
+        for (final Events.Order order : Events.Order.values()) {
+            final List<Events.Event> paged = new ArrayList<>();
+            String continuationToken = null;
+            int pages = 0;
+            do {
+                final Events.Page page = events.get(this.namespace,
+                        startTimestamp, startTimestamp + 3 * dayMillis,
+                        null, null, false,
+                        order, 7, continuationToken
+                );
+                assertTrue(page.getEvents().size() <= 7);
+                paged.addAll(page.getEvents());
+                continuationToken = page.getContinuationToken();
+                ++pages;
+            } while (continuationToken != null);
+            assertEquals(pages, 300 / 7 + 1, order.toString());
+            assertEquals(paged.size(), storedEvents.size(), order.toString());
+
+            // every event is returned exactly once, in order
+            final Set<Double> values = new HashSet<>();
+            for (int i = 0; i < paged.size(); ++i) {
+                values.add(paged.get(i).getDimensions().get("value"));
+                if (i > 0 && order == Events.Order.ASCENDING) {
+                    assertTrue(paged.get(i).getTimestampMillis() >= paged.get(i - 1).getTimestampMillis());
+                } else if (i > 0) {
+                    assertTrue(paged.get(i).getTimestampMillis() <= paged.get(i - 1).getTimestampMillis());
+                }
+            }
+            assertEquals(values.size(), storedEvents.size(), order.toString());
+        }
+
+        // latest events, with queries
+        final Map<String, String> metadataQuery = new HashMap<>();
+        metadataQuery.put("odd", "~.*");
+        final Events.Page latest = events.get(this.namespace,
+                startTimestamp, startTimestamp + 3 * dayMillis,
+                metadataQuery, null, false,
+                Events.Order.DESCENDING, 1, null
+        );
+        assertEquals(latest.getEvents().size(), 1);
+        assertEquals(latest.getEvents().get(0).getMetadata().get("odd"), "299");
+        assertNotNull(latest.getContinuationToken());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> events.get(this.namespace, 0, 1, null, null, false, Events.Order.ASCENDING, 0, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> events.get(this.namespace, 0, 1, null, null, false, null, 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> events.get(this.namespace, 0, 1, null, null, false, Events.Order.ASCENDING, 10, "not-a-token"));
+    }
+
+    @Test
+    public void testGetWithProjection() throws Exception {
+        final Events events = getEvents();
+        final long timestamp = System.currentTimeMillis();
+        final List<Events.Event> storedEvents = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("host", "host-" + i);
+            metadata.put("region", "region-" + (i % 3));
+            metadata.put("wide", "value-" + i);
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("cpu", (double) i);
+            dimensions.put("memory", (double) i * 2);
+            storedEvents.add(new Events.Event(timestamp + i, metadata, dimensions, getRandomPayload(16)));
+        }
+        events.store(this.namespace, storedEvents);
+
+        final Map<String, String> metadataQuery = new HashMap<>();
+        metadataQuery.put("region", "region-1");
+        final List<Events.Event> all = events.get(this.namespace,
+                timestamp, timestamp + 50, metadataQuery, null, true
+        );
+        final List<Events.Event> projected = events.get(this.namespace,
+                timestamp, timestamp + 50, metadataQuery, null, true,
+                Collections.singleton("host"), Collections.singleton("cpu")
+        );
+        assertEquals(projected.size(), all.size());
+        for (int i = 0; i < projected.size(); ++i) {
+            final Events.Event full = all.get(i);
+            final Events.Event event = projected.get(i);
+            assertEquals(event.getTimestampMillis(), full.getTimestampMillis());
+            assertEquals(event.getMetadata().keySet(), Collections.singleton("host"));
+            assertEquals(event.getMetadata().get("host"), full.getMetadata().get("host"));
+            assertEquals(event.getDimensions().keySet(), Collections.singleton("cpu"));
+            assertEquals(event.getDimensions().get("cpu"), full.getDimensions().get("cpu"));
+            assertEquals(event.getPayload(), full.getPayload());
+        }
+
+        // empty sets return no keys, null returns all keys
+        final List<Events.Event> timestampsOnly = events.get(this.namespace,
+                timestamp, timestamp + 50, null, null, false,
+                Collections.emptySet(), Collections.emptySet()
+        );
+        assertEquals(timestampsOnly.size(), 50);
+        for (final Events.Event event : timestampsOnly) {
+            assertTrue(event.getMetadata().isEmpty());
+            assertTrue(event.getDimensions().isEmpty());
+        }
+        final List<Events.Event> allKeys = events.get(this.namespace,
+                timestamp, timestamp + 50, null, null, false, null, null
+        );
+        assertEquals(allKeys.get(0).getMetadata().size(), 3);
+        assertEquals(allKeys.get(0).getDimensions().size(), 2);
+
+        assertThrows(IllegalArgumentException.class, () -> events.get(this.namespace,
+                timestamp, timestamp + 50, null, null, false, Collections.singleton(""), null));
+    }
+
+    @Test
+    public void testCountAndExists() throws Exception {
+        final Events events = getEvents();
+        final long dayMillis = TimeUnit.DAYS.toMillis(1);
+        final long startTimestamp = System.currentTimeMillis() - 3 * dayMillis;
+        // events spread over a few days, with two sets of metadata keys
+        final List<Events.Event> storedEvents = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put(i % 2 == 0 ? "even" : "odd", String.valueOf(i));
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", (double) i);
+            storedEvents.add(new Events.Event(startTimestamp + i * (3 * dayMillis / 200), metadata, dimensions));
+        }
+        events.store(this.namespace, storedEvents);
+        final long endTimestamp = startTimestamp + 3 * dayMillis;
+
+        assertEquals(events.count(this.namespace, startTimestamp, endTimestamp, null, null), 200);
+        assertTrue(events.exists(this.namespace, startTimestamp, endTimestamp, null, null));
+
+        final Map<String, String> metadataQuery = new HashMap<>();
+        metadataQuery.put("odd", "~.*");
+        assertEquals(events.count(this.namespace, startTimestamp, endTimestamp, metadataQuery, null), 100);
+        final Map<String, String> dimensionsQuery = new HashMap<>();
+        dimensionsQuery.put("value", "<50");
+        assertEquals(events.count(this.namespace, startTimestamp, endTimestamp, metadataQuery, dimensionsQuery), 25);
+        assertTrue(events.exists(this.namespace, startTimestamp, endTimestamp, metadataQuery, dimensionsQuery));
+
+        // no match on values, on time range, or on unknown keys
+        dimensionsQuery.put("value", ">1000");
+        assertEquals(events.count(this.namespace, startTimestamp, endTimestamp, null, dimensionsQuery), 0);
+        assertFalse(events.exists(this.namespace, startTimestamp, endTimestamp, null, dimensionsQuery));
+        assertEquals(events.count(this.namespace, 0, startTimestamp - 1, null, null), 0);
+        assertFalse(events.exists(this.namespace, 0, startTimestamp - 1, null, null));
+        final Map<String, String> unknownKeyQuery = new HashMap<>();
+        unknownKeyQuery.put("unknown", "~.*");
+        assertEquals(events.count(this.namespace, startTimestamp, endTimestamp, unknownKeyQuery, null), 0);
+        assertFalse(events.exists(this.namespace, startTimestamp, endTimestamp, unknownKeyQuery, null));
+
+        assertThrows(IllegalArgumentException.class, () -> events.count(this.namespace, 1, 0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> events.exists(null, 0, 1, null, null));
+    }
+
     @Test
     public void testCreateDrop() throws Exception {
         final Events events = getEvents();
@@ -447,6 +660,345 @@ public abstract class AbstractBaseEventsTest extends AbstractBaseCantorTest {
         assertEquals(returnedCount, count);
     }
 
+    @Test
+    public void testAggregateGroups() throws Exception {
+        final Events events = getEvents();
+        final long startTimestampMillis = System.currentTimeMillis();
+        final int total = 1_000;
+
+        // ten hosts in two regions; an extra metadata key spreads each host over multiple chunk tables
+        final Map<String, Double> expectedSums = new HashMap<>();
+        final List<Events.Event> batch = new ArrayList<>();
+        for (int i = 0; i < total; ++i) {
+            final String host = "host-" + (i % 10);
+            final double latency = (i % 10) * 10 + (i % 7);
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("host", host);
+            metadata.put("region", "region-" + (i % 2));
+            metadata.put("extra-" + (i % 3), "value");
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("latency", latency);
+            batch.add(new Events.Event(startTimestampMillis + i, metadata, dimensions));
+            expectedSums.merge(host, latency, Double::sum);
+        }
+        events.store(this.namespace, batch);
+
+        final List<Events.GroupAggregate> top = events.aggregateGroups(this.namespace,
+                "latency",
+                startTimestampMillis,
+                startTimestampMillis + total,
+                null,
+                null,
+                Collections.singletonList("host"),
+                0,
+                Events.AggregationFunction.SUM,
+                Events.Order.DESCENDING,
+                3
+        );
+        assertEquals(top.size(), 3);
+        for (int i = 0; i < top.size(); ++i) {
+            final String host = "host-" + (9 - i);
+            assertEquals(top.get(i).getGroup(), Collections.singletonMap("host", host));
+            assertEquals(top.get(i).getTimestampMillis(), startTimestampMillis);
+            assertEquals(top.get(i).getValue(), expectedSums.get(host), 0.001);
+        }
+
+        final List<Events.GroupAggregate> bottom = events.aggregateGroups(this.namespace,
+                "latency",
+                startTimestampMillis,
+                startTimestampMillis + total,
+                null,
+                null,
+                Collections.singletonList("host"),
+                0,
+                Events.AggregationFunction.AVG,
+                Events.Order.ASCENDING,
+                2
+        );
+        assertEquals(bottom.size(), 2);
+        assertEquals(bottom.get(0).getGroup().get("host"), "host-0");
+        assertEquals(bottom.get(1).getGroup().get("host"), "host-1");
+
+        // group by two keys, all groups
+        final Map<String, String> metadataQuery = new HashMap<>();
+        metadataQuery.put("region", "region-0");
+        final List<Events.GroupAggregate> regionHosts = events.aggregateGroups(this.namespace,
+                "latency",
+                startTimestampMillis,
+                startTimestampMillis + total,
+                metadataQuery,
+                null,
+                Arrays.asList("region", "host"),
+                0,
+                Events.AggregationFunction.COUNT,
+                Events.Order.DESCENDING,
+                0
+        );
+        // only even hosts are in region-0
+        assertEquals(regionHosts.size(), 5);
+        for (final Events.GroupAggregate groupAggregate : regionHosts) {
+            assertEquals(new ArrayList<>(groupAggregate.getGroup().keySet()), Arrays.asList("region", "host"));
+            assertEquals(groupAggregate.getGroup().get("region"), "region-0");
+            assertEquals(groupAggregate.getValue(), 100.0, 0.001);
+        }
+
+        // top hosts bucketed by time; buckets of a group add up to the group's total
+        final int interval = 100;
+        final List<Events.GroupAggregate> bucketed = events.aggregateGroups(this.namespace,
+                "latency",
+                startTimestampMillis,
+                startTimestampMillis + total,
+                null,
+                null,
+                Collections.singletonList("host"),
+                interval,
+                Events.AggregationFunction.SUM,
+                Events.Order.DESCENDING,
+                2
+        );
+        final Map<String, Double> bucketedSums = new LinkedHashMap<>();
+        long previousTimestampMillis = 0;
+        String previousHost = null;
+        for (final Events.GroupAggregate groupAggregate : bucketed) {
+            final String host = groupAggregate.getGroup().get("host");
+            assertEquals(groupAggregate.getTimestampMillis() % interval, 0);
+            if (host.equals(previousHost)) {
+                assertTrue(groupAggregate.getTimestampMillis() > previousTimestampMillis);
+            }
+            previousHost = host;
+            previousTimestampMillis = groupAggregate.getTimestampMillis();
+            bucketedSums.merge(host, groupAggregate.getValue(), Double::sum);
+        }
+        assertEquals(new ArrayList<>(bucketedSums.keySet()), Arrays.asList("host-9", "host-8"));
+        for (final Map.Entry<String, Double> entry : bucketedSums.entrySet()) {
+            assertEquals(entry.getValue(), expectedSums.get(entry.getKey()), 0.001);
+        }
+
+        // unknown group by key
+        assertTrue(events.aggregateGroups(this.namespace,
+                "latency",
+                startTimestampMillis,
+                startTimestampMillis + total,
+                null,
+                null,
+                Collections.singletonList("unknown"),
+                0,
+                Events.AggregationFunction.SUM,
+                Events.Order.DESCENDING,
+                10
+        ).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> events.aggregateGroups(this.namespace,
+                "latency", startTimestampMillis, startTimestampMillis + total, null, null,
+                Collections.emptyList(), 0, Events.AggregationFunction.SUM, Events.Order.DESCENDING, 10));
+    }
+
+    @Test
+    public void testPercentilesAndDistinctCount() throws Exception {
+        final Events events = getEvents();
+        final int interval = 3_600_000;
+        // all events fall in the same hour
+        final long startTimestampMillis = System.currentTimeMillis() / interval * interval;
+        final int total = 1_000;
+        for (int i = 0; i < total; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("host", "host-" + (i % 2));
+            final Map<String, Double> dimensions = new HashMap<>();
+            // values 1 to 1000, in random order of timestamps
+            dimensions.put("latency", (double) ((i * 7919) % total + 1));
+            dimensions.put("status", (double) (200 + i % 5));
+            events.store(this.namespace, startTimestampMillis + i, metadata, dimensions);
+        }
+
+        final long endTimestampMillis = startTimestampMillis + total;
+        final Map<Long, Double> p50 = events.aggregate(this.namespace,
+                "latency", startTimestampMillis, endTimestampMillis, null, null, interval, Events.AggregationFunction.P50);
+        final Map<Long, Double> p99 = events.aggregate(this.namespace,
+                "latency", startTimestampMillis, endTimestampMillis, null, null, interval, Events.AggregationFunction.P99);
+        final Map<Long, Double> distinct = events.aggregate(this.namespace,
+                "status", startTimestampMillis, endTimestampMillis, null, null, interval, Events.AggregationFunction.DISTINCT_COUNT);
+        // percentiles are estimated within 1% of the actual value, distinct counts of small sets are exact
+        assertEquals(p50.size(), 1);
+        assertEquals(p50.get(startTimestampMillis), 500.0, 5.0);
+        assertEquals(p99.get(startTimestampMillis), 990.0, 9.9);
+        assertEquals(distinct.get(startTimestampMillis), 5.0, 0.0);
+
+        // percentiles of each group
+        final List<Events.GroupAggregate> groups = events.aggregateGroups(this.namespace,
+                "latency", startTimestampMillis, endTimestampMillis, null, null,
+                Collections.singletonList("host"), 0, Events.AggregationFunction.P95, Events.Order.DESCENDING, 10);
+        assertEquals(groups.size(), 2);
+        for (final Events.GroupAggregate group : groups) {
+            assertEquals(group.getValue(), 950.0, 9.5 + 2.0, group.toString());
+        }
+    }
+
+    @Test
+    public void testAggregationsAcrossChunks() throws Exception {
+        final Events events = getEvents();
+        final long startTimestampMillis = System.currentTimeMillis();
+        final int interval = 100;
+        final int total = 1_000;
+
+        // events with different metadata keys are stored in different chunk tables,
+        // so every interval bucket has values coming from multiple chunks
+        final Map<Long, List<Double>> expectedBuckets = new TreeMap<>();
+        for (int i = 0; i < total; ++i) {
+            final long timestampMillis = startTimestampMillis + i;
+            final double value = ThreadLocalRandom.current().nextDouble();
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("key-" + (i % 3), "value");
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", value);
+            events.store(this.namespace, timestampMillis, metadata, dimensions);
+            expectedBuckets.computeIfAbsent(timestampMillis - (timestampMillis % interval), k -> new ArrayList<>())
+                    .add(value);
+        }
+
+        for (final Events.AggregationFunction function : Events.AggregationFunction.values()) {
+            final Map<Long, Double> results = events.aggregate(this.namespace,
+                    "value",
+                    startTimestampMillis,
+                    startTimestampMillis + total,
+                    null,
+                    null,
+                    interval,
+                    function
+            );
+            assertEquals(results.keySet(), expectedBuckets.keySet(), function.toString());
+            for (final Map.Entry<Long, List<Double>> entry : expectedBuckets.entrySet()) {
+                final List<Double> values = entry.getValue();
+                double sum = 0.0;
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for (final double value : values) {
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                final double avg = sum / values.size();
+                double squaredDeviations = 0.0;
+                for (final double value : values) {
+                    squaredDeviations += (value - avg) * (value - avg);
+                }
+                final List<Double> sorted = new ArrayList<>(values);
+                Collections.sort(sorted);
+                final double expected;
+                switch (function) {
+                    case COUNT: expected = values.size(); break;
+                    case SUM: expected = sum; break;
+                    case MIN: expected = min; break;
+                    case MAX: expected = max; break;
+                    case AVG: expected = avg; break;
+                    case VAR_POP: expected = squaredDeviations / values.size(); break;
+                    case VAR_SAMP: expected = values.size() < 2 ? 0.0 : squaredDeviations / (values.size() - 1); break;
+                    case STDDEV_POP: expected = Math.sqrt(squaredDeviations / values.size()); break;
+                    case STDDEV_SAMP: expected = values.size() < 2 ? 0.0 : Math.sqrt(squaredDeviations / (values.size() - 1)); break;
+                    case P50: expected = sorted.get((int) (0.50 * (sorted.size() - 1))); break;
+                    case P90: expected = sorted.get((int) (0.90 * (sorted.size() - 1))); break;
+                    case P95: expected = sorted.get((int) (0.95 * (sorted.size() - 1))); break;
+                    case P99: expected = sorted.get((int) (0.99 * (sorted.size() - 1))); break;
+                    case DISTINCT_COUNT: expected = new HashSet<>(values).size(); break;
+                    default: throw new IllegalStateException();
+                }
+                // percentiles are estimated within 1% of the actual value
+                final double delta = Math.max(1e-6, expected * 0.01);
+                assertEquals(results.get(entry.getKey()), expected, delta, function + " at " + entry.getKey());
+            }
+        }
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        final Events events = getEvents();
+        final long dayMillis = TimeUnit.DAYS.toMillis(1);
+        final long startTimestampMillis = System.currentTimeMillis() - 30 * dayMillis;
+        final List<Events.Event> storedEvents = new ArrayList<>();
+        for (int i = 0; i < 30 * 24; ++i) {
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", (double) i);
+            storedEvents.add(new Events.Event(startTimestampMillis + i * TimeUnit.HOURS.toMillis(1), null, dimensions));
+        }
+        events.store(this.namespace, storedEvents);
+
+        final long expireEndTimestampMillis = startTimestampMillis + 15 * dayMillis + 12345;
+        events.expire(this.namespace, expireEndTimestampMillis);
+
+        // nothing at or after the end timestamp is expired
+        assertEquals(events.get(this.namespace, expireEndTimestampMillis, Long.MAX_VALUE).size(),
+                storedEvents.stream().filter(e -> e.getTimestampMillis() >= expireEndTimestampMillis).count());
+        // everything before the end timestamp is expired, including part of the window containing it
+        assertTrue(events.get(this.namespace, 0, expireEndTimestampMillis - 1).isEmpty());
+        assertEquals(events.count(this.namespace, 0, Long.MAX_VALUE, null, null),
+                storedEvents.stream().filter(e -> e.getTimestampMillis() >= expireEndTimestampMillis).count());
+    }
+
+    @Test
+    public void testDeleteAcrossChunks() throws Exception {
+        final Events events = getEvents();
+        final long dayMillis = TimeUnit.DAYS.toMillis(1);
+        final long startTimestampMillis = (System.currentTimeMillis() - 10 * dayMillis) / dayMillis * dayMillis;
+        final List<Events.Event> storedEvents = new ArrayList<>();
+        for (int i = 0; i < 10 * 24; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("parity", i % 2 == 0 ? "even" : "odd");
+            storedEvents.add(new Events.Event(startTimestampMillis + i * TimeUnit.HOURS.toMillis(1), metadata, null));
+        }
+        events.store(this.namespace, storedEvents);
+
+        // whole days in the middle, plus part of the day before and after
+        final long deleteStartMillis = startTimestampMillis + 2 * dayMillis - TimeUnit.HOURS.toMillis(6);
+        final long deleteEndMillis = startTimestampMillis + 6 * dayMillis + TimeUnit.HOURS.toMillis(6) - 1;
+        final long expectedDeleted = storedEvents.stream()
+                .filter(e -> e.getTimestampMillis() >= deleteStartMillis && e.getTimestampMillis() <= deleteEndMillis)
+                .count();
+        assertEquals(events.delete(this.namespace, deleteStartMillis, deleteEndMillis, null, null), expectedDeleted);
+        assertEquals(events.count(this.namespace, deleteStartMillis, deleteEndMillis, null, null), 0);
+        assertEquals(events.count(this.namespace, 0, Long.MAX_VALUE, null, null), storedEvents.size() - expectedDeleted);
+
+        // deletes with a query only delete matching events, across chunk tables
+        final Map<String, String> metadataQuery = new HashMap<>();
+        metadataQuery.put("parity", "odd");
+        final long expectedOdd = storedEvents.stream()
+                .filter(e -> e.getTimestampMillis() < deleteStartMillis || e.getTimestampMillis() > deleteEndMillis)
+                .filter(e -> "odd".equals(e.getMetadata().get("parity")))
+                .count();
+        assertEquals(events.delete(this.namespace, 0, Long.MAX_VALUE, metadataQuery, null), expectedOdd);
+        assertEquals(events.count(this.namespace, 0, Long.MAX_VALUE, metadataQuery, null), 0);
+        assertEquals(events.count(this.namespace, 0, Long.MAX_VALUE, null, null),
+                storedEvents.size() - expectedDeleted - expectedOdd);
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        final Events events = getEvents();
+        assertEquals(events.getRetention(this.namespace), 0);
+        assertThrows(IllegalArgumentException.class, () -> events.setRetention(this.namespace, -1));
+
+        final long now = System.currentTimeMillis();
+        final long hourMillis = TimeUnit.HOURS.toMillis(1);
+        final List<Events.Event> storedEvents = new ArrayList<>();
+        for (int i = 0; i < 48; ++i) {
+            storedEvents.add(new Events.Event(now - i * hourMillis, null, null));
+        }
+        events.store(this.namespace, storedEvents);
+
+        // nothing is expired without a retention policy
+        events.expire(this.namespace);
+        assertEquals(events.get(this.namespace, 0, Long.MAX_VALUE).size(), 48);
+
+        events.setRetention(this.namespace, 10 * hourMillis + hourMillis / 2);
+        events.setRetention(this.namespace, 12 * hourMillis + hourMillis / 2);
+        assertEquals(events.getRetention(this.namespace), 12 * hourMillis + hourMillis / 2);
+        events.expire(this.namespace);
+        // events from now to twelve hours ago are kept
+        assertEquals(events.get(this.namespace, 0, Long.MAX_VALUE).size(), 13);
+
+        events.setRetention(this.namespace, 0);
+        assertEquals(events.getRetention(this.namespace), 0);
+        events.expire(this.namespace);
+        assertEquals(events.get(this.namespace, 0, Long.MAX_VALUE).size(), 13);
+    }
+
     @Test
     public void testMetadata() throws Exception {
         final Events events = getEvents();
@@ -480,6 +1032,43 @@ public abstract class AbstractBaseEventsTest extends AbstractBaseCantorTest {
         }
     }
 
+    @Test
+    public void testMetadataWithPrefixAndLimit() throws Exception {
+        final Events events = getEvents();
+        final long now = System.currentTimeMillis();
+        final long dayMillis = TimeUnit.DAYS.toMillis(1);
+
+        // spread values over a few days, so they land in different chunks
+        final Set<String> matchingValues = new HashSet<>();
+        for (int day = 0; day < 3; ++day) {
+            for (int i = 0; i < 10; ++i) {
+                final String matching = "host_" + day + "-" + i;
+                matchingValues.add(matching);
+                events.store(this.namespace, now - day * dayMillis + i,
+                        Collections.singletonMap("test-metadata-key", matching), null);
+                events.store(this.namespace, now - day * dayMillis + i,
+                        Collections.singletonMap("test-metadata-key", "hostX" + day + "-" + i), null);
+                events.store(this.namespace, now - day * dayMillis + i,
+                        Collections.singletonMap("test-metadata-key", "other-" + day + "-" + i), null);
+            }
+        }
+        final long start = now - 3 * dayMillis;
+        final long end = now + dayMillis;
+
+        // underscore is matched literally, not as a wildcard
+        final Set<String> prefixed = events.metadata(this.namespace, "test-metadata-key", start, end, null, null, "host_", 0);
+        assertEquals(prefixed, matchingValues);
+
+        final Set<String> limited = events.metadata(this.namespace, "test-metadata-key", start, end, null, null, "host_", 7);
+        assertEquals(limited.size(), 7);
+        assertTrue(matchingValues.containsAll(limited));
+
+        final Set<String> all = events.metadata(this.namespace, "test-metadata-key", start, end, null, null, null, 0);
+        assertEquals(all.size(), 90);
+        assertEquals(events.metadata(this.namespace, "test-metadata-key", start, end, null, null, null, 25).size(), 25);
+        assertTrue(events.metadata(this.namespace, "test-metadata-key", start, end, null, null, "%", 0).isEmpty());
+    }
+
     private Map<String, Double> getRandomDimensions(final int count) {
         final Map<String, Double> dimensions = new HashMap<>();
         for (int i = 0; i < count; ++i) {
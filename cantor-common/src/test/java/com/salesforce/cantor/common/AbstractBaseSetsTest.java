@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -246,7 +247,215 @@ public abstract class AbstractBaseSetsTest extends AbstractBaseCantorTest {
         assertEquals(returnedEntries.size(), allEntries.size());
     }
 
-//    @Test
+    @Test
+    public void testUnionAggregates() throws IOException {
+        final Sets sets = getSets();
+
+        final String first = UUID.randomUUID().toString();
+        final String second = UUID.randomUUID().toString();
+        for (int i = 0; i < 100; ++i) {
+            sets.add(namespace, first, "entry-" + i, i);
+            sets.add(namespace, second, "entry-" + (i + 50), 10L * i);
+        }
+
+        // test bad union() input
+        assertThrows(IllegalArgumentException.class,
+                () -> sets.union(namespace, Arrays.asList(first, second), 0, 1, 0, -1, true, null));
+
+        // entries in both sets are returned once, with their weights aggregated
+        final Map<String, Long> sum = sets.union(namespace, Arrays.asList(first, second, first), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.SUM);
+        final Map<String, Long> min = sets.union(namespace, Arrays.asList(first, second), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.MIN);
+        final Map<String, Long> max = sets.union(namespace, Arrays.asList(first, second), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.MAX);
+        assertEquals(sum, sets.union(namespace, Arrays.asList(second, first), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.SUM));
+        assertEquals(sum.size(), 150);
+        assertEquals(min.size(), 150);
+        assertEquals(max.size(), 150);
+        for (int i = 0; i < 150; ++i) {
+            final String entry = "entry-" + i;
+            final Long firstWeight = i < 100 ? (long) i : null;
+            final Long secondWeight = i >= 50 ? 10L * (i - 50) : null;
+            if (firstWeight != null && secondWeight != null) {
+                assertEquals(sum.get(entry).longValue(), firstWeight + secondWeight);
+                assertEquals(min.get(entry).longValue(), Math.min(firstWeight, secondWeight));
+                assertEquals(max.get(entry).longValue(), Math.max(firstWeight, secondWeight));
+            } else {
+                final long weight = firstWeight != null ? firstWeight : secondWeight;
+                assertEquals(sum.get(entry).longValue(), weight);
+                assertEquals(min.get(entry).longValue(), weight);
+                assertEquals(max.get(entry).longValue(), weight);
+            }
+        }
+
+        // paging applies after aggregation: the top entries by aggregated weight
+        final Map<String, Long> top = sets.union(namespace, Arrays.asList(first, second), Long.MIN_VALUE, Long.MAX_VALUE, 0, 3, false, Sets.Aggregate.SUM);
+        assertEquals(new ArrayList<>(top.keySet()), Arrays.asList("entry-149", "entry-148", "entry-147"));
+        final Map<String, Long> filtered = sets.union(namespace, Arrays.asList(first, second), 50, 60, 0, -1, true, Sets.Aggregate.SUM);
+        assertTrue(filtered.values().stream().allMatch(w -> w >= 50 && w <= 60));
+        assertEquals(filtered.size(), sum.values().stream().filter(w -> w >= 50 && w <= 60).count());
+
+        // without an aggregate, entries keep one of their weights and min/max apply to the weight in each set
+        final Map<String, Long> any = sets.union(namespace, Arrays.asList(first, second));
+        assertEquals(any.size(), 150);
+        for (final Map.Entry<String, Long> entry : any.entrySet()) {
+            assertTrue(entry.getValue().equals(sets.weight(namespace, first, entry.getKey()))
+                    || entry.getValue().equals(sets.weight(namespace, second, entry.getKey())));
+        }
+        final Map<String, Long> unaggregated = sets.union(namespace, Arrays.asList(first, second), 50, 60, 0, -1, true);
+        assertTrue(unaggregated.values().stream().allMatch(w -> w >= 50 && w <= 60));
+        for (int i = 50; i <= 60; ++i) {
+            assertTrue(unaggregated.containsKey("entry-" + i));
+        }
+        assertEquals(unaggregated.size(), 11);
+    }
+
+    @Test
+    public void testUnionStore() throws IOException {
+        final Sets sets = getSets();
+
+        final String first = UUID.randomUUID().toString();
+        final String second = UUID.randomUUID().toString();
+        final String destination = UUID.randomUUID().toString();
+        for (int i = 0; i < 100; ++i) {
+            sets.add(namespace, first, "entry-" + i, i);
+            sets.add(namespace, second, "entry-" + (i + 50), i);
+        }
+        sets.add(namespace, destination, "stale-entry", 0);
+
+        // test bad unionStore() input
+        assertThrows(IllegalArgumentException.class, () -> sets.unionStore(namespace, null, Collections.singletonList(first)));
+        assertThrows(IllegalArgumentException.class, () -> sets.unionStore(namespace, destination, Collections.emptyList()));
+
+        // the destination content is replaced with the union
+        assertEquals(sets.unionStore(namespace, destination, Arrays.asList(first, second), Sets.Aggregate.MAX), 150);
+        assertEquals(sets.size(namespace, destination), 150);
+        assertNull(sets.weight(namespace, destination, "stale-entry"));
+        assertEquals(sets.get(namespace, destination), sets.union(namespace, Arrays.asList(first, second), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.MAX));
+
+        // the destination can be one of the sets
+        assertEquals(sets.unionStore(namespace, first, Arrays.asList(first, second)), 150);
+        assertEquals(sets.weight(namespace, first, "entry-70").longValue(), 70 + 20);
+        assertEquals(sets.weight(namespace, first, "entry-10").longValue(), 10);
+        assertEquals(sets.weight(namespace, first, "entry-140").longValue(), 90);
+        assertEquals(sets.size(namespace, second), 100);
+    }
+
+    @Test
+    public void testInterStore() throws IOException {
+        final Sets sets = getSets();
+
+        final String first = UUID.randomUUID().toString();
+        final String second = UUID.randomUUID().toString();
+        final String destination = UUID.randomUUID().toString();
+        for (int i = 0; i < 100; ++i) {
+            sets.add(namespace, first, "entry-" + i, i);
+            sets.add(namespace, second, "entry-" + (i + 50), i);
+        }
+        sets.add(namespace, destination, "stale-entry", 0);
+
+        // test bad interStore() input
+        assertThrows(IllegalArgumentException.class, () -> sets.interStore(namespace, "", Collections.singletonList(first)));
+        assertThrows(IllegalArgumentException.class, () -> sets.interStore(namespace, destination, Collections.emptyList()));
+
+        // the destination content is replaced with the intersection
+        assertEquals(sets.interStore(namespace, destination, Arrays.asList(first, second), Sets.Aggregate.MIN), 50);
+        assertNull(sets.weight(namespace, destination, "stale-entry"));
+        assertEquals(sets.get(namespace, destination), sets.intersect(namespace, Arrays.asList(first, second), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.MIN));
+
+        // the destination can be one of the sets
+        assertEquals(sets.interStore(namespace, first, Arrays.asList(second, first)), 50);
+        assertEquals(sets.weight(namespace, first, "entry-70").longValue(), 70 + 20);
+        assertNull(sets.weight(namespace, first, "entry-10"));
+        assertEquals(sets.size(namespace, second), 100);
+
+        // intersecting with a missing set stores nothing
+        assertEquals(sets.interStore(namespace, destination, Arrays.asList(first, UUID.randomUUID().toString())), 0);
+        assertEquals(sets.size(namespace, destination), 0);
+    }
+
+    @Test
+    public void testDiff() throws IOException {
+        final Sets sets = getSets();
+
+        final String set = UUID.randomUUID().toString();
+        final String first = UUID.randomUUID().toString();
+        final String second = UUID.randomUUID().toString();
+        final String destination = UUID.randomUUID().toString();
+        for (int i = 0; i < 100; ++i) {
+            sets.add(namespace, set, "entry-" + i, i);
+            if (i % 2 == 0) {
+                sets.add(namespace, first, "entry-" + i, 1000);
+            }
+            if (i % 3 == 0) {
+                sets.add(namespace, second, "entry-" + i, 1000);
+            }
+        }
+
+        // test bad diff() input
+        assertThrows(IllegalArgumentException.class, () -> sets.diff(namespace, null, Collections.singletonList(first)));
+        assertThrows(IllegalArgumentException.class, () -> sets.diff(namespace, set, null));
+
+        // entries not in any of the other sets are returned with their weight in the set
+        final Map<String, Long> diff = sets.diff(namespace, set, Arrays.asList(first, second));
+        assertEquals(diff.size(), 33);
+        for (final Map.Entry<String, Long> entry : diff.entrySet()) {
+            final int i = Integer.parseInt(entry.getKey().substring("entry-".length()));
+            assertTrue(i % 2 != 0 && i % 3 != 0);
+            assertEquals(entry.getValue().longValue(), i);
+        }
+        assertEquals(sets.diff(namespace, set, Collections.emptyList()).size(), 100);
+        assertTrue(sets.diff(namespace, set, Collections.singletonList(set)).isEmpty());
+        final Map<String, Long> page = sets.diff(namespace, set, Arrays.asList(first, second), 10, 100, 1, 2, false);
+        assertEquals(new ArrayList<>(page.keySet()), Arrays.asList("entry-95", "entry-91"));
+
+        // the destination content is replaced with the difference
+        sets.add(namespace, destination, "stale-entry", 0);
+        assertEquals(sets.diffStore(namespace, destination, set, Arrays.asList(first, second)), 33);
+        assertEquals(sets.get(namespace, destination), diff);
+
+        // the destination can be one of the sets
+        assertEquals(sets.diffStore(namespace, first, set, Collections.singletonList(first)), 50);
+        assertEquals(sets.weight(namespace, first, "entry-1").longValue(), 1);
+        assertNull(sets.weight(namespace, first, "entry-0"));
+        assertEquals(sets.diffStore(namespace, set, set, Collections.singletonList(second)), 66);
+        assertNull(sets.weight(namespace, set, "entry-3"));
+    }
+
+    @Test
+    public void testMoveAndCopy() throws IOException {
+        final Sets sets = getSets();
+
+        final String pending = UUID.randomUUID().toString();
+        final String inProgress = UUID.randomUUID().toString();
+        final String copy = UUID.randomUUID().toString();
+        addRandoms(namespace, sets, pending, 10);
+        final String entry = sets.entries(namespace, pending).iterator().next();
+        final long weight = sets.weight(namespace, pending, entry);
+
+        // test bad move()/copy() input
+        assertThrows(IllegalArgumentException.class, () -> sets.move(namespace, pending, inProgress, null));
+        assertThrows(IllegalArgumentException.class, () -> sets.copy(namespace, pending, ""));
+
+        assertTrue(sets.move(namespace, pending, inProgress, entry));
+        assertNull(sets.weight(namespace, pending, entry));
+        assertEquals(sets.weight(namespace, inProgress, entry).longValue(), weight);
+        assertFalse(sets.move(namespace, pending, inProgress, entry));
+        assertTrue(sets.move(namespace, inProgress, inProgress, entry));
+        assertEquals(sets.size(namespace, inProgress), 1);
+
+        // the destination weight is overwritten
+        sets.add(namespace, pending, entry, weight + 100);
+        assertTrue(sets.move(namespace, pending, inProgress, entry));
+        assertEquals(sets.weight(namespace, inProgress, entry).longValue(), weight + 100);
+
+        // copy replaces the destination content
+        sets.add(namespace, copy, "stale-entry", 0);
+        assertEquals(sets.copy(namespace, pending, copy), 9);
+        assertEquals(sets.get(namespace, copy), sets.get(namespace, pending));
+        assertEquals(sets.copy(namespace, copy, copy), 9);
+        assertEquals(sets.copy(namespace, UUID.randomUUID().toString(), copy), 0);
+    }
+
+    @Test
     public void testIntersect() throws IOException {
         final Sets sets = getSets();
 
@@ -255,7 +464,9 @@ public abstract class AbstractBaseSetsTest extends AbstractBaseCantorTest {
         int weight = 0;
         final String commonEntry = UUID.randomUUID().toString();
         allEntries.add(commonEntry);
-        for (int i = 0; i < ThreadLocalRandom.current().nextInt(1, 100); ++i) {
+        // at least two sets, otherwise the intersection is all entries of the only set
+        final int setsCount = ThreadLocalRandom.current().nextInt(2, 100);
+        for (int i = 0; i < setsCount; ++i) {
             final String setName = UUID.randomUUID().toString();
             setNames.add(setName);
             sets.add(namespace, setName, commonEntry);
@@ -273,6 +484,59 @@ public abstract class AbstractBaseSetsTest extends AbstractBaseCantorTest {
         assertEquals(returnedEntries.keySet().size(), 1);
     }
 
+    @Test
+    public void testIntersectAggregates() throws IOException {
+        final Sets sets = getSets();
+
+        final String small = UUID.randomUUID().toString();
+        final String large = UUID.randomUUID().toString();
+        final String other = UUID.randomUUID().toString();
+        final Map<String, Long> largeEntries = new HashMap<>();
+        for (int i = 0; i < 1_000; ++i) {
+            largeEntries.put("entry-" + i, (long) i);
+        }
+        sets.add(namespace, large, largeEntries);
+        final Map<String, Long> otherEntries = new HashMap<>();
+        for (int i = 0; i < 1_000; i += 2) {
+            otherEntries.put("entry-" + i, 2L * i);
+        }
+        sets.add(namespace, other, otherEntries);
+        final Map<String, Long> smallEntries = new HashMap<>();
+        for (int i = 0; i < 10; ++i) {
+            smallEntries.put("entry-" + (i * 100), 5L);
+        }
+        smallEntries.put("not-in-large", 5L);
+        sets.add(namespace, small, smallEntries);
+
+        // test bad intersect() input
+        assertThrows(IllegalArgumentException.class,
+                () -> sets.intersect(namespace, Arrays.asList(small, large), 0, 1, 0, -1, true, null));
+
+        // only entries found in every set are returned, whatever the order of sets
+        final Map<String, Long> sum = sets.intersect(namespace, Arrays.asList(large, other, small), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.SUM);
+        assertEquals(sum, sets.intersect(namespace, Arrays.asList(small, other, large, small)));
+        assertEquals(sum.size(), 10);
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(sum.get("entry-" + (i * 100)).longValue(), i * 100 + 2L * i * 100 + 5);
+        }
+        assertEquals(new ArrayList<>(sum.values()), sum.values().stream().sorted().collect(Collectors.toList()));
+
+        final Map<String, Long> min = sets.intersect(namespace, Arrays.asList(small, large), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.MIN);
+        final Map<String, Long> max = sets.intersect(namespace, Arrays.asList(small, large), Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, true, Sets.Aggregate.MAX);
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(min.get("entry-" + (i * 100)).longValue(), Math.min(5, i * 100));
+            assertEquals(max.get("entry-" + (i * 100)).longValue(), Math.max(5, i * 100));
+        }
+
+        // min/max, paging and ordering apply to the aggregated weights
+        final Map<String, Long> filtered = sets.intersect(namespace, Arrays.asList(small, large), 200, 700, 1, 2, false, Sets.Aggregate.MAX);
+        assertEquals(new ArrayList<>(filtered.keySet()), Arrays.asList("entry-600", "entry-500"));
+
+        // intersecting with an empty or missing set is empty
+        assertTrue(sets.intersect(namespace, Arrays.asList(small, UUID.randomUUID().toString())).isEmpty());
+        assertEquals(sets.intersect(namespace, Collections.singletonList(small)).size(), 11);
+    }
+
     @Test
     public void testPop() throws IOException {
         final Sets sets = getSets();
@@ -329,6 +593,93 @@ public abstract class AbstractBaseSetsTest extends AbstractBaseCantorTest {
         assertTrue(twenties.values().stream().allMatch(w -> w >= 20 && w <= 29), "all weights should be in the twenties");
     }
 
+    @Test
+    public void testClaimAckNack() throws Exception {
+        final Sets sets = getSets();
+
+        final String setKey = UUID.randomUUID().toString();
+        final int totalKeysCount = getCount(100, 300);
+        addRandoms(namespace, sets, setKey, totalKeysCount);
+
+        // test bad claim() input
+        assertThrows(IllegalArgumentException.class, () -> sets.claim(namespace, null, 10, 1000));  // null set should throw
+        assertThrows(IllegalArgumentException.class, () -> sets.claim(namespace, setKey, 0, 1000));  // zero count should throw
+        assertThrows(IllegalArgumentException.class, () -> sets.claim(namespace, setKey, 10, 0));  // zero lease should throw
+        assertThrows(IllegalArgumentException.class, () -> sets.claim(namespace, setKey, 1, 0, 10, true, 1000));  // max < min should throw
+
+        // claimed entries leave the set, lowest weights first
+        final Sets.Claim claim = sets.claim(namespace, setKey, 10, TimeUnit.MINUTES.toMillis(1));
+        final Map<String, Long> claimed = claim.getEntries();
+        assertEquals(claimed.size(), 10);
+        assertTrue(claimed.values().stream().allMatch(w -> w < 10), "should claim the lowest weights first");
+        assertTrue(claim.getLeaseExpiresMillis() > System.currentTimeMillis());
+        assertEquals(sets.size(namespace, setKey), totalKeysCount - 10);
+
+        // acks and nacks under another lease are ignored
+        final List<String> claimedKeys = new ArrayList<>(claimed.keySet());
+        assertThrows(IllegalArgumentException.class, () -> sets.ack(namespace, setKey, null, claimedKeys));
+        sets.nack(namespace, setKey, UUID.randomUUID().toString(), claimedKeys);
+        assertEquals(sets.size(namespace, setKey), totalKeysCount - 10);
+
+        // acknowledged entries are gone for good, released ones go back to the set
+        sets.ack(namespace, setKey, claim.getLeaseId(), claimedKeys.subList(0, 5));
+        sets.nack(namespace, setKey, claim.getLeaseId(), claimedKeys.subList(5, 10));
+        assertEquals(sets.size(namespace, setKey), totalKeysCount - 5);
+        for (final String entry : claimedKeys.subList(5, 10)) {
+            assertEquals(sets.weight(namespace, setKey, entry), claimed.get(entry));
+        }
+
+        // entries with an expired lease are claimed again
+        final Sets.Claim shortLease = sets.claim(namespace, setKey, 10, 1);
+        assertEquals(sets.size(namespace, setKey), totalKeysCount - 15);
+        Thread.sleep(10);
+        final Sets.Claim reclaimed = sets.claim(namespace, setKey, 10, TimeUnit.MINUTES.toMillis(1));
+        assertEquals(reclaimed.getEntries(), shortLease.getEntries());
+        assertNotEquals(reclaimed.getLeaseId(), shortLease.getLeaseId());
+        assertEquals(sets.size(namespace, setKey), totalKeysCount - 15);
+
+        // a late ack of the expired lease leaves the new lease alone, so it can still be released
+        sets.ack(namespace, setKey, shortLease.getLeaseId(), shortLease.getEntries().keySet());
+        sets.nack(namespace, setKey, reclaimed.getLeaseId(), reclaimed.getEntries().keySet());
+        assertEquals(sets.size(namespace, setKey), totalKeysCount - 5);
+    }
+
+    @Test
+    public void testConcurrentClaims() throws Exception {
+        final Sets sets = getSets();
+
+        final String setKey = UUID.randomUUID().toString();
+        final int totalKeysCount = getCount(200, 500);
+        addRandoms(namespace, sets, setKey, totalKeysCount);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            futures.add(executor.submit(() -> {
+                final List<String> entries = new ArrayList<>();
+                Sets.Claim claim;
+                while (!(claim = sets.claim(namespace, setKey, 7, TimeUnit.MINUTES.toMillis(1))).getEntries().isEmpty()) {
+                    entries.addAll(claim.getEntries().keySet());
+                    sets.ack(namespace, setKey, claim.getLeaseId(), claim.getEntries().keySet());
+                }
+                return entries;
+            }));
+        }
+        final Set<String> allClaimed = new HashSet<>();
+        int claimedCount = 0;
+        for (final Future<List<String>> future : futures) {
+            final List<String> entries = future.get();
+            allClaimed.addAll(entries);
+            claimedCount += entries.size();
+        }
+        executor.shutdown();
+
+        // every entry is claimed exactly once
+        assertEquals(claimedCount, totalKeysCount);
+        assertEquals(allClaimed.size(), totalKeysCount);
+        assertEquals(sets.size(namespace, setKey), 0);
+    }
+
     @Test
     public void testKeys() throws IOException {
         final Sets sets = getSets();
@@ -560,6 +911,67 @@ public abstract class AbstractBaseSetsTest extends AbstractBaseCantorTest {
         assertEquals(unchangedWeight.longValue(), 0L, "control weight should still be 0");
     }
 
+    @Test
+    public void testIncBatch() throws IOException {
+        final Sets sets = getSets();
+
+        final String setKey = UUID.randomUUID().toString();
+        final String existing = UUID.randomUUID().toString();
+        final String missing = UUID.randomUUID().toString();
+        sets.add(namespace, setKey, existing, 10L);
+
+        // test bad inc() input
+        assertThrows(IllegalArgumentException.class, () -> sets.inc(namespace, setKey, (Map<String, Long>) null));
+        assertThrows(IllegalArgumentException.class, () -> sets.inc(namespace, setKey, Collections.singletonMap(existing, null)));
+        sets.inc(namespace, setKey, Collections.emptyMap());
+
+        // existing entries are incremented, missing ones are added with the count as weight
+        final Map<String, Long> increments = new HashMap<>();
+        increments.put(existing, 5L);
+        increments.put(missing, -3L);
+        sets.inc(namespace, setKey, increments);
+        assertEquals(sets.weight(namespace, setKey, existing).longValue(), 15L);
+        assertEquals(sets.weight(namespace, setKey, missing).longValue(), -3L);
+
+        sets.inc(namespace, setKey, increments);
+        assertEquals(sets.weight(namespace, setKey, existing).longValue(), 20L);
+        assertEquals(sets.weight(namespace, setKey, missing).longValue(), -6L);
+        assertEquals(sets.size(namespace, setKey), 2);
+
+        // update only increments leave entries not in the set alone
+        final String another = UUID.randomUUID().toString();
+        final Map<String, Long> updates = new HashMap<>();
+        updates.put(existing, 1L);
+        updates.put(another, 1L);
+        sets.inc(namespace, setKey, updates, true);
+        assertEquals(sets.weight(namespace, setKey, existing).longValue(), 21L);
+        assertNull(sets.weight(namespace, setKey, another));
+        assertEquals(sets.size(namespace, setKey), 2);
+    }
+
+    @Test
+    public void testCompareAndSet() throws IOException {
+        final Sets sets = getSets();
+
+        final String setKey = UUID.randomUUID().toString();
+        final String entry = UUID.randomUUID().toString();
+
+        // test bad compareAndSet() input
+        assertThrows(IllegalArgumentException.class, () -> sets.compareAndSet(namespace, setKey, null, null, 0));
+
+        // a null expected weight only adds the entry if it is not in the set
+        assertTrue(sets.compareAndSet(namespace, setKey, entry, null, 1));
+        assertFalse(sets.compareAndSet(namespace, setKey, entry, null, 2));
+        assertEquals(sets.weight(namespace, setKey, entry).longValue(), 1L);
+
+        assertFalse(sets.compareAndSet(namespace, setKey, entry, 0L, 2));
+        assertEquals(sets.weight(namespace, setKey, entry).longValue(), 1L);
+        assertTrue(sets.compareAndSet(namespace, setKey, entry, 1L, 2));
+        assertEquals(sets.weight(namespace, setKey, entry).longValue(), 2L);
+        assertFalse(sets.compareAndSet(namespace, setKey, UUID.randomUUID().toString(), 2L, 3));
+        assertEquals(sets.size(namespace, setKey), 1);
+    }
+
     private int getCount(final int min, final int max) {
         return (int) Math.floor(ThreadLocalRandom.current().nextInt(min, max) * getAddMagnitude());
     }
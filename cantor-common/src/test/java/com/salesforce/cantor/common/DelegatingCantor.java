@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.common;
+
+import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.Events;
+import com.salesforce.cantor.Maps;
+import com.salesforce.cantor.Objects;
+import com.salesforce.cantor.Sets;
+
+/**
+ * Cantor instance returning the objects, sets, maps and events of another one, except for the one it replaces; lets
+ * tests of wrappers or of differently configured instances run the base tests.
+ */
+public class DelegatingCantor implements Cantor {
+    private final Cantor delegate;
+    private final Sets sets;
+    private final Events events;
+
+    private DelegatingCantor(final Cantor delegate, final Sets sets, final Events events) {
+        this.delegate = delegate;
+        this.sets = sets;
+        this.events = events;
+    }
+
+    public static Cantor withSets(final Cantor delegate, final Sets sets) {
+        return new DelegatingCantor(delegate, sets, null);
+    }
+
+    public static Cantor withEvents(final Cantor delegate, final Events events) {
+        return new DelegatingCantor(delegate, null, events);
+    }
+
+    @Override
+    public Objects objects() {
+        return this.delegate.objects();
+    }
+
+    @Override
+    public Sets sets() {
+        return this.sets != null ? this.sets : this.delegate.sets();
+    }
+
+    @Override
+    public Maps maps() {
+        return this.delegate.maps();
+    }
+
+    @Override
+    public Events events() {
+        return this.events != null ? this.events : this.delegate.events();
+    }
+}
@@ -86,7 +86,34 @@ public class EventsOnGrpc extends AbstractBaseGrpcClient<EventsServiceBlockingSt
                            final Map<String, String> metadataQuery,
                            final Map<String, String> dimensionsQuery,
                            final boolean includePayloads) throws IOException {
-        checkGet(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads,
+                null,
+                null
+        );
+    }
+
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads,
+                           final Set<String> metadataKeys,
+                           final Set<String> dimensionKeys) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                metadataKeys,
+                dimensionKeys
+        );
         return call(() -> {
             final GetRequest request = GetRequest.newBuilder()
                     .setNamespace(namespace)
@@ -95,21 +122,12 @@ public class EventsOnGrpc extends AbstractBaseGrpcClient<EventsServiceBlockingSt
                     .putAllMetadataQuery(nullToEmpty(metadataQuery))
                     .putAllDimensionsQuery(nullToEmpty(dimensionsQuery))
                     .setIncludePayloads(includePayloads)
+                    .setFilterMetadataKeys(metadataKeys != null)
+                    .addAllMetadataKeys(metadataKeys != null ? metadataKeys : Collections.emptySet())
+                    .setFilterDimensionKeys(dimensionKeys != null)
+                    .addAllDimensionKeys(dimensionKeys != null ? dimensionKeys : Collections.emptySet())
                     .build();
-            final List<Event> results = new ArrayList<>();
-            final GetResponse response = getStub().get(request);
-            final List<EventProto> eventProtos = response.getResultsList();
-            for (final EventProto proto : eventProtos) {
-                final ByteString payloadByteString = proto.getPayload();
-                results.add(
-                        new Event(
-                                proto.getTimestampMillis(),
-                                proto.getMetadataMap(),
-                                proto.getDimensionsMap(),
-                                payloadByteString != null ? payloadByteString.toByteArray() : null
-                        )
-                );
-            }
+            final List<Event> results = toEvents(getStub().get(request).getResultsList());
             // sort all results
             results.sort((event1, event2) -> {
                 if (event1.getTimestampMillis() < event2.getTimestampMillis()) {
@@ -123,6 +141,84 @@ public class EventsOnGrpc extends AbstractBaseGrpcClient<EventsServiceBlockingSt
         });
     }
 
+    @Override
+    public Page get(final String namespace,
+                    final long startTimestampMillis,
+                    final long endTimestampMillis,
+                    final Map<String, String> metadataQuery,
+                    final Map<String, String> dimensionsQuery,
+                    final boolean includePayloads,
+                    final Order order,
+                    final int limit,
+                    final String continuationToken) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                order,
+                limit,
+                continuationToken
+        );
+        return call(() -> {
+            final GetPageRequest request = GetPageRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setStartTimestampMillis(startTimestampMillis)
+                    .setEndTimestampMillis(endTimestampMillis)
+                    .putAllMetadataQuery(nullToEmpty(metadataQuery))
+                    .putAllDimensionsQuery(nullToEmpty(dimensionsQuery))
+                    .setIncludePayloads(includePayloads)
+                    .setOrder(GetPageRequest.Order.valueOf(order.name()))
+                    .setLimit(limit)
+                    .setContinuationToken(continuationToken != null ? continuationToken : "")
+                    .build();
+            final GetPageResponse response = getStub().getPage(request);
+            return new Page(toEvents(response.getResultsList()),
+                    !response.getContinuationToken().isEmpty() ? response.getContinuationToken() : null
+            );
+        });
+    }
+
+    @Override
+    public long count(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        checkCount(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return call(() -> {
+            final CountRequest request = CountRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setStartTimestampMillis(startTimestampMillis)
+                    .setEndTimestampMillis(endTimestampMillis)
+                    .putAllMetadataQuery(nullToEmpty(metadataQuery))
+                    .putAllDimensionsQuery(nullToEmpty(dimensionsQuery))
+                    .build();
+            final CountResponse response = getStub().count(request);
+            return response.getResults();
+        });
+    }
+
+    @Override
+    public boolean exists(final String namespace,
+                          final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery) throws IOException {
+        checkExists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return call(() -> {
+            final ExistsRequest request = ExistsRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setStartTimestampMillis(startTimestampMillis)
+                    .setEndTimestampMillis(endTimestampMillis)
+                    .putAllMetadataQuery(nullToEmpty(metadataQuery))
+                    .putAllDimensionsQuery(nullToEmpty(dimensionsQuery))
+                    .build();
+            final ExistsResponse response = getStub().exists(request);
+            return response.getResults();
+        });
+    }
+
     @Override
     public int delete(final String namespace,
                       final long startTimestampMillis,
@@ -202,6 +298,57 @@ public class EventsOnGrpc extends AbstractBaseGrpcClient<EventsServiceBlockingSt
         });
     }
 
+    @Override
+    public List<GroupAggregate> aggregateGroups(final String namespace,
+                                                final String dimension,
+                                                final long startTimestampMillis,
+                                                final long endTimestampMillis,
+                                                final Map<String, String> metadataQuery,
+                                                final Map<String, String> dimensionsQuery,
+                                                final List<String> groupByMetadataKeys,
+                                                final int aggregateIntervalMillis,
+                                                final AggregationFunction aggregationFunction,
+                                                final Order order,
+                                                final int limit) throws IOException {
+        checkAggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+        return call(() -> {
+            final AggregateGroupsRequest request = AggregateGroupsRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setDimension(dimension)
+                    .setStartTimestampMillis(startTimestampMillis)
+                    .setEndTimestampMillis(endTimestampMillis)
+                    .putAllMetadataQuery(nullToEmpty(metadataQuery))
+                    .putAllDimensionsQuery(nullToEmpty(dimensionsQuery))
+                    .addAllGroupByMetadataKeys(groupByMetadataKeys)
+                    .setAggregationIntervalMillis(aggregateIntervalMillis)
+                    .setAggregationFunction(AggregateRequest.AggregationFunction.valueOf(aggregationFunction.name()))
+                    .setOrder(GetPageRequest.Order.valueOf(order.name()))
+                    .setLimit(limit)
+                    .build();
+            final List<GroupAggregate> results = new ArrayList<>();
+            for (final GroupAggregateProto groupAggregate : getStub().aggregateGroups(request).getResultsList()) {
+                // proto maps are not ordered, put the group values back in order of the keys
+                final Map<String, String> group = new LinkedHashMap<>();
+                for (final String metadataKey : groupByMetadataKeys) {
+                    group.put(metadataKey, groupAggregate.getGroupMap().get(metadataKey));
+                }
+                results.add(new GroupAggregate(group, groupAggregate.getTimestampMillis(), groupAggregate.getValue()));
+            }
+            return results;
+        });
+    }
+
     @Override
     public Set<String> metadata(final String namespace,
                                 final String metadataKey,
@@ -216,6 +363,27 @@ public class EventsOnGrpc extends AbstractBaseGrpcClient<EventsServiceBlockingSt
                 metadataQuery,
                 dimensionsQuery
         );
+        return metadata(namespace, metadataKey, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, null, 0);
+    }
+
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final String prefix,
+                                final int limit) throws IOException {
+        checkMetadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                prefix,
+                limit
+        );
         return call(() -> {
             final MetadataRequest request = MetadataRequest.newBuilder()
                     .setNamespace(namespace)
@@ -224,6 +392,8 @@ public class EventsOnGrpc extends AbstractBaseGrpcClient<EventsServiceBlockingSt
                     .setEndTimestampMillis(endTimestampMillis)
                     .putAllMetadataQuery(nullToEmpty(metadataQuery))
                     .putAllDimensionsQuery(nullToEmpty(dimensionsQuery))
+                    .setPrefix(prefix != null ? prefix : "")
+                    .setLimit(limit)
                     .build();
             final MetadataResponse metadataResponse = getStub().metadata(request);
             return new HashSet<>(metadataResponse.getValuesList());
@@ -242,5 +412,45 @@ public class EventsOnGrpc extends AbstractBaseGrpcClient<EventsServiceBlockingSt
             return null;
         });
     }
+
+    @Override
+    public void setRetention(final String namespace, final long retentionMillis) throws IOException {
+        checkSetRetention(namespace, retentionMillis);
+        call(() -> {
+            final SetRetentionRequest request = SetRetentionRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setRetentionMillis(retentionMillis)
+                    .build();
+            getStub().setRetention(request);
+            return null;
+        });
+    }
+
+    @Override
+    public long getRetention(final String namespace) throws IOException {
+        checkGetRetention(namespace);
+        return call(() -> {
+            final GetRetentionRequest request = GetRetentionRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .build();
+            return getStub().getRetention(request).getRetentionMillis();
+        });
+    }
+
+    private static List<Event> toEvents(final List<EventProto> eventProtos) {
+        final List<Event> results = new ArrayList<>(eventProtos.size());
+        for (final EventProto proto : eventProtos) {
+            final ByteString payloadByteString = proto.getPayload();
+            results.add(
+                    new Event(
+                            proto.getTimestampMillis(),
+                            proto.getMetadataMap(),
+                            proto.getDimensionsMap(),
+                            payloadByteString != null ? payloadByteString.toByteArray() : null
+                    )
+            );
+        }
+        return results;
+    }
 }
 
@@ -101,6 +101,48 @@ public class SetsOnGrpc extends AbstractBaseGrpcClient<SetsServiceBlockingStub>
         });
     }
 
+    @Override
+    public Map<String, Long> union(final String namespace,
+                                   final Collection<String> sets,
+                                   final long min,
+                                   final long max,
+                                   final int start,
+                                   final int count,
+                                   final boolean ascending,
+                                   final Aggregate aggregate) throws IOException {
+        checkUnion(namespace, sets, min, max, start, count, ascending, aggregate);
+        return call(() -> {
+            final UnionRequest request = UnionRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .addAllSets(sets)
+                    .setMin(min)
+                    .setMax(max)
+                    .setStart(start)
+                    .setCount(count)
+                    .setAscending(ascending)
+                    .setAggregate(com.salesforce.cantor.grpc.sets.Aggregate.valueOf(aggregate.name()))
+                    .build();
+            return getStub().union(request).getEntriesMap();
+        });
+    }
+
+    @Override
+    public int unionStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkUnionStore(namespace, destination, sets, aggregate);
+        return call(() -> {
+            final UnionStoreRequest request = UnionStoreRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setDestination(destination)
+                    .addAllSets(sets)
+                    .setAggregate(com.salesforce.cantor.grpc.sets.Aggregate.valueOf(aggregate.name()))
+                    .build();
+            return getStub().unionStore(request).getSize();
+        });
+    }
+
     @Override
     public Map<String, Long> intersect(final String namespace,
                                        final Collection<String> sets,
@@ -108,8 +150,9 @@ public class SetsOnGrpc extends AbstractBaseGrpcClient<SetsServiceBlockingStub>
                                        final long max,
                                        final int start,
                                        final int count,
-                                       final boolean ascending) throws IOException {
-        checkIntersect(namespace, sets, min, max, start, count, ascending);
+                                       final boolean ascending,
+                                       final Aggregate aggregate) throws IOException {
+        checkIntersect(namespace, sets, min, max, start, count, ascending, aggregate);
         return call(() -> {
             final IntersectRequest request = IntersectRequest.newBuilder()
                     .setNamespace(namespace)
@@ -119,11 +162,101 @@ public class SetsOnGrpc extends AbstractBaseGrpcClient<SetsServiceBlockingStub>
                     .setStart(start)
                     .setCount(count)
                     .setAscending(ascending)
+                    .setAggregate(com.salesforce.cantor.grpc.sets.Aggregate.valueOf(aggregate.name()))
                     .build();
             return getStub().intersect(request).getEntriesMap();
         });
     }
 
+    @Override
+    public int interStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkInterStore(namespace, destination, sets, aggregate);
+        return call(() -> {
+            final InterStoreRequest request = InterStoreRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setDestination(destination)
+                    .addAllSets(sets)
+                    .setAggregate(com.salesforce.cantor.grpc.sets.Aggregate.valueOf(aggregate.name()))
+                    .build();
+            return getStub().interStore(request).getSize();
+        });
+    }
+
+    @Override
+    public Map<String, Long> diff(final String namespace,
+                                  final String set,
+                                  final Collection<String> sets,
+                                  final long min,
+                                  final long max,
+                                  final int start,
+                                  final int count,
+                                  final boolean ascending) throws IOException {
+        checkDiff(namespace, set, sets, min, max, start, count, ascending);
+        return call(() -> {
+            final DiffRequest request = DiffRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setSet(set)
+                    .addAllSets(sets)
+                    .setMin(min)
+                    .setMax(max)
+                    .setStart(start)
+                    .setCount(count)
+                    .setAscending(ascending)
+                    .build();
+            return getStub().diff(request).getEntriesMap();
+        });
+    }
+
+    @Override
+    public int diffStore(final String namespace,
+                         final String destination,
+                         final String set,
+                         final Collection<String> sets) throws IOException {
+        checkDiffStore(namespace, destination, set, sets);
+        return call(() -> {
+            final DiffStoreRequest request = DiffStoreRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setDestination(destination)
+                    .setSet(set)
+                    .addAllSets(sets)
+                    .build();
+            return getStub().diffStore(request).getSize();
+        });
+    }
+
+    @Override
+    public boolean move(final String namespace,
+                        final String source,
+                        final String destination,
+                        final String entry) throws IOException {
+        checkMove(namespace, source, destination, entry);
+        return call(() -> {
+            final MoveRequest request = MoveRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setSource(source)
+                    .setDestination(destination)
+                    .setEntry(entry)
+                    .build();
+            return getStub().move(request).getMoved();
+        });
+    }
+
+    @Override
+    public int copy(final String namespace, final String source, final String destination) throws IOException {
+        checkCopy(namespace, source, destination);
+        return call(() -> {
+            final CopyRequest request = CopyRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setSource(source)
+                    .setDestination(destination)
+                    .build();
+            return getStub().copy(request).getSize();
+        });
+    }
+
     @Override
     public Map<String, Long> pop(final String namespace,
                                  final String set,
@@ -147,6 +280,60 @@ public class SetsOnGrpc extends AbstractBaseGrpcClient<SetsServiceBlockingStub>
         });
     }
 
+    @Override
+    public Claim claim(final String namespace,
+                       final String set,
+                       final long min,
+                       final long max,
+                       final int count,
+                       final boolean ascending,
+                       final long leaseMillis) throws IOException {
+        checkClaim(namespace, set, min, max, count, ascending, leaseMillis);
+        return call(() -> {
+            final ClaimRequest request = ClaimRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setSet(set)
+                    .setMin(min)
+                    .setMax(max)
+                    .setCount(count)
+                    .setAscending(ascending)
+                    .setLeaseMillis(leaseMillis)
+                    .build();
+            final ClaimResponse response = getStub().claim(request);
+            return new Claim(response.getLeaseId(), response.getLeaseExpiresMillis(), response.getEntriesMap());
+        });
+    }
+
+    @Override
+    public void ack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkAck(namespace, set, leaseId, entries);
+        call(() -> {
+            final AckRequest request = AckRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setSet(set)
+                    .setLeaseId(leaseId)
+                    .addAllEntries(entries)
+                    .build();
+            getStub().ack(request);
+            return null;
+        });
+    }
+
+    @Override
+    public void nack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkNack(namespace, set, leaseId, entries);
+        call(() -> {
+            final NackRequest request = NackRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setSet(set)
+                    .setLeaseId(leaseId)
+                    .addAllEntries(entries)
+                    .build();
+            getStub().nack(request);
+            return null;
+        });
+    }
+
     @Override
     public void add(final String namespace, final String set, final String entry, final long weight) throws IOException {
         checkAdd(namespace, set, entry, weight);
@@ -286,5 +473,45 @@ public class SetsOnGrpc extends AbstractBaseGrpcClient<SetsServiceBlockingStub>
             return null;
         });
     }
+
+    @Override
+    public void inc(final String namespace,
+                    final String set,
+                    final Map<String, Long> entries,
+                    final boolean updateOnly) throws IOException {
+        checkInc(namespace, set, entries);
+        call(() -> {
+            final IncBatchRequest request = IncBatchRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setSet(set)
+                    .putAllEntries(entries)
+                    .setUpdateOnly(updateOnly)
+                    .build();
+            getStub().incBatch(request);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean compareAndSet(final String namespace,
+                                 final String set,
+                                 final String entry,
+                                 final Long expected,
+                                 final long weight) throws IOException {
+        checkCompareAndSet(namespace, set, entry, expected, weight);
+        return call(() -> {
+            final CompareAndSetRequest.Builder request = CompareAndSetRequest.newBuilder()
+                    .setNamespace(namespace)
+                    .setSet(set)
+                    .setEntry(entry)
+                    .setWeight(weight);
+            if (expected == null) {
+                request.setExpectMissing(true);
+            } else {
+                request.setExpected(expected);
+            }
+            return getStub().compareAndSet(request.build()).getUpdated();
+        });
+    }
 }
 
@@ -73,20 +73,12 @@ public class EventsGrpcService extends EventsServiceGrpc.EventsServiceImplBase {
                     request.getEndTimestampMillis(),
                     request.getMetadataQueryMap(),
                     request.getDimensionsQueryMap(),
-                    request.getIncludePayloads()
+                    request.getIncludePayloads(),
+                    request.getFilterMetadataKeys() ? new HashSet<>(request.getMetadataKeysList()) : null,
+                    request.getFilterDimensionKeys() ? new HashSet<>(request.getDimensionKeysList()) : null
             );
             if (!results.isEmpty()) {
-                final List<EventProto> eventProtos = new ArrayList<>(results.size());
-                for (final Events.Event event : results) {
-                    eventProtos.add(EventProto.newBuilder()
-                            .setTimestampMillis(event.getTimestampMillis())
-                            .putAllMetadata(event.getMetadata())
-                            .putAllDimensions(event.getDimensions())
-                            .setPayload(event.getPayload() != null ? ByteString.copyFrom(event.getPayload()) : ByteString.EMPTY)
-                            .build()
-                    );
-                }
-                responseBuilder.addAllResults(eventProtos);
+                responseBuilder.addAllResults(toEventProtos(results));
             }
             sendResponse(responseObserver, responseBuilder.build());
         } catch (IOException e) {
@@ -94,6 +86,62 @@ public class EventsGrpcService extends EventsServiceGrpc.EventsServiceImplBase {
         }
     }
 
+    @Override
+    public void getPage(final GetPageRequest request, final StreamObserver<GetPageResponse> responseObserver) {
+        try {
+            final Events.Page page = getEvents().get(
+                    request.getNamespace(),
+                    request.getStartTimestampMillis(),
+                    request.getEndTimestampMillis(),
+                    request.getMetadataQueryMap(),
+                    request.getDimensionsQueryMap(),
+                    request.getIncludePayloads(),
+                    Events.Order.valueOf(request.getOrder().name()),
+                    request.getLimit(),
+                    !request.getContinuationToken().isEmpty() ? request.getContinuationToken() : null
+            );
+            final GetPageResponse response = GetPageResponse.newBuilder()
+                    .addAllResults(toEventProtos(page.getEvents()))
+                    .setContinuationToken(page.getContinuationToken() != null ? page.getContinuationToken() : "")
+                    .build();
+            sendResponse(responseObserver, response);
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void count(final CountRequest request, final StreamObserver<CountResponse> responseObserver) {
+        try {
+            final long results = getEvents().count(
+                    request.getNamespace(),
+                    request.getStartTimestampMillis(),
+                    request.getEndTimestampMillis(),
+                    request.getMetadataQueryMap(),
+                    request.getDimensionsQueryMap()
+            );
+            sendResponse(responseObserver, CountResponse.newBuilder().setResults(results).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void exists(final ExistsRequest request, final StreamObserver<ExistsResponse> responseObserver) {
+        try {
+            final boolean results = getEvents().exists(
+                    request.getNamespace(),
+                    request.getStartTimestampMillis(),
+                    request.getEndTimestampMillis(),
+                    request.getMetadataQueryMap(),
+                    request.getDimensionsQueryMap()
+            );
+            sendResponse(responseObserver, ExistsResponse.newBuilder().setResults(results).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
     @Override
     public void delete(final DeleteRequest request, final StreamObserver<DeleteResponse> responseObserver) {
         try {
@@ -150,6 +198,38 @@ public class EventsGrpcService extends EventsServiceGrpc.EventsServiceImplBase {
         }
     }
 
+    @Override
+    public void aggregateGroups(final AggregateGroupsRequest request,
+                                final StreamObserver<AggregateGroupsResponse> responseObserver) {
+        try {
+            final List<Events.GroupAggregate> results = getEvents().aggregateGroups(
+                    request.getNamespace(),
+                    request.getDimension(),
+                    request.getStartTimestampMillis(),
+                    request.getEndTimestampMillis(),
+                    request.getMetadataQueryMap(),
+                    request.getDimensionsQueryMap(),
+                    request.getGroupByMetadataKeysList(),
+                    request.getAggregationIntervalMillis(),
+                    Events.AggregationFunction.valueOf(request.getAggregationFunction().name()),
+                    Events.Order.valueOf(request.getOrder().name()),
+                    request.getLimit()
+            );
+            final AggregateGroupsResponse.Builder responseBuilder = AggregateGroupsResponse.newBuilder();
+            for (final Events.GroupAggregate groupAggregate : results) {
+                responseBuilder.addResults(GroupAggregateProto.newBuilder()
+                        .putAllGroup(groupAggregate.getGroup())
+                        .setTimestampMillis(groupAggregate.getTimestampMillis())
+                        .setValue(groupAggregate.getValue())
+                        .build()
+                );
+            }
+            sendResponse(responseObserver, responseBuilder.build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
     @Override
     public void metadata(final MetadataRequest request, final StreamObserver<MetadataResponse> responseObserver) {
         try {
@@ -159,7 +239,9 @@ public class EventsGrpcService extends EventsServiceGrpc.EventsServiceImplBase {
                     request.getStartTimestampMillis(),
                     request.getEndTimestampMillis(),
                     request.getMetadataQueryMap(),
-                    request.getDimensionsQueryMap()
+                    request.getDimensionsQueryMap(),
+                    request.getPrefix().isEmpty() ? null : request.getPrefix(),
+                    request.getLimit()
             );
             final MetadataResponse response = MetadataResponse.newBuilder().addAllValues(results).build();
             sendResponse(responseObserver, response);
@@ -181,9 +263,44 @@ public class EventsGrpcService extends EventsServiceGrpc.EventsServiceImplBase {
         }
     }
 
+    @Override
+    public void setRetention(final SetRetentionRequest request, final StreamObserver<VoidResponse> responseObserver) {
+        try {
+            getEvents().setRetention(request.getNamespace(), request.getRetentionMillis());
+            sendResponse(responseObserver, VoidResponse.getDefaultInstance());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void getRetention(final GetRetentionRequest request,
+                             final StreamObserver<GetRetentionResponse> responseObserver) {
+        try {
+            final long retentionMillis = getEvents().getRetention(request.getNamespace());
+            sendResponse(responseObserver, GetRetentionResponse.newBuilder().setRetentionMillis(retentionMillis).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
     private Events getEvents() {
         return this.cantor.events();
     }
+
+    private static List<EventProto> toEventProtos(final List<Events.Event> events) {
+        final List<EventProto> eventProtos = new ArrayList<>(events.size());
+        for (final Events.Event event : events) {
+            eventProtos.add(EventProto.newBuilder()
+                    .setTimestampMillis(event.getTimestampMillis())
+                    .putAllMetadata(event.getMetadata())
+                    .putAllDimensions(event.getDimensions())
+                    .setPayload(event.getPayload() != null ? ByteString.copyFrom(event.getPayload()) : ByteString.EMPTY)
+                    .build()
+            );
+        }
+        return eventProtos;
+    }
 }
 
 
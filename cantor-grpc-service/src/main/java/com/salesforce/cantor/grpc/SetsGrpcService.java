@@ -88,14 +88,61 @@ public class SetsGrpcService extends SetsServiceGrpc.SetsServiceImplBase {
     public void union(final UnionRequest request, final StreamObserver<UnionResponse> responseObserver) {
         try {
             final UnionResponse.Builder responseBuilder = UnionResponse.newBuilder();
-            final Map<String, Long> results = getSets().union(
+            final Map<String, Long> results = request.getAggregationCase() == UnionRequest.AggregationCase.AGGREGATE
+                    ? getSets().union(
+                            request.getNamespace(),
+                            request.getSetsList(),
+                            request.getMin(),
+                            request.getMax(),
+                            request.getStart(),
+                            request.getCount(),
+                            request.getAscending(),
+                            Sets.Aggregate.valueOf(request.getAggregate().name()))
+                    : getSets().union(
+                            request.getNamespace(),
+                            request.getSetsList(),
+                            request.getMin(),
+                            request.getMax(),
+                            request.getStart(),
+                            request.getCount(),
+                            request.getAscending());
+            if (!results.isEmpty()) {
+                responseBuilder.putAllEntries(results);
+            }
+            sendResponse(responseObserver, responseBuilder.build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void unionStore(final UnionStoreRequest request, final StreamObserver<SizeResponse> responseObserver) {
+        try {
+            final int size = getSets().unionStore(
+                    request.getNamespace(),
+                    request.getDestination(),
+                    request.getSetsList(),
+                    Sets.Aggregate.valueOf(request.getAggregate().name())
+            );
+            sendResponse(responseObserver, SizeResponse.newBuilder().setSize(size).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void intersect(final IntersectRequest request, final StreamObserver<IntersectResponse> responseObserver) {
+        try {
+            final IntersectResponse.Builder responseBuilder = IntersectResponse.newBuilder();
+            final Map<String, Long> results = getSets().intersect(
                     request.getNamespace(),
                     request.getSetsList(),
                     request.getMin(),
                     request.getMax(),
                     request.getStart(),
                     request.getCount(),
-                    request.getAscending()
+                    request.getAscending(),
+                    Sets.Aggregate.valueOf(request.getAggregate().name())
             );
             if (!results.isEmpty()) {
                 responseBuilder.putAllEntries(results);
@@ -107,11 +154,27 @@ public class SetsGrpcService extends SetsServiceGrpc.SetsServiceImplBase {
     }
 
     @Override
-    public void intersect(final IntersectRequest request, final StreamObserver<IntersectResponse> responseObserver) {
+    public void interStore(final InterStoreRequest request, final StreamObserver<SizeResponse> responseObserver) {
         try {
-            final IntersectResponse.Builder responseBuilder = IntersectResponse.newBuilder();
-            final Map<String, Long> results = getSets().intersect(
+            final int size = getSets().interStore(
                     request.getNamespace(),
+                    request.getDestination(),
+                    request.getSetsList(),
+                    Sets.Aggregate.valueOf(request.getAggregate().name())
+            );
+            sendResponse(responseObserver, SizeResponse.newBuilder().setSize(size).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void diff(final DiffRequest request, final StreamObserver<DiffResponse> responseObserver) {
+        try {
+            final DiffResponse.Builder responseBuilder = DiffResponse.newBuilder();
+            final Map<String, Long> results = getSets().diff(
+                    request.getNamespace(),
+                    request.getSet(),
                     request.getSetsList(),
                     request.getMin(),
                     request.getMax(),
@@ -128,6 +191,46 @@ public class SetsGrpcService extends SetsServiceGrpc.SetsServiceImplBase {
         }
     }
 
+    @Override
+    public void diffStore(final DiffStoreRequest request, final StreamObserver<SizeResponse> responseObserver) {
+        try {
+            final int size = getSets().diffStore(
+                    request.getNamespace(),
+                    request.getDestination(),
+                    request.getSet(),
+                    request.getSetsList()
+            );
+            sendResponse(responseObserver, SizeResponse.newBuilder().setSize(size).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void move(final MoveRequest request, final StreamObserver<MoveResponse> responseObserver) {
+        try {
+            final boolean moved = getSets().move(
+                    request.getNamespace(),
+                    request.getSource(),
+                    request.getDestination(),
+                    request.getEntry()
+            );
+            sendResponse(responseObserver, MoveResponse.newBuilder().setMoved(moved).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void copy(final CopyRequest request, final StreamObserver<SizeResponse> responseObserver) {
+        try {
+            final int size = getSets().copy(request.getNamespace(), request.getSource(), request.getDestination());
+            sendResponse(responseObserver, SizeResponse.newBuilder().setSize(size).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
     @Override
     public void pop(final PopRequest request, final StreamObserver<PopResponse> responseObserver) {
         try {
@@ -150,6 +253,49 @@ public class SetsGrpcService extends SetsServiceGrpc.SetsServiceImplBase {
         }
     }
 
+    @Override
+    public void claim(final ClaimRequest request, final StreamObserver<ClaimResponse> responseObserver) {
+        try {
+            final ClaimResponse.Builder responseBuilder = ClaimResponse.newBuilder();
+            final Sets.Claim claim = getSets().claim(
+                    request.getNamespace(),
+                    request.getSet(),
+                    request.getMin(),
+                    request.getMax(),
+                    request.getCount(),
+                    request.getAscending(),
+                    request.getLeaseMillis()
+            );
+            responseBuilder.setLeaseId(claim.getLeaseId()).setLeaseExpiresMillis(claim.getLeaseExpiresMillis());
+            if (!claim.getEntries().isEmpty()) {
+                responseBuilder.putAllEntries(claim.getEntries());
+            }
+            sendResponse(responseObserver, responseBuilder.build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void ack(final AckRequest request, final StreamObserver<VoidResponse> responseObserver) {
+        try {
+            getSets().ack(request.getNamespace(), request.getSet(), request.getLeaseId(), request.getEntriesList());
+            sendResponse(responseObserver, VoidResponse.getDefaultInstance());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void nack(final NackRequest request, final StreamObserver<VoidResponse> responseObserver) {
+        try {
+            getSets().nack(request.getNamespace(), request.getSet(), request.getLeaseId(), request.getEntriesList());
+            sendResponse(responseObserver, VoidResponse.getDefaultInstance());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
     @Override
     public void add(final AddRequest request, final StreamObserver<VoidResponse> responseObserver) {
         try {
@@ -276,6 +422,32 @@ public class SetsGrpcService extends SetsServiceGrpc.SetsServiceImplBase {
         }
     }
 
+    @Override
+    public void incBatch(final IncBatchRequest request, final StreamObserver<VoidResponse> responseObserver) {
+        try {
+            getSets().inc(request.getNamespace(), request.getSet(), request.getEntriesMap(), request.getUpdateOnly());
+            sendResponse(responseObserver, VoidResponse.getDefaultInstance());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
+    @Override
+    public void compareAndSet(final CompareAndSetRequest request, final StreamObserver<CompareAndSetResponse> responseObserver) {
+        try {
+            final boolean updated = getSets().compareAndSet(
+                    request.getNamespace(),
+                    request.getSet(),
+                    request.getEntry(),
+                    request.getExpectMissing() ? null : request.getExpected(),
+                    request.getWeight()
+            );
+            sendResponse(responseObserver, CompareAndSetResponse.newBuilder().setUpdated(updated).build());
+        } catch (IOException e) {
+            sendError(responseObserver, e);
+        }
+    }
+
     private Sets getSets() {
         return this.cantor.sets();
     }
@@ -8,6 +8,7 @@
 package com.salesforce.cantor.h2;
 
 import com.salesforce.cantor.*;
+import com.salesforce.cantor.jdbc.ParallelQueryExecutor;
 
 import javax.sql.DataSource;
 import java.io.IOException;
@@ -32,6 +33,13 @@ public class CantorOnH2 implements Cantor {
         this.events = new EventsOnH2(dataSource);
     }
 
+    public CantorOnH2(final DataSource dataSource, final ParallelQueryExecutor queryExecutor) throws IOException {
+        this.objects = new ObjectsOnH2(dataSource);
+        this.sets = new SetsOnH2(dataSource);
+        this.maps = new MapsOnH2(dataSource);
+        this.events = new EventsOnH2(dataSource, queryExecutor);
+    }
+
     @Override
     public Objects objects() {
         return this.objects;
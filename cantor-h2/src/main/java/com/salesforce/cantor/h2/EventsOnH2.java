@@ -9,9 +9,11 @@ package com.salesforce.cantor.h2;
 
 import com.salesforce.cantor.Events;
 import com.salesforce.cantor.jdbc.AbstractBaseEventsOnJdbc;
+import com.salesforce.cantor.jdbc.ParallelQueryExecutor;
 
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import static com.salesforce.cantor.jdbc.JdbcUtils.quote;
@@ -26,6 +28,10 @@ public class EventsOnH2 extends AbstractBaseEventsOnJdbc implements Events {
         super(dataSource);
     }
 
+    public EventsOnH2(final DataSource dataSource, final ParallelQueryExecutor queryExecutor) throws IOException {
+        super(dataSource, queryExecutor);
+    }
+
     @Override
     protected String getCreateInternalDatabaseSql() {
         return H2Utils.getH2CreateDatabaseSql(getCantorInternalDatabaseName());
@@ -83,12 +89,13 @@ public class EventsOnH2 extends AbstractBaseEventsOnJdbc implements Events {
             sqlBuilder.append(quote(getDimensionKeyColumnName(dimensionKey))).append(" DOUBLE, ");
         }
         sqlBuilder.append(quote(getPayloadColumnName())).append(" BINARY,");
-        sqlBuilder.append("INDEX ").append("(").append(quote(getEventTimestampColumnName())).append("),");
-        for (final String metadataKey : getOrderedKeys(metadata)) {
-            sqlBuilder.append("INDEX ").append("(").append(quote(getMetadataKeyColumnName(metadataKey))).append("),");
-        }
-        for (final String dimensionKey : getOrderedKeys(dimensions)) {
-            sqlBuilder.append("INDEX ").append("(").append(quote(getDimensionKeyColumnName(dimensionKey))).append("),");
+        for (final List<String> columnNames : getChunkTableIndexesColumnNames(namespace, metadata, dimensions)) {
+            sqlBuilder.append("INDEX ").append("(");
+            for (final String columnName : columnNames) {
+                sqlBuilder.append(quote(columnName)).append(",");
+            }
+            sqlBuilder.setCharAt(sqlBuilder.length() - 1, ')');
+            sqlBuilder.append(",");
         }
         sqlBuilder.delete(sqlBuilder.length() - 1, sqlBuilder.length());
         sqlBuilder.append(")");
@@ -51,5 +51,18 @@ public class SetsOnH2 extends AbstractBaseSetsOnJdbc implements Sets {
                 "  INDEX (" + quote(getWeightColumnName()) + ") ) "
                 ;
     }
+
+    @Override
+    protected String getCreateSetsLeasesTableSql(final String namespace) {
+        return  "CREATE TABLE IF NOT EXISTS " + getTableFullName(namespace, getSetsLeasesTableName()) + " ( " +
+                " " + quote(getSetKeyColumnName()) + " VARCHAR NOT NULL, " +
+                " " + quote(getEntryColumnName()) + " VARCHAR NOT NULL, " +
+                " " + quote(getWeightColumnName()) + " BIGINT, " +
+                " " + quote(getLeaseIdColumnName()) + " VARCHAR NOT NULL, " +
+                " " + quote(getLeaseExpiresColumnName()) + " BIGINT NOT NULL, " +
+                "  PRIMARY KEY (" + quote(getSetKeyColumnName()) + ", " + quote(getEntryColumnName()) + "), " +
+                "  INDEX (" + quote(getSetKeyColumnName()) + ", " + quote(getLeaseExpiresColumnName()) + ") ) "
+                ;
+    }
 }
 
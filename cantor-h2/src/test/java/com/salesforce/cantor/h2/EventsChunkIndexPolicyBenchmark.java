@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.h2;
+
+import com.salesforce.cantor.Events;
+import com.salesforce.cantor.jdbc.EventsChunkIndexPolicy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing chunk index policies on h2: ingest rate and latency of queries filtering on a hot metadata key
+ * and a time range; run the main method from the IDE or with the test classpath.
+ * <p>
+ * The "events" counter of the store benchmark is the number of events stored per second.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EventsChunkIndexPolicyBenchmark {
+    private static final String namespace = "benchmark";
+    private static final int batchSize = 1000;
+    private static final int preloadedBatches = 100;
+
+    @Param({"NONE", "TIMESTAMP", "PER_COLUMN", "COMPOSITE", "COVERING"})
+    private EventsChunkIndexPolicy policy;
+
+    private Events events;
+    private List<Events.Event> batch;
+    private long startTimestampMillis;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long events;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final EventsChunkIndexPolicy policy = this.policy;
+        this.events = new EventsOnH2("/tmp/cantor-benchmark-db/" + UUID.randomUUID().toString()) {
+            @Override
+            protected EventsChunkIndexPolicy getChunkIndexPolicy(final String namespace) {
+                return policy;
+            }
+
+            @Override
+            protected Set<String> getChunkIndexHotMetadataKeys(final String namespace) {
+                return Collections.singleton("host");
+            }
+        };
+        this.events.create(namespace);
+        this.startTimestampMillis = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        this.batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("host", "host-" + (i % 100));
+            metadata.put("service", "service-" + (i % 3));
+            metadata.put("region", "region-" + (i % 5));
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("latency", (double) i);
+            dimensions.put("count", 1.0);
+            this.batch.add(new Events.Event(this.startTimestampMillis + i, metadata, dimensions));
+        }
+        // preload events for queries to run against
+        for (int i = 0; i < preloadedBatches; ++i) {
+            this.events.store(namespace, this.batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.events.drop(namespace);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void store(final Counters counters) throws IOException {
+        this.events.store(namespace, this.batch);
+        counters.events += batchSize;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Events.Event> queryHotKey() throws IOException {
+        return this.events.get(namespace,
+                this.startTimestampMillis + 100,
+                this.startTimestampMillis + 200,
+                Collections.singletonMap("host", "host-42"),
+                null
+        );
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Long, Double> aggregateHotKey() throws IOException {
+        return this.events.aggregate(namespace,
+                "latency",
+                this.startTimestampMillis,
+                this.startTimestampMillis + batchSize,
+                Collections.singletonMap("host", "host-42"),
+                null,
+                100,
+                Events.AggregationFunction.AVG
+        );
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EventsChunkIndexPolicyBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.h2;
+
+import com.salesforce.cantor.*;
+import com.salesforce.cantor.common.AbstractBaseEventsTest;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.testng.Assert.assertEquals;
+
+public class EventsOnH2WithBulkInsertTest extends AbstractBaseEventsTest {
+
+    @Override
+    public Cantor getCantor() throws IOException {
+        return H2Tests.getCantor(getEventsWithBulkInsert());
+    }
+
+    @Test
+    public void testBulkInsertSplitsStatements() throws Exception {
+        final String namespace = UUID.randomUUID().toString();
+        final Events bulk = getEventsWithBulkInsert();
+        bulk.create(namespace);
+
+        final long timestampMillis = System.currentTimeMillis();
+        final List<Events.Event> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("index", String.valueOf(i));
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", (double) i);
+            batch.add(new Events.Event(timestampMillis + i, metadata, dimensions, ("payload-" + i).getBytes()));
+        }
+        // a batch of this size does not fit in a single statement and is split into many
+        bulk.store(namespace, batch);
+
+        final List<Events.Event> events = bulk.get(namespace, timestampMillis, timestampMillis + 1000, true);
+        assertEquals(events.size(), 1000);
+        for (final Events.Event event : events) {
+            final int index = Integer.parseInt(event.getMetadata().get("index"));
+            assertEquals(event.getTimestampMillis(), timestampMillis + index);
+            assertEquals(event.getDimensions().get("value").doubleValue(), (double) index);
+            assertEquals(new String(event.getPayload()), "payload-" + index);
+        }
+        bulk.drop(namespace);
+    }
+
+    private static Events getEventsWithBulkInsert() throws IOException {
+        return new EventsOnH2(H2Tests.getPath()) {
+            @Override
+            protected boolean isBulkInsertEnabled() {
+                return true;
+            }
+
+            @Override
+            protected int getBulkInsertMaxStatementBytes() {
+                // small enough for most batches to be split in multiple statements
+                return 8 * 1024;
+            }
+        };
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.h2;
+
+import com.salesforce.cantor.*;
+import com.salesforce.cantor.common.AbstractBaseEventsTest;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.Assert.assertEquals;
+
+public class EventsOnH2WithColdChunksTest extends AbstractBaseEventsTest {
+
+    @Override
+    public Cantor getCantor() throws IOException {
+        return H2Tests.getCantor(getEventsCompactedOnStore());
+    }
+
+    @Test
+    public void testColdChunksMatchChunkTables() throws Exception {
+        final String namespace = UUID.randomUUID().toString();
+        final EventsOnH2 hot = new EventsOnH2(H2Tests.getPath());
+        final EventsOnH2 cold = new EventsOnH2(H2Tests.getPath());
+        hot.create(namespace);
+        final String coldNamespace = namespace + "-cold";
+        cold.create(coldNamespace);
+
+        final long startTimestampMillis = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(3);
+        final List<Events.Event> batch = new ArrayList<>();
+        for (int i = 0; i < 5_000; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("host", "host-" + (i % 7));
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", (double) (i % 100));
+            batch.add(new Events.Event(startTimestampMillis + i * 60_000L, metadata, dimensions, ("payload-" + i).getBytes()));
+        }
+        hot.store(namespace, batch);
+        cold.store(coldNamespace, batch);
+        cold.compact(coldNamespace, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+
+        final long end = System.currentTimeMillis();
+        final Map<String, String> query = Collections.singletonMap("host", "~host-[12]");
+        final List<Events.Event> expected = hot.get(namespace, startTimestampMillis, end, query, null, true);
+        final List<Events.Event> actual = cold.get(coldNamespace, startTimestampMillis, end, query, null, true);
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(actual.get(i).getTimestampMillis(), expected.get(i).getTimestampMillis());
+            assertEquals(actual.get(i).getMetadata(), expected.get(i).getMetadata());
+            assertEquals(actual.get(i).getDimensions(), expected.get(i).getDimensions());
+            assertEquals(actual.get(i).getPayload(), expected.get(i).getPayload());
+        }
+        assertEquals(cold.count(coldNamespace, startTimestampMillis, end, null, Collections.singletonMap("value", ">=50")),
+                hot.count(namespace, startTimestampMillis, end, null, Collections.singletonMap("value", ">=50")));
+        assertEquals(cold.aggregate(coldNamespace, "value", startTimestampMillis, end, query, null,
+                        (int) TimeUnit.HOURS.toMillis(1), Events.AggregationFunction.AVG),
+                hot.aggregate(namespace, "value", startTimestampMillis, end, query, null,
+                        (int) TimeUnit.HOURS.toMillis(1), Events.AggregationFunction.AVG));
+        assertEquals(cold.metadata(coldNamespace, "host", startTimestampMillis, end, null, null),
+                hot.metadata(namespace, "host", startTimestampMillis, end, null, null));
+
+        // deleting from a cold chunk rewrites its segments, storing in its window turns it back to a chunk table
+        final long deleteStartMillis = startTimestampMillis + TimeUnit.HOURS.toMillis(5);
+        final long deleteEndMillis = startTimestampMillis + TimeUnit.HOURS.toMillis(7);
+        assertEquals(cold.delete(coldNamespace, deleteStartMillis, deleteEndMillis, null, null),
+                hot.delete(namespace, deleteStartMillis, deleteEndMillis, null, null));
+        final List<Events.Event> late = Collections.singletonList(new Events.Event(startTimestampMillis + 1,
+                Collections.singletonMap("host", "host-1"), Collections.singletonMap("value", 1.0))
+        );
+        hot.store(namespace, late);
+        cold.store(coldNamespace, late);
+        assertEquals(cold.count(coldNamespace, startTimestampMillis, end, null, null),
+                hot.count(namespace, startTimestampMillis, end, null, null));
+
+        hot.drop(namespace);
+        cold.drop(coldNamespace);
+    }
+
+    @Test
+    public void testStoreWhileCompacting() throws Exception {
+        final String namespace = UUID.randomUUID().toString();
+        final EventsOnH2 events = new EventsOnH2(H2Tests.getPath());
+        final EventsOnH2 compactor = new EventsOnH2(H2Tests.getPath());
+        events.create(namespace);
+
+        // writers keep thawing the chunk that the compactor keeps compacting
+        final long startTimestampMillis = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(3);
+        final int writers = 4;
+        final int batches = 25;
+        // the chunk exists before compactions start, as chunks are only compacted after their window
+        final List<Events.Event> first = new ArrayList<>();
+        for (int w = 0; w < writers; ++w) {
+            first.add(new Events.Event(startTimestampMillis, Collections.singletonMap("writer", "writer-" + w),
+                    Collections.singletonMap("value", 0.0))
+            );
+        }
+        events.store(namespace, first);
+        final ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        final AtomicBoolean storing = new AtomicBoolean(true);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; ++w) {
+            final int writer = w;
+            futures.add(executor.submit(() -> {
+                for (int b = 0; b < batches; ++b) {
+                    final List<Events.Event> batch = new ArrayList<>();
+                    for (int i = 0; i < 10; ++i) {
+                        batch.add(new Events.Event(startTimestampMillis + writer * 1_000 + b * 10 + i,
+                                Collections.singletonMap("writer", "writer-" + writer),
+                                Collections.singletonMap("value", (double) i))
+                        );
+                    }
+                    events.store(namespace, batch);
+                }
+                return null;
+            }));
+        }
+        final Future<?> compactions = executor.submit(() -> {
+            while (storing.get()) {
+                compactor.compact(namespace, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+            }
+            return null;
+        });
+        try {
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            storing.set(false);
+            compactions.get();
+            executor.shutdown();
+        }
+        compactor.compact(namespace, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+        assertEquals(events.count(namespace, startTimestampMillis, System.currentTimeMillis(), null, null),
+                writers * (batches * 10 + 1));
+
+        events.drop(namespace);
+    }
+
+    // compacts all chunk tables after every store, so reads always go to cold chunks
+    private static Events getEventsCompactedOnStore() throws IOException {
+        return new EventsOnH2(H2Tests.getPath()) {
+            @Override
+            public void store(final String namespace, final Collection<Event> batch) throws IOException {
+                super.store(namespace, batch);
+                compact(namespace, Long.MAX_VALUE);
+            }
+
+            // small segments, so chunks have many of them
+            @Override
+            protected int getColdSegmentMaxEvents() {
+                return 50;
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.h2;
+
+import com.salesforce.cantor.*;
+import com.salesforce.cantor.common.AbstractBaseEventsTest;
+import com.salesforce.cantor.jdbc.EventsChunkIndexPolicy;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class EventsOnH2WithCompositeIndexesTest extends AbstractBaseEventsTest {
+
+    @Override
+    public Cantor getCantor() throws IOException {
+        return H2Tests.getCantor(getEventsWithIndexPolicy(EventsChunkIndexPolicy.COVERING));
+    }
+
+    @Test
+    public void testChunkTableIndexes() throws Exception {
+        final Map<String, String> metadata = new HashMap<>();
+        metadata.put("host", "host-1");
+        metadata.put("service", "service-1");
+        final Map<String, Double> dimensions = new HashMap<>();
+        dimensions.put("latency", 1.0);
+
+        assertEquals(getIndexesCount(EventsChunkIndexPolicy.NONE, metadata, dimensions), 0);
+        assertEquals(getIndexesCount(EventsChunkIndexPolicy.TIMESTAMP, metadata, dimensions), 1);
+        assertEquals(getIndexesCount(EventsChunkIndexPolicy.PER_COLUMN, metadata, dimensions), 4);
+        assertEquals(getIndexesCount(EventsChunkIndexPolicy.COMPOSITE, metadata, dimensions), 2);
+        assertEquals(getIndexesCount(EventsChunkIndexPolicy.COVERING, metadata, dimensions), 2);
+        // hot keys missing from the table get no index
+        assertEquals(getIndexesCount(EventsChunkIndexPolicy.COMPOSITE, Collections.emptyMap(), dimensions), 1);
+
+        final String compositeSql = getEventsWithIndexPolicy(EventsChunkIndexPolicy.COMPOSITE)
+                .getCreateChunkTableSql("chunk", "namespace", metadata, dimensions);
+        assertTrue(compositeSql.matches(".*INDEX \\(`M_HOST_[0-9]+`,`TIMESTAMP_MILLIS`\\).*"), compositeSql);
+        final String coveringSql = getEventsWithIndexPolicy(EventsChunkIndexPolicy.COVERING)
+                .getCreateChunkTableSql("chunk", "namespace", metadata, dimensions);
+        assertTrue(coveringSql.matches(".*INDEX \\(`M_HOST_[0-9]+`,`TIMESTAMP_MILLIS`,`D_LATENCY_[0-9]+`\\).*"), coveringSql);
+    }
+
+    private static int getIndexesCount(final EventsChunkIndexPolicy policy,
+                                       final Map<String, String> metadata,
+                                       final Map<String, Double> dimensions) throws IOException {
+        final String sql = getEventsWithIndexPolicy(policy).getCreateChunkTableSql("chunk", "namespace", metadata, dimensions);
+        return sql.split("INDEX ", -1).length - 1;
+    }
+
+    private static EventsOnH2 getEventsWithIndexPolicy(final EventsChunkIndexPolicy policy) throws IOException {
+        return new EventsOnH2(H2Tests.getPath()) {
+            @Override
+            protected EventsChunkIndexPolicy getChunkIndexPolicy(final String namespace) {
+                return policy;
+            }
+
+            @Override
+            protected Set<String> getChunkIndexHotMetadataKeys(final String namespace) {
+                return Collections.singleton("host");
+            }
+        };
+    }
+}
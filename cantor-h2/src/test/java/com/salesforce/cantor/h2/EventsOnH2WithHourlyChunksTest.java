@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.h2;
+
+import com.salesforce.cantor.*;
+import com.salesforce.cantor.common.AbstractBaseEventsTest;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+
+public class EventsOnH2WithHourlyChunksTest extends AbstractBaseEventsTest {
+
+    @Override
+    public Cantor getCantor() throws IOException {
+        return H2Tests.getCantor(getEventsWithHourlyChunks());
+    }
+
+    @Test
+    public void testChunkWindowKeptForNamespace() throws Exception {
+        final String namespace = UUID.randomUUID().toString();
+        final Events hourly = getEventsWithHourlyChunks();
+        final Events daily = new EventsOnH2(H2Tests.getPath());
+        hourly.create(namespace);
+        // creating again with a different window does not change it
+        daily.create(namespace);
+
+        final long startTimestampMillis = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(10);
+        for (int i = 0; i < 10; ++i) {
+            daily.store(namespace, startTimestampMillis + TimeUnit.HOURS.toMillis(i), null, null);
+        }
+        final List<Events.Event> events = hourly.get(namespace, startTimestampMillis, Long.MAX_VALUE);
+        assertEquals(events.size(), 10);
+
+        // events are an hour apart in hourly chunks, so expiring drops exactly the events before the end timestamp
+        hourly.expire(namespace, startTimestampMillis + TimeUnit.HOURS.toMillis(5));
+        assertEquals(daily.get(namespace, 0, Long.MAX_VALUE).size(), 5);
+        hourly.drop(namespace);
+    }
+
+    private static Events getEventsWithHourlyChunks() throws IOException {
+        return new EventsOnH2(H2Tests.getPath()) {
+            @Override
+            protected long getChunkWindowMillis(final String namespace) {
+                return TimeUnit.HOURS.toMillis(1);
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.h2;
+
+import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.common.AbstractBaseEventsTest;
+
+import java.io.IOException;
+
+public class EventsOnH2WithPagedStreamsTest extends AbstractBaseEventsTest {
+
+    @Override
+    public Cantor getCantor() throws IOException {
+        return H2Tests.getCantor(new EventsOnH2(H2Tests.getPath()) {
+            // windows with more than one chunk table are streamed in small pages instead of merged
+            @Override
+            protected int getStreamMaxMergeChunks() {
+                return 1;
+            }
+
+            @Override
+            protected int getStreamPageSize() {
+                return 7;
+            }
+        });
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.h2;
+
+import com.salesforce.cantor.*;
+import com.salesforce.cantor.common.AbstractBaseEventsTest;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class EventsOnH2WithRollupsTest extends AbstractBaseEventsTest {
+
+    @Override
+    public Cantor getCantor() throws IOException {
+        return H2Tests.getCantor(getEventsWithRollups());
+    }
+
+    @Test
+    public void testRollupsMatchRawEvents() throws Exception {
+        final String namespace = UUID.randomUUID().toString();
+        final Events raw = new EventsOnH2(H2Tests.getPath());
+        final Events rollups = getEventsWithRollups();
+        raw.create(namespace);
+
+        // some events are stored before rollups are used for the namespace, and must be picked up
+        final long startTimestampMillis = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(3);
+        raw.store(namespace, getRandomEvents(startTimestampMillis, 500));
+        assertRollupsMatch(raw, rollups, namespace, startTimestampMillis);
+
+        rollups.store(namespace, getRandomEvents(startTimestampMillis, 500));
+        assertRollupsMatch(raw, rollups, namespace, startTimestampMillis);
+
+        // rollups are rebuilt for deleted events
+        final long deleteStartMillis = startTimestampMillis + TimeUnit.MINUTES.toMillis(30) + 12345;
+        final long deleteEndMillis = deleteStartMillis + TimeUnit.MINUTES.toMillis(45);
+        rollups.delete(namespace, deleteStartMillis, deleteEndMillis, null, null);
+        assertRollupsMatch(raw, rollups, namespace, startTimestampMillis);
+
+        raw.drop(namespace);
+    }
+
+    @Test
+    public void testRollupsRebuiltWhileStoring() throws Exception {
+        final String namespace = UUID.randomUUID().toString();
+        final Events raw = new EventsOnH2(H2Tests.getPath());
+        final Events rollups = getEventsWithRollups();
+        rollups.create(namespace);
+
+        final long startTimestampMillis = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(3);
+        rollups.store(namespace, getRandomEvents(startTimestampMillis, 500));
+
+        // deletes rebuild rollups for the buckets they touch, while other threads keep adding to the same buckets
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 10; ++j) {
+                    rollups.store(namespace, getRandomEvents(startTimestampMillis, 50));
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            for (int j = 0; j < 5; ++j) {
+                final long deleteStartMillis = startTimestampMillis + TimeUnit.MINUTES.toMillis(30 * j) + 12345;
+                rollups.delete(namespace, deleteStartMillis, deleteStartMillis + TimeUnit.MINUTES.toMillis(10), null, null);
+            }
+            return null;
+        }));
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertRollupsMatch(raw, rollups, namespace, startTimestampMillis);
+
+        raw.drop(namespace);
+    }
+
+    private void assertRollupsMatch(final Events raw,
+                                    final Events rollups,
+                                    final String namespace,
+                                    final long startTimestampMillis) throws IOException {
+        final long endTimestampMillis = startTimestampMillis + TimeUnit.HOURS.toMillis(3);
+        final int[] intervals = {
+                (int) TimeUnit.MINUTES.toMillis(1),
+                (int) TimeUnit.MINUTES.toMillis(5),
+                (int) TimeUnit.HOURS.toMillis(1)
+        };
+        for (final int interval : intervals) {
+            for (final Events.AggregationFunction function : Events.AggregationFunction.values()) {
+                // unaligned start and end, so both rollups and raw events are used
+                final long start = startTimestampMillis + 1234;
+                final long end = endTimestampMillis - 4321;
+                final Map<Long, Double> expected = raw.aggregate(namespace, "value", start, end, null, null, interval, function);
+                final Map<Long, Double> actual = rollups.aggregate(namespace, "value", start, end, null, null, interval, function);
+                assertFalse(expected.isEmpty());
+                assertEquals(actual.keySet(), expected.keySet(), function + " every " + interval);
+                for (final Map.Entry<Long, Double> entry : expected.entrySet()) {
+                    assertEquals(actual.get(entry.getKey()), entry.getValue(), 1e-6, function + " every " + interval);
+                }
+            }
+        }
+    }
+
+    private List<Events.Event> getRandomEvents(final long startTimestampMillis, final int count) {
+        final List<Events.Event> events = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            final long timestampMillis = startTimestampMillis
+                    + ThreadLocalRandom.current().nextLong(TimeUnit.HOURS.toMillis(3));
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("key-" + (i % 2), "value");
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", ThreadLocalRandom.current().nextDouble());
+            events.add(new Events.Event(timestampMillis, metadata, dimensions));
+        }
+        return events;
+    }
+
+    private static Events getEventsWithRollups() throws IOException {
+        return new EventsOnH2(H2Tests.getPath()) {
+            @Override
+            protected boolean isRollupsEnabled() {
+                return true;
+            }
+        };
+    }
+}
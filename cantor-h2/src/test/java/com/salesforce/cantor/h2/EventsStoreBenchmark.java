@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.h2;
+
+import com.salesforce.cantor.Events;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for storing batches of events on h2; run the main method from the IDE or with the test classpath.
+ * <p>
+ * The "events" counter is the number of events stored per second. With the gc profiler, bytes allocated per event
+ * is gc.alloc.rate.norm divided by the batch size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EventsStoreBenchmark {
+    private static final String namespace = "benchmark";
+
+    @Param({"1", "100", "10000"})
+    private int batchSize;
+
+    private Events events;
+    private List<Events.Event> batch;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long events;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.events = new EventsOnH2("/tmp/cantor-benchmark-db/" + UUID.randomUUID().toString());
+        this.events.create(namespace);
+        this.batch = new ArrayList<>(this.batchSize);
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < this.batchSize; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("host", "host-" + (i % 10));
+            metadata.put("service", "service-" + (i % 3));
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("latency", (double) i);
+            dimensions.put("count", 1.0);
+            this.batch.add(new Events.Event(now + i, metadata, dimensions));
+        }
+        // make sure chunk tables exist before measuring
+        this.events.store(namespace, this.batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.events.drop(namespace);
+    }
+
+    @Benchmark
+    public void store(final Counters counters) throws IOException {
+        this.events.store(namespace, this.batch);
+        counters.events += this.batchSize;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EventsStoreBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+    }
+}
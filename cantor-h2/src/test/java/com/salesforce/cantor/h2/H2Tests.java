@@ -8,6 +8,8 @@
 package com.salesforce.cantor.h2;
 
 import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.Events;
+import com.salesforce.cantor.common.DelegatingCantor;
 
 import java.io.IOException;
 import java.util.UUID;
@@ -18,4 +20,13 @@ class H2Tests {
     static Cantor getCantor() throws IOException {
         return new CantorOnH2(path);
     }
+
+    // cantor on the test database, with the given events instance
+    static Cantor getCantor(final Events events) throws IOException {
+        return DelegatingCantor.withEvents(getCantor(), events);
+    }
+
+    static String getPath() {
+        return path;
+    }
 }
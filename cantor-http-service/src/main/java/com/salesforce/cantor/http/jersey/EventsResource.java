@@ -36,6 +36,7 @@ import org.springframework.stereotype.Component;
 import javax.ws.rs.BeanParam;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -50,6 +51,7 @@ import java.lang.reflect.Type;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -67,6 +69,8 @@ public class EventsResource {
     private static final Logger logger = LoggerFactory.getLogger(EventsResource.class);
     private static final String serverErrorMessage = "Internal server error occurred";
     private static final String jsonFieldCount = "count";
+    private static final String jsonFieldExists = "exists";
+    private static final String jsonFieldRetentionMillis = "retentionMillis";
 
     private static final Pattern queryPatterns = Pattern.compile("(?<key>.*?)(?<value>(>|<|=|~|<=|>=).*)");
     // custom gson parser to auto-convert payload to byte[]
@@ -106,7 +110,7 @@ public class EventsResource {
         @ApiResponse(responseCode = "500", description = serverErrorMessage)
     })
     public Response getEvents(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
-                              @BeanParam final EventsDataSourceBeanWithPayload bean) throws IOException {
+                              @BeanParam final EventsGetBean bean) throws IOException {
         logger.info("received request for events in namespace {}", namespace);
         logger.debug("request parameters: {}", bean);
         final List<Event> results = this.cantor.events().get(
@@ -115,12 +119,96 @@ public class EventsResource {
                 bean.getEnd(),
                 bean.getMetadataQuery(),
                 bean.getDimensionQuery(),
-                bean.isIncludePayloads()
+                bean.isIncludePayloads(),
+                bean.getMetadataKeys(),
+                bean.getDimensionKeys()
         );
 
         return Response.ok(parser.toJson(results)).build();
     }
 
+    @GET
+    @Path("/{namespace}/page")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Get a page of events in a namespace")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides a page of events matching query parameters, with the token to get the next page",
+                     content = @Content(schema = @Schema(implementation = HttpModels.PageResponse.class))),
+        @ApiResponse(responseCode = "400", description = "One of the query parameters has a bad value"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response getEventsPage(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                                  @BeanParam final EventsPageBean bean) throws IOException {
+        logger.info("received request for page of events in namespace {}", namespace);
+        logger.debug("request parameters: {}", bean);
+        final Events.Page page = this.cantor.events().get(
+                namespace,
+                bean.getStart(),
+                bean.getEnd(),
+                bean.getMetadataQuery(),
+                bean.getDimensionQuery(),
+                bean.isIncludePayloads(),
+                bean.getSortOrder(),
+                bean.getLimit(),
+                bean.getContinuationToken()
+        );
+
+        return Response.ok(parser.toJson(page)).build();
+    }
+
+    @GET
+    @Path("/{namespace}/count")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Count events in a namespace")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides the number of events matching query parameters",
+                     content = @Content(schema = @Schema(implementation = HttpModels.CountResponse.class))),
+        @ApiResponse(responseCode = "400", description = "One of the query parameters has a bad value"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response countEvents(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                                @BeanParam final EventsDataSourceBean bean) throws IOException {
+        logger.info("received request to count events in namespace {}", namespace);
+        logger.debug("request parameters: {}", bean);
+        final long count = this.cantor.events().count(
+                namespace,
+                bean.getStart(),
+                bean.getEnd(),
+                bean.getMetadataQuery(),
+                bean.getDimensionQuery());
+        final Map<String, Long> countResponse = new HashMap<>();
+        countResponse.put(jsonFieldCount, count);
+        return Response.ok(parser.toJson(countResponse)).build();
+    }
+
+    @GET
+    @Path("/{namespace}/exists")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Check if any event in a namespace matches")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides whether at least one event matches query parameters",
+                     content = @Content(schema = @Schema(implementation = HttpModels.ExistsResponse.class))),
+        @ApiResponse(responseCode = "400", description = "One of the query parameters has a bad value"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response existsEvents(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                                 @BeanParam final EventsDataSourceBean bean) throws IOException {
+        logger.info("received request to check events exist in namespace {}", namespace);
+        logger.debug("request parameters: {}", bean);
+        final boolean exists = this.cantor.events().exists(
+                namespace,
+                bean.getStart(),
+                bean.getEnd(),
+                bean.getMetadataQuery(),
+                bean.getDimensionQuery());
+        final Map<String, Boolean> existsResponse = new HashMap<>();
+        existsResponse.put(jsonFieldExists, exists);
+        return Response.ok(parser.toJson(existsResponse)).build();
+    }
+
     @GET
     @Path("/{namespace}/metadata/{metadata}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -134,7 +222,7 @@ public class EventsResource {
     })
     public Response getMetadata(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
                                 @Parameter(description = "Specific metadata to search") @PathParam("metadata") final String metadata,
-                                @BeanParam final EventsDataSourceBean bean) throws IOException {
+                                @BeanParam final EventsMetadataBean bean) throws IOException {
         logger.info("received request for metadata {} in namespace {}", metadata, namespace);
         logger.debug("request parameters: {}", bean);
         final Set<String> metadataValueSet = this.cantor.events().metadata(
@@ -143,7 +231,9 @@ public class EventsResource {
                 bean.getStart(),
                 bean.getEnd(),
                 bean.getMetadataQuery(),
-                bean.getDimensionQuery());
+                bean.getDimensionQuery(),
+                bean.getPrefix(),
+                bean.getLimit());
 
         return Response.ok(parser.toJson(metadataValueSet)).build();
     }
@@ -161,49 +251,79 @@ public class EventsResource {
     })
     public Response getAggregate(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
                                  @Parameter(description = "Specific dimension to aggregate") @PathParam("dimension") final String dimension,
-                                 @Parameter(description = "The aggregation function (AVG, MIN, MAX, SUM, COUNT, STDDEV_POP, STDDEV_SAMP, VAR_POP, VAR_SAMP)") @PathParam("aggregate") final String aggregate,
+                                 @Parameter(description = "The aggregation function (AVG, MIN, MAX, SUM, COUNT, STDDEV_POP, STDDEV_SAMP, VAR_POP, VAR_SAMP, P50, P90, P95, P99, DISTINCT_COUNT)") @PathParam("aggregate") final String aggregate,
                                  @Parameter(description = "The type of grouping (hour, minute, [number])") @PathParam("bucket") final String bucket,
                                  @BeanParam final EventsDataSourceBean bean) throws IOException {
         logger.info("received request for aggregate {} of dimension {} in namespace {} with buckets {}", aggregate, dimension, namespace, bucket);
         logger.debug("request parameters: {}", bean);
-        final int bucketMillis;
+        final Map<Long, Double> results = this.cantor.events().aggregate(
+                namespace,
+                dimension,
+                bean.getStart(),
+                bean.getEnd(),
+                bean.getMetadataQuery(),
+                bean.getDimensionQuery(),
+                toBucketMillis(bucket),
+                toAggregationFunction(aggregate)
+        );
+        return Response.ok(parser.toJson(results)).build();
+    }
+
+    @GET
+    @Path("/{namespace}/groups/{aggregate}/{dimension}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Aggregate a dimension by groups of metadata values")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides the aggregated values of the top groups, in rank order, each group's buckets in timestamp order",
+                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = HttpModels.GroupAggregateModel.class)))),
+        @ApiResponse(responseCode = "400", description = "Aggregate function was not a valid type or one of the query parameters has a bad value"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response getGroupsAggregate(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                                       @Parameter(description = "Specific dimension to aggregate") @PathParam("dimension") final String dimension,
+                                       @Parameter(description = "The aggregation function (AVG, MIN, MAX, SUM, COUNT, STDDEV_POP, STDDEV_SAMP, VAR_POP, VAR_SAMP, P50, P90, P95, P99, DISTINCT_COUNT)") @PathParam("aggregate") final String aggregate,
+                                       @BeanParam final EventsGroupsBean bean) throws IOException {
+        logger.info("received request for aggregate {} of dimension {} in namespace {} grouped by {}", aggregate, dimension, namespace, bean.getGroupBy());
+        logger.debug("request parameters: {}", bean);
+        final List<Events.GroupAggregate> results = this.cantor.events().aggregateGroups(
+                namespace,
+                dimension,
+                bean.getStart(),
+                bean.getEnd(),
+                bean.getMetadataQuery(),
+                bean.getDimensionQuery(),
+                bean.getGroupBy(),
+                toBucketMillis(bean.getBucket()),
+                toAggregationFunction(aggregate),
+                bean.getSortOrder(),
+                bean.getLimit()
+        );
+        return Response.ok(parser.toJson(results)).build();
+    }
+
+    private static int toBucketMillis(final String bucket) {
         switch (bucket) {
             case "hour":
-                bucketMillis = (int) TimeUnit.HOURS.toMillis(1) - 1; // buckets are still maxed at an hour
-                break;
+                return (int) TimeUnit.HOURS.toMillis(1) - 1; // buckets are still maxed at an hour
             case "minute":
-                bucketMillis = (int) TimeUnit.MINUTES.toMillis(1);
-                break;
+                return (int) TimeUnit.MINUTES.toMillis(1);
             default:
                 try {
-                    bucketMillis = Integer.valueOf(bucket);
+                    return Integer.valueOf(bucket);
                 } catch (final NumberFormatException nfe) {
                     throw new IllegalArgumentException("bucket" + bucket + " is not hour/minute/NUMBER", nfe);
                 }
         }
+    }
 
-        Events.AggregationFunction aggregateFunction = null;
+    private static Events.AggregationFunction toAggregationFunction(final String aggregate) {
         for (final Events.AggregationFunction agg : Events.AggregationFunction.values()) {
             if (aggregate.equalsIgnoreCase(agg.name())) {
-                aggregateFunction = agg;
-                break;
+                return agg;
             }
         }
-        if (aggregateFunction == null) {
-            throw new IllegalArgumentException("invalid aggregate function: " + aggregate);
-        }
-
-        final Map<Long, Double> results = this.cantor.events().aggregate(
-                namespace,
-                dimension,
-                bean.getStart(),
-                bean.getEnd(),
-                bean.getMetadataQuery(),
-                bean.getDimensionQuery(),
-                bucketMillis,
-                aggregateFunction
-        );
-        return Response.ok(parser.toJson(results)).build();
+        throw new IllegalArgumentException("invalid aggregate function: " + aggregate);
     }
 
     @PUT
@@ -263,6 +383,37 @@ public class EventsResource {
         return Response.ok().build();
     }
 
+    @GET
+    @Path("/{namespace}/retention")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Get the retention period of an event namespace")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides the retention period of events in the namespace",
+                     content = @Content(schema = @Schema(implementation = HttpModels.RetentionResponse.class))),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response getRetention(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace) throws IOException {
+        logger.info("received request for retention of namespace {}", namespace);
+        final Map<String, Long> retentionResponse = new HashMap<>();
+        retentionResponse.put(jsonFieldRetentionMillis, this.cantor.events().getRetention(namespace));
+        return Response.ok(parser.toJson(retentionResponse)).build();
+    }
+
+    @PUT
+    @Path("/{namespace}/retention/{retentionMillis}")
+    @Operation(summary = "Set the retention period of an event namespace")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Retention period was set; events older than it are expired periodically"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response setRetention(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                                 @Parameter(description = "Retention period in milli-seconds, or 0 to remove the retention policy") @PathParam("retentionMillis") final long retentionMillis) throws IOException {
+        logger.info("received request to set retention of {}ms for namespace {}", retentionMillis, namespace);
+        this.cantor.events().setRetention(namespace, retentionMillis);
+        return Response.ok().build();
+    }
+
     @DELETE
     @Path("/delete/{namespace}")
     @Operation(summary = "Delete events")
@@ -399,6 +550,190 @@ public class EventsResource {
         }
     }
 
+    protected static class EventsGetBean extends EventsDataSourceBeanWithPayload {
+        @Parameter(description = "Metadata keys to include in returned events; all keys if not set")
+        @QueryParam("metadata_keys")
+        private List<String> acceptedMetadataKeys;
+
+        @Parameter(description = "Dimension keys to include in returned events; all keys if not set")
+        @QueryParam("dimension_keys")
+        private List<String> acceptedDimensionKeys;
+
+        /**
+         * Metadata keys to project, or null for all keys
+         */
+        Set<String> getMetadataKeys() {
+            return this.acceptedMetadataKeys == null || this.acceptedMetadataKeys.isEmpty()
+                    ? null : new HashSet<>(this.acceptedMetadataKeys);
+        }
+
+        /**
+         * Dimension keys to project, or null for all keys
+         */
+        Set<String> getDimensionKeys() {
+            return this.acceptedDimensionKeys == null || this.acceptedDimensionKeys.isEmpty()
+                    ? null : new HashSet<>(this.acceptedDimensionKeys);
+        }
+
+        public List<String> getAcceptedMetadataKeys() {
+            return acceptedMetadataKeys;
+        }
+
+        public List<String> getAcceptedDimensionKeys() {
+            return acceptedDimensionKeys;
+        }
+
+        public void setAcceptedMetadataKeys(final List<String> acceptedMetadataKeys) {
+            this.acceptedMetadataKeys = acceptedMetadataKeys;
+        }
+
+        public void setAcceptedDimensionKeys(final List<String> acceptedDimensionKeys) {
+            this.acceptedDimensionKeys = acceptedDimensionKeys;
+        }
+    }
+
+    protected static class EventsMetadataBean extends EventsDataSourceBean {
+        @Parameter(description = "Prefix that returned values should start with; all values if not set")
+        @QueryParam("prefix")
+        private String prefix;
+
+        @Parameter(description = "Maximum number of values; 0 for all values", example = "0")
+        @QueryParam("limit")
+        @DefaultValue("0")
+        private int limit;
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public void setPrefix(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public void setLimit(final int limit) {
+            this.limit = limit;
+        }
+    }
+
+    protected static class EventsGroupsBean extends EventsDataSourceBean {
+        @Parameter(description = "Metadata keys to group events by", required = true)
+        @QueryParam("group_by")
+        private List<String> groupBy;
+
+        @Parameter(description = "The time buckets of each group (hour, minute, [number]); 0 to not bucket by time", example = "0")
+        @QueryParam("bucket")
+        @DefaultValue("0")
+        private String bucket;
+
+        @Parameter(description = "Maximum number of groups; 0 for all groups", example = "10")
+        @QueryParam("limit")
+        @DefaultValue("10")
+        private int limit;
+
+        @Parameter(description = "Order of groups by aggregated value (asc, desc)", example = "desc")
+        @QueryParam("order")
+        @DefaultValue("desc")
+        private String order;
+
+        Events.Order getSortOrder() {
+            switch (this.order.toLowerCase()) {
+                case "asc":
+                    return Events.Order.ASCENDING;
+                case "desc":
+                    return Events.Order.DESCENDING;
+                default:
+                    throw new IllegalArgumentException("invalid order: " + this.order);
+            }
+        }
+
+        public List<String> getGroupBy() {
+            return groupBy;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public String getOrder() {
+            return order;
+        }
+
+        public void setGroupBy(final List<String> groupBy) {
+            this.groupBy = groupBy;
+        }
+
+        public void setBucket(final String bucket) {
+            this.bucket = bucket;
+        }
+
+        public void setLimit(final int limit) {
+            this.limit = limit;
+        }
+
+        public void setOrder(final String order) {
+            this.order = order;
+        }
+    }
+
+    protected static class EventsPageBean extends EventsDataSourceBeanWithPayload {
+        @Parameter(description = "Maximum number of events in the page", example = "100")
+        @QueryParam("limit")
+        @DefaultValue("100")
+        private int limit;
+
+        @Parameter(description = "Order of events by timestamp (asc, desc)", example = "asc")
+        @QueryParam("order")
+        @DefaultValue("asc")
+        private String order;
+
+        @Parameter(description = "Token returned with the previous page; empty to get the first page")
+        @QueryParam("continuation_token")
+        private String continuationToken;
+
+        Events.Order getSortOrder() {
+            switch (this.order.toLowerCase()) {
+                case "asc":
+                    return Events.Order.ASCENDING;
+                case "desc":
+                    return Events.Order.DESCENDING;
+                default:
+                    throw new IllegalArgumentException("invalid order: " + this.order);
+            }
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public String getOrder() {
+            return order;
+        }
+
+        public String getContinuationToken() {
+            return continuationToken == null || continuationToken.isEmpty() ? null : continuationToken;
+        }
+
+        public void setLimit(final int limit) {
+            this.limit = limit;
+        }
+
+        public void setOrder(final String order) {
+            this.order = order;
+        }
+
+        public void setContinuationToken(final String continuationToken) {
+            this.continuationToken = continuationToken;
+        }
+    }
+
     /**
      * Serialize override to allow conversion of payload string to byte array
      */
@@ -12,6 +12,7 @@ import com.salesforce.cantor.Events;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -52,6 +53,28 @@ public class HttpModels {
         }
     }
 
+    /**
+     * { "exists": true }
+     */
+    @Schema
+    static class ExistsResponse {
+        @Schema(description = "whether at least one element matches")
+        public boolean getExists() {
+            return true;
+        }
+    }
+
+    /**
+     * { "retentionMillis": 0 }
+     */
+    @Schema
+    static class RetentionResponse {
+        @Schema(description = "retention period in milli-seconds, or 0 if there is no retention policy")
+        public long getRetentionMillis() {
+            return 0;
+        }
+    }
+
     /**
      * { "weight": 0 }
      */
@@ -105,4 +128,48 @@ public class HttpModels {
                     Base64.getDecoder().decode(this.payload));
         }
     }
+
+    /**
+     * {
+     *   "events": [],
+     *   "continuationToken": "string"
+     * }
+     */
+    @Schema
+    static class PageResponse {
+        @Schema(description = "Events in the page")
+        public List<EventModel> getEvents() {
+            return null;
+        }
+
+        @Schema(description = "Token to pass to get the next page; missing on the last page")
+        public String getContinuationToken() {
+            return "";
+        }
+    }
+
+    /**
+     * {
+     *   "group": {},
+     *   "timestampMillis": 0,
+     *   "value": 0
+     * }
+     */
+    @Schema
+    static class GroupAggregateModel {
+        @Schema(description = "Values of the group by metadata keys")
+        public Map<String, String> getGroup() {
+            return null;
+        }
+
+        @Schema(description = "Start of the time bucket")
+        public long getTimestampMillis() {
+            return 0;
+        }
+
+        @Schema(description = "Aggregated value of the group in the bucket")
+        public double getValue() {
+            return 0;
+        }
+    }
 }
@@ -9,6 +9,7 @@ package com.salesforce.cantor.http.jersey;
 
 import com.google.gson.Gson;
 import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.Sets;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -25,7 +26,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.BeanParam;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -219,20 +222,55 @@ public class SetsResource {
     })
     public Response union(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
                           @Parameter(description = "Name of the set") @QueryParam("set") final List<String> sets,
+                          @Parameter(description = "How weights of an entry found in more than one set are combined: sum, min or max; " +
+                                  "if not set, the entry has one of its weights and min/max apply to its weight in each set", example = "sum")
+                          @QueryParam("aggregate") final String aggregate,
                           @BeanParam final SetsDataSourceBean bean) throws IOException {
         logger.info("received request for union of sets {} in namespace {}", sets, namespace);
         logger.debug("request parameters: {}", bean);
-        final Map<String, Long> union = this.cantor.sets().union(
-                namespace,
-                sets,
-                bean.getMin(),
-                bean.getMax(),
-                bean.getStart(),
-                bean.getCount(),
-                bean.isAscending());
+        final Map<String, Long> union = aggregate == null
+                ? this.cantor.sets().union(
+                        namespace,
+                        sets,
+                        bean.getMin(),
+                        bean.getMax(),
+                        bean.getStart(),
+                        bean.getCount(),
+                        bean.isAscending())
+                : this.cantor.sets().union(
+                        namespace,
+                        sets,
+                        bean.getMin(),
+                        bean.getMax(),
+                        bean.getStart(),
+                        bean.getCount(),
+                        bean.isAscending(),
+                        toAggregate(aggregate));
         return Response.ok(parser.toJson(union)).build();
     }
 
+    @PUT
+    @Path("/union/{namespace}/{destination}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Store the union of all provided sets in the destination set")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides single property json with the number of entries in the destination set",
+                     content = @Content(schema = @Schema(implementation = HttpModels.SizeResponse.class))),
+        @ApiResponse(responseCode = "400", description = "One of the query parameters has a bad value"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response unionStore(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                               @Parameter(description = "Name of the destination set") @PathParam("destination") final String destination,
+                               @Parameter(description = "List of sets") @QueryParam("set") final List<String> sets,
+                               @Parameter(description = "How weights of an entry are combined: sum, min or max", example = "sum")
+                               @DefaultValue("sum") @QueryParam("aggregate") final String aggregate) throws IOException {
+        logger.info("received request to store union of sets {} in set/namespace {}/{}", sets, destination, namespace);
+        final Map<String, Integer> size = new HashMap<>();
+        size.put(jsonFieldSize, this.cantor.sets().unionStore(namespace, destination, sets, toAggregate(aggregate)));
+        return Response.ok(parser.toJson(size)).build();
+    }
+
     @GET
     @Path("/intersect/{namespace}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -246,6 +284,8 @@ public class SetsResource {
     })
     public Response intersect(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
                               @Parameter(description = "List of sets") @QueryParam("set") final List<String> sets,
+                              @Parameter(description = "How weights of an entry are combined: sum, min or max", example = "sum")
+                              @DefaultValue("sum") @QueryParam("aggregate") final String aggregate,
                               @BeanParam final SetsDataSourceBean bean) throws IOException {
         logger.info("received request for intersection of sets {} in namespace {}", sets, namespace);
         logger.debug("request parameters: {}", bean);
@@ -256,10 +296,121 @@ public class SetsResource {
                 bean.getMax(),
                 bean.getStart(),
                 bean.getCount(),
-                bean.isAscending());
+                bean.isAscending(),
+                toAggregate(aggregate));
         return Response.ok(parser.toJson(intersection)).build();
     }
 
+    @PUT
+    @Path("/intersect/{namespace}/{destination}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Store the intersection of all provided sets in the destination set")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides single property json with the number of entries in the destination set",
+                     content = @Content(schema = @Schema(implementation = HttpModels.SizeResponse.class))),
+        @ApiResponse(responseCode = "400", description = "One of the query parameters has a bad value"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response interStore(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                               @Parameter(description = "Name of the destination set") @PathParam("destination") final String destination,
+                               @Parameter(description = "List of sets") @QueryParam("set") final List<String> sets,
+                               @Parameter(description = "How weights of an entry are combined: sum, min or max", example = "sum")
+                               @DefaultValue("sum") @QueryParam("aggregate") final String aggregate) throws IOException {
+        logger.info("received request to store intersection of sets {} in set/namespace {}/{}", sets, destination, namespace);
+        final Map<String, Integer> size = new HashMap<>();
+        size.put(jsonFieldSize, this.cantor.sets().interStore(namespace, destination, sets, toAggregate(aggregate)));
+        return Response.ok(parser.toJson(size)).build();
+    }
+
+    @GET
+    @Path("/diff/{namespace}/{set}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Get entries of a set that are not in any of the provided sets")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides the entries and weights of the set not found in the excluded sets filtered by query parameters as properties in a json",
+                     content = @Content(schema = @Schema(implementation = Map.class))),
+        @ApiResponse(responseCode = "400", description = "One of the query parameters has a bad value"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response diff(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                         @Parameter(description = "Name of the set") @PathParam("set") final String set,
+                         @Parameter(description = "List of sets whose entries are excluded") @QueryParam("exclude") final List<String> sets,
+                         @BeanParam final SetsDataSourceBean bean) throws IOException {
+        logger.info("received request for difference of set {} and sets {} in namespace {}", set, sets, namespace);
+        logger.debug("request parameters: {}", bean);
+        final Map<String, Long> difference = this.cantor.sets().diff(
+                namespace,
+                set,
+                sets,
+                bean.getMin(),
+                bean.getMax(),
+                bean.getStart(),
+                bean.getCount(),
+                bean.isAscending());
+        return Response.ok(parser.toJson(difference)).build();
+    }
+
+    @PUT
+    @Path("/diff/{namespace}/{destination}/{set}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Store entries of a set that are not in any of the provided sets in the destination set")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides single property json with the number of entries in the destination set",
+                     content = @Content(schema = @Schema(implementation = HttpModels.SizeResponse.class))),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response diffStore(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                              @Parameter(description = "Name of the destination set") @PathParam("destination") final String destination,
+                              @Parameter(description = "Name of the set") @PathParam("set") final String set,
+                              @Parameter(description = "List of sets whose entries are excluded") @QueryParam("exclude") final List<String> sets) throws IOException {
+        logger.info("received request to store difference of set {} and sets {} in set/namespace {}/{}", set, sets, destination, namespace);
+        final Map<String, Integer> size = new HashMap<>();
+        size.put(jsonFieldSize, this.cantor.sets().diffStore(namespace, destination, set, sets));
+        return Response.ok(parser.toJson(size)).build();
+    }
+
+    @POST
+    @Path("/move/{namespace}/{source}/{destination}/{entry}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Move an entry with its weight from one set to another")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides single property json with a boolean which is only true if the entry was found in the source set and moved",
+                     content = @Content(schema = @Schema(implementation = HttpModels.DeleteResponse.class))),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response move(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                         @Parameter(description = "Name of the source set") @PathParam("source") final String source,
+                         @Parameter(description = "Name of the destination set") @PathParam("destination") final String destination,
+                         @Parameter(description = "Name of the entry") @PathParam("entry") final String entry) throws IOException {
+        logger.info("received request to move entry {} from set {} to set {} in namespace {}", entry, source, destination, namespace);
+        final Map<String, Boolean> completed = new HashMap<>();
+        completed.put(jsonFieldResults, this.cantor.sets().move(namespace, source, destination, entry));
+        return Response.ok(parser.toJson(completed)).build();
+    }
+
+    @PUT
+    @Path("/copy/{namespace}/{source}/{destination}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Copy all entries of a set to the destination set")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides single property json with the number of entries in the destination set",
+                     content = @Content(schema = @Schema(implementation = HttpModels.SizeResponse.class))),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response copy(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                         @Parameter(description = "Name of the source set") @PathParam("source") final String source,
+                         @Parameter(description = "Name of the destination set") @PathParam("destination") final String destination) throws IOException {
+        logger.info("received request to copy set {} to set {} in namespace {}", source, destination, namespace);
+        final Map<String, Integer> size = new HashMap<>();
+        size.put(jsonFieldSize, this.cantor.sets().copy(namespace, source, destination));
+        return Response.ok(parser.toJson(size)).build();
+    }
+
     @DELETE
     @Path("/pop/{namespace}/{set}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -287,6 +438,66 @@ public class SetsResource {
         return Response.ok(parser.toJson(entries)).build();
     }
 
+    @POST
+    @Path("/claim/{namespace}/{set}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Claim entries from a set for a limited time")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Entries and weights of elements claimed matching query parameters, with the lease to acknowledge or release them",
+                     content = @Content(schema = @Schema(implementation = Sets.Claim.class))),
+        @ApiResponse(responseCode = "400", description = "One of the query parameters has a bad value"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response claim(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                          @Parameter(description = "Name of the set") @PathParam("set") final String set,
+                          @Parameter(description = "Lease duration in milliseconds", example = "30000") @QueryParam("lease") final long leaseMillis,
+                          @BeanParam final SetsDataSourceBean bean) throws IOException {
+        logger.info("received request to claim entries off set/namespace {}/{} for {}ms", set, namespace, leaseMillis);
+        logger.debug("request parameters: {}", bean);
+        final Sets.Claim claim = this.cantor.sets().claim(
+                namespace,
+                set,
+                bean.getMin(),
+                bean.getMax(),
+                bean.getCount(),
+                bean.isAscending(),
+                leaseMillis);
+        return Response.ok(parser.toJson(claim)).build();
+    }
+
+    @POST
+    @Path("/ack/{namespace}/{set}")
+    @Operation(summary = "Acknowledge claimed entries, removing them for good")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully acknowledged the entries"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response ack(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                        @Parameter(description = "Name of the set") @PathParam("set") final String set,
+                        @Parameter(description = "Identifier of the lease the entries were claimed under") @QueryParam("lease") final String leaseId,
+                        @Parameter(description = "List of claimed entries") @QueryParam("entry") final List<String> entries) throws IOException {
+        logger.info("received request to ack {} entries of lease {} in set/namespace {}/{}", entries.size(), leaseId, set, namespace);
+        this.cantor.sets().ack(namespace, set, leaseId, entries);
+        return Response.ok().build();
+    }
+
+    @POST
+    @Path("/nack/{namespace}/{set}")
+    @Operation(summary = "Release claimed entries back into their set")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully released the entries"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response nack(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                         @Parameter(description = "Name of the set") @PathParam("set") final String set,
+                         @Parameter(description = "Identifier of the lease the entries were claimed under") @QueryParam("lease") final String leaseId,
+                         @Parameter(description = "List of claimed entries") @QueryParam("entry") final List<String> entries) throws IOException {
+        logger.info("received request to nack {} entries of lease {} in set/namespace {}/{}", entries.size(), leaseId, set, namespace);
+        this.cantor.sets().nack(namespace, set, leaseId, entries);
+        return Response.ok().build();
+    }
+
     @GET
     @Path("/{namespace}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -355,6 +566,53 @@ public class SetsResource {
         return Response.ok().build();
     }
 
+    @POST
+    @Path("/inc/{namespace}/{set}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Increment a batch of entries, adding the ones not in the set unless update only")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully incremented entries by their counts"),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response inc(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                        @Parameter(description = "Name of the set") @PathParam("set") final String set,
+                        @Parameter(description = "Only increment entries already in the set") @DefaultValue("false") @QueryParam("update_only") final boolean updateOnly,
+                        @Parameter(description = "Entries mapped to the amount to increment them by") final Map<String, Long> entries) throws IOException {
+        logger.info("received request to increment {} entries in set/namespace {}/{}", entries.size(), set, namespace);
+        this.cantor.sets().inc(namespace, set, entries, updateOnly);
+        return Response.ok().build();
+    }
+
+    @POST
+    @Path("/cas/{namespace}/{set}/{entry}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Set the weight of an entry if its current weight is the expected one")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                     description = "Provides single property json with a boolean which is only true if the weight was set",
+                     content = @Content(schema = @Schema(implementation = HttpModels.DeleteResponse.class))),
+        @ApiResponse(responseCode = "500", description = serverErrorMessage)
+    })
+    public Response compareAndSet(@Parameter(description = "Namespace identifier") @PathParam("namespace") final String namespace,
+                                  @Parameter(description = "Name of the set") @PathParam("set") final String set,
+                                  @Parameter(description = "Name of the entry") @PathParam("entry") final String entry,
+                                  @Parameter(description = "Expected current weight; omit to only add the entry if it is not in the set") @QueryParam("expected") final Long expected,
+                                  @Parameter(description = "New weight of the entry", example = "10") @QueryParam("weight") final long weight) throws IOException {
+        logger.info("received request to set weight of entry {} in set/namespace {}/{} to {} if it is {}", entry, set, namespace, weight, expected);
+        final Map<String, Boolean> completed = new HashMap<>();
+        completed.put(jsonFieldResults, this.cantor.sets().compareAndSet(namespace, set, entry, expected, weight));
+        return Response.ok(parser.toJson(completed)).build();
+    }
+
+    private static Sets.Aggregate toAggregate(final String aggregate) {
+        for (final Sets.Aggregate agg : Sets.Aggregate.values()) {
+            if (agg.name().equalsIgnoreCase(aggregate)) {
+                return agg;
+            }
+        }
+        throw new IllegalArgumentException("invalid aggregate: " + aggregate);
+    }
+
     protected static class SetsDataSourceBean {
         @Parameter(description = "Minimum weight for an entry", example = "0")
         @QueryParam("min")
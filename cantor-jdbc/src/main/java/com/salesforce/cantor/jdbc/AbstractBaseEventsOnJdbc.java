@@ -8,29 +8,79 @@
 package com.salesforce.cantor.jdbc;
 
 import com.salesforce.cantor.Events;
+import com.salesforce.cantor.jdbc.EventsChunksCache.Chunk;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.sql.*;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.salesforce.cantor.common.CommonUtils.nullToEmpty;
 import static com.salesforce.cantor.common.EventsPreconditions.*;
 import static com.salesforce.cantor.jdbc.JdbcUtils.addParameters;
+import static com.salesforce.cantor.jdbc.JdbcUtils.getPlaceholders;
 import static com.salesforce.cantor.jdbc.JdbcUtils.quote;
 
 public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc implements Events {
+    private static final DateTimeFormatter dayFormatter =
+            DateTimeFormatter.ofPattern("yyyy_MM_dd").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter minuteFormatter =
+            DateTimeFormatter.ofPattern("yyyy_MM_dd_HH_mm").withZone(ZoneOffset.UTC);
+    private static final int maxMemoizedKeySets = 4096;
+    // attempts to store a batch whose chunks keep being compacted by other processes
+    private static final int maxStoreAttempts = 3;
+    // mysql allows up to 65535 placeholders in a prepared statement
+    private static final int maxBulkInsertParameters = 65535;
+    private static final byte[] emptyPayload = new byte[0];
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final ParallelQueryExecutor queryExecutor;
+    private volatile EventsChunksCache chunksCache;
+    // runs deletes on chunk tables in parallel; created on first delete
+    private volatile ParallelQueryExecutor deleteExecutor;
+    // namespaces known to have a rollups table
+    private final Set<String> rollupNamespaces = ConcurrentHashMap.newKeySet();
+    // namespaces known to have rollups built for events stored before the rollups table existed
+    private final Set<String> builtRollupNamespaces = ConcurrentHashMap.newKeySet();
+    private final Map<String, Object> rollupNamespaceLocks = new ConcurrentHashMap<>();
+    // stores hold the read lock of a namespace while adding to its rollups, rebuilds hold the write lock
+    private final Map<String, ReadWriteLock> rollupsLocks = new ConcurrentHashMap<>();
+    // builds rollups for events stored before the rollups table existed; started on first use of rollups
+    private volatile ExecutorService rollupsBuilder;
+    // namespaces known to have a cold segments table
+    private final Set<String> coldSegmentsNamespaces = ConcurrentHashMap.newKeySet();
+    // compacts old chunk tables to cold segments; started on first store if enabled
+    private volatile ScheduledExecutorService coldChunksCompactor;
+    // chunk window size of each namespace, as recorded in its chunk lookup table
+    private final Map<String, Long> namespaceChunkWindows = new ConcurrentHashMap<>();
+    private volatile WindowName lastWindowName;
+    // ordered keys and column names for sets of metadata and dimension keys seen on store
+    private final Map<Set<String>, KeyColumns> metadataKeyColumns = new ConcurrentHashMap<>();
+    private final Map<Set<String>, KeyColumns> dimensionKeyColumns = new ConcurrentHashMap<>();
 
     protected AbstractBaseEventsOnJdbc(final DataSource dataSource) {
+        this(dataSource, ParallelQueryExecutor.getDefault(dataSource));
+    }
+
+    protected AbstractBaseEventsOnJdbc(final DataSource dataSource, final ParallelQueryExecutor queryExecutor) {
         super(dataSource);
+        checkArgument(queryExecutor != null, "null query executor");
+        this.queryExecutor = queryExecutor;
     }
 
     @Override
@@ -42,12 +92,22 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
     public void create(final String namespace) throws IOException {
         checkCreate(namespace);
         createNamespace(namespace);
+        getChunksCache().invalidate(namespace);
+        this.namespaceChunkWindows.remove(namespace);
     }
 
     @Override
     public void drop(final String namespace) throws IOException {
         checkDrop(namespace);
-        dropNamespace(namespace);
+        try {
+            dropNamespace(namespace);
+        } finally {
+            getChunksCache().invalidate(namespace);
+            this.rollupNamespaces.remove(namespace);
+            this.builtRollupNamespaces.remove(namespace);
+            this.coldSegmentsNamespaces.remove(namespace);
+            this.namespaceChunkWindows.remove(namespace);
+        }
     }
 
     @Override
@@ -69,7 +129,117 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                 endTimestampMillis,
                 nullToEmpty(metadataQuery),
                 nullToEmpty(dimensionsQuery),
-                includePayloads
+                includePayloads,
+                null,
+                null
+        );
+    }
+
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads,
+                           final Set<String> metadataKeys,
+                           final Set<String> dimensionKeys) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                metadataKeys,
+                dimensionKeys
+        );
+        return doGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                nullToEmpty(metadataQuery),
+                nullToEmpty(dimensionsQuery),
+                includePayloads,
+                metadataKeys,
+                dimensionKeys
+        );
+    }
+
+    @Override
+    public void stream(final String namespace,
+                       final long startTimestampMillis,
+                       final long endTimestampMillis,
+                       final Map<String, String> metadataQuery,
+                       final Map<String, String> dimensionsQuery,
+                       final boolean includePayloads,
+                       final EventHandler handler) throws IOException {
+        checkStream(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, handler);
+        doStream(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                nullToEmpty(metadataQuery),
+                nullToEmpty(dimensionsQuery),
+                includePayloads,
+                handler
+        );
+    }
+
+    @Override
+    public Page get(final String namespace,
+                    final long startTimestampMillis,
+                    final long endTimestampMillis,
+                    final Map<String, String> metadataQuery,
+                    final Map<String, String> dimensionsQuery,
+                    final boolean includePayloads,
+                    final Order order,
+                    final int limit,
+                    final String continuationToken) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                order,
+                limit,
+                continuationToken
+        );
+        return doGetPage(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                nullToEmpty(metadataQuery),
+                nullToEmpty(dimensionsQuery),
+                includePayloads,
+                order,
+                limit,
+                continuationToken != null ? PageToken.decode(continuationToken) : null
+        );
+    }
+
+    @Override
+    public long count(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        checkCount(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return doCount(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                nullToEmpty(metadataQuery),
+                nullToEmpty(dimensionsQuery)
+        );
+    }
+
+    @Override
+    public boolean exists(final String namespace,
+                          final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery) throws IOException {
+        checkExists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return doExists(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                nullToEmpty(metadataQuery),
+                nullToEmpty(dimensionsQuery)
         );
     }
 
@@ -117,6 +287,44 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         );
     }
 
+    @Override
+    public List<GroupAggregate> aggregateGroups(final String namespace,
+                                                final String dimension,
+                                                final long startTimestampMillis,
+                                                final long endTimestampMillis,
+                                                final Map<String, String> metadataQuery,
+                                                final Map<String, String> dimensionsQuery,
+                                                final List<String> groupByMetadataKeys,
+                                                final int aggregateIntervalMillis,
+                                                final AggregationFunction aggregationFunction,
+                                                final Order order,
+                                                final int limit) throws IOException {
+        checkAggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+        return doAggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                nullToEmpty(metadataQuery),
+                nullToEmpty(dimensionsQuery),
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+    }
+
     @Override
     public Set<String> metadata(final String namespace,
                                 final String metadataKey,
@@ -136,7 +344,38 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                 startTimestampMillis,
                 endTimestampMillis,
                 nullToEmpty(metadataQuery),
-                nullToEmpty(dimensionsQuery)
+                nullToEmpty(dimensionsQuery),
+                null,
+                0
+        );
+    }
+
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final String prefix,
+                                final int limit) throws IOException {
+        checkMetadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                prefix,
+                limit
+        );
+        return doMetadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                nullToEmpty(metadataQuery),
+                nullToEmpty(dimensionsQuery),
+                prefix,
+                limit
         );
     }
 
@@ -146,6 +385,33 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         doExpire(namespace, endTimestampMillis);
     }
 
+    @Override
+    public void setRetention(final String namespace, final long retentionMillis) throws IOException {
+        checkSetRetention(namespace, retentionMillis);
+        doSetRetention(namespace, retentionMillis);
+    }
+
+    @Override
+    public long getRetention(final String namespace) throws IOException {
+        checkGetRetention(namespace);
+        return doGetRetention(namespace);
+    }
+
+    /**
+     * Compact chunk tables with all events before the given end timestamp to cold segments: events are encoded in
+     * columnar form and kept as blobs, and the chunk table is dropped. Cold chunks are read like any other chunk, by
+     * decoding their segments; storing an event in the window of a cold chunk converts it back to a chunk table.
+     *
+     * @param namespace the namespace identifier
+     * @param endTimestampMillis end timestamp; chunk tables with a window ending after this are not compacted
+     * @throws IOException exception thrown from the underlying storage implementation
+     */
+    public void compact(final String namespace, final long endTimestampMillis) throws IOException {
+        checkNamespace(namespace);
+        checkArgument(endTimestampMillis >= 0, "invalid end timestamp");
+        doCompact(namespace, endTimestampMillis);
+    }
+
     @Override
     protected String getNamespaceLookupTableName() {
         return "EVENTS-NAMESPACES";
@@ -156,6 +422,43 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         logger.info("creating chunk lookup table for namespace: {}", namespace);
         final String chunkLookupTableSql = getCreateChunkLookupTableSql(namespace);
         executeUpdate(connection, chunkLookupTableSql);
+        addChunkWindowToLookupTable(connection, namespace);
+    }
+
+    // the chunk window is recorded once, when the namespace is first created, and kept for its lifetime
+    private void addChunkWindowToLookupTable(final Connection connection, final String namespace) throws IOException {
+        final long windowMillis = getChunkWindowMillis(namespace);
+        checkArgument(windowMillis > 0 && windowMillis % TimeUnit.MINUTES.toMillis(1) == 0,
+                "chunk window must be a positive multiple of one minute");
+        final String selectSql = getNamespaceSettingSelectSql(namespace);
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(selectSql)) {
+            addParameters(preparedStatement, "", getChunkWindowColumnValue());
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    if (resultSet.getLong(1) != windowMillis) {
+                        logger.warn("namespace {} already has chunk window of {}ms; ignoring {}ms",
+                                namespace, resultSet.getLong(1), windowMillis
+                        );
+                    }
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", selectSql, e.getMessage());
+            throw new IOException(e);
+        }
+        logger.info("using chunk window of {}ms for namespace {}", windowMillis, namespace);
+        executeUpdate(connection,
+                String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ?",
+                        getTableFullName(namespace, getChunksLookupTableName()),
+                        quote(getTableNameColumnName()),
+                        quote(getColumnColumnName()),
+                        quote(getStartTimestampMillisColumnName())
+                ),
+                "",  // not a chunk table
+                getChunkWindowColumnValue(),
+                windowMillis
+        );
     }
 
     protected abstract String getCreateChunkLookupTableSql(String namespace);
@@ -166,15 +469,13 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                                                      Map<String, Double> dimensions
     );
 
-    private void createChunkTable(final Connection connection,
-                                  final String namespace,
-                                  final Event sampleEvent) throws IOException {
+    private Chunk createChunkTable(final Connection connection,
+                                   final String namespace,
+                                   final long windowMillis,
+                                   final ChunkBatch chunkBatch) throws IOException {
 
-        final String chunkTableName = getChunkTableName(
-                sampleEvent.getTimestampMillis(),
-                sampleEvent.getMetadata().keySet(),
-                sampleEvent.getDimensions().keySet()
-        );
+        final String chunkTableName = chunkBatch.tableName;
+        final Event sampleEvent = chunkBatch.sampleEvent;
         logger.info("creating chunk table {}.{}", namespace, chunkTableName);
 
         // create chunk table
@@ -184,12 +485,22 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         executeUpdate(connection, sql);
 
         // add chunk table description to lookup table
-        addChunkToLookupTable(connection, namespace, chunkTableName, sampleEvent);
+        addChunkToLookupTable(connection, namespace, chunkTableName, chunkBatch.windowStartMillis, sampleEvent);
+
+        final Map<String, String> columnNameToKeyName = new HashMap<>();
+        chunkBatch.metadataColumns.addColumnNameToKeyName(columnNameToKeyName);
+        chunkBatch.dimensionColumns.addColumnNameToKeyName(columnNameToKeyName);
+        return new Chunk(chunkTableName,
+                chunkBatch.windowStartMillis,
+                getWindowEnd(windowMillis, chunkBatch.windowStartMillis),
+                columnNameToKeyName
+        );
     }
 
     private void addChunkToLookupTable(final Connection connection,
                                        final String namespace,
                                        final String chunkTableName,
+                                       final long windowStartMillis,
                                        final Event event) throws IOException {
         logger.info("adding chunk '{}' to lookup table", chunkTableName);
         executeUpdate(connection,
@@ -202,7 +513,7 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                 ),
                 chunkTableName,
                 "",  // nothing for first column name
-                getWindowForTimestamp(event.getTimestampMillis()),
+                windowStartMillis,
                 chunkTableName
         );
         final String sql = String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ?, %s = ? " +
@@ -220,7 +531,7 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                     chunkTableName,
                     metadataKey,
                     getMetadataKeyColumnName(metadataKey),
-                    getWindowForTimestamp(event.getTimestampMillis()),
+                    windowStartMillis,
                     chunkTableName
             );
         }
@@ -230,30 +541,50 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                     chunkTableName,
                     dimensionKey,
                     getDimensionKeyColumnName(dimensionKey),
-                    getWindowForTimestamp(event.getTimestampMillis()),
+                    windowStartMillis,
                     chunkTableName
             );
         }
     }
 
-    // returns map of metadata and dimension column names to the key names
-    // e.g., "M_HOST" -> "Host"
-    private Map<String, String> getColumnNameToKeyNameMap(final String namespace,
-                                                          final String chunkTableName) throws IOException {
-        final String sql = String.format("SELECT %s, %s FROM %s WHERE %s IS NOT NULL AND %s = ? ",
+    // loads descriptors of all chunk tables in the namespace from the chunk lookup table
+    private Map<String, Chunk> loadChunks(final String namespace) throws IOException {
+        final String sql = String.format("SELECT %s, %s, %s, %s FROM %s",
+                quote(getTableNameColumnName()),
+                quote(getStartTimestampMillisColumnName()),
                 quote(getColumnColumnName()),
                 quote(getKeyColumnName()),
-                getTableFullName(namespace, getChunksLookupTableName()),
-                quote(getKeyColumnName()),
-                quote(getTableNameColumnName())
+                getTableFullName(namespace, getChunksLookupTableName())
         );
-        final Map<String, String> results = new HashMap<>();
+        final Map<String, Long> tableNameToStartTimestamp = new HashMap<>();
+        final Map<String, Map<String, String>> tableNameToColumns = new HashMap<>();
+        final Set<String> coldTableNames = new HashSet<>();
+        // namespaces created before chunk windows were recorded use daily windows
+        long windowMillis = TimeUnit.DAYS.toMillis(1);
         try (final Connection connection = getConnection()) {
             try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-                preparedStatement.setString(1, chunkTableName);
                 try (final ResultSet resultSet = preparedStatement.executeQuery()) {
                     while (resultSet.next()) {
-                        results.put(resultSet.getString(1), resultSet.getString(2));
+                        final String tableName = resultSet.getString(1);
+                        // the chunk window row is not a chunk table
+                        if (tableName.isEmpty()) {
+                            if (getChunkWindowColumnValue().equals(resultSet.getString(3))) {
+                                windowMillis = resultSet.getLong(2);
+                            }
+                            continue;
+                        }
+                        tableNameToStartTimestamp.put(tableName, resultSet.getLong(2));
+                        // chunks compacted to cold segments have an extra row, with no key
+                        if (getColdChunkColumnValue().equals(resultSet.getString(3))) {
+                            coldTableNames.add(tableName);
+                        }
+                        final Map<String, String> columns =
+                                tableNameToColumns.computeIfAbsent(tableName, ignored -> new HashMap<>());
+                        final String keyName = resultSet.getString(4);
+                        // the first row for each chunk table has no key
+                        if (keyName != null) {
+                            columns.put(resultSet.getString(3), keyName);
+                        }
                     }
                 }
             }
@@ -261,31 +592,110 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
             logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
             throw new IOException(e);
         }
-        return results;
+        this.namespaceChunkWindows.put(namespace, windowMillis);
+        final Map<String, Chunk> chunks = new HashMap<>();
+        for (final Map.Entry<String, Long> entry : tableNameToStartTimestamp.entrySet()) {
+            chunks.put(entry.getKey(), new Chunk(entry.getKey(),
+                    entry.getValue(),
+                    getWindowEnd(windowMillis, entry.getValue()),
+                    tableNameToColumns.get(entry.getKey()),
+                    coldTableNames.contains(entry.getKey()))
+            );
+        }
+        logger.debug("loaded {} chunk tables for namespace {}", chunks.size(), namespace);
+        return chunks;
     }
 
     private void doExpire(final String namespace, final long endTimestampMillis) throws IOException {
-        // the timestamp of the last event to keep must be larger than the window size
-        if (endTimestampMillis < getWindowSizeMillis()) {
-            logger.info("expiring end timestamp is smaller than the window size; ignoring.");
-            return;
-        }
-
-        // find the last window before the end timestamp
-        final long windowFloorEndTimestamp = getWindowForTimestamp(endTimestampMillis - getWindowSizeMillis() + 1);
-        final List<String> chunkTables = getChunkTableNames(
+        final List<Chunk> chunks = getChunks(
                 namespace,
                 0,
-                windowFloorEndTimestamp,
+                endTimestampMillis,
                 Collections.emptyList(),
                 Collections.emptyList()
         );
-        for (final String chunkTable : chunkTables) {
-            doExpireChunkTable(namespace, chunkTable);
+        long expiredEndTimestamp = 0;
+        long deletedStartTimestamp = Long.MAX_VALUE;
+        long deletedCount = 0;
+        for (final Chunk chunk : chunks) {
+            if (chunk.getEndTimestampMillis() <= endTimestampMillis) {
+                // chunk tables with all events before the end timestamp are dropped
+                doExpireChunkTable(namespace, chunk);
+                expiredEndTimestamp = Math.max(expiredEndTimestamp, chunk.getEndTimestampMillis());
+            } else if (chunk.getStartTimestampMillis() < endTimestampMillis) {
+                // events before the end timestamp in the window containing it are deleted
+                final long deleted = doOnChunk(namespace, chunk, 0L, current -> doDeleteOnChunk(namespace,
+                        current,
+                        0,
+                        endTimestampMillis - 1,
+                        Collections.emptyMap(),
+                        Collections.emptyMap())
+                );
+                if (deleted > 0) {
+                    deletedCount += deleted;
+                    deletedStartTimestamp = Math.min(deletedStartTimestamp, chunk.getStartTimestampMillis());
+                }
+            }
+        }
+        if (isRollupsEnabled() && expiredEndTimestamp > 0) {
+            // all events before the end of the last expired window are gone
+            doExpireRollups(namespace, expiredEndTimestamp);
+        }
+        if (isRollupsEnabled() && deletedCount > 0) {
+            // rollups cannot be adjusted for deleted events; recompute them for the deleted range instead
+            ensureRollups(namespace);
+            doRebuildRollups(namespace, deletedStartTimestamp, endTimestampMillis - 1);
+        }
+    }
+
+    // the retention period is kept in the chunk lookup table, in a row with no chunk table like the chunk window
+    private void doSetRetention(final String namespace, final long retentionMillis) throws IOException {
+        logger.info("setting retention of {}ms for namespace {}", retentionMillis, namespace);
+        final String deleteSql = String.format("DELETE FROM %s WHERE %s = ? AND %s = ?",
+                getTableFullName(namespace, getChunksLookupTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColumnColumnName())
+        );
+        final String insertSql = String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ?",
+                getTableFullName(namespace, getChunksLookupTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColumnColumnName()),
+                quote(getStartTimestampMillisColumnName())
+        );
+        // replace the retention row in a transaction
+        Connection connection = null;
+        try {
+            connection = openTransaction(getConnection());
+            executeUpdate(connection, deleteSql, "", getRetentionColumnValue());
+            if (retentionMillis > 0) {
+                executeUpdate(connection, insertSql, "", getRetentionColumnValue(), retentionMillis);
+            }
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+    private long doGetRetention(final String namespace) throws IOException {
+        final String sql = getNamespaceSettingSelectSql(namespace);
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                addParameters(preparedStatement, "", getRetentionColumnValue());
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : 0;
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            throw new IOException(e);
         }
     }
 
-    private void doExpireChunkTable(final String namespace, final String chunkTable) throws IOException {
+    private void doExpireChunkTable(final String namespace, final Chunk chunk) throws IOException {
+        final String chunkTable = chunk.getTableName();
+        if (chunk.isCold()) {
+            doExpireColdChunk(namespace, chunkTable);
+            return;
+        }
         logger.info("expiring chunk table {} from namespace {}", chunkTable, namespace);
         // construct the sql to delete chunk metadata from lookup table
         final String deleteChunkLookupSql = String.format("DELETE FROM %s WHERE %s = ?",
@@ -305,125 +715,315 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
             // remove chunk table name from lookup table
             executeUpdate(connection, getDropTableSql(namespace, chunkTable));
         } finally {
-            closeConnection(connection);
+            try {
+                closeConnection(connection);
+            } finally {
+                getChunksCache().removeChunk(namespace, chunkTable);
+            }
         }
     }
 
     private void doStore(final String namespace, final Collection<Event> batch) throws IOException {
-        // convert to a map of chunk table name to batches of parameters to be passed to jdbc batch calls
-        final Map<String, Collection<Object[]>> chunkTableToParameters = toChunkTableBatchParameters(batch);
+        final long windowMillis = getNamespaceChunkWindowMillis(namespace);
 
-        // convert to a map of chunk table name to insert sqls
-        final Map<String, String> chunkTableToInsertSqls = toChunkTableInsertSqls(namespace, batch);
+        // group events per chunk table, with parameters to be passed to jdbc batch calls, in a single pass
+        final Collection<ChunkBatch> chunkBatches = toChunkBatches(windowMillis, batch);
 
-        // convert to map of chunk table name to create table sqls; used if write fails
-        final Map<String, Event> chunkTableToCreateParameters = toChunkTableCreateParameters(batch);
+        // chunks may be compacted by other processes after they are cached; thaw those and try again
+        int attempts = 0;
+        while (!tryStore(namespace, windowMillis, chunkBatches, batch)) {
+            getChunksCache().invalidate(namespace);
+            if (++attempts >= maxStoreAttempts) {
+                throw new IOException("chunks of namespace " + namespace + " were compacted while storing events");
+            }
+        }
+        if (getColdChunkAgeMillis() > 0) {
+            startColdChunksCompactor();
+        }
+    }
 
-        // open a transaction and try to insert all or rollback; partial success is not allowed
-        Connection connection = null;
-        try {
-            connection = openTransaction(getConnection());
-            for (final Map.Entry<String, Collection<Object[]>> entry : chunkTableToParameters.entrySet()) {
-                final String insertSql = chunkTableToInsertSqls.get(entry.getKey());
-                // execute batch insert for each chunk table; create chunk table if write fails and retry again.
-                try {
-                    executeBatchUpdate(connection, insertSql, entry.getValue());
-                } catch (IOException e) {
-                    // try to create a the chunk table and retry insert
-                    final Event sampleEvent = chunkTableToCreateParameters.get(entry.getKey());
-                    createChunkTable(connection, namespace, sampleEvent);
+    // returns false, without storing anything, if a chunk of the batch turned out to be cold
+    private boolean tryStore(final String namespace,
+                             final long windowMillis,
+                             final Collection<ChunkBatch> chunkBatches,
+                             final Collection<Event> batch) throws IOException {
+        // chunk tables created as part of this batch; added to the cache once committed
+        final List<Chunk> createdChunks = new ArrayList<>();
+
+        // events in the window of a cold chunk go back to its chunk table
+        final List<String> chunkTableNames = new ArrayList<>();
+        final List<String> newChunkTableNames = new ArrayList<>();
+        for (final ChunkBatch chunkBatch : chunkBatches) {
+            final Chunk chunk = getChunksCache().getChunk(namespace, chunkBatch.tableName, this::loadChunks);
+            if (chunk == null) {
+                newChunkTableNames.add(chunkBatch.tableName);
+                continue;
+            }
+            if (chunk.isCold()) {
+                doThawColdChunk(namespace, chunk);
+            }
+            chunkTableNames.add(chunk.getTableName());
+        }
 
-                    executeBatchUpdate(connection, insertSql, entry.getValue());
+        // rollups of the batch must not be added while the same buckets are being rebuilt
+        final Lock rollupsLock = isRollupsEnabled() ? getRollupsLock(namespace).readLock() : null;
+        if (rollupsLock != null) {
+            ensureRollups(namespace);
+            rollupsLock.lock();
+        }
+        try {
+            // open a transaction and try to insert all or rollback; partial success is not allowed
+            Connection connection = null;
+            try {
+                connection = openTransaction(getConnection());
+                // chunks are not compacted nor thawed until the transaction ends
+                if (!lockChunks(connection, namespace, chunkTableNames, true).isEmpty()) {
+                    return false;
                 }
+                for (final ChunkBatch chunkBatch : chunkBatches) {
+                    if (isBulkInsertEnabled()) {
+                        doBulkInsert(connection, namespace, windowMillis, chunkBatch, createdChunks);
+                        continue;
+                    }
+                    final String insertSql = getChunkTableInsertSql(namespace, chunkBatch);
+                    // execute batch insert for each chunk table; create chunk table if write fails and retry again.
+                    try {
+                        executeBatchUpdate(connection, insertSql, chunkBatch.parameters);
+                    } catch (IOException e) {
+                        // try to create a the chunk table and retry insert
+                        createdChunks.add(createChunkTable(connection, namespace, windowMillis, chunkBatch));
+
+                        executeBatchUpdate(connection, insertSql, chunkBatch.parameters);
+                    }
+                }
+                // chunk tables not cached yet have lookup rows only now; they may exist and be cold in another process
+                if (!lockChunks(connection, namespace, newChunkTableNames, true).isEmpty()) {
+                    rollback(connection);
+                    return false;
+                }
+                // rollups are updated in the same transaction as the events
+                if (isRollupsEnabled()) {
+                    storeRollups(connection, namespace, batch);
+                }
+            } finally {
+                closeConnection(connection);
+            }
+        } catch (IOException e) {
+            // chunk tables may have been created before the transaction was rolled back
+            if (!createdChunks.isEmpty()) {
+                getChunksCache().invalidate(namespace);
             }
+            // the rollups table may have been dropped by another process; check again on next call
+            this.rollupNamespaces.remove(namespace);
+            this.builtRollupNamespaces.remove(namespace);
+            throw e;
         } finally {
-            closeConnection(connection);
+            if (rollupsLock != null) {
+                rollupsLock.unlock();
+            }
         }
+        for (final Chunk chunk : createdChunks) {
+            getChunksCache().addChunk(namespace, chunk);
+        }
+        return true;
     }
 
-    private Map<String, Event> toChunkTableCreateParameters(final Collection<Event> batch) {
-        final Map<String, Event> chunkTableCreateParameters = new HashMap<>();
-        for (final Event event : batch) {
-            final long timestampMillis = event.getTimestampMillis();
-            final Map<String, String> metadata = event.getMetadata();
-            final Map<String, Double> dimensions = event.getDimensions();
+    // locks the first lookup row of each of the chunk tables until the transaction ends, and returns the ones that
+    // are cold; compaction and thawing lock the chunk exclusively, stores can share the lock with each other
+    private Set<String> lockChunks(final Connection connection,
+                                   final String namespace,
+                                   final Collection<String> chunkTableNames,
+                                   final boolean shared) throws IOException {
+        if (chunkTableNames.isEmpty()) {
+            return Collections.emptySet();
+        }
+        // in the same order in all transactions, to avoid deadlocks
+        final List<Object> parameters = new ArrayList<>(new TreeSet<>(chunkTableNames));
+        final String inClause = getPlaceholders(parameters.size());
+        final String lockSql = String.format("SELECT %s FROM %s WHERE %s IN (%s) AND %s = ? %s",
+                quote(getTableNameColumnName()),
+                getTableFullName(namespace, getChunksLookupTableName()),
+                quote(getTableNameColumnName()),
+                inClause,
+                quote(getColumnColumnName()),
+                shared ? getSharedLockClause() : "FOR UPDATE"
+        );
+        final String coldSql = String.format("SELECT %s FROM %s WHERE %s IN (%s) AND %s = ?",
+                quote(getTableNameColumnName()),
+                getTableFullName(namespace, getChunksLookupTableName()),
+                quote(getTableNameColumnName()),
+                inClause,
+                quote(getColumnColumnName())
+        );
+        // the cold rows are read once the first rows are locked, so they are not changed until the transaction ends
+        selectTableNames(connection, lockSql, parameters, "");
+        return selectTableNames(connection, coldSql, parameters, getColdChunkColumnValue());
+    }
 
-            final String chunkTableName = getChunkTableName(timestampMillis, metadata.keySet(), dimensions.keySet());
-            if (chunkTableCreateParameters.containsKey(chunkTableName)) {
-                continue;
+    private Set<String> selectTableNames(final Connection connection,
+                                         final String sql,
+                                         final List<Object> tableNames,
+                                         final String columnValue) throws IOException {
+        final List<Object> parameters = new ArrayList<>(tableNames);
+        parameters.add(columnValue);
+        final Set<String> results = new HashSet<>();
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            addParameters(preparedStatement, parameters.toArray());
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    results.add(resultSet.getString(1));
+                }
             }
-            chunkTableCreateParameters.put(chunkTableName, event);
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            throw new IOException(e);
         }
-        return chunkTableCreateParameters;
+        return results;
     }
 
-    private Map<String, String> toChunkTableInsertSqls(final String namespace, final Collection<Event> batch) {
-        final Map<String, String> chunkTableInsertSqls = new HashMap<>();
+    private Collection<ChunkBatch> toChunkBatches(final long windowMillis, final Collection<Event> batch) {
+        final Map<String, ChunkBatch> chunkBatches = new LinkedHashMap<>();
+        ChunkBatch lastChunkBatch = null;
         for (final Event event : batch) {
-            final long timestampMillis = event.getTimestampMillis();
-            final Map<String, String> metadata = event.getMetadata();
-            final Map<String, Double> dimensions = event.getDimensions();
-
-            final String chunkTableName = getChunkTableName(timestampMillis, metadata.keySet(), dimensions.keySet());
-            if (chunkTableInsertSqls.containsKey(chunkTableName)) {
-                continue;
+            final KeyColumns metadataColumns = getKeyColumns(this.metadataKeyColumns,
+                    event.getMetadata().keySet(),
+                    this::getMetadataKeyColumnName
+            );
+            final KeyColumns dimensionColumns = getKeyColumns(this.dimensionKeyColumns,
+                    event.getDimensions().keySet(),
+                    this::getDimensionKeyColumnName
+            );
+            final long windowStartMillis = getWindowStart(windowMillis, event.getTimestampMillis());
+
+            // consecutive events mostly belong to the same chunk table; skip computing the table name for those
+            ChunkBatch chunkBatch = lastChunkBatch;
+            if (chunkBatch == null || !chunkBatch.matches(windowStartMillis, metadataColumns, dimensionColumns)) {
+                final String chunkTableName = getChunkTableName(windowMillis,
+                        windowStartMillis,
+                        metadataColumns,
+                        dimensionColumns
+                );
+                chunkBatch = chunkBatches.get(chunkTableName);
+                if (chunkBatch == null) {
+                    chunkBatch = new ChunkBatch(chunkTableName, windowStartMillis, metadataColumns, dimensionColumns, event);
+                    chunkBatches.put(chunkTableName, chunkBatch);
+                }
+                lastChunkBatch = chunkBatch;
             }
-            chunkTableInsertSqls.put(chunkTableName, getChunkTableInsertSql(namespace, timestampMillis, metadata, dimensions));
+            chunkBatch.add(event);
         }
-        return chunkTableInsertSqls;
+        return chunkBatches.values();
     }
 
-    private String getChunkTableInsertSql(final String namespace,
-                                          final long timestampMillis,
-                                          final Map<String, String> metadata,
-                                          final Map<String, Double> dimensions) {
-        final String chunkTableName = getChunkTableName(timestampMillis, metadata.keySet(), dimensions.keySet());
+    private String getChunkTableInsertSql(final String namespace, final ChunkBatch chunkBatch) {
         final String insertSql = String.format("INSERT INTO %s SET %s = ? ",
-                getTableFullName(namespace, chunkTableName),
+                getTableFullName(namespace, chunkBatch.tableName),
                 quote(getEventTimestampColumnName())
         );
-        final List<String> sortedMetadataKeys = getKeysOrdered(metadata);
-        final List<String> sortedDimensionKeys = getKeysOrdered(dimensions);
-
         final StringBuilder builder = new StringBuilder(insertSql);
-        for (final String metadataKey : sortedMetadataKeys) {
-            builder.append(",").append(quote(getMetadataKeyColumnName(metadataKey))).append(" = ?");
+        for (final String columnName : chunkBatch.metadataColumns.columnNames) {
+            builder.append(",").append(quote(columnName)).append(" = ?");
         }
-        for (final String dimensionKey : sortedDimensionKeys) {
-            builder.append(",").append(quote(getDimensionKeyColumnName(dimensionKey))).append(" = ?");
+        for (final String columnName : chunkBatch.dimensionColumns.columnNames) {
+            builder.append(",").append(quote(columnName)).append(" = ?");
         }
         builder.append(", ").append(quote(getPayloadColumnName())).append(" = ?");
         return builder.toString();
     }
 
-    private Map<String, Collection<Object[]>> toChunkTableBatchParameters(final Collection<Event> batch) {
-        final Map<String, Collection<Object[]>> sqlPerBatch = new HashMap<>();
-        for (final Event event : batch) {
-            final long timestampMillis = event.getTimestampMillis();
-            final Map<String, String> metadata = event.getMetadata();
-            final Map<String, Double> dimensions = event.getDimensions();
-            final byte[] payload = event.getPayload();
-
-            final String chunkTableName = getChunkTableName(timestampMillis, metadata.keySet(), dimensions.keySet());
-            final List<String> sortedMetadataKeys = getKeysOrdered(metadata);
-            final List<String> sortedDimensionKeys = getKeysOrdered(dimensions);
+    // insert events of a chunk batch with as few multi-row insert statements as the statement size limit allows
+    private void doBulkInsert(final Connection connection,
+                              final String namespace,
+                              final long windowMillis,
+                              final ChunkBatch chunkBatch,
+                              final List<Chunk> createdChunks) throws IOException {
+        final String insertSqlPrefix = getChunkTableBulkInsertSqlPrefix(namespace, chunkBatch);
+        final List<List<Object[]>> statementsRows = toBulkInsertStatementsRows(insertSqlPrefix.length(), chunkBatch.parameters);
+        for (int i = 0; i < statementsRows.size(); ++i) {
+            final List<Object[]> rows = statementsRows.get(i);
+            final String insertSql = getChunkTableBulkInsertSql(insertSqlPrefix, rows);
+            final Object[] parameters = rows.stream().flatMap(Arrays::stream).toArray();
+            try {
+                executeUpdate(connection, insertSql, parameters);
+            } catch (IOException e) {
+                // only the first statement can fail because the chunk table does not exist; retrying any
+                // other statement would insert the rows of the statements before it again
+                if (i > 0) {
+                    throw e;
+                }
+                createdChunks.add(createChunkTable(connection, namespace, windowMillis, chunkBatch));
 
-            final Object[] parameters = new Object[1 /* timestamp */ + metadata.size() + dimensions.size() + 1 /* payload */];
-            int index = 0;
-            parameters[index++] = timestampMillis;
-            for (final String metadataKey : sortedMetadataKeys) {
-                parameters[index++] = metadata.get(metadataKey);
+                executeUpdate(connection, insertSql, parameters);
             }
-            for (final String dimensionKey : sortedDimensionKeys) {
-                parameters[index++] = dimensions.get(dimensionKey);
+        }
+    }
+
+    // split rows into statements, each below the maximum statement size and the maximum number of placeholders
+    private List<List<Object[]>> toBulkInsertStatementsRows(final int insertSqlPrefixBytes, final List<Object[]> rows) {
+        final long maxStatementBytes = getBulkInsertMaxStatementBytes();
+        final List<List<Object[]>> statementsRows = new ArrayList<>();
+        List<Object[]> statementRows = new ArrayList<>();
+        long statementBytes = insertSqlPrefixBytes;
+        long statementParameters = 0;
+        for (final Object[] row : rows) {
+            final long rowBytes = getBulkInsertEstimatedRowBytes(row);
+            if (!statementRows.isEmpty()
+                    && (statementBytes + rowBytes > maxStatementBytes
+                        || statementParameters + row.length > maxBulkInsertParameters)) {
+                statementsRows.add(statementRows);
+                statementRows = new ArrayList<>();
+                statementBytes = insertSqlPrefixBytes;
+                statementParameters = 0;
             }
-            parameters[index] = payload != null ? payload : new byte[0];
-            if (!sqlPerBatch.containsKey(chunkTableName)) {
-                sqlPerBatch.put(chunkTableName, new ArrayList<>());
+            statementRows.add(row);
+            statementBytes += rowBytes;
+            statementParameters += row.length;
+        }
+        if (!statementRows.isEmpty()) {
+            statementsRows.add(statementRows);
+        }
+        return statementsRows;
+    }
+
+    // upper bound of the size of a row once parameters are inlined in the statement by the driver
+    private static long getBulkInsertEstimatedRowBytes(final Object[] row) {
+        long bytes = 4;  // parentheses and separators around the row
+        for (final Object parameter : row) {
+            if (parameter instanceof String) {
+                // up to three bytes per character in utf8, quotes and escaped characters
+                bytes += 6L * ((String) parameter).length() + 4;
+            } else if (parameter instanceof byte[]) {
+                // binary literals may be escaped or hex encoded
+                bytes += 2L * ((byte[]) parameter).length + 16;
+            } else {
+                bytes += 32;
             }
-            sqlPerBatch.get(chunkTableName).add(parameters);
         }
-        return sqlPerBatch;
+        return bytes;
+    }
+
+    private String getChunkTableBulkInsertSqlPrefix(final String namespace, final ChunkBatch chunkBatch) {
+        final StringBuilder builder = new StringBuilder("INSERT INTO ")
+                .append(getTableFullName(namespace, chunkBatch.tableName))
+                .append(" (").append(quote(getEventTimestampColumnName()));
+        for (final String columnName : chunkBatch.metadataColumns.columnNames) {
+            builder.append(", ").append(quote(columnName));
+        }
+        for (final String columnName : chunkBatch.dimensionColumns.columnNames) {
+            builder.append(", ").append(quote(columnName));
+        }
+        builder.append(", ").append(quote(getPayloadColumnName())).append(") VALUES ");
+        return builder.toString();
+    }
+
+    private String getChunkTableBulkInsertSql(final String insertSqlPrefix, final List<Object[]> rows) {
+        final String rowPlaceholders = "(" + getPlaceholders(rows.get(0).length) + ")";
+        final StringBuilder builder = new StringBuilder(insertSqlPrefix.length() + rows.size() * (rowPlaceholders.length() + 1));
+        builder.append(insertSqlPrefix).append(rowPlaceholders);
+        for (int i = 1; i < rows.size(); ++i) {
+            builder.append(",").append(rowPlaceholders);
+        }
+        return builder.toString();
     }
 
     private List<Event> doGet(final String namespace,
@@ -431,9 +1031,11 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                               final long endTimestampMillis,
                               final Map<String, String> metadataQuery,
                               final Map<String, String> dimensionsQuery,
-                              final boolean includePayloads) throws IOException {
+                              final boolean includePayloads,
+                              final Set<String> metadataKeys,
+                              final Set<String> dimensionKeys) throws IOException {
 
-        final List<String> chunkTables = getChunkTableNames(
+        final List<Chunk> chunks = getChunks(
                 namespace,
                 startTimestampMillis,
                 endTimestampMillis,
@@ -441,26 +1043,26 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                 dimensionsQuery.keySet()
         );
 
-        // max of 10 concurrent calls; we don't want to blow up connections
-        final ExecutorService executorService = Executors.newFixedThreadPool(10);
-        final List<Event> results = new CopyOnWriteArrayList<>();
-        for (final String chunkTableName : chunkTables) {
-            executorService.submit(() ->
-                    results.addAll(doGetOnChunkTable(namespace,
-                            chunkTableName,
+        // query chunk tables in parallel; the executor limits concurrent queries across all calls
+        final List<Callable<List<Event>>> chunkQueries = new ArrayList<>(chunks.size());
+        for (final Chunk chunk : chunks) {
+            chunkQueries.add(() -> doOnChunk(namespace, chunk, Collections.emptyList(), current ->
+                    doGetOnChunkTable(namespace,
+                            current,
                             startTimestampMillis,
                             endTimestampMillis,
                             metadataQuery,
                             dimensionsQuery,
-                            includePayloads)
-                    )
+                            includePayloads,
+                            metadataKeys,
+                            dimensionKeys,
+                            null,
+                            0))
             );
         }
-        executorService.shutdown();
-        try {
-            executorService.awaitTermination(1, TimeUnit.MINUTES);
-        } catch (InterruptedException e) {
-            throw new IOException("events get operation timed out", e);
+        final List<Event> results = new ArrayList<>();
+        for (final List<Event> chunkResults : this.queryExecutor.invokeAll(chunkQueries)) {
+            results.addAll(chunkResults);
         }
 
         // events are fetched from multiple tables, sort before returning
@@ -469,23 +1071,631 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         return results;
     }
 
+    private Page doGetPage(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads,
+                           final Order order,
+                           final int limit,
+                           final PageToken after) throws IOException {
+        final boolean ascending = order == Order.ASCENDING;
+        // continue from the timestamp of the last event of the previous page
+        final long pageStartTimestampMillis = after != null && ascending
+                ? Math.max(startTimestampMillis, after.getTimestampMillis())
+                : startTimestampMillis;
+        final long pageEndTimestampMillis = after != null && !ascending
+                ? Math.min(endTimestampMillis, after.getTimestampMillis())
+                : endTimestampMillis;
+        // events returned on the previous page, the page itself, and one more to tell if there is a next page
+        final int maxEvents = (after != null ? after.getSkip() : 0) + limit + 1;
+
+        // all chunks of a namespace have the same window, so chunks with the same start cover the same time range;
+        // walk windows in order and stop as soon as enough events are found
+        final NavigableMap<Long, List<Chunk>> windows = new TreeMap<>();
+        for (final Chunk chunk : getChunks(namespace,
+                pageStartTimestampMillis,
+                pageEndTimestampMillis,
+                metadataQuery.keySet(),
+                dimensionsQuery.keySet())) {
+            windows.computeIfAbsent(chunk.getStartTimestampMillis(), ignored -> new ArrayList<>()).add(chunk);
+        }
+        final Comparator<Event> byTimestamp = Comparator.comparingLong(Event::getTimestampMillis);
+        final List<Event> results = new ArrayList<>();
+        for (final List<Chunk> chunks : (ascending ? windows : windows.descendingMap()).values()) {
+            // sort chunks by name, so events with the same timestamp are always in the same order
+            chunks.sort(Comparator.comparing(Chunk::getTableName));
+            final List<Callable<List<Event>>> chunkQueries = new ArrayList<>(chunks.size());
+            for (final Chunk chunk : chunks) {
+                chunkQueries.add(() -> doOnChunk(namespace, chunk, Collections.emptyList(), current ->
+                        doGetOnChunkTable(namespace,
+                                current,
+                                pageStartTimestampMillis,
+                                pageEndTimestampMillis,
+                                metadataQuery,
+                                dimensionsQuery,
+                                includePayloads,
+                                null,
+                                null,
+                                order,
+                                maxEvents))
+                );
+            }
+            final List<Event> windowResults = new ArrayList<>();
+            for (final List<Event> chunkResults : this.queryExecutor.invokeAll(chunkQueries)) {
+                windowResults.addAll(chunkResults);
+            }
+            // stable sort, keeps the order of chunks for events with the same timestamp
+            windowResults.sort(ascending ? byTimestamp : byTimestamp.reversed());
+            results.addAll(windowResults);
+            if (results.size() >= maxEvents) {
+                break;
+            }
+        }
+        return Page.of(results, limit, after);
+    }
+
+    // runs the query on the chunk; the chunk may have been expired, compacted or altered by another process since it
+    // was loaded, so after a failure the chunks are reloaded and the query runs once more on the reloaded chunk
+    private <T> T doOnChunk(final String namespace,
+                            final Chunk chunk,
+                            final T ifMissing,
+                            final ChunkQuery<T> query) throws IOException {
+        try {
+            return query.call(chunk);
+        } catch (IOException e) {
+            if (!(e.getCause() instanceof SQLException)) {
+                throw e;
+            }
+            getChunksCache().invalidate(namespace);
+            final Chunk reloaded = getChunksCache().getChunk(namespace, chunk.getTableName(), this::loadChunks);
+            if (reloaded == null) {
+                logger.info("chunk table {}.{} is gone, skipping", namespace, chunk.getTableName());
+                return ifMissing;
+            }
+            logger.info("retrying query on reloaded chunk table {}.{}", namespace, chunk.getTableName());
+            return query.call(reloaded);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkQuery<T> {
+        T call(Chunk chunk) throws IOException;
+    }
+
     private List<Event> doGetOnChunkTable(final String namespace,
-                                          final String chunkTableName,
+                                          final Chunk chunk,
+                                          final long startTimestampMillis,
+                                          final long endTimestampMillis,
+                                          final Map<String, String> metadataQuery,
+                                          final Map<String, String> dimensionsQuery,
+                                          final boolean includePayloads,
+                                          final Set<String> metadataKeys,
+                                          final Set<String> dimensionKeys,
+                                          final Order order,
+                                          final int limit) throws IOException {
+        Thread.currentThread().setName(String.format("get-chunk-%s.%s", namespace, chunk.getTableName()));
+        if (chunk.isCold()) {
+            return doGetOnColdChunk(namespace,
+                    chunk,
+                    startTimestampMillis,
+                    endTimestampMillis,
+                    metadataQuery,
+                    dimensionsQuery,
+                    includePayloads,
+                    metadataKeys,
+                    dimensionKeys,
+                    order,
+                    limit
+            );
+        }
+        final ChunkProjection projection = getChunkProjection(chunk, metadataKeys, dimensionKeys);
+        final List<Object> parameters = new ArrayList<>();
+        final String sql = getChunkSelectSql(namespace,
+                chunk,
+                projection,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads,
+                order,
+                limit,
+                parameters
+        );
+
+        final List<Event> results = new ArrayList<>();
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                ParallelQueryExecutor.register(preparedStatement);
+                addParameters(preparedStatement, parameters.toArray());
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        results.add(toEvent(resultSet, projection, includePayloads));
+                    }
+                }
+            }
+            return results;
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}; ignoring.", sql, e.getMessage());
+            // the chunk table may have been expired by another process
+            getChunksCache().invalidate(namespace);
+            throw new IOException(e);
+        }
+    }
+
+    private void doStream(final String namespace,
+                          final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery,
+                          final boolean includePayloads,
+                          final EventHandler handler) throws IOException {
+        final List<Chunk> chunks = getChunks(
+                namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery.keySet(),
+                dimensionsQuery.keySet()
+        );
+
+        // events in chunk tables of different windows never overlap, so only chunk tables
+        // of the same window have to be merged; windows are streamed one after the other
+        final Map<Long, List<Chunk>> windowToChunks = new TreeMap<>();
+        for (final Chunk chunk : chunks) {
+            windowToChunks.computeIfAbsent(chunk.getStartTimestampMillis(), ignored -> new ArrayList<>()).add(chunk);
+        }
+        // every cursor of a merge holds a connection for as long as the window is streamed; windows with more chunk
+        // tables than can be merged at once are read in pages instead, releasing connections between pages
+        final int maxMergeChunks = Math.min(getStreamMaxMergeChunks(), this.queryExecutor.getMaxConcurrentQueries());
+        for (final Map.Entry<Long, List<Chunk>> entry : windowToChunks.entrySet()) {
+            final List<Chunk> windowChunks = entry.getValue();
+            final boolean more = windowChunks.size() <= maxMergeChunks
+                    ? doStreamOnChunkTables(namespace,
+                            windowChunks,
+                            startTimestampMillis,
+                            endTimestampMillis,
+                            metadataQuery,
+                            dimensionsQuery,
+                            includePayloads,
+                            handler)
+                    : doStreamOnPages(namespace,
+                            Math.max(startTimestampMillis, entry.getKey()),
+                            Math.min(endTimestampMillis, windowChunks.get(0).getEndTimestampMillis() - 1),
+                            metadataQuery,
+                            dimensionsQuery,
+                            includePayloads,
+                            handler
+                    );
+            if (!more) {
+                return;
+            }
+        }
+    }
+
+    // streams events of a single window one page at a time; returns false if the handler stopped
+    private boolean doStreamOnPages(final String namespace,
+                                    final long startTimestampMillis,
+                                    final long endTimestampMillis,
+                                    final Map<String, String> metadataQuery,
+                                    final Map<String, String> dimensionsQuery,
+                                    final boolean includePayloads,
+                                    final EventHandler handler) throws IOException {
+        PageToken after = null;
+        do {
+            final Page page = doGetPage(namespace,
+                    startTimestampMillis,
+                    endTimestampMillis,
+                    metadataQuery,
+                    dimensionsQuery,
+                    includePayloads,
+                    Order.ASCENDING,
+                    getStreamPageSize(),
+                    after
+            );
+            for (final Event event : page.getEvents()) {
+                if (!handler.handle(event)) {
+                    return false;
+                }
+            }
+            after = page.getContinuationToken() != null ? PageToken.decode(page.getContinuationToken()) : null;
+        } while (after != null);
+        return true;
+    }
+
+    // k-way merge of events from the given chunk tables in timestamp order; returns false if the handler stopped
+    private boolean doStreamOnChunkTables(final String namespace,
+                                          final List<Chunk> chunks,
                                           final long startTimestampMillis,
                                           final long endTimestampMillis,
                                           final Map<String, String> metadataQuery,
                                           final Map<String, String> dimensionsQuery,
-                                          final boolean includePayloads) throws IOException {
-        Thread.currentThread().setName(String.format("get-chunk-%s.%s", namespace, chunkTableName));
+                                          final boolean includePayloads,
+                                          final EventHandler handler) throws IOException {
+        final List<ChunkCursor> cursors = new ArrayList<>(chunks.size());
+        final PriorityQueue<ChunkCursor> queue = new PriorityQueue<>(chunks.size(),
+                Comparator.comparingLong(cursor -> cursor.getEvent().getTimestampMillis())
+        );
+        // open cursors count against the same limit as parallel queries, so streams cannot exhaust the pool
+        this.queryExecutor.acquire(chunks.size());
+        try {
+            for (final Chunk chunk : chunks) {
+                final ChunkCursor cursor = doOnChunk(namespace, chunk, null, current -> openChunkCursor(namespace,
+                        current,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads)
+                );
+                if (cursor == null) {
+                    continue;
+                }
+                cursors.add(cursor);
+                if (cursor.next()) {
+                    queue.add(cursor);
+                }
+            }
+            while (!queue.isEmpty()) {
+                final ChunkCursor cursor = queue.poll();
+                if (!handler.handle(cursor.getEvent())) {
+                    return false;
+                }
+                if (cursor.next()) {
+                    queue.add(cursor);
+                }
+            }
+            return true;
+        } finally {
+            for (final ChunkCursor cursor : cursors) {
+                cursor.close();
+            }
+            this.queryExecutor.release(chunks.size());
+        }
+    }
+
+    private ChunkCursor openChunkCursor(final String namespace,
+                                        final Chunk chunk,
+                                        final long startTimestampMillis,
+                                        final long endTimestampMillis,
+                                        final Map<String, String> metadataQuery,
+                                        final Map<String, String> dimensionsQuery,
+                                        final boolean includePayloads) throws IOException {
+        final ChunkCursor cursor = new ChunkCursor(namespace, chunk, includePayloads);
+        try {
+            cursor.open(startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+            return cursor;
+        } catch (IOException e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    private String getChunkSelectSql(final String namespace,
+                                     final Chunk chunk,
+                                     final ChunkProjection projection,
+                                     final long startTimestampMillis,
+                                     final long endTimestampMillis,
+                                     final Map<String, String> metadataQuery,
+                                     final Map<String, String> dimensionsQuery,
+                                     final boolean includePayloads,
+                                     final Order order,
+                                     final int limit,
+                                     final List<Object> parameters) {
         final String sqlFormat = "SELECT %s %s %s %s %s FROM %s WHERE %s BETWEEN ? AND ?";
-        final Map<String, String> keyHashToName = getColumnNameToKeyNameMap(namespace, chunkTableName);
+        final Map<String, String> keyHashToName = chunk.getColumnNameToKeyName();
         final StringBuilder sqlBuilder = new StringBuilder(String.format(sqlFormat,
                 quote(getEventTimestampColumnName()),
                 includePayloads ? "," : "",
                 includePayloads ? quote(getPayloadColumnName()) : "",
-                !keyHashToName.isEmpty() ? "," : "",
-                keyHashToName.keySet().stream().map(JdbcUtils::quote).collect(Collectors.joining(",")),
-                getTableFullName(namespace, chunkTableName),
+                !projection.columnNames.isEmpty() ? "," : "",
+                projection.columnNames.stream().map(JdbcUtils::quote).collect(Collectors.joining(",")),
+                getTableFullName(namespace, chunk.getTableName()),
+                quote(getEventTimestampColumnName())
+        ));
+        parameters.add(startTimestampMillis);
+        parameters.add(endTimestampMillis);
+
+        // construct the sql query and parameters for metadata and dimensions
+        sqlBuilder.append(getMetadataQuerySql(metadataQuery, parameters));
+        sqlBuilder.append(getDimensionQuerySql(dimensionsQuery, parameters));
+
+        if (order != null) {
+            final String direction = order == Order.ASCENDING ? " ASC" : " DESC";
+            sqlBuilder.append(" ORDER BY ").append(quote(getEventTimestampColumnName())).append(direction);
+            if (limit > 0) {
+                // pages must see events with the same timestamp in the same order on every query
+                for (final String columnName : getOrdered(keyHashToName.keySet())) {
+                    sqlBuilder.append(", ").append(quote(columnName)).append(direction);
+                }
+            }
+        }
+        if (limit > 0) {
+            sqlBuilder.append(" LIMIT ").append(limit);
+        }
+        return sqlBuilder.toString();
+    }
+
+    private Event toEvent(final ResultSet resultSet,
+                          final ChunkProjection projection,
+                          final boolean includePayloads) throws SQLException {
+        final long timestampMillis = resultSet.getLong(1);
+        final byte[] payload = includePayloads ? resultSet.getBytes(2) : null;
+        // key columns are selected after the timestamp and payload, metadata columns first
+        int column = includePayloads ? 3 : 2;
+        final Map<String, String> metadata = new HashMap<>();
+        for (final String metadataKey : projection.metadataKeys) {
+            metadata.put(metadataKey, resultSet.getString(column++));
+        }
+        final Map<String, Double> dimensions = new HashMap<>();
+        for (final String dimensionKey : projection.dimensionKeys) {
+            dimensions.put(dimensionKey, resultSet.getDouble(column++));
+        }
+        return new Event(timestampMillis, metadata, dimensions, payload);
+    }
+
+    // resolves the columns to select from the chunk table, and the key each of them is decoded to
+    private ChunkProjection getChunkProjection(final Chunk chunk,
+                                               final Set<String> metadataKeys,
+                                               final Set<String> dimensionKeys) {
+        final ChunkProjection projection = new ChunkProjection();
+        final List<String> dimensionColumnNames = new ArrayList<>();
+        for (final Map.Entry<String, String> entry : chunk.getColumnNameToKeyName().entrySet()) {
+            final String columnName = entry.getKey();
+            final String keyName = entry.getValue();
+            if (columnName.startsWith(getMetadataKeyColumnNamePrefix())) {
+                if (metadataKeys == null || metadataKeys.contains(keyName)) {
+                    projection.columnNames.add(columnName);
+                    projection.metadataKeys.add(keyName);
+                }
+            } else if (columnName.startsWith(getDimensionKeyColumnNamePrefix())) {
+                if (dimensionKeys == null || dimensionKeys.contains(keyName)) {
+                    dimensionColumnNames.add(columnName);
+                    projection.dimensionKeys.add(keyName);
+                }
+            } else {
+                // this should never happen
+                throw new IllegalStateException("could not detect column '" + columnName + "'");
+            }
+        }
+        projection.columnNames.addAll(dimensionColumnNames);
+        return projection;
+    }
+
+    // fetch size used for streaming results; drivers may need a special value to stream rows instead of buffering them
+    protected int getStreamingFetchSize() {
+        return 1000;
+    }
+
+    // maximum number of chunk tables of a window merged with open cursors when streaming; more are read in pages
+    protected int getStreamMaxMergeChunks() {
+        return 8;
+    }
+
+    // number of events read per chunk table at a time, when a window is streamed in pages
+    protected int getStreamPageSize() {
+        return 1000;
+    }
+
+    // cursor over events of a single chunk table, in timestamp order; cold chunks are read one segment at a time
+    private class ChunkCursor {
+        private final String namespace;
+        private final Chunk chunk;
+        private final boolean includePayloads;
+        private final ChunkProjection projection;
+        private Connection connection;
+        private PreparedStatement preparedStatement;
+        private ResultSet resultSet;
+        private Event event;
+        private long startTimestampMillis;
+        private long endTimestampMillis;
+        private ColdChunkFilter coldChunkFilter;
+        private Iterator<Integer> coldSegments;
+        private Iterator<Event> coldSegmentEvents = Collections.emptyIterator();
+
+        private ChunkCursor(final String namespace, final Chunk chunk, final boolean includePayloads) {
+            this.namespace = namespace;
+            this.chunk = chunk;
+            this.includePayloads = includePayloads;
+            this.projection = getChunkProjection(chunk, null, null);
+        }
+
+        private void open(final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery) throws IOException {
+            if (this.chunk.isCold()) {
+                this.startTimestampMillis = startTimestampMillis;
+                this.endTimestampMillis = endTimestampMillis;
+                this.coldChunkFilter = new ColdChunkFilter(metadataQuery, dimensionsQuery);
+                this.coldSegments = getColdSegments(this.namespace,
+                        this.chunk, startTimestampMillis, endTimestampMillis, Order.ASCENDING
+                ).iterator();
+                return;
+            }
+            final List<Object> parameters = new ArrayList<>();
+            final String sql = getChunkSelectSql(this.namespace,
+                    this.chunk,
+                    this.projection,
+                    startTimestampMillis,
+                    endTimestampMillis,
+                    metadataQuery,
+                    dimensionsQuery,
+                    this.includePayloads,
+                    Order.ASCENDING,
+                    0,
+                    parameters
+            );
+            this.connection = getConnection();
+            try {
+                this.preparedStatement = this.connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY
+                );
+                this.preparedStatement.setFetchSize(getStreamingFetchSize());
+                addParameters(this.preparedStatement, parameters.toArray());
+                this.resultSet = this.preparedStatement.executeQuery();
+            } catch (SQLException e) {
+                logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+                // the chunk table may have been expired by another process
+                getChunksCache().invalidate(this.namespace);
+                throw new IOException(e);
+            }
+        }
+
+        private boolean next() throws IOException {
+            if (this.chunk.isCold()) {
+                while (!this.coldSegmentEvents.hasNext()) {
+                    if (!this.coldSegments.hasNext()) {
+                        this.event = null;
+                        return false;
+                    }
+                    this.coldSegmentEvents = doGetOnColdSegment(this.namespace,
+                            this.chunk,
+                            this.coldSegments.next(),
+                            this.startTimestampMillis,
+                            this.endTimestampMillis,
+                            this.coldChunkFilter,
+                            this.includePayloads,
+                            null,
+                            null
+                    ).iterator();
+                }
+                this.event = this.coldSegmentEvents.next();
+                return true;
+            }
+            try {
+                if (!this.resultSet.next()) {
+                    this.event = null;
+                    return false;
+                }
+                this.event = toEvent(this.resultSet, this.projection, this.includePayloads);
+                return true;
+            } catch (SQLException e) {
+                logger.warn("caught exception reading chunk table {}: {}", this.chunk.getTableName(), e.getMessage());
+                throw new IOException(e);
+            }
+        }
+
+        private Event getEvent() {
+            return this.event;
+        }
+
+        private void close() throws IOException {
+            try {
+                // stopped before reading all rows; cancel so the driver does not read through the rest
+                if (this.event != null && this.preparedStatement != null) {
+                    this.preparedStatement.cancel();
+                }
+                if (this.resultSet != null) {
+                    this.resultSet.close();
+                }
+                if (this.preparedStatement != null) {
+                    this.preparedStatement.close();
+                }
+            } catch (SQLException e) {
+                logger.warn("exception closing chunk cursor", e);
+            } finally {
+                closeConnection(this.connection);
+            }
+        }
+    }
+
+    private long doCount(final String namespace,
+                         final long startTimestampMillis,
+                         final long endTimestampMillis,
+                         final Map<String, String> metadataQuery,
+                         final Map<String, String> dimensionsQuery) throws IOException {
+
+        final List<Chunk> chunks = getChunks(
+                namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery.keySet(),
+                dimensionsQuery.keySet()
+        );
+
+        // count on each chunk table in parallel, only the counts are sent back
+        final List<Callable<Long>> chunkQueries = new ArrayList<>(chunks.size());
+        for (final Chunk chunk : chunks) {
+            chunkQueries.add(() -> doOnChunk(namespace, chunk, 0L, current -> doCountOnChunkTable(namespace,
+                    current,
+                    startTimestampMillis,
+                    endTimestampMillis,
+                    metadataQuery,
+                    dimensionsQuery,
+                    false))
+            );
+        }
+        long results = 0;
+        for (final Long chunkCount : this.queryExecutor.invokeAll(chunkQueries)) {
+            results += chunkCount;
+        }
+        return results;
+    }
+
+    private boolean doExists(final String namespace,
+                             final long startTimestampMillis,
+                             final long endTimestampMillis,
+                             final Map<String, String> metadataQuery,
+                             final Map<String, String> dimensionsQuery) throws IOException {
+
+        // probe the newest window first, and stop at the first window with a matching event
+        final NavigableMap<Long, List<Chunk>> windows = new TreeMap<>();
+        for (final Chunk chunk : getChunks(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery.keySet(),
+                dimensionsQuery.keySet())) {
+            windows.computeIfAbsent(chunk.getStartTimestampMillis(), ignored -> new ArrayList<>()).add(chunk);
+        }
+        for (final List<Chunk> chunks : windows.descendingMap().values()) {
+            final List<Callable<Long>> chunkQueries = new ArrayList<>(chunks.size());
+            for (final Chunk chunk : chunks) {
+                chunkQueries.add(() -> doOnChunk(namespace, chunk, 0L, current -> doCountOnChunkTable(namespace,
+                        current,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        true))
+                );
+            }
+            for (final Long chunkCount : this.queryExecutor.invokeAll(chunkQueries)) {
+                if (chunkCount > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // returns the number of matching events in the chunk table, or at most 1 if only checking for existence
+    private long doCountOnChunkTable(final String namespace,
+                                     final Chunk chunk,
+                                     final long startTimestampMillis,
+                                     final long endTimestampMillis,
+                                     final Map<String, String> metadataQuery,
+                                     final Map<String, String> dimensionsQuery,
+                                     final boolean existsOnly) throws IOException {
+        Thread.currentThread().setName(String.format("count-chunk-%s.%s", namespace, chunk.getTableName()));
+        if (chunk.isCold()) {
+            final long[] count = new long[1];
+            doScanColdChunk(namespace, chunk, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery,
+                    false, Collections.emptySet(), Collections.emptySet(), Order.ASCENDING,
+                    event -> {
+                        ++count[0];
+                        // a single event is enough to tell
+                        return !existsOnly;
+                    }
+            );
+            return count[0];
+        }
+        final String sqlFormat = "SELECT %s FROM %s WHERE %s BETWEEN ? AND ?";
+        final StringBuilder sqlBuilder = new StringBuilder(String.format(sqlFormat,
+                existsOnly ? "1" : "COUNT(*)",
+                getTableFullName(namespace, chunk.getTableName()),
                 quote(getEventTimestampColumnName())
         ));
         final List<Object> parameters = new ArrayList<>();
@@ -495,45 +1705,26 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         // construct the sql query and parameters for metadata and dimensions
         sqlBuilder.append(getMetadataQuerySql(metadataQuery, parameters));
         sqlBuilder.append(getDimensionQuerySql(dimensionsQuery, parameters));
+        if (existsOnly) {
+            sqlBuilder.append(" LIMIT 1");
+        }
 
         final String sql = sqlBuilder.toString();
-
-        final List<Event> results = new ArrayList<>();
         try (final Connection connection = getConnection()) {
             try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                ParallelQueryExecutor.register(preparedStatement);
                 addParameters(preparedStatement, parameters.toArray());
                 try (final ResultSet resultSet = preparedStatement.executeQuery()) {
-                    while (resultSet.next()) {
-                        final Map<String, String> metadata = new HashMap<>();
-                        final Map<String, Double> dimensions = new HashMap<>();
-                        final long timestampMillis = resultSet.getLong(1);
-                        final byte[] payload = includePayloads ? resultSet.getBytes(2) : null;
-                        final ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
-                        // for each column, get the name of the column,
-                        // if starts with m_ it's a metadata column, if starts with d_ it's a dimension column
-                        for (int c = 2 + (includePayloads ? 1 : 0); c <= resultSet.getMetaData().getColumnCount(); ++c) {
-                            final String columnName = resultSetMetaData.getColumnName(c);
-                            if (columnName.equalsIgnoreCase(getPayloadColumnName())) {
-                                continue;
-                            }
-                            if (columnName.startsWith(getMetadataKeyColumnNamePrefix())) {
-                                // it's a metadata column
-                                metadata.put(keyHashToName.get(columnName), resultSet.getString(c));
-                            } else if (columnName.startsWith(getDimensionKeyColumnNamePrefix())) {
-                                // it's a dimension column
-                                dimensions.put(keyHashToName.get(columnName), resultSet.getDouble(c));
-                            } else {
-                                // this should never happen
-                                throw new IllegalStateException("could not detect column '" + columnName + "'");
-                            }
-                        }
-                        results.add(new Event(timestampMillis, metadata, dimensions, payload));
+                    if (!resultSet.next()) {
+                        return 0;
                     }
+                    return existsOnly ? 1 : resultSet.getLong(1);
                 }
             }
-            return results;
         } catch (SQLException e) {
-            logger.warn("caught exception executing query sql '{}': {}; ignoring.", sql, e.getMessage());
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            // the chunk table may have been expired by another process
+            getChunksCache().invalidate(namespace);
             throw new IOException(e);
         }
     }
@@ -544,33 +1735,118 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                          final Map<String, String> metadataQuery,
                          final Map<String, String> dimensionsQuery) throws IOException {
 
-        final List<String> chunkTables = getChunkTableNames(
+        final List<Chunk> chunks = getChunks(
                 namespace,
                 startTimestampMillis,
                 endTimestampMillis,
                 metadataQuery.keySet(),
                 dimensionsQuery.keySet()
         );
+        // nothing found
+        if (chunks.isEmpty()) {
+            return 0;
+        }
 
-        int results = 0;
-        for (final String chunkTableName : chunkTables) {
-            results += doDeleteOnChunkTable(namespace,
-                    chunkTableName,
+        // delete from chunk tables in parallel, on an executor separate from queries, as deletes can take long
+        final boolean hasQuery = !metadataQuery.isEmpty() || !dimensionsQuery.isEmpty();
+        final AtomicInteger completed = new AtomicInteger();
+        final List<Callable<Long>> chunkDeletes = new ArrayList<>(chunks.size());
+        for (final Chunk chunk : chunks) {
+            chunkDeletes.add(() -> {
+                Thread.currentThread().setName(String.format("delete-chunk-%s.%s", namespace, chunk.getTableName()));
+                // chunk tables entirely within the range are dropped instead of deleted row by row
+                final boolean whole = !hasQuery
+                        && chunk.getStartTimestampMillis() >= startTimestampMillis
+                        && chunk.getEndTimestampMillis() - 1 <= endTimestampMillis;
+                final long deleted = whole
+                        ? doOnChunk(namespace, chunk, 0L, current -> doDeleteChunkTable(namespace, current))
+                        : doOnChunk(namespace, chunk, 0L, current -> doDeleteOnChunk(namespace,
+                                current,
+                                startTimestampMillis,
+                                endTimestampMillis,
+                                metadataQuery,
+                                dimensionsQuery)
+                        );
+                logger.info("deleted {} events from chunk table {}.{} ({} of {} chunk tables done)",
+                        deleted, namespace, chunk.getTableName(), completed.incrementAndGet(), chunks.size()
+                );
+                return deleted;
+            });
+        }
+        long results = 0;
+        for (final long deleted : getDeleteExecutor().invokeAll(chunkDeletes)) {
+            results += deleted;
+        }
+        if (results > 0 && isRollupsEnabled()) {
+            // rollups cannot be adjusted for deleted events; recompute them for the deleted range instead
+            ensureRollups(namespace);
+            doRebuildRollups(namespace, startTimestampMillis, endTimestampMillis);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, results);
+    }
+
+    // counts the events in the chunk table, then drops it
+    private long doDeleteChunkTable(final String namespace, final Chunk chunk) throws IOException {
+        final String chunkTableName = chunk.getTableName();
+        final String sql = chunk.isCold()
+                ? String.format("SELECT SUM(%s) FROM %s WHERE %s = ?",
+                        quote(getColdSegmentCountColumnName()),
+                        getTableFullName(namespace, getColdSegmentsTableName()),
+                        quote(getTableNameColumnName()))
+                : String.format("SELECT COUNT(*) FROM %s", getTableFullName(namespace, chunkTableName));
+        final long count;
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                ParallelQueryExecutor.register(preparedStatement);
+                if (chunk.isCold()) {
+                    addParameters(preparedStatement, chunkTableName);
+                }
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    count = resultSet.next() ? resultSet.getLong(1) : 0;
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            // the chunk table may have been expired by another process
+            getChunksCache().invalidate(namespace);
+            throw new IOException(e);
+        }
+        doExpireChunkTable(namespace, chunk);
+        return count;
+    }
+
+    private long doDeleteOnChunk(final String namespace,
+                                 final Chunk chunk,
+                                 final long startTimestampMillis,
+                                 final long endTimestampMillis,
+                                 final Map<String, String> metadataQuery,
+                                 final Map<String, String> dimensionsQuery) throws IOException {
+        if (chunk.isCold()) {
+            return doDeleteOnColdChunk(namespace,
+                    chunk,
                     startTimestampMillis,
                     endTimestampMillis,
                     metadataQuery,
                     dimensionsQuery
             );
         }
-        return results;
+        return doDeleteOnChunkTable(namespace,
+                chunk.getTableName(),
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery
+        );
     }
 
-    private int doDeleteOnChunkTable(final String namespace,
-                                          final String chunkTableName,
-                                          final long startTimestampMillis,
-                                          final long endTimestampMillis,
-                                          final Map<String, String> metadataQuery,
-                                          final Map<String, String> dimensionsQuery) throws IOException {
+    // deletes matching events from the chunk table in slices of at most the delete batch size, pausing between
+    // slices, so that a large delete does not hold locks on the chunk table, or run into the statement timeout
+    private long doDeleteOnChunkTable(final String namespace,
+                                      final String chunkTableName,
+                                      final long startTimestampMillis,
+                                      final long endTimestampMillis,
+                                      final Map<String, String> metadataQuery,
+                                      final Map<String, String> dimensionsQuery) throws IOException {
         final String sqlFormat = "DELETE FROM %s WHERE %s BETWEEN ? AND ?";
         final StringBuilder sqlBuilder = new StringBuilder(String.format(sqlFormat,
                 getTableFullName(namespace, chunkTableName),
@@ -583,9 +1859,36 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         // construct the sql query and parameters for metadata and dimensions
         sqlBuilder.append(getMetadataQuerySql(metadataQuery, parameters));
         sqlBuilder.append(getDimensionQuerySql(dimensionsQuery, parameters));
+        sqlBuilder.append(" LIMIT ?");
+        final int batchSize = getDeleteBatchSize();
+        parameters.add(batchSize);
 
         final String sql = sqlBuilder.toString();
-        return executeUpdate(sql, parameters.toArray());
+        long results = 0;
+        try (final Connection connection = getConnection()) {
+            while (true) {
+                final int deleted;
+                try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                    ParallelQueryExecutor.register(preparedStatement);
+                    addParameters(preparedStatement, parameters.toArray());
+                    deleted = preparedStatement.executeUpdate();
+                }
+                results += deleted;
+                if (deleted < batchSize) {
+                    return results;
+                }
+                logger.debug("deleted {} events so far from chunk table {}.{}", results, namespace, chunkTableName);
+                Thread.sleep(getDeletePauseMillis());
+            }
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            // the chunk table may have been expired by another process
+            getChunksCache().invalidate(namespace);
+            throw new IOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted deleting events", e);
+        }
     }
 
     private Map<Long, Double> doAggregate(final String namespace,
@@ -597,128 +1900,1371 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
                                           final int aggregateIntervalMillis,
                                           final AggregationFunction aggregationFunction) throws IOException {
 
-        final String sqlFormat = "SELECT %s, %s FROM %s WHERE %s BETWEEN ? AND ? ";
-        final Set<String> dimensions = new HashSet<>(dimensionsQuery.keySet());
-        // make sure the dimension exists
-        dimensions.add(dimension);
-        final List<String> chunkTables = getChunkTableNames(
-                namespace,
+        final EventsAggregate.Kind kind = EventsAggregate.Kind.of(aggregationFunction);
+        // rollups are not filtered by metadata or dimensions, and do not keep sketches
+        final Map<Long, EventsAggregate> aggregates = isRollupsEnabled() && metadataQuery.isEmpty() && dimensionsQuery.isEmpty()
+                && kind == EventsAggregate.Kind.MOMENTS
+                ? doAggregateWithRollups(namespace, dimension, startTimestampMillis, endTimestampMillis, aggregateIntervalMillis)
+                : doAggregatePartials(namespace,
+                        dimension,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        aggregateIntervalMillis,
+                        kind
+                );
+
+        final Map<Long, Double> results = new LinkedHashMap<>();
+        for (final Map.Entry<Long, EventsAggregate> entry : aggregates.entrySet()) {
+            results.put(entry.getKey(), entry.getValue().getValue(aggregationFunction));
+        }
+        return results;
+    }
+
+    // returns partial aggregates per interval, computed on the raw events in chunk tables
+    private Map<Long, EventsAggregate> doAggregatePartials(final String namespace,
+                                                           final String dimension,
+                                                           final long startTimestampMillis,
+                                                           final long endTimestampMillis,
+                                                           final Map<String, String> metadataQuery,
+                                                           final Map<String, String> dimensionsQuery,
+                                                           final int aggregateIntervalMillis,
+                                                           final EventsAggregate.Kind kind) throws IOException {
+        final Set<String> dimensions = new HashSet<>(dimensionsQuery.keySet());
+        // make sure the dimension exists
+        dimensions.add(dimension);
+        final List<Chunk> chunks = getChunks(
+                namespace,
                 startTimestampMillis,
                 endTimestampMillis,
                 metadataQuery.keySet(),
                 dimensions
         );
         // nothing found
-        if (chunkTables.isEmpty()) {
+        if (chunks.isEmpty()) {
             return Collections.emptyMap();
         }
 
-        final Map<Long, Double> results = new LinkedHashMap<>();
-        final List<Object> parameters = new ArrayList<>();
-        final List<String> sqls = new ArrayList<>();
-        for (final String chunkTableName : chunkTables) {
-            final StringBuilder sqlBuilder = new StringBuilder(String.format(sqlFormat,
-                    quote(getEventTimestampColumnName()),
-                    quote(getDimensionKeyColumnName(dimension)),
-                    getTableFullName(namespace, chunkTableName),
-                    quote(getEventTimestampColumnName())
-            ));
-            parameters.add(startTimestampMillis);
-            parameters.add(endTimestampMillis);
+        // compute partial aggregates on each chunk table in parallel, then merge them per interval;
+        // buckets for the same interval can come from multiple chunk tables
+        final List<Callable<Map<Long, EventsAggregate>>> chunkQueries = new ArrayList<>(chunks.size());
+        for (final Chunk chunk : chunks) {
+            chunkQueries.add(() -> doOnChunk(namespace, chunk, Collections.emptyMap(), current ->
+                    doAggregateOnChunkTable(namespace,
+                            current,
+                            dimension,
+                            startTimestampMillis,
+                            endTimestampMillis,
+                            metadataQuery,
+                            dimensionsQuery,
+                            Collections.emptyList(),
+                            aggregateIntervalMillis,
+                            kind)
+                            .getOrDefault(Collections.emptyList(), Collections.emptyMap()))
+            );
+        }
+        final Map<Long, EventsAggregate> aggregates = new TreeMap<>();
+        for (final Map<Long, EventsAggregate> chunkAggregates : this.queryExecutor.invokeAll(chunkQueries)) {
+            mergeAggregates(aggregates, chunkAggregates);
+        }
+        return aggregates;
+    }
+
+    private static void mergeAggregates(final Map<Long, EventsAggregate> aggregates,
+                                        final Map<Long, EventsAggregate> others) {
+        for (final Map.Entry<Long, EventsAggregate> entry : others.entrySet()) {
+            aggregates.merge(entry.getKey(), entry.getValue(), (aggregate, other) -> {
+                aggregate.merge(other);
+                return aggregate;
+            });
+        }
+    }
+
+    private List<GroupAggregate> doAggregateGroups(final String namespace,
+                                                   final String dimension,
+                                                   final long startTimestampMillis,
+                                                   final long endTimestampMillis,
+                                                   final Map<String, String> metadataQuery,
+                                                   final Map<String, String> dimensionsQuery,
+                                                   final List<String> groupByMetadataKeys,
+                                                   final int aggregateIntervalMillis,
+                                                   final AggregationFunction aggregationFunction,
+                                                   final Order order,
+                                                   final int limit) throws IOException {
+        // make sure the group by keys and the dimension exist
+        final Set<String> metadataKeys = new HashSet<>(metadataQuery.keySet());
+        metadataKeys.addAll(groupByMetadataKeys);
+        final Set<String> dimensions = new HashSet<>(dimensionsQuery.keySet());
+        dimensions.add(dimension);
+        final List<Chunk> chunks = getChunks(
+                namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataKeys,
+                dimensions
+        );
+        // nothing found
+        if (chunks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // compute partial aggregates per group and interval on each chunk table in parallel, then merge them;
+        // the same group can come from multiple chunk tables
+        final List<Callable<Map<List<String>, Map<Long, EventsAggregate>>>> chunkQueries = new ArrayList<>(chunks.size());
+        for (final Chunk chunk : chunks) {
+            chunkQueries.add(() -> doOnChunk(namespace, chunk, Collections.emptyMap(), current ->
+                    doAggregateOnChunkTable(namespace,
+                            current,
+                            dimension,
+                            startTimestampMillis,
+                            endTimestampMillis,
+                            metadataQuery,
+                            dimensionsQuery,
+                            groupByMetadataKeys,
+                            aggregateIntervalMillis,
+                            EventsAggregate.Kind.of(aggregationFunction)))
+            );
+        }
+        final Map<List<String>, Map<Long, EventsAggregate>> groups = new HashMap<>();
+        for (final Map<List<String>, Map<Long, EventsAggregate>> chunkGroups : this.queryExecutor.invokeAll(chunkQueries)) {
+            for (final Map.Entry<List<String>, Map<Long, EventsAggregate>> entry : chunkGroups.entrySet()) {
+                mergeAggregates(groups.computeIfAbsent(entry.getKey(), ignored -> new TreeMap<>()), entry.getValue());
+            }
+        }
+
+        // rank groups by their value over the whole range, best first; ties are broken on the group values
+        final Comparator<Map.Entry<List<String>, Double>> byValue = Map.Entry.comparingByValue();
+        final Comparator<Map.Entry<List<String>, Double>> ranking = (order == Order.ASCENDING ? byValue : byValue.reversed())
+                .thenComparing(entry -> entry.getKey().toString());
+        // bounded heap with the worst of the top groups at the head
+        final PriorityQueue<Map.Entry<List<String>, Double>> top = new PriorityQueue<>(ranking.reversed());
+        for (final Map.Entry<List<String>, Map<Long, EventsAggregate>> entry : groups.entrySet()) {
+            final EventsAggregate total = new EventsAggregate();
+            for (final EventsAggregate aggregate : entry.getValue().values()) {
+                total.merge(aggregate);
+            }
+            top.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), total.getValue(aggregationFunction)));
+            if (limit > 0 && top.size() > limit) {
+                top.poll();
+            }
+        }
+        final List<Map.Entry<List<String>, Double>> ranked = new ArrayList<>(top);
+        ranked.sort(ranking);
+
+        final List<GroupAggregate> results = new ArrayList<>();
+        for (final Map.Entry<List<String>, Double> entry : ranked) {
+            final Map<String, String> group = new LinkedHashMap<>();
+            for (int i = 0; i < groupByMetadataKeys.size(); ++i) {
+                group.put(groupByMetadataKeys.get(i), entry.getKey().get(i));
+            }
+            for (final Map.Entry<Long, EventsAggregate> bucket : groups.get(entry.getKey()).entrySet()) {
+                results.add(new GroupAggregate(group, bucket.getKey(), bucket.getValue().getValue(aggregationFunction)));
+            }
+        }
+        return results;
+    }
+
+    // returns partial aggregates per group and interval, keyed by the group by values in order of the keys; with no
+    // group by keys, all events are in the group of the empty list, and with no interval all in the bucket of the start
+    private Map<List<String>, Map<Long, EventsAggregate>> doAggregateOnChunkTable(final String namespace,
+                                                                                 final Chunk chunk,
+                                                                                 final String dimension,
+                                                                                 final long startTimestampMillis,
+                                                                                 final long endTimestampMillis,
+                                                                                 final Map<String, String> metadataQuery,
+                                                                                 final Map<String, String> dimensionsQuery,
+                                                                                 final List<String> groupByMetadataKeys,
+                                                                                 final int aggregateIntervalMillis,
+                                                                                 final EventsAggregate.Kind kind) throws IOException {
+        Thread.currentThread().setName(String.format("aggregate-chunk-%s.%s", namespace, chunk.getTableName()));
+        if (chunk.isCold()) {
+            return doAggregateOnColdChunk(namespace,
+                    chunk,
+                    dimension,
+                    startTimestampMillis,
+                    endTimestampMillis,
+                    metadataQuery,
+                    dimensionsQuery,
+                    groupByMetadataKeys,
+                    aggregateIntervalMillis,
+                    kind
+            );
+        }
+        final String dimensionColumnName = quote(getDimensionKeyColumnName(dimension));
+        final List<String> groupByColumns = new ArrayList<>();
+        for (final String metadataKey : groupByMetadataKeys) {
+            groupByColumns.add(quote(getMetadataKeyColumnName(metadataKey)));
+        }
+        final List<String> selectColumns = new ArrayList<>(groupByColumns);
+        final boolean bucketed = aggregateIntervalMillis > 0;
+        if (bucketed) {
+            selectColumns.add(String.format("(%1$s - (%1$s %% %2$d)) AS TIMESTAMP_FLOOR",
+                    quote(getEventTimestampColumnName()), aggregateIntervalMillis)
+            );
+            groupByColumns.add("TIMESTAMP_FLOOR");
+        }
+        switch (kind) {
+            case QUANTILES:
+                // count values per quantile sketch bucket, instead of sending all values back
+                selectColumns.add(String.format("SIGN(%s) AS SKETCH_SIGN", dimensionColumnName));
+                selectColumns.add(String.format("CASE WHEN %1$s = 0 THEN 0 ELSE CEIL(LN(ABS(%1$s)) / %2$s) END AS SKETCH_INDEX",
+                        dimensionColumnName, QuantileSketch.logGamma)
+                );
+                selectColumns.add(String.format("COUNT(%s)", dimensionColumnName));
+                groupByColumns.add("SKETCH_SIGN");
+                groupByColumns.add("SKETCH_INDEX");
+                break;
+            case DISTINCT_VALUES:
+                selectColumns.add(dimensionColumnName);
+                groupByColumns.add(dimensionColumnName);
+                break;
+            default:
+                selectColumns.add(String.format("COUNT(%1$s), SUM(%1$s), MIN(%1$s), MAX(%1$s), SUM(%1$s * %1$s)",
+                        dimensionColumnName)
+                );
+        }
+        final StringBuilder sqlBuilder = new StringBuilder(String.format("SELECT %s FROM %s WHERE %s BETWEEN ? AND ? ",
+                String.join(", ", selectColumns),
+                getTableFullName(namespace, chunk.getTableName()),
+                quote(getEventTimestampColumnName())
+        ));
+        final List<Object> parameters = new ArrayList<>();
+        parameters.add(startTimestampMillis);
+        parameters.add(endTimestampMillis);
+
+        // construct the sql query and parameters for metadata and dimensions
+        sqlBuilder.append(getMetadataQuerySql(metadataQuery, parameters));
+        sqlBuilder.append(getDimensionQuerySql(dimensionsQuery, parameters));
+        if (!groupByColumns.isEmpty()) {
+            sqlBuilder.append(" GROUP BY ").append(String.join(", ", groupByColumns));
+        }
+
+        final String sql = sqlBuilder.toString();
+        final Map<List<String>, Map<Long, EventsAggregate>> results = new HashMap<>();
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                ParallelQueryExecutor.register(preparedStatement);
+                addParameters(preparedStatement, parameters.toArray());
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        int column = 1;
+                        final List<String> group = new ArrayList<>(groupByMetadataKeys.size());
+                        for (int i = 0; i < groupByMetadataKeys.size(); ++i) {
+                            group.add(resultSet.getString(column++));
+                        }
+                        final long bucket = bucketed ? resultSet.getLong(column++) : startTimestampMillis;
+                        final EventsAggregate aggregate = results
+                                .computeIfAbsent(group, ignored -> new HashMap<>())
+                                .computeIfAbsent(bucket, ignored -> new EventsAggregate(kind));
+                        // values are null for events without the dimension; the bucket is kept, empty
+                        if (kind == EventsAggregate.Kind.QUANTILES) {
+                            final long count = resultSet.getLong(column + 2);
+                            if (count > 0) {
+                                aggregate.addQuantileBucket(resultSet.getInt(column), resultSet.getInt(column + 1), count);
+                            }
+                        } else if (kind == EventsAggregate.Kind.DISTINCT_VALUES) {
+                            final double value = resultSet.getDouble(column);
+                            if (!resultSet.wasNull()) {
+                                aggregate.addDistinctValue(value);
+                            }
+                        } else {
+                            final long count = resultSet.getLong(column);
+                            if (count > 0) {
+                                aggregate.merge(new EventsAggregate(count,
+                                        resultSet.getDouble(column + 1),
+                                        resultSet.getDouble(column + 2),
+                                        resultSet.getDouble(column + 3),
+                                        resultSet.getDouble(column + 4))
+                                );
+                            }
+                        }
+                    }
+                }
+            }
+            return results;
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            // the chunk table may have been expired by another process
+            getChunksCache().invalidate(namespace);
+            throw new IOException(e);
+        }
+    }
+
+    // answers from rollups for the part of the range covered by whole rollup buckets, and from raw events for the rest
+    private Map<Long, EventsAggregate> doAggregateWithRollups(final String namespace,
+                                                              final String dimension,
+                                                              final long startTimestampMillis,
+                                                              final long endTimestampMillis,
+                                                              final int aggregateIntervalMillis) throws IOException {
+        // use the largest rollup interval that evenly divides the aggregate interval
+        int rollupIntervalMillis = 0;
+        for (final int intervalMillis : getRollupIntervalsMillis()) {
+            if (aggregateIntervalMillis % intervalMillis == 0) {
+                rollupIntervalMillis = Math.max(rollupIntervalMillis, intervalMillis);
+            }
+        }
+        final Map<String, String> noQuery = Collections.emptyMap();
+        if (rollupIntervalMillis == 0 || startTimestampMillis > Long.MAX_VALUE - rollupIntervalMillis) {
+            return doAggregatePartials(namespace,
+                    dimension, startTimestampMillis, endTimestampMillis, noQuery, noQuery, aggregateIntervalMillis,
+                    EventsAggregate.Kind.MOMENTS
+            );
+        }
+
+        // first and last (exclusive) timestamps of the rollup buckets entirely within the range
+        final long rollupsStartMillis = startTimestampMillis % rollupIntervalMillis == 0
+                ? startTimestampMillis
+                : startTimestampMillis - startTimestampMillis % rollupIntervalMillis + rollupIntervalMillis;
+        final long rollupsEndMillis = endTimestampMillis == Long.MAX_VALUE
+                ? Long.MAX_VALUE - Long.MAX_VALUE % rollupIntervalMillis
+                : (endTimestampMillis + 1) - (endTimestampMillis + 1) % rollupIntervalMillis;
+        if (rollupsStartMillis >= rollupsEndMillis) {
+            return doAggregatePartials(namespace,
+                    dimension, startTimestampMillis, endTimestampMillis, noQuery, noQuery, aggregateIntervalMillis,
+                    EventsAggregate.Kind.MOMENTS
+            );
+        }
+
+        // rollups are only complete once built for events stored before the rollups table existed
+        ensureRollups(namespace);
+        if (!isRollupsBuilt(namespace)) {
+            return doAggregatePartials(namespace,
+                    dimension, startTimestampMillis, endTimestampMillis, noQuery, noQuery, aggregateIntervalMillis,
+                    EventsAggregate.Kind.MOMENTS
+            );
+        }
+        final Map<Long, EventsAggregate> aggregates = new TreeMap<>(doAggregateOnRollups(namespace,
+                dimension,
+                rollupIntervalMillis,
+                rollupsStartMillis,
+                rollupsEndMillis,
+                aggregateIntervalMillis
+        ));
+        if (startTimestampMillis < rollupsStartMillis) {
+            mergeAggregates(aggregates, doAggregatePartials(namespace,
+                    dimension, startTimestampMillis, rollupsStartMillis - 1, noQuery, noQuery, aggregateIntervalMillis,
+                    EventsAggregate.Kind.MOMENTS
+            ));
+        }
+        if (rollupsEndMillis <= endTimestampMillis) {
+            mergeAggregates(aggregates, doAggregatePartials(namespace,
+                    dimension, rollupsEndMillis, endTimestampMillis, noQuery, noQuery, aggregateIntervalMillis,
+                    EventsAggregate.Kind.MOMENTS
+            ));
+        }
+        return aggregates;
+    }
+
+    private Map<Long, EventsAggregate> doAggregateOnRollups(final String namespace,
+                                                            final String dimension,
+                                                            final int rollupIntervalMillis,
+                                                            final long rollupsStartMillis,
+                                                            final long rollupsEndMillis,
+                                                            final int aggregateIntervalMillis) throws IOException {
+        final String sql = String.format("SELECT (%1$s - (%1$s %% %2$d)) AS TIMESTAMP_FLOOR, " +
+                        "SUM(%3$s), SUM(%4$s), MIN(%5$s), MAX(%6$s), SUM(%7$s) " +
+                        "FROM %8$s WHERE %9$s = ? AND %10$s = ? AND %1$s >= ? AND %1$s < ? " +
+                        "GROUP BY TIMESTAMP_FLOOR",
+                quote(getRollupBucketColumnName()),
+                aggregateIntervalMillis,
+                quote(getRollupCountColumnName()),
+                quote(getRollupSumColumnName()),
+                quote(getRollupMinColumnName()),
+                quote(getRollupMaxColumnName()),
+                quote(getRollupSumOfSquaresColumnName()),
+                getTableFullName(namespace, getRollupsTableName()),
+                quote(getRollupIntervalColumnName()),
+                quote(getRollupDimensionColumnName())
+        );
+        final Map<Long, EventsAggregate> results = new HashMap<>();
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                addParameters(preparedStatement, rollupIntervalMillis, dimension, rollupsStartMillis, rollupsEndMillis);
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        results.put(resultSet.getLong(1), new EventsAggregate(
+                                resultSet.getLong(2),
+                                resultSet.getDouble(3),
+                                resultSet.getDouble(4),
+                                resultSet.getDouble(5),
+                                resultSet.getDouble(6)
+                        ));
+                    }
+                }
+            }
+            return results;
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            this.rollupNamespaces.remove(namespace);
+            this.builtRollupNamespaces.remove(namespace);
+            throw new IOException(e);
+        }
+    }
+
+    // creates the rollups table if it does not exist; rollups for events stored before it existed are built in the
+    // background, see buildRollups()
+    private void ensureRollups(final String namespace) throws IOException {
+        if (this.rollupNamespaces.contains(namespace)) {
+            return;
+        }
+        synchronized (this.rollupNamespaceLocks.computeIfAbsent(namespace, ignored -> new Object())) {
+            if (this.rollupNamespaces.contains(namespace)) {
+                return;
+            }
+            if (!rollupsTableExists(namespace)) {
+                logger.info("creating rollups table for namespace: {}", namespace);
+                executeUpdate(getCreateRollupsTableSql(namespace));
+            }
+            this.rollupNamespaces.add(namespace);
+            if (!isRollupsBuilt(namespace)) {
+                startRollupsBuilder().submit(() -> buildRollups(namespace));
+            }
+        }
+    }
+
+    // rollups are built once the marker row is in the rollups table
+    private boolean isRollupsBuilt(final String namespace) throws IOException {
+        if (this.builtRollupNamespaces.contains(namespace)) {
+            return true;
+        }
+        final String sql = String.format("SELECT 1 FROM %s WHERE %s = ? AND %s = ? AND %s = ?",
+                getTableFullName(namespace, getRollupsTableName()),
+                quote(getRollupIntervalColumnName()),
+                quote(getRollupDimensionColumnName()),
+                quote(getRollupBucketColumnName())
+        );
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                addParameters(preparedStatement, 0, "", Long.MAX_VALUE);
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            // the rollups table may have been dropped by another process; check again on next call
+            this.rollupNamespaces.remove(namespace);
+            throw new IOException(e);
+        }
+        this.builtRollupNamespaces.add(namespace);
+        return true;
+    }
+
+    // rebuilds rollups one chunk window at a time, so stores only wait for the window being rebuilt, then adds the
+    // marker row; stores add to rollups meanwhile, and aggregates are answered from raw events until it is done
+    private void buildRollups(final String namespace) {
+        try {
+            if (isRollupsBuilt(namespace)) {
+                return;
+            }
+            logger.info("building rollups for namespace: {}", namespace);
+            final Map<Long, Long> windows = new TreeMap<>();
+            for (final Chunk chunk : getChunks(namespace, 0, Long.MAX_VALUE, Collections.emptyList(), Collections.emptyList())) {
+                windows.put(chunk.getStartTimestampMillis(), chunk.getEndTimestampMillis());
+            }
+            for (final Map.Entry<Long, Long> window : windows.entrySet()) {
+                doRebuildRollups(namespace, window.getKey(), window.getValue() - 1);
+            }
+            // the marker is past any bucket, so expiring rollups never deletes it
+            executeUpdate(getRollupsUpsertSql(namespace), 0, "", Long.MAX_VALUE, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+            this.builtRollupNamespaces.add(namespace);
+            logger.info("built rollups for namespace: {}", namespace);
+        } catch (Exception e) {
+            // the namespace may have been dropped meanwhile; tried again the next time rollups are used
+            logger.warn("failed to build rollups for namespace {}: ", namespace, e);
+            this.rollupNamespaces.remove(namespace);
+        }
+    }
+
+    private ExecutorService startRollupsBuilder() {
+        if (this.rollupsBuilder != null) {
+            return this.rollupsBuilder;
+        }
+        synchronized (this) {
+            if (this.rollupsBuilder == null) {
+                this.rollupsBuilder = Executors.newSingleThreadExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "cantor-events-rollups-builder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return this.rollupsBuilder;
+        }
+    }
+
+    private boolean rollupsTableExists(final String namespace) throws IOException {
+        final String sql = String.format("SELECT 1 FROM %s WHERE 1 = 0",
+                getTableFullName(namespace, getRollupsTableName())
+        );
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.executeQuery().close();
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.debug("rollups table not found for namespace {}: {}", namespace, e.getMessage());
+            return false;
+        }
+    }
+
+    private void storeRollups(final Connection connection,
+                              final String namespace,
+                              final Collection<Event> batch) throws IOException {
+        // partial aggregates of the batch for each rollup interval, dimension and bucket; buckets are upserted in
+        // key order, so concurrent stores lock them in the same order and do not deadlock
+        final Map<List<Object>, EventsAggregate> rollups = new TreeMap<>(Comparator
+                .comparing((List<Object> key) -> (Integer) key.get(0))
+                .thenComparing(key -> (String) key.get(1))
+                .thenComparing(key -> (Long) key.get(2))
+        );
+        for (final Event event : batch) {
+            for (final Map.Entry<String, Double> entry : event.getDimensions().entrySet()) {
+                for (final int intervalMillis : getRollupIntervalsMillis()) {
+                    final long bucketMillis = event.getTimestampMillis() - event.getTimestampMillis() % intervalMillis;
+                    rollups.computeIfAbsent(Arrays.asList(intervalMillis, entry.getKey(), bucketMillis),
+                            ignored -> new EventsAggregate()
+                    ).add(entry.getValue());
+                }
+            }
+        }
+        if (rollups.isEmpty()) {
+            return;
+        }
+        final List<Object[]> parameters = new ArrayList<>(rollups.size());
+        for (final Map.Entry<List<Object>, EventsAggregate> entry : rollups.entrySet()) {
+            parameters.add(toRollupUpsertParameters(entry.getKey(), entry.getValue()));
+        }
+        executeBatchUpdate(connection, getRollupsUpsertSql(namespace), parameters);
+    }
+
+    // recomputes rollups from raw events for all rollup buckets overlapping the given range; buckets are deleted
+    // first and rebuilt in the same transaction, so stores adding to them wait until the rebuild is committed
+    private void doRebuildRollups(final String namespace,
+                                  final long startTimestampMillis,
+                                  final long endTimestampMillis) throws IOException {
+        final String deleteSql = String.format("DELETE FROM %s WHERE %s = ? AND %s BETWEEN ? AND ?",
+                getTableFullName(namespace, getRollupsTableName()),
+                quote(getRollupIntervalColumnName()),
+                quote(getRollupBucketColumnName())
+        );
+        final Lock rollupsLock = getRollupsLock(namespace).writeLock();
+        for (final int intervalMillis : getRollupIntervalsMillis()) {
+            final long rangeStartMillis = startTimestampMillis - startTimestampMillis % intervalMillis;
+            final long rangeEndMillis = endTimestampMillis > Long.MAX_VALUE - intervalMillis
+                    ? Long.MAX_VALUE
+                    : endTimestampMillis - endTimestampMillis % intervalMillis + intervalMillis - 1;
+            logger.info("rebuilding {}ms rollups for namespace {} between {} and {}",
+                    intervalMillis, namespace, rangeStartMillis, rangeEndMillis
+            );
+
+            rollupsLock.lock();
+            Connection connection = null;
+            try {
+                connection = openTransaction(getConnection());
+                // locks the buckets against stores of other processes, before reading the events they cover
+                executeUpdate(connection, deleteSql, intervalMillis, rangeStartMillis, rangeEndMillis);
+
+                final Set<String> dimensions = new HashSet<>();
+                final List<Chunk> chunks = getChunks(namespace,
+                        rangeStartMillis,
+                        rangeEndMillis,
+                        Collections.emptyList(),
+                        Collections.emptyList()
+                );
+                for (final Chunk chunk : chunks) {
+                    for (final Map.Entry<String, String> entry : chunk.getColumnNameToKeyName().entrySet()) {
+                        if (entry.getKey().startsWith(getDimensionKeyColumnNamePrefix())) {
+                            dimensions.add(entry.getValue());
+                        }
+                    }
+                }
+                final List<Object[]> parameters = new ArrayList<>();
+                for (final String dimension : dimensions) {
+                    final Map<Long, EventsAggregate> aggregates = doAggregatePartials(namespace,
+                            dimension,
+                            rangeStartMillis,
+                            rangeEndMillis,
+                            Collections.emptyMap(),
+                            Collections.emptyMap(),
+                            intervalMillis,
+                            EventsAggregate.Kind.MOMENTS
+                    );
+                    for (final Map.Entry<Long, EventsAggregate> entry : aggregates.entrySet()) {
+                        if (entry.getValue().getCount() > 0) {
+                            parameters.add(toRollupUpsertParameters(
+                                    Arrays.asList(intervalMillis, dimension, entry.getKey()), entry.getValue()
+                            ));
+                        }
+                    }
+                }
+                if (!parameters.isEmpty()) {
+                    executeBatchUpdate(connection, getRollupsUpsertSql(namespace), parameters);
+                }
+            } catch (IOException e) {
+                // keep the old buckets rather than commit them deleted
+                rollback(connection);
+                throw e;
+            } finally {
+                closeConnection(connection);
+                rollupsLock.unlock();
+            }
+        }
+    }
+
+    private void rollback(final Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.warn("exception executing rollback", e);
+        }
+    }
+
+    private ReadWriteLock getRollupsLock(final String namespace) {
+        return this.rollupsLocks.computeIfAbsent(namespace, ignored -> new ReentrantReadWriteLock());
+    }
+
+    private void doExpireRollups(final String namespace, final long endTimestampMillis) throws IOException {
+        ensureRollups(namespace);
+        logger.info("expiring rollups before {} from namespace {}", endTimestampMillis, namespace);
+        final String sql = String.format("DELETE FROM %s WHERE %s < ?",
+                getTableFullName(namespace, getRollupsTableName()),
+                quote(getRollupBucketColumnName())
+        );
+        executeUpdate(sql, endTimestampMillis);
+    }
+
+    private String getRollupsUpsertSql(final String namespace) {
+        return String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ?, %s = ?, %s = ?, %s = ?, %s = ?, %s = ? " +
+                        "ON DUPLICATE KEY UPDATE %5$s = %5$s + ?, %6$s = %6$s + ?, " +
+                        "%7$s = LEAST(%7$s, ?), %8$s = GREATEST(%8$s, ?), %9$s = %9$s + ?",
+                getTableFullName(namespace, getRollupsTableName()),
+                quote(getRollupIntervalColumnName()),
+                quote(getRollupDimensionColumnName()),
+                quote(getRollupBucketColumnName()),
+                quote(getRollupCountColumnName()),
+                quote(getRollupSumColumnName()),
+                quote(getRollupMinColumnName()),
+                quote(getRollupMaxColumnName()),
+                quote(getRollupSumOfSquaresColumnName())
+        );
+    }
+
+    // key is the list of interval, dimension and bucket; values are passed twice, for insert and for update
+    private Object[] toRollupUpsertParameters(final List<Object> key, final EventsAggregate aggregate) {
+        return new Object[] {
+                key.get(0), key.get(1), key.get(2),
+                aggregate.getCount(), aggregate.getSum(), aggregate.getMin(), aggregate.getMax(), aggregate.getSumOfSquares(),
+                aggregate.getCount(), aggregate.getSum(), aggregate.getMin(), aggregate.getMax(), aggregate.getSumOfSquares()
+        };
+    }
+
+    private Set<String> doMetadata(final String namespace,
+                                   final String metadataKey,
+                                   final long startTimestampMillis,
+                                   final long endTimestampMillis,
+                                   final Map<String, String> metadataQuery,
+                                   final Map<String, String> dimensionsQuery,
+                                   final String prefix,
+                                   final int limit) throws IOException {
+        final Set<String> metadataKeys = new HashSet<>(metadataQuery.keySet());
+        // make sure the metadata exists
+        metadataKeys.add(metadataKey);
+        final List<Chunk> chunks = getChunks(
+                namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataKeys,
+                dimensionsQuery.keySet()
+        );
+        // nothing found
+        if (chunks.isEmpty()) {
+            return Collections.emptySet();
+        }
+        // most recent chunk tables first, as recent values are the most likely to be looked for
+        chunks.sort(Comparator.comparingLong(Chunk::getStartTimestampMillis).reversed());
+
+        // query chunk tables in parallel, adding to the same results; with a limit, queries stop reading as soon as
+        // enough values are found, and queries not started yet do not run
+        final Set<String> results = new HashSet<>();
+        final List<Callable<Void>> chunkQueries = new ArrayList<>(chunks.size());
+        for (final Chunk chunk : chunks) {
+            chunkQueries.add(() -> doOnChunk(namespace, chunk, null, current -> {
+                doMetadataOnChunkTable(namespace,
+                        current,
+                        metadataKey,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        prefix,
+                        limit,
+                        results
+                );
+                return null;
+            }));
+        }
+        this.queryExecutor.invokeAll(chunkQueries);
+        return results;
+    }
+
+    // adds distinct values of the metadata key in the chunk table to the results, until there are limit of them
+    private void doMetadataOnChunkTable(final String namespace,
+                                        final Chunk chunk,
+                                        final String metadataKey,
+                                        final long startTimestampMillis,
+                                        final long endTimestampMillis,
+                                        final Map<String, String> metadataQuery,
+                                        final Map<String, String> dimensionsQuery,
+                                        final String prefix,
+                                        final int limit,
+                                        final Set<String> results) throws IOException {
+        if (isLimitReached(results, limit)) {
+            return;
+        }
+        Thread.currentThread().setName(String.format("metadata-chunk-%s.%s", namespace, chunk.getTableName()));
+        if (chunk.isCold()) {
+            doScanColdChunk(namespace, chunk, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery,
+                    false, Collections.singleton(metadataKey), Collections.emptySet(), Order.DESCENDING,
+                    event -> {
+                        final String value = event.getMetadata().get(metadataKey);
+                        if (value != null && (prefix == null || value.startsWith(prefix))) {
+                            synchronized (results) {
+                                if (isLimitReached(results, limit)) {
+                                    return false;
+                                }
+                                results.add(value);
+                            }
+                        }
+                        return !isLimitReached(results, limit);
+                    }
+            );
+            return;
+        }
+        final String metadataColumnName = quote(getMetadataKeyColumnName(metadataKey));
+        final String sqlFormat = "SELECT DISTINCT %s AS METADATA_VALUE FROM %s WHERE %s BETWEEN ? AND ?";
+        final StringBuilder sqlBuilder = new StringBuilder(String.format(sqlFormat,
+                metadataColumnName,
+                getTableFullName(namespace, chunk.getTableName()),
+                quote(getEventTimestampColumnName())
+        ));
+        final List<Object> parameters = new ArrayList<>();
+        parameters.add(startTimestampMillis);
+        parameters.add(endTimestampMillis);
+
+        // construct the sql query and parameters for metadata and dimensions
+        sqlBuilder.append(getMetadataQuerySql(metadataQuery, parameters));
+        sqlBuilder.append(getDimensionQuerySql(dimensionsQuery, parameters));
+        if (prefix != null && !prefix.isEmpty()) {
+            sqlBuilder.append(" AND ").append(metadataColumnName).append(" LIKE ? ");
+            parameters.add(escapeLikePattern(prefix) + "%");
+        }
+        if (limit > 0) {
+            sqlBuilder.append(" LIMIT ?");
+            parameters.add(limit);
+        }
+
+        final String sql = sqlBuilder.toString();
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                ParallelQueryExecutor.register(preparedStatement);
+                addParameters(preparedStatement, parameters.toArray());
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        final String value = resultSet.getString(1);
+                        if (value == null) {
+                            continue;
+                        }
+                        synchronized (results) {
+                            if (isLimitReached(results, limit)) {
+                                return;
+                            }
+                            results.add(value);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            // the chunk table may have been expired by another process
+            getChunksCache().invalidate(namespace);
+            throw new IOException(e);
+        }
+    }
+
+    private static boolean isLimitReached(final Set<String> results, final int limit) {
+        if (limit == 0) {
+            return false;
+        }
+        synchronized (results) {
+            return results.size() >= limit;
+        }
+    }
+
+    // escapes the wildcards of a like pattern, using the default escape character
+    private static String escapeLikePattern(final String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private void doCompact(final String namespace, final long endTimestampMillis) throws IOException {
+        final List<Chunk> chunks = getChunks(
+                namespace,
+                0,
+                endTimestampMillis,
+                Collections.emptyList(),
+                Collections.emptyList()
+        );
+        // one chunk table at a time, compaction is a background job
+        for (final Chunk chunk : chunks) {
+            if (!chunk.isCold() && chunk.getEndTimestampMillis() <= endTimestampMillis) {
+                doCompactChunkTable(namespace, chunk);
+            }
+        }
+    }
+
+    // encodes events of the chunk table into cold segments, then drops the chunk table; stores to the chunk wait
+    // until it is compacted, then thaw it back to a chunk table
+    private void doCompactChunkTable(final String namespace, final Chunk chunk) throws IOException {
+        ensureColdSegments(namespace);
+        // the lock is held on its own connection, as dropping the table commits the transaction on some databases
+        Connection lockConnection = null;
+        try {
+            lockConnection = openTransaction(getConnection());
+            if (!lockChunks(lockConnection, namespace, Collections.singletonList(chunk.getTableName()), false).isEmpty()) {
+                // compacted by another process
+                getChunksCache().addChunk(namespace, chunk.withCold(true));
+                return;
+            }
+            doCompactLockedChunkTable(namespace, chunk);
+        } finally {
+            closeConnection(lockConnection);
+        }
+    }
+
+    private void doCompactLockedChunkTable(final String namespace, final Chunk chunk) throws IOException {
+        logger.info("compacting chunk table {}.{} to cold segments", namespace, chunk.getTableName());
+        final String insertColdChunkSql = String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ?",
+                getTableFullName(namespace, getChunksLookupTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColumnColumnName()),
+                quote(getStartTimestampMillisColumnName())
+        );
+        final ChunkCursor cursor = new ChunkCursor(namespace, chunk, true);
+        long eventsCount = 0;
+        int segmentsCount = 0;
+        Connection connection = null;
+        try {
+            connection = openTransaction(getConnection());
+            // segments left behind by a failed compaction of the same chunk table
+            executeUpdate(connection, getColdSegmentsDeleteSql(namespace), chunk.getTableName());
+
+            // events are read in timestamp order, and encoded in segments of bounded size
+            cursor.open(0, Long.MAX_VALUE, Collections.emptyMap(), Collections.emptyMap());
+            final List<Event> segmentEvents = new ArrayList<>();
+            long segmentBytes = 0;
+            while (cursor.next()) {
+                final Event event = cursor.getEvent();
+                segmentEvents.add(event);
+                segmentBytes += (event.getPayload() != null ? event.getPayload().length : 0)
+                        + 16L * (1 + event.getMetadata().size() + event.getDimensions().size());
+                if (segmentEvents.size() >= getColdSegmentMaxEvents() || segmentBytes >= getColdSegmentMaxBytes()) {
+                    storeColdSegment(connection, namespace, chunk.getTableName(), segmentsCount++, segmentEvents);
+                    eventsCount += segmentEvents.size();
+                    segmentEvents.clear();
+                    segmentBytes = 0;
+                }
+            }
+            if (!segmentEvents.isEmpty()) {
+                storeColdSegment(connection, namespace, chunk.getTableName(), segmentsCount++, segmentEvents);
+                eventsCount += segmentEvents.size();
+            }
+
+            // stores that did not know about the chunk table yet do not wait for the lock; give up if any did
+            final long chunkEventsCount = countChunkEvents(connection, namespace, chunk.getTableName());
+            if (chunkEventsCount != eventsCount) {
+                throw new IOException(String.format("chunk table %s.%s changed while compacting: %d events, %d encoded",
+                        namespace, chunk.getTableName(), chunkEventsCount, eventsCount)
+                );
+            }
+
+            // mark the chunk as cold in the lookup table
+            executeUpdate(connection, insertColdChunkSql,
+                    chunk.getTableName(),
+                    getColdChunkColumnValue(),
+                    chunk.getStartTimestampMillis()
+            );
+        } catch (IOException e) {
+            rollback(connection);
+            // the cold segments table may have been dropped by another process; check again on next call
+            this.coldSegmentsNamespaces.remove(namespace);
+            throw e;
+        } finally {
+            try {
+                cursor.close();
+            } finally {
+                closeConnection(connection);
+            }
+        }
+        getChunksCache().addChunk(namespace, chunk.withCold(true));
+        // still locked, so no store has written to the chunk table since it was marked cold; a failure here leaves
+        // the chunk table behind, to be dropped when the chunk is thawed
+        executeUpdate(getDropTableSql(namespace, chunk.getTableName()));
+        logger.info("compacted {} events of chunk table {}.{} to {} cold segments",
+                eventsCount, namespace, chunk.getTableName(), segmentsCount
+        );
+    }
+
+    private long countChunkEvents(final Connection connection,
+                                  final String namespace,
+                                  final String chunkTableName) throws IOException {
+        final String sql = String.format("SELECT COUNT(*) FROM %s", getTableFullName(namespace, chunkTableName));
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            throw new IOException(e);
+        }
+    }
+
+    private void storeColdSegment(final Connection connection,
+                                  final String namespace,
+                                  final String chunkTableName,
+                                  final int segment,
+                                  final List<Event> events) throws IOException {
+        executeUpdate(connection, getColdSegmentInsertSql(namespace),
+                chunkTableName,
+                segment,
+                events.get(0).getTimestampMillis(),
+                events.get(events.size() - 1).getTimestampMillis(),
+                events.size(),
+                EventsColumnarSegment.encode(events)
+        );
+    }
+
+    // decodes all events of the cold chunk back into its chunk table, so it can take new events
+    private void doThawColdChunk(final String namespace, final Chunk chunk) throws IOException {
+        // the lock is held on its own connection, as creating tables commits the transaction on some databases
+        Connection lockConnection = null;
+        try {
+            lockConnection = openTransaction(getConnection());
+            if (lockChunks(lockConnection, namespace, Collections.singletonList(chunk.getTableName()), false).isEmpty()) {
+                // thawed by another store, maybe in another process
+                return;
+            }
+            doThawLockedColdChunk(namespace, chunk);
+        } finally {
+            try {
+                closeConnection(lockConnection);
+            } finally {
+                getChunksCache().invalidate(namespace);
+            }
+        }
+    }
+
+    private void doThawLockedColdChunk(final String namespace, final Chunk chunk) throws IOException {
+        logger.info("converting cold chunk {}.{} back to a chunk table", namespace, chunk.getTableName());
+        final List<Event> events = new ArrayList<>();
+        doScanColdChunk(namespace, chunk, 0, Long.MAX_VALUE, Collections.emptyMap(), Collections.emptyMap(),
+                true, null, null, Order.ASCENDING, events::add
+        );
+        final String deleteColdChunkSql = String.format("DELETE FROM %s WHERE %s = ? AND %s = ?",
+                getTableFullName(namespace, getChunksLookupTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColumnColumnName())
+        );
+        // stores do not write to cold chunks, so a chunk table of the locked cold chunk can only be left behind by a
+        // compaction that failed to drop it, and holds the same events as the cold segments
+        executeUpdate(String.format("DROP TABLE IF EXISTS %s", getTableFullName(namespace, chunk.getTableName())));
+        final Collection<ChunkBatch> chunkBatches = toChunkBatches(getNamespaceChunkWindowMillis(namespace), events);
+        for (final ChunkBatch chunkBatch : chunkBatches) {
+            executeUpdate(getCreateChunkTableSql(chunkBatch.tableName,
+                    namespace,
+                    chunkBatch.sampleEvent.getMetadata(),
+                    chunkBatch.sampleEvent.getDimensions())
+            );
+        }
+        Connection connection = null;
+        try {
+            connection = openTransaction(getConnection());
+            for (final ChunkBatch chunkBatch : chunkBatches) {
+                executeBatchUpdate(connection, getChunkTableInsertSql(namespace, chunkBatch), chunkBatch.parameters);
+            }
+            executeUpdate(connection, deleteColdChunkSql, chunk.getTableName(), getColdChunkColumnValue());
+            executeUpdate(connection, getColdSegmentsDeleteSql(namespace), chunk.getTableName());
+        } catch (IOException e) {
+            rollback(connection);
+            throw e;
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+    private void doExpireColdChunk(final String namespace, final String chunkTableName) throws IOException {
+        logger.info("expiring cold chunk {} from namespace {}", chunkTableName, namespace);
+        final String deleteChunkLookupSql = String.format("DELETE FROM %s WHERE %s = ?",
+                getTableFullName(namespace, getChunksLookupTableName()),
+                quote(getTableNameColumnName())
+        );
+        Connection connection = null;
+        try {
+            connection = openTransaction(getConnection());
+            executeUpdate(connection, deleteChunkLookupSql, chunkTableName);
+            executeUpdate(connection, getColdSegmentsDeleteSql(namespace), chunkTableName);
+        } finally {
+            try {
+                closeConnection(connection);
+            } finally {
+                getChunksCache().removeChunk(namespace, chunkTableName);
+            }
+        }
+    }
+
+    // rewrites each segment of the cold chunk with matching events without them, one segment at a time
+    private long doDeleteOnColdChunk(final String namespace,
+                                     final Chunk chunk,
+                                     final long startTimestampMillis,
+                                     final long endTimestampMillis,
+                                     final Map<String, String> metadataQuery,
+                                     final Map<String, String> dimensionsQuery) throws IOException {
+        final String updateSql = String.format("UPDATE %s SET %s = ?, %s = ?, %s = ?, %s = ? WHERE %s = ? AND %s = ?",
+                getTableFullName(namespace, getColdSegmentsTableName()),
+                quote(getStartTimestampMillisColumnName()),
+                quote(getEndTimestampMillisColumnName()),
+                quote(getColdSegmentCountColumnName()),
+                quote(getColdSegmentDataColumnName()),
+                quote(getTableNameColumnName()),
+                quote(getColdSegmentColumnName())
+        );
+        final String deleteSql = String.format("DELETE FROM %s WHERE %s = ? AND %s = ?",
+                getTableFullName(namespace, getColdSegmentsTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColdSegmentColumnName())
+        );
+        final ColdChunkFilter all = new ColdChunkFilter(Collections.emptyMap(), Collections.emptyMap());
+        final ColdChunkFilter filter = new ColdChunkFilter(metadataQuery, dimensionsQuery);
+        long results = 0;
+        for (final int segment : getColdSegments(namespace, chunk, startTimestampMillis, endTimestampMillis, Order.ASCENDING)) {
+            final List<Event> events = doGetOnColdSegment(namespace,
+                    chunk, segment, 0, Long.MAX_VALUE, all, true, null, null
+            );
+            final List<Event> kept = new ArrayList<>(events.size());
+            for (final Event event : events) {
+                if (event.getTimestampMillis() < startTimestampMillis
+                        || event.getTimestampMillis() > endTimestampMillis
+                        || !filter.matches(event)) {
+                    kept.add(event);
+                }
+            }
+            if (kept.size() == events.size()) {
+                continue;
+            }
+            if (kept.isEmpty()) {
+                executeUpdate(deleteSql, chunk.getTableName(), segment);
+            } else {
+                executeUpdate(updateSql,
+                        kept.get(0).getTimestampMillis(),
+                        kept.get(kept.size() - 1).getTimestampMillis(),
+                        kept.size(),
+                        EventsColumnarSegment.encode(kept),
+                        chunk.getTableName(),
+                        segment
+                );
+            }
+            results += events.size() - kept.size();
+        }
+        return results;
+    }
+
+    private List<Event> doGetOnColdChunk(final String namespace,
+                                         final Chunk chunk,
+                                         final long startTimestampMillis,
+                                         final long endTimestampMillis,
+                                         final Map<String, String> metadataQuery,
+                                         final Map<String, String> dimensionsQuery,
+                                         final boolean includePayloads,
+                                         final Set<String> metadataKeys,
+                                         final Set<String> dimensionKeys,
+                                         final Order order,
+                                         final int limit) throws IOException {
+        final List<Event> results = new ArrayList<>();
+        doScanColdChunk(namespace, chunk, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery,
+                includePayloads, metadataKeys, dimensionKeys, order != null ? order : Order.ASCENDING,
+                event -> {
+                    // past the limit, only events with the same timestamp as the last one within it can still be in
+                    if (limit > 0 && results.size() >= limit
+                            && event.getTimestampMillis() != results.get(limit - 1).getTimestampMillis()) {
+                        return false;
+                    }
+                    results.add(event);
+                    return true;
+                }
+        );
+        if (limit > 0) {
+            // events with the same timestamp in the same order as from a chunk table
+            results.sort(getColdChunkEventsComparator(chunk, order));
+            return new ArrayList<>(results.subList(0, Math.min(limit, results.size())));
+        }
+        return results;
+    }
+
+    // same order as the select of a chunk table with a limit: by timestamp, then by the values of each column
+    private Comparator<Event> getColdChunkEventsComparator(final Chunk chunk, final Order order) {
+        Comparator<Event> comparator = Comparator.comparingLong(Event::getTimestampMillis);
+        for (final String columnName : getOrdered(chunk.getColumnNameToKeyName().keySet())) {
+            final String keyName = chunk.getColumnNameToKeyName().get(columnName);
+            if (columnName.startsWith(getMetadataKeyColumnNamePrefix())) {
+                final Comparator<String> values = Comparator.nullsFirst(Comparator.naturalOrder());
+                comparator = comparator.thenComparing(event -> event.getMetadata().get(keyName), values);
+            } else {
+                final Comparator<Double> values = Comparator.nullsFirst(Comparator.naturalOrder());
+                comparator = comparator.thenComparing(event -> event.getDimensions().get(keyName), values);
+            }
+        }
+        return order == Order.DESCENDING ? comparator.reversed() : comparator;
+    }
 
-            // construct the sql query and parameters for metadata and dimensions
-            sqlBuilder.append(getMetadataQuerySql(metadataQuery, parameters));
-            sqlBuilder.append(getDimensionQuerySql(dimensionsQuery, parameters));
+    private Map<List<String>, Map<Long, EventsAggregate>> doAggregateOnColdChunk(final String namespace,
+                                                                                final Chunk chunk,
+                                                                                final String dimension,
+                                                                                final long startTimestampMillis,
+                                                                                final long endTimestampMillis,
+                                                                                final Map<String, String> metadataQuery,
+                                                                                final Map<String, String> dimensionsQuery,
+                                                                                final List<String> groupByMetadataKeys,
+                                                                                final int aggregateIntervalMillis,
+                                                                                final EventsAggregate.Kind kind) throws IOException {
+        final Map<List<String>, Map<Long, EventsAggregate>> results = new HashMap<>();
+        doScanColdChunk(namespace, chunk, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery,
+                false, new HashSet<>(groupByMetadataKeys), Collections.singleton(dimension), Order.ASCENDING,
+                event -> {
+                    final List<String> group = new ArrayList<>(groupByMetadataKeys.size());
+                    for (final String metadataKey : groupByMetadataKeys) {
+                        group.add(event.getMetadata().get(metadataKey));
+                    }
+                    final long bucket = aggregateIntervalMillis > 0
+                            ? event.getTimestampMillis() - event.getTimestampMillis() % aggregateIntervalMillis
+                            : startTimestampMillis;
+                    final EventsAggregate aggregate = results
+                            .computeIfAbsent(group, ignored -> new HashMap<>())
+                            .computeIfAbsent(bucket, ignored -> new EventsAggregate(kind));
+                    final Double value = event.getDimensions().get(dimension);
+                    if (value != null) {
+                        aggregate.add(value);
+                    }
+                    return true;
+                }
+        );
+        return results;
+    }
 
-            sqls.add(sqlBuilder.toString());
+    // passes events of the cold chunk matching the query to the handler in timestamp order, decoding one segment at a
+    // time and only the keys needed; returns false if the handler stopped
+    private boolean doScanColdChunk(final String namespace,
+                                    final Chunk chunk,
+                                    final long startTimestampMillis,
+                                    final long endTimestampMillis,
+                                    final Map<String, String> metadataQuery,
+                                    final Map<String, String> dimensionsQuery,
+                                    final boolean includePayloads,
+                                    final Set<String> metadataKeys,
+                                    final Set<String> dimensionKeys,
+                                    final Order order,
+                                    final EventHandler handler) throws IOException {
+        final ColdChunkFilter filter = new ColdChunkFilter(metadataQuery, dimensionsQuery);
+        for (final int segment : getColdSegments(namespace, chunk, startTimestampMillis, endTimestampMillis, order)) {
+            final List<Event> events = doGetOnColdSegment(namespace,
+                    chunk,
+                    segment,
+                    startTimestampMillis,
+                    endTimestampMillis,
+                    filter,
+                    includePayloads,
+                    metadataKeys,
+                    dimensionKeys
+            );
+            if (order == Order.DESCENDING) {
+                Collections.reverse(events);
+            }
+            for (final Event event : events) {
+                if (!handler.handle(event)) {
+                    return false;
+                }
+            }
         }
+        return true;
+    }
 
-        final String selectSql = String.join(" UNION ALL ", sqls);
-        final String sql = String.format("SELECT (%s - (%s %% %d)) AS TIMESTAMP_FLOOR, " +
-                "%s(%s) AS AGGREGATE_VALUE " +
-                "FROM (%s) AS `T` " +
-                "GROUP BY TIMESTAMP_FLOOR ORDER BY TIMESTAMP_FLOOR ",
-                quote(getEventTimestampColumnName()),
-                quote(getEventTimestampColumnName()),
-                aggregateIntervalMillis,
-                aggregationFunction.toString(),
-                quote(getDimensionKeyColumnName(dimension)),
-                selectSql
+    // returns the segments of the cold chunk with events between start and end
+    private List<Integer> getColdSegments(final String namespace,
+                                          final Chunk chunk,
+                                          final long startTimestampMillis,
+                                          final long endTimestampMillis,
+                                          final Order order) throws IOException {
+        final String sql = String.format("SELECT %1$s FROM %2$s WHERE %3$s = ? AND %4$s >= ? AND %5$s <= ? ORDER BY %1$s %6$s",
+                quote(getColdSegmentColumnName()),
+                getTableFullName(namespace, getColdSegmentsTableName()),
+                quote(getTableNameColumnName()),
+                quote(getEndTimestampMillisColumnName()),
+                quote(getStartTimestampMillisColumnName()),
+                order == Order.DESCENDING ? "DESC" : "ASC"
         );
-
+        final List<Integer> segments = new ArrayList<>();
         try (final Connection connection = getConnection()) {
             try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-                addParameters(preparedStatement, parameters.toArray());
+                ParallelQueryExecutor.register(preparedStatement);
+                addParameters(preparedStatement, chunk.getTableName(), startTimestampMillis, endTimestampMillis);
                 try (final ResultSet resultSet = preparedStatement.executeQuery()) {
                     while (resultSet.next()) {
-                        final long timestampMillis = resultSet.getLong(1);
-                        final double value = resultSet.getDouble(2);
-                        if (!results.containsKey(timestampMillis)) {
-                            results.put(timestampMillis, value);
-                        } else {
-                            // TODO: THIS IS A BUG! aggregation has to be done across all chunk tables
-                        }
+                        segments.add(resultSet.getInt(1));
                     }
                 }
             }
+            return segments;
         } catch (SQLException e) {
             logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            // the cold chunk may have been expired by another process
+            getChunksCache().invalidate(namespace);
             throw new IOException(e);
         }
-        return results;
     }
 
-    private Set<String> doMetadata(final String namespace,
-                                   final String metadataKey,
-                                   final long startTimestampMillis,
-                                   final long endTimestampMillis,
-                                   final Map<String, String> metadataQuery,
-                                   final Map<String, String> dimensionsQuery) throws IOException {
+    // decodes events of a segment between start and end that match the filter, with the given keys, or all if null
+    private List<Event> doGetOnColdSegment(final String namespace,
+                                           final Chunk chunk,
+                                           final int segment,
+                                           final long startTimestampMillis,
+                                           final long endTimestampMillis,
+                                           final ColdChunkFilter filter,
+                                           final boolean includePayloads,
+                                           final Set<String> metadataKeys,
+                                           final Set<String> dimensionKeys) throws IOException {
+        final String sql = String.format("SELECT %s FROM %s WHERE %s = ? AND %s = ?",
+                quote(getColdSegmentDataColumnName()),
+                getTableFullName(namespace, getColdSegmentsTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColdSegmentColumnName())
+        );
+        final byte[] data;
+        try (final Connection connection = getConnection()) {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                ParallelQueryExecutor.register(preparedStatement);
+                addParameters(preparedStatement, chunk.getTableName(), segment);
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    // the segment may have been deleted since it was listed
+                    if (!resultSet.next()) {
+                        return new ArrayList<>();
+                    }
+                    data = resultSet.getBytes(1);
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
+            getChunksCache().invalidate(namespace);
+            throw new IOException(e);
+        }
 
-        final String sqlFormat = "SELECT DISTINCT %s AS METADATA_VALUE FROM %s WHERE %s BETWEEN ? AND ?";
-        final Set<String> metadataKeys = new HashSet<>(metadataQuery.keySet());
-        // make sure the metadata exists
-        metadataKeys.add(metadataKey);
-        final List<String> chunkTables = getChunkTableNames(
-                namespace,
+        // keys in the query are decoded to filter on, then left out
+        final Set<String> decodedMetadataKeys = withKeys(metadataKeys, filter.getMetadataKeys());
+        final Set<String> decodedDimensionKeys = withKeys(dimensionKeys, filter.getDimensionKeys());
+        final List<Event> results = new ArrayList<>();
+        for (final Event event : EventsColumnarSegment.decode(data,
                 startTimestampMillis,
                 endTimestampMillis,
-                metadataKeys,
-                dimensionsQuery.keySet()
-        );
+                decodedMetadataKeys,
+                decodedDimensionKeys,
+                includePayloads)) {
+            if (!filter.matches(event)) {
+                continue;
+            }
+            if (decodedMetadataKeys != metadataKeys) {
+                event.getMetadata().keySet().retainAll(metadataKeys);
+            }
+            if (decodedDimensionKeys != dimensionKeys) {
+                event.getDimensions().keySet().retainAll(dimensionKeys);
+            }
+            results.add(event);
+        }
+        return results;
+    }
 
-        final Set<String> results = new HashSet<>();
-        for (final String chunkTableName : chunkTables) {
-            final StringBuilder sqlBuilder = new StringBuilder(String.format(sqlFormat,
-                    quote(getMetadataKeyColumnName(metadataKey)),
-                    getTableFullName(namespace, chunkTableName),
-                    quote(getEventTimestampColumnName())
-            ));
-            final List<Object> parameters = new ArrayList<>();
-            parameters.add(startTimestampMillis);
-            parameters.add(endTimestampMillis);
+    // the given keys with the others added, or null for all keys
+    private static Set<String> withKeys(final Set<String> keys, final Set<String> others) {
+        if (keys == null || keys.containsAll(others)) {
+            return keys;
+        }
+        final Set<String> results = new HashSet<>(keys);
+        results.addAll(others);
+        return results;
+    }
 
-            // construct the sql query and parameters for metadata and dimensions
-            sqlBuilder.append(getMetadataQuerySql(metadataQuery, parameters));
-            sqlBuilder.append(getDimensionQuerySql(dimensionsQuery, parameters));
+    private void ensureColdSegments(final String namespace) throws IOException {
+        if (this.coldSegmentsNamespaces.contains(namespace)) {
+            return;
+        }
+        executeUpdate(getCreateColdSegmentsTableSql(namespace));
+        this.coldSegmentsNamespaces.add(namespace);
+    }
 
-            final String sql = sqlBuilder.toString();
+    private String getColdSegmentInsertSql(final String namespace) {
+        return String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ?, %s = ?, %s = ?, %s = ?",
+                getTableFullName(namespace, getColdSegmentsTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColdSegmentColumnName()),
+                quote(getStartTimestampMillisColumnName()),
+                quote(getEndTimestampMillisColumnName()),
+                quote(getColdSegmentCountColumnName()),
+                quote(getColdSegmentDataColumnName())
+        );
+    }
 
-            try (final Connection connection = getConnection()) {
-                try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-                    addParameters(preparedStatement, parameters.toArray());
-                    try (final ResultSet resultSet = preparedStatement.executeQuery()) {
-                        while (resultSet.next()) {
-                            results.add(resultSet.getString(1));
-                        }
-                    }
+    private String getColdSegmentsDeleteSql(final String namespace) {
+        return String.format("DELETE FROM %s WHERE %s = ?",
+                getTableFullName(namespace, getColdSegmentsTableName()),
+                quote(getTableNameColumnName())
+        );
+    }
+
+    private void startColdChunksCompactor() {
+        if (this.coldChunksCompactor != null) {
+            return;
+        }
+        synchronized (this) {
+            if (this.coldChunksCompactor != null) {
+                return;
+            }
+            final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "cantor-events-cold-chunks-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long intervalMillis = getColdChunksCompactionIntervalMillis();
+            compactor.scheduleWithFixedDelay(this::compactColdChunks, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            this.coldChunksCompactor = compactor;
+        }
+    }
+
+    private void compactColdChunks() {
+        final long endTimestampMillis = System.currentTimeMillis() - getColdChunkAgeMillis();
+        try {
+            for (final String namespace : namespaces()) {
+                try {
+                    doCompact(namespace, endTimestampMillis);
+                } catch (IOException e) {
+                    // the namespace may have been dropped meanwhile; try the others
+                    logger.warn("failed to compact chunk tables of namespace {}: ", namespace, e);
                 }
-            } catch (SQLException e) {
-                logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
-                throw new IOException(e);
             }
+        } catch (Exception e) {
+            // exceptions would cancel the scheduled task
+            logger.warn("failed to compact chunk tables: ", e);
         }
-        return results;
     }
 
     // the metadata query object can contain these patterns:
@@ -819,72 +3365,280 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
 
     // find the list of all chunk tables containing events for
     // the given namespace, start and end, metadata and dimension keys
-    private List<String> getChunkTableNames(final String namespace,
-                                            final long startTimestampMillis,
-                                            final long endTimestampMillis,
-                                            final Collection<String> metadataKeys,
-                                            final Collection<String> dimensionKeys) throws IOException {
-        final StringBuilder sqlFormatBuilder = new StringBuilder();
-        final Object[] parameters = new Object[2 + metadataKeys.size() + dimensionKeys.size()];
-        sqlFormatBuilder.append("SELECT DISTINCT ").append(quote(getTableNameColumnName()))
-                .append(" FROM ").append(getTableFullName(namespace, getChunksLookupTableName()))
-                .append(" WHERE (")
-                .append(quote(getStartTimestampMillisColumnName()))
-                .append(" BETWEEN ? AND ?)")
-        ;
-        int index = 0;
-        final long startWindow = getWindowForTimestamp(startTimestampMillis) - getWindowSizeMillis();
-        parameters[index++] = startWindow >= 0 ? startWindow : 0;
-        // make sure if max long is passed there's no overflow
-        final long endTimestampWindow = Long.MAX_VALUE - getWindowForTimestamp(endTimestampMillis) > getWindowSizeMillis()
-                ? getWindowForTimestamp(endTimestampMillis) + getWindowSizeMillis()
-                : Long.MAX_VALUE;
-        parameters[index++] = endTimestampWindow;
-
-        // metadata table names are OR'd together, find table names that have matching column names
-        final StringBuilder clauseBuilder = new StringBuilder();
-        final StringJoiner tableNameWhere = new StringJoiner(" OR ", "(", ")");
+    private List<Chunk> getChunks(final String namespace,
+                                  final long startTimestampMillis,
+                                  final long endTimestampMillis,
+                                  final Collection<String> metadataKeys,
+                                  final Collection<String> dimensionKeys) throws IOException {
+        // only chunk tables with all the queried columns can contain matching events
+        final List<String> columnNames = new ArrayList<>(metadataKeys.size() + dimensionKeys.size());
         for (final String metadataKey : metadataKeys) {
-            clauseBuilder.setLength(0);
-            clauseBuilder.append("(").append(quote(getColumnColumnName())).append(" = ?)");
-            tableNameWhere.add(clauseBuilder.toString());
-            parameters[index++] = getMetadataKeyColumnName(metadataKey);
+            columnNames.add(getMetadataKeyColumnName(metadataKey));
         }
         for (final String dimensionKey : dimensionKeys) {
-            clauseBuilder.setLength(0);
-            clauseBuilder.append("(").append(quote(getColumnColumnName())).append(" = ?)");
-            tableNameWhere.add(clauseBuilder.toString());
-            parameters[index++] = getDimensionKeyColumnName(dimensionKey);
+            columnNames.add(getDimensionKeyColumnName(dimensionKey));
+        }
+
+        final List<Chunk> chunks = new ArrayList<>();
+        for (final Chunk chunk : getChunksCache().getChunks(namespace, this::loadChunks)) {
+            if (chunk.overlaps(startTimestampMillis, endTimestampMillis) && chunk.hasColumns(columnNames)) {
+                chunks.add(chunk);
+            }
+        }
+        chunks.sort(Comparator.comparingLong(Chunk::getStartTimestampMillis));
+        return chunks;
+    }
+
+    private ParallelQueryExecutor getDeleteExecutor() {
+        if (this.deleteExecutor == null) {
+            synchronized (this) {
+                if (this.deleteExecutor == null) {
+                    this.deleteExecutor = new ParallelQueryExecutor(getDeleteMaxConcurrentChunks(), getDeleteTimeoutMillis());
+                }
+            }
+        }
+        return this.deleteExecutor;
+    }
+
+    private EventsChunksCache getChunksCache() {
+        if (this.chunksCache == null) {
+            this.chunksCache = EventsChunksCache.getInstance(getDataSource(),
+                    getChunksCacheMaxNamespaces(),
+                    getChunksCacheTtlMillis()
+            );
+        }
+        return this.chunksCache;
+    }
+
+    /**
+     * Bulk insert mode writes the events of a store call with multi-row insert statements, each as large as
+     * {@link #getBulkInsertMaxStatementBytes()} allows, instead of a jdbc batch of single-row inserts; meant for
+     * backfilling large batches of events. Disabled by default.
+     */
+    protected boolean isBulkInsertEnabled() {
+        return false;
+    }
+
+    // maximum size of a multi-row insert statement in bulk insert mode
+    protected int getBulkInsertMaxStatementBytes() {
+        return 4 * 1024 * 1024;
+    }
+
+    /**
+     * Rollups keep partial aggregates of every dimension per minute and per hour, updated on store; aggregate calls
+     * without metadata or dimension queries, and with an interval that is a multiple of a rollup interval, are
+     * answered from rollups instead of scanning chunk tables. Disabled by default, as it adds to the cost of store.
+     */
+    protected boolean isRollupsEnabled() {
+        return false;
+    }
+
+    protected List<Integer> getRollupIntervalsMillis() {
+        return Arrays.asList((int) TimeUnit.MINUTES.toMillis(1), (int) TimeUnit.HOURS.toMillis(1));
+    }
+
+    protected String getCreateRollupsTableSql(final String namespace) {
+        return String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                        " %s INT NOT NULL," +  // rollup interval
+                        " %s VARCHAR(256) NOT NULL," +  // dimension key name
+                        " %s BIGINT NOT NULL," +  // bucket start timestamp
+                        " %s BIGINT NOT NULL," +  // count
+                        " %s DOUBLE NOT NULL," +  // sum
+                        " %s DOUBLE NOT NULL," +  // min
+                        " %s DOUBLE NOT NULL," +  // max
+                        " %s DOUBLE NOT NULL," +  // sum of squares
+                        " PRIMARY KEY (%s, %s, %s) )",
+                getTableFullName(namespace, getRollupsTableName()),
+                quote(getRollupIntervalColumnName()),
+                quote(getRollupDimensionColumnName()),
+                quote(getRollupBucketColumnName()),
+                quote(getRollupCountColumnName()),
+                quote(getRollupSumColumnName()),
+                quote(getRollupMinColumnName()),
+                quote(getRollupMaxColumnName()),
+                quote(getRollupSumOfSquaresColumnName()),
+                quote(getRollupIntervalColumnName()), quote(getRollupDimensionColumnName()), quote(getRollupBucketColumnName())
+        );
+    }
+
+    // maximum number of events deleted by each statement, when deleting or expiring part of a chunk table
+    protected int getDeleteBatchSize() {
+        return 10_000;
+    }
+
+    // pause between delete statements on the same chunk table, to let other writes through
+    protected long getDeletePauseMillis() {
+        return 100;
+    }
+
+    // maximum number of chunk tables to delete from at the same time, for each delete call
+    protected int getDeleteMaxConcurrentChunks() {
+        return 4;
+    }
+
+    // maximum time for a delete call to finish with all chunk tables
+    protected long getDeleteTimeoutMillis() {
+        return TimeUnit.HOURS.toMillis(1);
+    }
+
+    /**
+     * Chunk tables with all events older than this are compacted to cold segments in the background, see
+     * {@link #compact(String, long)}; should be well past the time events stop arriving for a window. Zero, the
+     * default, disables background compaction.
+     */
+    protected long getColdChunkAgeMillis() {
+        return 0;
+    }
+
+    // how often to look for chunk tables to compact, if background compaction is enabled
+    protected long getColdChunksCompactionIntervalMillis() {
+        return TimeUnit.HOURS.toMillis(1);
+    }
+
+    // maximum number of events in a cold segment
+    protected int getColdSegmentMaxEvents() {
+        return 16 * 1024;
+    }
+
+    // maximum estimated size of the events in a cold segment, before encoding
+    protected int getColdSegmentMaxBytes() {
+        return 4 * 1024 * 1024;
+    }
+
+    protected String getCreateColdSegmentsTableSql(final String namespace) {
+        return String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                        " %s VARCHAR(256) NOT NULL," +  // chunk table name
+                        " %s INT NOT NULL," +  // segment number in the chunk
+                        " %s BIGINT NOT NULL," +  // timestamp of the first event
+                        " %s BIGINT NOT NULL," +  // timestamp of the last event
+                        " %s INT NOT NULL," +  // number of events
+                        " %s %s NOT NULL," +  // encoded events
+                        " PRIMARY KEY (%s, %s) )",
+                getTableFullName(namespace, getColdSegmentsTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColdSegmentColumnName()),
+                quote(getStartTimestampMillisColumnName()),
+                quote(getEndTimestampMillisColumnName()),
+                quote(getColdSegmentCountColumnName()),
+                quote(getColdSegmentDataColumnName()), getColdSegmentDataColumnType(),
+                quote(getTableNameColumnName()), quote(getColdSegmentColumnName())
+        );
+    }
+
+    protected String getColdSegmentDataColumnType() {
+        return "BLOB";
+    }
+
+    // maximum number of namespaces to keep chunk table descriptors for
+    protected int getChunksCacheMaxNamespaces() {
+        return 1024;
+    }
+
+    // chunk table descriptors are reloaded after this; bounds staleness when other processes write to the namespace
+    protected long getChunksCacheTtlMillis() {
+        return TimeUnit.SECONDS.toMillis(30);
+    }
+
+    /**
+     * Size of the time window of each chunk table for a new namespace, e.g., one hour for namespaces with many events
+     * per day, or one week for sparse namespaces. The window is recorded in the chunk lookup table when the namespace
+     * is created and does not change afterwards; must be a multiple of one minute.
+     */
+    protected long getChunkWindowMillis(final String namespace) {
+        return TimeUnit.DAYS.toMillis(1);
+    }
+
+    /**
+     * Secondary indexes to create on new chunk tables of the namespace; changing the policy only affects chunk tables
+     * created afterwards. Defaults to one index per column.
+     */
+    protected EventsChunkIndexPolicy getChunkIndexPolicy(final String namespace) {
+        return EventsChunkIndexPolicy.PER_COLUMN;
+    }
+
+    // metadata keys given a (metadata, timestamp) index by the composite and covering index policies
+    protected Set<String> getChunkIndexHotMetadataKeys(final String namespace) {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Columns of each secondary index to create on a new chunk table, following the chunk index policy of the
+     * namespace; the first column of each index is the most selective.
+     */
+    protected List<List<String>> getChunkTableIndexesColumnNames(final String namespace,
+                                                                 final Map<String, String> metadata,
+                                                                 final Map<String, Double> dimensions) {
+        final EventsChunkIndexPolicy policy = getChunkIndexPolicy(namespace);
+        final List<List<String>> indexes = new ArrayList<>();
+        if (policy == EventsChunkIndexPolicy.NONE) {
+            return indexes;
         }
-        if (!metadataKeys.isEmpty() || !dimensionKeys.isEmpty()) {
-            sqlFormatBuilder.append(" AND (").append(tableNameWhere.toString()).append(")");
+        indexes.add(Collections.singletonList(getEventTimestampColumnName()));
+        if (policy == EventsChunkIndexPolicy.PER_COLUMN) {
+            for (final String metadataKey : getOrderedKeys(metadata)) {
+                indexes.add(Collections.singletonList(getMetadataKeyColumnName(metadataKey)));
+            }
+            for (final String dimensionKey : getOrderedKeys(dimensions)) {
+                indexes.add(Collections.singletonList(getDimensionKeyColumnName(dimensionKey)));
+            }
+        } else if (policy == EventsChunkIndexPolicy.COMPOSITE || policy == EventsChunkIndexPolicy.COVERING) {
+            for (final String metadataKey : getOrdered(getChunkIndexHotMetadataKeys(namespace))) {
+                if (!metadata.containsKey(metadataKey)) {
+                    continue;
+                }
+                final List<String> columnNames = new ArrayList<>();
+                columnNames.add(getMetadataKeyColumnName(metadataKey));
+                columnNames.add(getEventTimestampColumnName());
+                if (policy == EventsChunkIndexPolicy.COVERING) {
+                    for (final String dimensionKey : getOrderedKeys(dimensions)) {
+                        columnNames.add(getDimensionKeyColumnName(dimensionKey));
+                    }
+                }
+                indexes.add(columnNames);
+            }
         }
+        return indexes;
+    }
 
-        final List<String> tables = new ArrayList<>();
-        final String sql = sqlFormatBuilder.toString();
+    private long getNamespaceChunkWindowMillis(final String namespace) throws IOException {
+        final Long windowMillis = this.namespaceChunkWindows.get(namespace);
+        if (windowMillis != null) {
+            return windowMillis;
+        }
+        final String sql = getNamespaceSettingSelectSql(namespace);
         try (final Connection connection = getConnection()) {
             try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-                addParameters(preparedStatement, parameters);
-                logger.debug("executing sql query [[{}]] with parameters (({}))", sql, parameters);
+                addParameters(preparedStatement, "", getChunkWindowColumnValue());
                 try (final ResultSet resultSet = preparedStatement.executeQuery()) {
-                    while (resultSet.next()) {
-                        tables.add(resultSet.getString(1));
-                    }
+                    // namespaces created before chunk windows were recorded use daily windows
+                    final long loadedWindowMillis = resultSet.next() ? resultSet.getLong(1) : TimeUnit.DAYS.toMillis(1);
+                    this.namespaceChunkWindows.put(namespace, loadedWindowMillis);
+                    return loadedWindowMillis;
                 }
             }
         } catch (SQLException e) {
             logger.warn("caught exception executing query sql '{}': {}", sql, e.getMessage());
             throw new IOException(e);
         }
-        return tables;
     }
 
-    private long getWindowForTimestamp(final long timestampMillis) {
-        return (timestampMillis / getWindowSizeMillis()) * getWindowSizeMillis();
+    // selects a setting of the namespace, e.g., the chunk window, from the chunk lookup table
+    private String getNamespaceSettingSelectSql(final String namespace) {
+        return String.format("SELECT %s FROM %s WHERE %s = ? AND %s = ?",
+                quote(getStartTimestampMillisColumnName()),
+                getTableFullName(namespace, getChunksLookupTableName()),
+                quote(getTableNameColumnName()),
+                quote(getColumnColumnName())
+        );
     }
 
-    private long getWindowSizeMillis() {
-        return TimeUnit.DAYS.toMillis(1);  // one per day
+    private static long getWindowStart(final long windowMillis, final long timestampMillis) {
+        return timestampMillis - timestampMillis % windowMillis;
+    }
+
+    // make sure if max long is passed there's no overflow
+    private static long getWindowEnd(final long windowMillis, final long windowStartMillis) {
+        return Long.MAX_VALUE - windowStartMillis > windowMillis ? windowStartMillis + windowMillis : Long.MAX_VALUE;
     }
 
     protected List<String> getOrderedKeys(final Map<String, ?> map) {
@@ -897,31 +3651,65 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         return keys;
     }
 
-    private List<String> getKeysOrdered(final Map<String, ?> map) {
-        final List<String> keys = new ArrayList<>(map.keySet());
-        Collections.sort(keys);
-        return keys;
+    // chunk table name is window(timestamp)_hash(metadata keys)_hash(dimension keys)
+    private String getChunkTableName(final long windowMillis,
+                                     final long windowStartMillis,
+                                     final KeyColumns metadataColumns,
+                                     final KeyColumns dimensionColumns) {
+        return "CANTOR-EVENTS-CHUNK-"
+                + getWindowName(windowMillis, windowStartMillis)
+                + "_"
+                + Math.abs(metadataColumns.keysHashCode)
+                + "_"
+                + Math.abs(dimensionColumns.keysHashCode);
     }
 
-    // chunk table name is hash(namespace)_window(timestamp)_hash(metadata keys)_hash(dimension keys)
-    private String getChunkTableName(final long timestampMillis,
-                                     final Collection<String> metadataKeys,
-                                     final Collection<String> dimensionKeys) {
-        final DateFormat dateFormat = new SimpleDateFormat("yyyy_MM_dd");
-        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return String.format("CANTOR-EVENTS-CHUNK-%s_%s",
-                dateFormat.format(new Date(getWindowForTimestamp(timestampMillis))),
-                getKeysHash(metadataKeys, dimensionKeys)
-        );
+    // daily windows are named by date, others by date and time; events in a batch mostly fall in the same window,
+    // so the last name is reused instead of formatting it again
+    private String getWindowName(final long windowMillis, final long windowStartMillis) {
+        final WindowName last = this.lastWindowName;
+        if (last != null && last.windowMillis == windowMillis && last.windowStartMillis == windowStartMillis) {
+            return last.name;
+        }
+        final DateTimeFormatter formatter = windowMillis == TimeUnit.DAYS.toMillis(1) ? dayFormatter : minuteFormatter;
+        final String name = formatter.format(Instant.ofEpochMilli(windowStartMillis));
+        this.lastWindowName = new WindowName(windowMillis, windowStartMillis, name);
+        return name;
+    }
+
+    // returns ordered keys and their column names for the set of keys, memoized per distinct set
+    private KeyColumns getKeyColumns(final Map<Set<String>, KeyColumns> memoized,
+                                     final Set<String> keys,
+                                     final Function<String, String> keyToColumnName) {
+        final KeyColumns keyColumns = memoized.get(keys);
+        if (keyColumns != null) {
+            return keyColumns;
+        }
+        // bounded, in case users generate an unbounded number of distinct sets of keys
+        if (memoized.size() >= maxMemoizedKeySets) {
+            memoized.clear();
+        }
+        final KeyColumns newKeyColumns = new KeyColumns(getOrdered(keys), keyToColumnName);
+        // copy the keys, so the map of the event is not retained
+        memoized.put(new HashSet<>(keys), newKeyColumns);
+        return newKeyColumns;
     }
 
-    // unique identifier generated to distinguish between tables based on metadata and dimension keys
-    // the idnetifier is generated by hashing the csv string of the ordered list of metadata and dimensions keys
-    private String getKeysHash(final Collection<String> metadataKeys,
-                               final Collection<String> dimensionKeys) {
-        final String orderedMetadataKeysCsv = String.join(",", getOrdered(metadataKeys));
-        final String orderedDimensionKeysCsv = String.join(",", getOrdered(dimensionKeys));
-        return Math.abs(orderedMetadataKeysCsv.hashCode()) + "_" + Math.abs(orderedDimensionKeysCsv.hashCode());
+    protected String getChunkWindowColumnValue() {
+        return "CHUNK-WINDOW-MILLIS";
+    }
+
+    protected String getRetentionColumnValue() {
+        return "RETENTION-MILLIS";
+    }
+
+    protected String getColdChunkColumnValue() {
+        return "COLD-CHUNK";
+    }
+
+    // locking clause for reads that only keep other transactions from changing the rows, e.g., lock in share mode
+    protected String getSharedLockClause() {
+        return "FOR UPDATE";
     }
 
     protected String getChunksLookupTableName() {
@@ -948,6 +3736,62 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
         return "PAYLOAD";
     }
 
+    protected String getEndTimestampMillisColumnName() {
+        return "END_TIMESTAMP_MILLIS";
+    }
+
+    protected String getColdSegmentsTableName() {
+        return "CANTOR-EVENTS-COLD-SEGMENTS";
+    }
+
+    protected String getColdSegmentColumnName() {
+        return "SEGMENT";
+    }
+
+    protected String getColdSegmentCountColumnName() {
+        return "EVENTS_COUNT";
+    }
+
+    protected String getColdSegmentDataColumnName() {
+        return "DATA";
+    }
+
+    protected String getRollupsTableName() {
+        return "CANTOR-EVENTS-ROLLUPS";
+    }
+
+    protected String getRollupIntervalColumnName() {
+        return "INTERVAL_MILLIS";
+    }
+
+    protected String getRollupDimensionColumnName() {
+        return "DIMENSION";
+    }
+
+    protected String getRollupBucketColumnName() {
+        return "BUCKET_MILLIS";
+    }
+
+    protected String getRollupCountColumnName() {
+        return "VALUES_COUNT";
+    }
+
+    protected String getRollupSumColumnName() {
+        return "VALUES_SUM";
+    }
+
+    protected String getRollupMinColumnName() {
+        return "VALUES_MIN";
+    }
+
+    protected String getRollupMaxColumnName() {
+        return "VALUES_MAX";
+    }
+
+    protected String getRollupSumOfSquaresColumnName() {
+        return "VALUES_SUM_OF_SQUARES";
+    }
+
     protected String getDimensionKeyColumnNamePrefix() {
         return "D_";
     }
@@ -975,4 +3819,180 @@ public abstract class AbstractBaseEventsOnJdbc extends AbstractBaseCantorOnJdbc
     protected String getEventTimestampColumnName() {
         return "TIMESTAMP_MILLIS";
     }
-}
\ No newline at end of file
+
+    private static class ChunkProjection {
+        private final List<String> columnNames = new ArrayList<>();
+        private final List<String> metadataKeys = new ArrayList<>();
+        private final List<String> dimensionKeys = new ArrayList<>();
+    }
+
+    // evaluates metadata and dimension queries on decoded events, the same way as the sql of a chunk table query
+    private static class ColdChunkFilter {
+        private final Set<String> metadataKeys;
+        private final Set<String> dimensionKeys;
+        private final List<Predicate<Event>> predicates = new ArrayList<>();
+
+        private ColdChunkFilter(final Map<String, String> metadataQuery, final Map<String, String> dimensionsQuery) {
+            this.metadataKeys = metadataQuery.keySet();
+            this.dimensionKeys = dimensionsQuery.keySet();
+            for (final Map.Entry<String, String> entry : metadataQuery.entrySet()) {
+                final String key = entry.getKey();
+                final String query = entry.getValue();
+                final Predicate<String> predicate;
+                if (query.startsWith("~")) {
+                    final Pattern pattern = Pattern.compile(query.substring(1));
+                    predicate = value -> pattern.matcher(value).find();
+                } else if (query.startsWith("!~")) {
+                    final Pattern pattern = Pattern.compile(query.substring(2));
+                    predicate = value -> !pattern.matcher(value).find();
+                } else if (query.startsWith("=")) {
+                    predicate = query.substring(1)::equals;
+                } else if (query.startsWith("!=")) {
+                    final String other = query.substring(2);
+                    predicate = value -> !value.equals(other);
+                } else {
+                    predicate = query::equals;
+                }
+                // null never matches in sql
+                this.predicates.add(event -> {
+                    final String value = event.getMetadata().get(key);
+                    return value != null && predicate.test(value);
+                });
+            }
+            for (final Map.Entry<String, String> entry : dimensionsQuery.entrySet()) {
+                final String key = entry.getKey();
+                final String query = entry.getValue();
+                final DoublePredicate predicate;
+                if (query.contains("..")) {
+                    final double low = Double.valueOf(query.substring(0, query.indexOf("..")));
+                    final double high = Double.valueOf(query.substring(query.indexOf("..") + 2));
+                    predicate = value -> value >= low && value <= high;
+                } else if (query.startsWith(">=")) {
+                    final double other = Double.valueOf(query.substring(2));
+                    predicate = value -> value >= other;
+                } else if (query.startsWith("<=")) {
+                    final double other = Double.valueOf(query.substring(2));
+                    predicate = value -> value <= other;
+                } else if (query.startsWith(">")) {
+                    final double other = Double.valueOf(query.substring(1));
+                    predicate = value -> value > other;
+                } else if (query.startsWith("<")) {
+                    final double other = Double.valueOf(query.substring(1));
+                    predicate = value -> value < other;
+                } else if (query.startsWith("!=")) {
+                    final double other = Double.valueOf(query.substring(2));
+                    predicate = value -> value != other;
+                } else if (query.startsWith("=")) {
+                    final double other = Double.valueOf(query.substring(1));
+                    predicate = value -> value == other;
+                } else {
+                    final double other = Double.valueOf(query);
+                    predicate = value -> value == other;
+                }
+                this.predicates.add(event -> {
+                    final Double value = event.getDimensions().get(key);
+                    return value != null && predicate.test(value);
+                });
+            }
+        }
+
+        private Set<String> getMetadataKeys() {
+            return this.metadataKeys;
+        }
+
+        private Set<String> getDimensionKeys() {
+            return this.dimensionKeys;
+        }
+
+        private boolean matches(final Event event) {
+            for (final Predicate<Event> predicate : this.predicates) {
+                if (!predicate.test(event)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class WindowName {
+        private final long windowMillis;
+        private final long windowStartMillis;
+        private final String name;
+
+        private WindowName(final long windowMillis, final long windowStartMillis, final String name) {
+            this.windowMillis = windowMillis;
+            this.windowStartMillis = windowStartMillis;
+            this.name = name;
+        }
+    }
+
+    // ordered set of metadata or dimension keys, with their column names and the hash used in chunk table names
+    private static class KeyColumns {
+        private final String[] keys;
+        private final String[] columnNames;
+        private final int keysHashCode;
+
+        private KeyColumns(final List<String> orderedKeys, final Function<String, String> keyToColumnName) {
+            this.keys = orderedKeys.toArray(new String[0]);
+            this.columnNames = new String[this.keys.length];
+            for (int i = 0; i < this.keys.length; ++i) {
+                this.columnNames[i] = keyToColumnName.apply(this.keys[i]);
+            }
+            // same as the hash code of the csv string of the ordered keys
+            this.keysHashCode = String.join(",", orderedKeys).hashCode();
+        }
+
+        private void addColumnNameToKeyName(final Map<String, String> columnNameToKeyName) {
+            for (int i = 0; i < this.keys.length; ++i) {
+                columnNameToKeyName.put(this.columnNames[i], this.keys[i]);
+            }
+        }
+    }
+
+    // events of a batch going to the same chunk table, converted to jdbc batch parameters
+    private static class ChunkBatch {
+        private final String tableName;
+        private final long windowStartMillis;
+        private final KeyColumns metadataColumns;
+        private final KeyColumns dimensionColumns;
+        // used to create the chunk table if it does not exist
+        private final Event sampleEvent;
+        private final List<Object[]> parameters = new ArrayList<>();
+
+        private ChunkBatch(final String tableName,
+                           final long windowStartMillis,
+                           final KeyColumns metadataColumns,
+                           final KeyColumns dimensionColumns,
+                           final Event sampleEvent) {
+            this.tableName = tableName;
+            this.windowStartMillis = windowStartMillis;
+            this.metadataColumns = metadataColumns;
+            this.dimensionColumns = dimensionColumns;
+            this.sampleEvent = sampleEvent;
+        }
+
+        private boolean matches(final long windowStartMillis,
+                                final KeyColumns metadataColumns,
+                                final KeyColumns dimensionColumns) {
+            return this.windowStartMillis == windowStartMillis
+                    && this.metadataColumns == metadataColumns
+                    && this.dimensionColumns == dimensionColumns;
+        }
+
+        private void add(final Event event) {
+            final String[] metadataKeys = this.metadataColumns.keys;
+            final String[] dimensionKeys = this.dimensionColumns.keys;
+            final Object[] parameters = new Object[1 /* timestamp */ + metadataKeys.length + dimensionKeys.length + 1 /* payload */];
+            int index = 0;
+            parameters[index++] = event.getTimestampMillis();
+            for (final String metadataKey : metadataKeys) {
+                parameters[index++] = event.getMetadata().get(metadataKey);
+            }
+            for (final String dimensionKey : dimensionKeys) {
+                parameters[index++] = event.getDimensions().get(dimensionKey);
+            }
+            parameters[index] = event.getPayload() != null ? event.getPayload() : emptyPayload;
+            this.parameters.add(parameters);
+        }
+    }
+}
@@ -15,6 +15,8 @@ import javax.sql.DataSource;
 import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static com.salesforce.cantor.common.SetsPreconditions.*;
 import static com.salesforce.cantor.jdbc.JdbcUtils.addParameters;
@@ -24,6 +26,10 @@ import static com.salesforce.cantor.jdbc.JdbcUtils.quote;
 public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc implements Sets {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    // namespaces known to have a leases table
+    private final Set<String> leasesNamespaces = ConcurrentHashMap.newKeySet();
+    private final Map<String, Object> leasesLocks = new ConcurrentHashMap<>();
+
     protected AbstractBaseSetsOnJdbc(final DataSource dataSource) {
         super(dataSource);
     }
@@ -43,6 +49,7 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
     public void drop(final String namespace) throws IOException {
         checkDrop(namespace);
         dropNamespace(namespace);
+        this.leasesNamespaces.remove(namespace);
     }
 
     @Override
@@ -93,6 +100,28 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
         return doUnion(namespace, sets, min, max, start, count, getOrderByString(ascending));
     }
 
+    @Override
+    public Map<String, Long> union(final String namespace,
+                                   final Collection<String> sets,
+                                   final long min,
+                                   final long max,
+                                   final int start,
+                                   final int count,
+                                   final boolean ascending,
+                                   final Aggregate aggregate) throws IOException {
+        checkUnion(namespace, sets, min, max, start, count, ascending, aggregate);
+        return doAggregateUnion(namespace, sets, min, max, start, count, ascending, aggregate);
+    }
+
+    @Override
+    public int unionStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkUnionStore(namespace, destination, sets, aggregate);
+        return doUnionStore(namespace, destination, sets, aggregate);
+    }
+
     @Override
     public Map<String, Long> intersect(final String namespace,
                                        final Collection<String> sets,
@@ -100,9 +129,56 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
                                        final long max,
                                        final int start,
                                        final int count,
-                                       final boolean ascending) throws IOException {
-        checkIntersect(namespace, sets, min, max, start, count, ascending);
-        return doIntersect(namespace, sets, min, max, start, count, getOrderByString(ascending));
+                                       final boolean ascending,
+                                       final Aggregate aggregate) throws IOException {
+        checkIntersect(namespace, sets, min, max, start, count, ascending, aggregate);
+        return doIntersect(namespace, sets, min, max, start, count, ascending, aggregate);
+    }
+
+    @Override
+    public int interStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkInterStore(namespace, destination, sets, aggregate);
+        return doInterStore(namespace, destination, sets, aggregate);
+    }
+
+    @Override
+    public Map<String, Long> diff(final String namespace,
+                                  final String set,
+                                  final Collection<String> sets,
+                                  final long min,
+                                  final long max,
+                                  final int start,
+                                  final int count,
+                                  final boolean ascending) throws IOException {
+        checkDiff(namespace, set, sets, min, max, start, count, ascending);
+        return doDiff(namespace, set, sets, min, max, start, count, getOrderByString(ascending));
+    }
+
+    @Override
+    public int diffStore(final String namespace,
+                         final String destination,
+                         final String set,
+                         final Collection<String> sets) throws IOException {
+        checkDiffStore(namespace, destination, set, sets);
+        return doDiffStore(namespace, destination, set, sets);
+    }
+
+    @Override
+    public boolean move(final String namespace,
+                        final String source,
+                        final String destination,
+                        final String entry) throws IOException {
+        checkMove(namespace, source, destination, entry);
+        return doMove(namespace, source, destination, entry);
+    }
+
+    @Override
+    public int copy(final String namespace, final String source, final String destination) throws IOException {
+        checkCopy(namespace, source, destination);
+        return doCopy(namespace, source, destination);
     }
 
     @Override
@@ -117,6 +193,39 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
         return doPop(namespace, key, min, max, start, count, getOrderByString(ascending));
     }
 
+    @Override
+    public Claim claim(final String namespace,
+                       final String key,
+                       final long min,
+                       final long max,
+                       final int count,
+                       final boolean ascending,
+                       final long leaseMillis) throws IOException {
+        checkClaim(namespace, key, min, max, count, ascending, leaseMillis);
+        ensureLeases(namespace);
+        return doClaim(namespace, key, min, max, count, getOrderByString(ascending), leaseMillis);
+    }
+
+    @Override
+    public void ack(final String namespace, final String key, final String leaseId, final Collection<String> entries) throws IOException {
+        checkAck(namespace, key, leaseId, entries);
+        if (entries.isEmpty()) {
+            return;
+        }
+        ensureLeases(namespace);
+        doAck(namespace, key, leaseId, entries);
+    }
+
+    @Override
+    public void nack(final String namespace, final String key, final String leaseId, final Collection<String> entries) throws IOException {
+        checkNack(namespace, key, leaseId, entries);
+        if (entries.isEmpty()) {
+            return;
+        }
+        ensureLeases(namespace);
+        doNack(namespace, key, leaseId, entries);
+    }
+
     @Override
     public void delete(final String namespace, final String key, final long min, final long max) throws IOException {
         checkDelete(namespace, key, min, max);
@@ -159,6 +268,28 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
         doInc(namespace, key, entry, count);
     }
 
+    @Override
+    public void inc(final String namespace,
+                    final String key,
+                    final Map<String, Long> entries,
+                    final boolean updateOnly) throws IOException {
+        checkInc(namespace, key, entries);
+        if (entries.isEmpty()) {
+            return;
+        }
+        doInc(namespace, key, entries, updateOnly);
+    }
+
+    @Override
+    public boolean compareAndSet(final String namespace,
+                                 final String key,
+                                 final String entry,
+                                 final Long expected,
+                                 final long weight) throws IOException {
+        checkCompareAndSet(namespace, key, entry, expected, weight);
+        return doCompareAndSet(namespace, key, entry, expected, weight);
+    }
+
     @Override
     protected String getNamespaceLookupTableName() {
         return "SETS-NAMESPACES";
@@ -166,25 +297,15 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
 
     @Override
     protected void createInternalTables(final Connection connection, final String namespace) throws IOException {
-        logger.info("creating sets table for namespace '{}' if not exists", namespace);
+        logger.info("creating sets tables for namespace '{}' if not exists", namespace);
         executeUpdate(connection, getCreateSetsTableSql(namespace));
+        executeUpdate(connection, getCreateSetsLeasesTableSql(namespace));
+        this.leasesNamespaces.add(namespace);
     }
 
     private int doSize(final String namespace, final String set) throws IOException {
-        final String sql = String.format("SELECT COUNT(*) FROM %s WHERE %s = ? ",
-                getTableFullName(namespace, getSetsTableName()),
-                quote(getSetKeyColumnName())
-        );
         try (final Connection connection = getConnection()){
-            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-                preparedStatement.setString(1, set);
-                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
-                    if (resultSet.next()) {
-                        return resultSet.getInt(1);
-                    }
-                    return 0;
-                }
-            }
+            return countEntries(connection, namespace, set);
         } catch (final SQLException e) {
             logger.warn("exception on sets.size()", e);
             throw new IOException(e);
@@ -277,55 +398,384 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
         }
     }
 
+    private Map<String, Long> doAggregateUnion(final String namespace,
+                                               final Collection<String> sets,
+                                               final long min,
+                                               final long max,
+                                               final int start,
+                                               final int count,
+                                               final boolean ascending,
+                                               final Aggregate aggregate) throws IOException {
+        final List<String> distinctSets = new ArrayList<>(new LinkedHashSet<>(sets));
+        // entries are grouped and paged in the database, so only the requested page is returned
+        final String aggregated = aggregate.name() + "(" + quote(getWeightColumnName()) + ")";
+        final String sql = String.format("SELECT %s, %s AS AGGREGATED FROM %s WHERE %s IN (%s) GROUP BY %s " +
+                        "HAVING %s BETWEEN ? AND ? %s %s",
+                quote(getEntryColumnName()),
+                aggregated,
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getSetKeyColumnName()),
+                getPlaceholders(distinctSets.size()),
+                quote(getEntryColumnName()),
+                aggregated,
+                getOrderByString("AGGREGATED", ascending),
+                getLimitString(start, count)
+        );
+        final List<Object> parameters = new ArrayList<>(distinctSets);
+        parameters.add(min);
+        parameters.add(max);
+        final Map<String, Long> items = new LinkedHashMap<>();
+        try (final Connection connection = getConnection()) {
+            logger.debug("executing sql query: {}", sql);
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                addParameters(preparedStatement, parameters.toArray());
+                readEntries(preparedStatement, items);
+            }
+            return items;
+        } catch (final SQLException e) {
+            logger.warn("exception on sets.union()", e);
+            throw new IOException(e);
+        }
+    }
+
+    private int doUnionStore(final String namespace,
+                             final String destination,
+                             final Collection<String> sets,
+                             final Aggregate aggregate) throws IOException {
+        final List<String> distinctSets = new ArrayList<>(new LinkedHashSet<>(sets));
+        final String table = getTableFullName(namespace, getSetsTableName());
+        // if the destination is one of the sets all its entries are part of the union and get overwritten,
+        // otherwise its previous content is removed first
+        final String deleteSql = String.format("DELETE FROM %s WHERE %s = ?",
+                table,
+                quote(getSetKeyColumnName())
+        );
+        final String insertSql = String.format("INSERT INTO %1$s (%2$s, %3$s, %4$s) SELECT ?, %3$s, %5$s(%4$s) " +
+                        "FROM %1$s WHERE %2$s IN (%6$s) GROUP BY %3$s ON DUPLICATE KEY UPDATE %4$s = VALUES(%4$s)",
+                table,
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                aggregate.name(),
+                getPlaceholders(distinctSets.size())
+        );
+        return doInTransaction("unionStore", connection -> {
+            if (!distinctSets.contains(destination)) {
+                try (final PreparedStatement preparedStatement = connection.prepareStatement(deleteSql)) {
+                    preparedStatement.setString(1, destination);
+                    preparedStatement.executeUpdate();
+                }
+            }
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(insertSql)) {
+                final List<Object> parameters = new ArrayList<>();
+                parameters.add(destination);
+                parameters.addAll(distinctSets);
+                addParameters(preparedStatement, parameters.toArray());
+                preparedStatement.executeUpdate();
+            }
+            return countEntries(connection, namespace, destination);
+        });
+    }
+
     private Map<String, Long> doIntersect(final String namespace,
                                           final Collection<String> sets,
                                           final long min,
                                           final long max,
                                           final int start,
                                           final int count,
-                                          final String orderby) throws IOException {
-        int index = 0;
-        final Object[] parameters = new Object[sets.size() + 2];
-        parameters[index++] = min;
-        parameters[index++] = max;
-        // set keys are OR'd together to get all matching set entries
-        final StringJoiner setsJoiner = new StringJoiner(" OR ");
-        final String clause = getSetKeyColumnName() + " = ?";
-        for (final String set : sets) {
-            parameters[index++] = set;
-            setsJoiner.add(clause);
+                                          final boolean ascending,
+                                          final Aggregate aggregate) throws IOException {
+        final List<String> distinctSets = new ArrayList<>(new LinkedHashSet<>(sets));
+        final String table = getTableFullName(namespace, getSetsTableName());
+        final Map<String, Long> items = new LinkedHashMap<>();
+        try (final Connection connection = getConnection()) {
+            // the intersection is driven by the smallest set, so its cost does not depend on the size of the others
+            final String smallest = getSmallestSet(connection, table, distinctSets);
+            if (smallest == null) {
+                return items;
+            }
+
+            final List<Object> parameters = new ArrayList<>();
+            final String sql = String.format("%s AND AGGREGATED BETWEEN ? AND ? %s %s",
+                    getIntersectionSql(table, smallest, distinctSets, aggregate, parameters),
+                    getOrderByString("AGGREGATED", ascending),
+                    getLimitString(start, count)
+            );
+            parameters.add(min);
+            parameters.add(max);
+
+            logger.debug("executing sql query: {}", sql);
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                addParameters(preparedStatement, parameters.toArray());
+                readEntries(preparedStatement, items);
+            }
+            return items;
+        } catch (final SQLException e) {
+            logger.warn("exception on sets.intersect()", e);
+            throw new IOException(e);
         }
-        final String sql = String.format("SELECT %s, %s FROM %s WHERE %s BETWEEN ? AND ? AND %s %s %s",
+    }
+
+    // selects entries found in all sets with their aggregated weight; rows of the smallest set are followed by
+    // the weight of the same entry in each of the other sets, looked up by primary key
+    private String getIntersectionSql(final String table,
+                                      final String smallest,
+                                      final List<String> sets,
+                                      final Aggregate aggregate,
+                                      final List<Object> parameters) {
+        final StringJoiner weightsJoiner = new StringJoiner(" UNION ALL ");
+        weightsJoiner.add(String.format("SELECT %s AS E, %s AS W FROM %s WHERE %s = ?",
                 quote(getEntryColumnName()),
                 quote(getWeightColumnName()),
-                getTableFullName(namespace, getSetsTableName()),
+                table,
+                quote(getSetKeyColumnName()))
+        );
+        parameters.add(smallest);
+        for (final String set : sets) {
+            if (set.equals(smallest)) {
+                continue;
+            }
+            weightsJoiner.add(String.format("SELECT S.%1$s AS E, O.%2$s AS W FROM %3$s AS S INNER JOIN %3$s AS O " +
+                            "ON O.%4$s = ? AND O.%1$s = S.%1$s WHERE S.%4$s = ?",
+                    quote(getEntryColumnName()),
+                    quote(getWeightColumnName()),
+                    table,
+                    quote(getSetKeyColumnName()))
+            );
+            parameters.add(set);
+            parameters.add(smallest);
+        }
+        // (set, entry) is the primary key, so an entry found in every set has exactly one row per set
+        parameters.add(sets.size());
+        return String.format("SELECT E, %s(W) AS AGGREGATED FROM (%s) AS I GROUP BY E HAVING COUNT(*) = ?",
+                aggregate.name(),
+                weightsJoiner.toString()
+        );
+    }
+
+    // returns the set with fewest entries, or null if any of the sets is empty; sizes are only counted up to the
+    // size of the smallest set found so far, so probing a large set is cheap once a small one is known
+    private String getSmallestSet(final Connection connection,
+                                  final String table,
+                                  final List<String> sets) throws SQLException {
+        if (sets.size() == 1) {
+            return sets.get(0);
+        }
+        final String sql = String.format("SELECT COUNT(*) FROM (SELECT 1 FROM %s WHERE %s = ? LIMIT ?) AS C",
+                table,
+                quote(getSetKeyColumnName())
+        );
+        String smallest = null;
+        int smallestSize = getMaxIntersectProbeSize();
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (final String set : sets) {
+                preparedStatement.setString(1, set);
+                preparedStatement.setInt(2, smallestSize);
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    final int size = resultSet.next() ? resultSet.getInt(1) : 0;
+                    if (size == 0) {
+                        return null;
+                    }
+                    if (smallest == null || size < smallestSize) {
+                        smallest = set;
+                        smallestSize = size;
+                    }
+                }
+            }
+        }
+        return smallest;
+    }
+
+    private int doInterStore(final String namespace,
+                             final String destination,
+                             final Collection<String> sets,
+                             final Aggregate aggregate) throws IOException {
+        final List<String> distinctSets = new ArrayList<>(new LinkedHashSet<>(sets));
+        final String table = getTableFullName(namespace, getSetsTableName());
+        return doInTransaction("interStore", connection -> {
+            final String smallest = getSmallestSet(connection, table, distinctSets);
+            if (smallest == null) {
+                deleteSet(connection, namespace, destination);
+                return 0;
+            }
+            final List<Object> parameters = new ArrayList<>();
+            final String selectSql = getIntersectionSql(table, smallest, distinctSets, aggregate, parameters);
+            storeEntries(connection, namespace, destination, distinctSets.contains(destination), selectSql, parameters);
+            return countEntries(connection, namespace, destination);
+        });
+    }
+
+    private Map<String, Long> doDiff(final String namespace,
+                                     final String set,
+                                     final Collection<String> sets,
+                                     final long min,
+                                     final long max,
+                                     final int start,
+                                     final int count,
+                                     final String orderby) throws IOException {
+        final List<Object> parameters = new ArrayList<>();
+        final String sql = String.format("%s AND S.%s BETWEEN ? AND ? %s %s",
+                getDifferenceSql(namespace, set, sets, parameters),
                 quote(getWeightColumnName()),
-                setsJoiner.toString(),
                 orderby,
                 getLimitString(start, count)
         );
+        parameters.add(min);
+        parameters.add(max);
         final Map<String, Long> items = new LinkedHashMap<>();
         try (final Connection connection = getConnection()) {
             logger.debug("executing sql query: {}", sql);
             try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-                addParameters(preparedStatement, parameters);
-                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
-                    while (resultSet.next()) {
-                        final String key = resultSet.getString(1);
-                        final Long weight = resultSet.getLong(2);
-                        if (key != null && !key.isEmpty()) {
-                            items.put(key, weight);
-                        }
-                    }
-                }
-                return items;
+                addParameters(preparedStatement, parameters.toArray());
+                readEntries(preparedStatement, items);
             }
+            return items;
         } catch (final SQLException e) {
-            logger.warn("exception on sets.intersect()", e);
+            logger.warn("exception on sets.diff()", e);
             throw new IOException(e);
         }
     }
 
+    private int doDiffStore(final String namespace,
+                            final String destination,
+                            final String set,
+                            final Collection<String> sets) throws IOException {
+        final List<Object> parameters = new ArrayList<>();
+        final String selectSql = getDifferenceSql(namespace, set, sets, parameters);
+        final boolean destinationIsInput = destination.equals(set) || sets.contains(destination);
+        return doInTransaction("diffStore", connection -> {
+            storeEntries(connection, namespace, destination, destinationIsInput, selectSql, parameters);
+            return countEntries(connection, namespace, destination);
+        });
+    }
+
+    // selects entries of the set with no row in any of the other sets, each checked by primary key
+    private String getDifferenceSql(final String namespace,
+                                    final String set,
+                                    final Collection<String> sets,
+                                    final List<Object> parameters) {
+        final String table = getTableFullName(namespace, getSetsTableName());
+        final StringBuilder sql = new StringBuilder(String.format("SELECT S.%s, S.%s FROM %s AS S WHERE S.%s = ?",
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                table,
+                quote(getSetKeyColumnName()))
+        );
+        parameters.add(set);
+        for (final String other : new LinkedHashSet<>(sets)) {
+            sql.append(String.format(" AND NOT EXISTS (SELECT 1 FROM %s AS O WHERE O.%s = ? AND O.%s = S.%s)",
+                    table,
+                    quote(getSetKeyColumnName()),
+                    quote(getEntryColumnName()),
+                    quote(getEntryColumnName()))
+            );
+            parameters.add(other);
+        }
+        return sql.toString();
+    }
+
+    private boolean doMove(final String namespace,
+                           final String source,
+                           final String destination,
+                           final String entry) throws IOException {
+        final String selectSql = String.format("SELECT %s, %s FROM %s WHERE %s = ? AND %s = ? FOR UPDATE",
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName())
+        );
+        return doInTransaction("move", connection -> {
+            final Map<String, Long> items = new HashMap<>();
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(selectSql)) {
+                preparedStatement.setString(1, source);
+                preparedStatement.setString(2, entry);
+                readEntries(preparedStatement, items);
+            }
+            if (items.isEmpty()) {
+                return false;
+            }
+            if (!source.equals(destination)) {
+                addEntries(connection, namespace, destination, items);
+                deleteEntries(connection, getSetsTableName(), namespace, source, items.keySet());
+            }
+            return true;
+        });
+    }
+
+    private int doCopy(final String namespace, final String source, final String destination) throws IOException {
+        final String selectSql = String.format("SELECT %s, %s FROM %s WHERE %s = ?",
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getSetKeyColumnName())
+        );
+        return doInTransaction("copy", connection -> {
+            if (!source.equals(destination)) {
+                storeEntries(connection, namespace, destination, false, selectSql, Collections.singletonList(source));
+            }
+            return countEntries(connection, namespace, destination);
+        });
+    }
+
+    // replaces the content of the destination set with entries and weights returned by the select; if the
+    // destination is also read by the select, results go to a staging set first and are then renamed
+    private void storeEntries(final Connection connection,
+                              final String namespace,
+                              final String destination,
+                              final boolean destinationIsInput,
+                              final String selectSql,
+                              final List<Object> selectParameters) throws SQLException {
+        final String target = destinationIsInput ? getStagingSetName() : destination;
+        if (!destinationIsInput) {
+            deleteSet(connection, namespace, destination);
+        }
+        final String table = getTableFullName(namespace, getSetsTableName());
+        final String insertSql = String.format("INSERT INTO %s (%s, %s, %s) SELECT ?, R.* FROM (%s) AS R",
+                table,
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                selectSql
+        );
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(insertSql)) {
+            final List<Object> parameters = new ArrayList<>();
+            parameters.add(target);
+            parameters.addAll(selectParameters);
+            addParameters(preparedStatement, parameters.toArray());
+            preparedStatement.executeUpdate();
+        }
+        if (destinationIsInput) {
+            deleteSet(connection, namespace, destination);
+            final String renameSql = String.format("UPDATE %s SET %s = ? WHERE %s = ?",
+                    table,
+                    quote(getSetKeyColumnName()),
+                    quote(getSetKeyColumnName())
+            );
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(renameSql)) {
+                preparedStatement.setString(1, destination);
+                preparedStatement.setString(2, target);
+                preparedStatement.executeUpdate();
+            }
+        }
+    }
+
+    private void deleteSet(final Connection connection, final String namespace, final String set) throws SQLException {
+        final String sql = String.format("DELETE FROM %s WHERE %s = ?",
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getSetKeyColumnName())
+        );
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, set);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    // name of a set only visible inside a single transaction
+    private String getStagingSetName() {
+        return "cantor-staging-" + UUID.randomUUID().toString();
+    }
+
     private Map<String, Long> doPop(final String namespace,
                                     final String set,
                                     final long min,
@@ -344,62 +794,305 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
                 orderby,
                 getLimitString(start, count)
         );
-        Connection connection = null;
-        try {
-            // open transaction
-            connection = openTransaction(getConnection());
-
-            do {
-                final Map<String, Long> items = new LinkedHashMap<>();
-                try (final PreparedStatement selectPreparedStatement = connection.prepareStatement(selectSql)) {
-                    selectPreparedStatement.setString(1, set);
-                    selectPreparedStatement.setLong(2, min);
-                    selectPreparedStatement.setLong(3, max);
-                    // fetch entries
-                    try (final ResultSet resultSet = selectPreparedStatement.executeQuery()) {
-                        while (resultSet.next()) {
-                            final String key = resultSet.getString(1);
-                            final Long weight = resultSet.getLong(2);
-                            if (key != null && !key.isEmpty()) {
-                                items.put(key, weight);
-                            }
-                        }
-                    }
-                    if (items.isEmpty()) {
-                        return Collections.emptyMap();
-                    }
+        return doInTransaction("pop", connection -> {
+            final Map<String, Long> items = new LinkedHashMap<>();
+            try (final PreparedStatement selectPreparedStatement = connection.prepareStatement(selectSql)) {
+                selectPreparedStatement.setString(1, set);
+                selectPreparedStatement.setLong(2, min);
+                selectPreparedStatement.setLong(3, max);
+                // fetch entries
+                readEntries(selectPreparedStatement, items);
+            }
+            if (items.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            // delete fetched entries
+            deleteEntries(connection, getSetsTableName(), namespace, set, items.keySet());
+            return items;
+        });
+    }
 
-                    // delete fetched entries
-                    final String deleteSql = String.format("DELETE FROM %s WHERE %s.%s = ? AND %s.%s IN (%s) ",
-                            getTableFullName(namespace, getSetsTableName()),
-                            quote(getSetsTableName()),
-                            quote(getSetKeyColumnName()),
-                            quote(getSetsTableName()),
-                            quote(getEntryColumnName()),
-                            getPlaceholders(items.size())
-                    );
-                    try (final PreparedStatement deletePreparedStatement = connection.prepareStatement(deleteSql)) {
-                        int index = 1;
-                        deletePreparedStatement.setString(index++, set);
-                        for (final String entry : items.keySet()) {
-                            deletePreparedStatement.setString(index++, entry);
-                        }
+    private Claim doClaim(final String namespace,
+                          final String set,
+                          final long min,
+                          final long max,
+                          final int count,
+                          final String orderby,
+                          final long leaseMillis) throws IOException {
+        // without skip locked, concurrent claims wait on each other's locks instead of taking the next entries
+        final String lockString = isSkipLockedSupported() ? " FOR UPDATE SKIP LOCKED" : " FOR UPDATE";
+        final String selectExpiredSql = String.format("SELECT %s, %s FROM %s WHERE %s = ? AND %s < ? %s",
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                getTableFullName(namespace, getSetsLeasesTableName()),
+                quote(getSetKeyColumnName()),
+                quote(getLeaseExpiresColumnName()),
+                getLimitString(0, getMaxRequeuedLeases()) + lockString
+        );
+        final String selectSql = String.format("SELECT %s, %s FROM %s WHERE %s = ? AND %s BETWEEN ? AND ? %s %s",
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getSetKeyColumnName()),
+                quote(getWeightColumnName()),
+                orderby,
+                getLimitString(0, count) + lockString
+        );
+        // claimed entries have no lease, since expired leases are deleted when their entries are put back
+        final String leaseSql = String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ?, %s = ?, %s = ?",
+                getTableFullName(namespace, getSetsLeasesTableName()),
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                quote(getLeaseIdColumnName()),
+                quote(getLeaseExpiresColumnName())
+        );
+        final String leaseId = UUID.randomUUID().toString();
+        return doInTransaction("claim", connection -> {
+            final long nowMillis = System.currentTimeMillis();
+            final long leaseExpiresMillis = nowMillis + leaseMillis;
+            // put entries with expired leases back in the set first, so they can be claimed again
+            final Map<String, Long> expired = new LinkedHashMap<>();
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(selectExpiredSql)) {
+                preparedStatement.setString(1, set);
+                preparedStatement.setLong(2, nowMillis);
+                readEntries(preparedStatement, expired);
+            }
+            if (!expired.isEmpty()) {
+                logger.info("putting back {} entries with expired leases in set/namespace {}/{}", expired.size(), set, namespace);
+                addEntries(connection, namespace, set, expired);
+                deleteEntries(connection, getSetsLeasesTableName(), namespace, set, expired.keySet());
+            }
 
-                        final int deletedRows = deletePreparedStatement.executeUpdate();
-                        if (deletedRows != items.size()) {
-                            throw new SQLTransactionRollbackException("retry");
-                        }
-                        return items;
-                    }
-                } catch (SQLTransactionRollbackException e) {
-                    // retry
+            final Map<String, Long> items = new LinkedHashMap<>();
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(selectSql)) {
+                preparedStatement.setString(1, set);
+                preparedStatement.setLong(2, min);
+                preparedStatement.setLong(3, max);
+                readEntries(preparedStatement, items);
+            }
+            if (items.isEmpty()) {
+                return new Claim(leaseId, leaseExpiresMillis, Collections.emptyMap());
+            }
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(leaseSql)) {
+                for (final Map.Entry<String, Long> item : items.entrySet()) {
+                    addParameters(preparedStatement, set, item.getKey(), item.getValue(), leaseId, leaseExpiresMillis);
+                    preparedStatement.addBatch();
                 }
-            } while (true);
-        } catch (final SQLException e) {
-            logger.warn("exception on sets.pop()", e);
+                preparedStatement.executeBatch();
+            }
+            deleteEntries(connection, getSetsTableName(), namespace, set, items.keySet());
+            return new Claim(leaseId, leaseExpiresMillis, items);
+        });
+    }
+
+    private void doAck(final String namespace,
+                       final String set,
+                       final String leaseId,
+                       final Collection<String> entries) throws IOException {
+        doInTransaction("ack", connection -> {
+            // entries whose lease expired may be claimed again by others, and are left alone
+            deleteLeases(connection, namespace, set, leaseId, System.currentTimeMillis(), entries);
+            return null;
+        });
+    }
+
+    private void doNack(final String namespace,
+                        final String set,
+                        final String leaseId,
+                        final Collection<String> entries) throws IOException {
+        final String selectSql = String.format("SELECT %s, %s FROM %s WHERE %s = ? AND %s = ? AND %s >= ? AND %s IN (%s) FOR UPDATE",
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                getTableFullName(namespace, getSetsLeasesTableName()),
+                quote(getSetKeyColumnName()),
+                quote(getLeaseIdColumnName()),
+                quote(getLeaseExpiresColumnName()),
+                quote(getEntryColumnName()),
+                getPlaceholders(entries.size())
+        );
+        doInTransaction("nack", connection -> {
+            final long nowMillis = System.currentTimeMillis();
+            final Map<String, Long> leased = new LinkedHashMap<>();
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(selectSql)) {
+                final List<Object> parameters = new ArrayList<>();
+                parameters.add(set);
+                parameters.add(leaseId);
+                parameters.add(nowMillis);
+                parameters.addAll(entries);
+                addParameters(preparedStatement, parameters.toArray());
+                readEntries(preparedStatement, leased);
+            }
+            if (!leased.isEmpty()) {
+                addEntries(connection, namespace, set, leased);
+                deleteLeases(connection, namespace, set, leaseId, nowMillis, leased.keySet());
+            }
+            return null;
+        });
+    }
+
+    // delete leases of the given entries, only if held under the given lease id and not expired
+    private void deleteLeases(final Connection connection,
+                              final String namespace,
+                              final String set,
+                              final String leaseId,
+                              final long nowMillis,
+                              final Collection<String> entries) throws SQLException {
+        final String sql = String.format("DELETE FROM %s WHERE %s = ? AND %s = ? AND %s >= ? AND %s IN (%s) ",
+                getTableFullName(namespace, getSetsLeasesTableName()),
+                quote(getSetKeyColumnName()),
+                quote(getLeaseIdColumnName()),
+                quote(getLeaseExpiresColumnName()),
+                quote(getEntryColumnName()),
+                getPlaceholders(entries.size())
+        );
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            final List<Object> parameters = new ArrayList<>();
+            parameters.add(set);
+            parameters.add(leaseId);
+            parameters.add(nowMillis);
+            parameters.addAll(entries);
+            addParameters(preparedStatement, parameters.toArray());
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    // deletes entries locked by this transaction; fails with a retry if any of them is gone
+    private void deleteEntries(final Connection connection,
+                               final String tableName,
+                               final String namespace,
+                               final String set,
+                               final Collection<String> entries) throws SQLException {
+        final String sql = String.format("DELETE FROM %s WHERE %s = ? AND %s IN (%s) ",
+                getTableFullName(namespace, tableName),
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName()),
+                getPlaceholders(entries.size())
+        );
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            int index = 1;
+            preparedStatement.setString(index++, set);
+            for (final String entry : entries) {
+                preparedStatement.setString(index++, entry);
+            }
+            if (preparedStatement.executeUpdate() != entries.size()) {
+                throw new SQLTransactionRollbackException("retry");
+            }
+        }
+    }
+
+    private void addEntries(final Connection connection,
+                            final String namespace,
+                            final String set,
+                            final Map<String, Long> entries) throws SQLException {
+        final String sql = String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ? ON DUPLICATE KEY UPDATE %s= ? ",
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                quote(getWeightColumnName())
+        );
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (final Map.Entry<String, Long> entry : entries.entrySet()) {
+                addParameters(preparedStatement, set, entry.getKey(), entry.getValue(), entry.getValue());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    private int countEntries(final Connection connection, final String namespace, final String set) throws SQLException {
+        final String sql = String.format("SELECT COUNT(*) FROM %s WHERE %s = ? ",
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getSetKeyColumnName())
+        );
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, set);
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getInt(1);
+                }
+                return 0;
+            }
+        }
+    }
+
+    private void readEntries(final PreparedStatement preparedStatement, final Map<String, Long> items) throws SQLException {
+        try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                final String key = resultSet.getString(1);
+                final Long weight = resultSet.getLong(2);
+                if (key != null && !key.isEmpty()) {
+                    items.put(key, weight);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface TransactionCall<R> {
+        R call(Connection connection) throws SQLException;
+    }
+
+    // runs the call in a transaction, retrying on deadlocks and lock wait timeouts a bounded number of times, with
+    // jittered exponential backoff so that competing callers do not retry in lock step
+    private <R> R doInTransaction(final String operation, final TransactionCall<R> call) throws IOException {
+        for (int attempt = 0; ; ++attempt) {
+            Connection connection = null;
+            try {
+                connection = openTransaction(getConnection());
+                return call.call(connection);
+            } catch (final SQLTransactionRollbackException e) {
+                rollback(connection);
+                if (attempt >= getTransactionMaxRetries()) {
+                    logger.warn("giving up on sets.{}() after {} retries", operation, attempt, e);
+                    throw new IOException(e);
+                }
+                logger.debug("retrying sets.{}() after: {}", operation, e.getMessage());
+                backoff(attempt);
+            } catch (final SQLException e) {
+                rollback(connection);
+                logger.warn("exception on sets.{}()", operation, e);
+                throw new IOException(e);
+            } finally {
+                closeConnection(connection);
+            }
+        }
+    }
+
+    private void rollback(final Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.warn("exception executing rollback", e);
+        }
+    }
+
+    private void backoff(final int attempt) throws IOException {
+        final long maxBackoffMillis = getTransactionRetryBackoffMillis() << Math.min(attempt, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxBackoffMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new IOException(e);
-        } finally {
-            closeConnection(connection);
+        }
+    }
+
+    // leases tables are created with the namespace; this covers namespaces created before leases existed, and only
+    // one caller per namespace runs the create, since it waits on locks held by open claim transactions
+    private void ensureLeases(final String namespace) throws IOException {
+        if (this.leasesNamespaces.contains(namespace)) {
+            return;
+        }
+        synchronized (this.leasesLocks.computeIfAbsent(namespace, key -> new Object())) {
+            if (this.leasesNamespaces.contains(namespace)) {
+                return;
+            }
+            executeUpdate(getCreateSetsLeasesTableSql(namespace));
+            this.leasesNamespaces.add(namespace);
         }
     }
 
@@ -542,6 +1235,68 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
         executeUpdate(sql, count, set, entry);
     }
 
+    private void doInc(final String namespace,
+                       final String set,
+                       final Map<String, Long> entries,
+                       final boolean updateOnly) throws IOException {
+        final String upsertSql = String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ? ON DUPLICATE KEY UPDATE %s = %s + VALUES(%s) ",
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName()),
+                quote(getWeightColumnName()),
+                quote(getWeightColumnName()),
+                quote(getWeightColumnName())
+        );
+        final String updateSql = String.format("UPDATE %s SET %s = %s + ? WHERE %s = ? AND %s = ? ",
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getWeightColumnName()),
+                quote(getWeightColumnName()),
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName())
+        );
+        // rows are locked in entry order, so concurrent batches on the same set cannot deadlock
+        final Map<String, Long> sortedEntries = new TreeMap<>(entries);
+        doInTransaction("inc", connection -> {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(updateOnly ? updateSql : upsertSql)) {
+                for (final Map.Entry<String, Long> entry : sortedEntries.entrySet()) {
+                    if (updateOnly) {
+                        addParameters(preparedStatement, entry.getValue(), set, entry.getKey());
+                    } else {
+                        addParameters(preparedStatement, set, entry.getKey(), entry.getValue());
+                    }
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    private boolean doCompareAndSet(final String namespace,
+                                    final String set,
+                                    final String entry,
+                                    final Long expected,
+                                    final long weight) throws IOException {
+        if (expected == null) {
+            final String sql = String.format("INSERT IGNORE INTO %s SET %s = ?, %s = ?, %s = ? ",
+                    getTableFullName(namespace, getSetsTableName()),
+                    quote(getSetKeyColumnName()),
+                    quote(getEntryColumnName()),
+                    quote(getWeightColumnName())
+            );
+            return executeUpdate(sql, set, entry, weight) == 1;
+        }
+        final String sql = String.format("UPDATE %s SET %s = ? WHERE %s = ? AND %s = ? AND %s = ? ",
+                getTableFullName(namespace, getSetsTableName()),
+                quote(getWeightColumnName()),
+                quote(getSetKeyColumnName()),
+                quote(getEntryColumnName()),
+                quote(getWeightColumnName())
+        );
+        return executeUpdate(sql, weight, set, entry, expected) == 1;
+    }
+
     private void doAdd(final String namespace, final String set, final String entry, final long weight) throws IOException {
         final String sql = String.format("INSERT INTO %s SET %s = ?, %s = ?, %s = ? ON DUPLICATE KEY UPDATE %s= ? ",
                 getTableFullName(namespace, getSetsTableName()),
@@ -581,9 +1336,38 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
 
     protected abstract String getCreateSetsTableSql(final String namespace);
 
+    protected abstract String getCreateSetsLeasesTableSql(final String namespace);
+
+    // whether select for update can skip rows locked by other transactions
+    protected boolean isSkipLockedSupported() {
+        return false;
+    }
+
+    protected int getTransactionMaxRetries() {
+        return 8;
+    }
+
+    protected long getTransactionRetryBackoffMillis() {
+        return 10;
+    }
+
+    // maximum number of entries with expired leases put back in the set on each claim
+    protected int getMaxRequeuedLeases() {
+        return 1000;
+    }
+
+    // maximum number of entries counted when looking for the smallest set to drive an intersection
+    protected int getMaxIntersectProbeSize() {
+        return 10_000;
+    }
+
     private String getOrderByString(final boolean ascending) {
+        return getOrderByString(getWeightColumnName(), ascending);
+    }
+
+    private String getOrderByString(final String column, final boolean ascending) {
         final String order = ascending ? " ASC " : " DESC ";
-        return " ORDER BY " + getWeightColumnName() + " " + order + " ";
+        return " ORDER BY " + column + " " + order + " ";
     }
 
     private String getLimitString(final int start, final int count) {
@@ -608,5 +1392,17 @@ public abstract class AbstractBaseSetsOnJdbc extends AbstractBaseCantorOnJdbc im
     protected String getWeightColumnName() {
         return "WEIGHT";
     }
+
+    protected String getSetsLeasesTableName() {
+        return "CANTOR-SETS-LEASES";
+    }
+
+    protected String getLeaseIdColumnName() {
+        return "LEASE-ID";
+    }
+
+    protected String getLeaseExpiresColumnName() {
+        return "LEASE-EXPIRES";
+    }
 }
 
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import com.salesforce.cantor.Events.AggregationFunction;
+
+/**
+ * Partial aggregate of a dimension over a set of events: count, sum, min, max and sum of squares, plus a quantile or
+ * distinct count sketch if needed. Partials computed separately, e.g., one per chunk table, can be merged and the
+ * merged partial gives the exact value for any of the moment based aggregation functions, and the same estimate for
+ * sketch based ones, as if computed over all events at once.
+ */
+class EventsAggregate {
+    /**
+     * What a partial has to keep to compute an aggregation function.
+     */
+    enum Kind {
+        MOMENTS, QUANTILES, DISTINCT_VALUES;
+
+        static Kind of(final AggregationFunction aggregationFunction) {
+            switch (aggregationFunction) {
+                case P50:
+                case P90:
+                case P95:
+                case P99:
+                    return QUANTILES;
+                case DISTINCT_COUNT:
+                    return DISTINCT_VALUES;
+                default:
+                    return MOMENTS;
+            }
+        }
+    }
+
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sumOfSquares;
+    private QuantileSketch quantiles;
+    private HyperLogLog distinctValues;
+
+    EventsAggregate() {
+    }
+
+    EventsAggregate(final Kind kind) {
+        if (kind == Kind.QUANTILES) {
+            this.quantiles = new QuantileSketch();
+        } else if (kind == Kind.DISTINCT_VALUES) {
+            this.distinctValues = new HyperLogLog();
+        }
+    }
+
+    EventsAggregate(final long count, final double sum, final double min, final double max, final double sumOfSquares) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.sumOfSquares = sumOfSquares;
+    }
+
+    void add(final double value) {
+        this.count++;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+        this.sumOfSquares += value * value;
+        if (this.quantiles != null) {
+            this.quantiles.add(value);
+        }
+        if (this.distinctValues != null) {
+            this.distinctValues.add(value);
+        }
+    }
+
+    // adds the count of a quantile sketch bucket, computed in sql
+    void addQuantileBucket(final int sign, final int index, final long count) {
+        if (this.quantiles == null) {
+            this.quantiles = new QuantileSketch();
+        }
+        this.quantiles.add(sign, index, count);
+    }
+
+    // adds a distinct value, computed in sql
+    void addDistinctValue(final double value) {
+        if (this.distinctValues == null) {
+            this.distinctValues = new HyperLogLog();
+        }
+        this.distinctValues.add(value);
+    }
+
+    void merge(final EventsAggregate other) {
+        this.count += other.count;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+        this.sumOfSquares += other.sumOfSquares;
+        if (other.quantiles != null) {
+            if (this.quantiles == null) {
+                this.quantiles = new QuantileSketch();
+            }
+            this.quantiles.merge(other.quantiles);
+        }
+        if (other.distinctValues != null) {
+            if (this.distinctValues == null) {
+                this.distinctValues = new HyperLogLog();
+            }
+            this.distinctValues.merge(other.distinctValues);
+        }
+    }
+
+    long getCount() {
+        return this.count;
+    }
+
+    double getSum() {
+        return this.sum;
+    }
+
+    double getMin() {
+        return this.min;
+    }
+
+    double getMax() {
+        return this.max;
+    }
+
+    double getSumOfSquares() {
+        return this.sumOfSquares;
+    }
+
+    // returns 0 where sql would return null, e.g., average of no values or sample variance of a single value
+    double getValue(final AggregationFunction aggregationFunction) {
+        switch (aggregationFunction) {
+            case COUNT:
+                return this.count;
+            case SUM:
+                return this.sum;
+            case MIN:
+                return this.count == 0 ? 0.0 : this.min;
+            case MAX:
+                return this.count == 0 ? 0.0 : this.max;
+            case AVG:
+                return this.count == 0 ? 0.0 : this.sum / this.count;
+            case VAR_POP:
+                return this.count == 0 ? 0.0 : getSumOfSquaredDeviations() / this.count;
+            case VAR_SAMP:
+                return this.count < 2 ? 0.0 : getSumOfSquaredDeviations() / (this.count - 1);
+            case STDDEV_POP:
+                return Math.sqrt(getValue(AggregationFunction.VAR_POP));
+            case STDDEV_SAMP:
+                return Math.sqrt(getValue(AggregationFunction.VAR_SAMP));
+            case P50:
+                return getQuantile(0.50);
+            case P90:
+                return getQuantile(0.90);
+            case P95:
+                return getQuantile(0.95);
+            case P99:
+                return getQuantile(0.99);
+            case DISTINCT_COUNT:
+                return this.distinctValues == null ? 0.0 : this.distinctValues.getEstimate();
+            default:
+                throw new IllegalArgumentException("unknown aggregation function: " + aggregationFunction);
+        }
+    }
+
+    private double getQuantile(final double quantile) {
+        return this.quantiles == null ? 0.0 : this.quantiles.getQuantile(quantile);
+    }
+
+    private double getSumOfSquaredDeviations() {
+        // can go slightly negative because of floating point rounding
+        return Math.max(0.0, this.sumOfSquares - this.sum * this.sum / this.count);
+    }
+}
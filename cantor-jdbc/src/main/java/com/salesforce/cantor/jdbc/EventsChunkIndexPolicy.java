@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+/**
+ * Secondary indexes created on new chunk tables of a namespace. Every index adds to the cost of writing events; pick
+ * the policy matching the queries run against the namespace.
+ */
+public enum EventsChunkIndexPolicy {
+    /**
+     * No secondary indexes; cheapest writes, every query scans the chunk tables it touches.
+     */
+    NONE,
+
+    /**
+     * Index on the event timestamp only; good for namespaces queried mostly by time range.
+     */
+    TIMESTAMP,
+
+    /**
+     * Index on the event timestamp, plus one index per metadata and dimension column.
+     */
+    PER_COLUMN,
+
+    /**
+     * Index on the event timestamp, plus one composite index on (metadata, timestamp) for each of the declared hot
+     * metadata keys; good for queries filtering on a hot key and a time range.
+     */
+    COMPOSITE,
+
+    /**
+     * Same as composite, with dimension columns appended to each index, so aggregations over a hot key and a time
+     * range can be answered from the index without reading the table.
+     */
+    COVERING,
+}
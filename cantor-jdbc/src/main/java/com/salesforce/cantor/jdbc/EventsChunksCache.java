@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of chunk table descriptors for events namespaces, shared by all instances using the same data
+ * source with the same cache settings. Writers sharing the cache keep it up to date; entries are reloaded after a
+ * time-to-live so chunks created or expired by other processes, or by instances with other settings, are eventually
+ * picked up.
+ */
+class EventsChunksCache {
+    private static final Map<DataSource, Map<List<Long>, EventsChunksCache>> caches = new WeakHashMap<>();
+
+    private final int maxNamespaces;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+    // bumped on every mutation; a load that overlaps a mutation is not cached
+    private final AtomicLong modifications = new AtomicLong();
+
+    static synchronized EventsChunksCache getInstance(final DataSource dataSource,
+                                                      final int maxNamespaces,
+                                                      final long ttlMillis) {
+        // instances with different settings get a cache of their own
+        return caches.computeIfAbsent(dataSource, ignored -> new HashMap<>())
+                .computeIfAbsent(Arrays.asList((long) maxNamespaces, ttlMillis),
+                        ignored -> new EventsChunksCache(maxNamespaces, ttlMillis)
+                );
+    }
+
+    EventsChunksCache(final int maxNamespaces, final long ttlMillis) {
+        this.maxNamespaces = maxNamespaces;
+        this.ttlMillis = ttlMillis;
+        // access ordered, so the least recently used namespace is evicted first
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > EventsChunksCache.this.maxNamespaces;
+            }
+        };
+    }
+
+    // returns all chunks for the namespace, calling the loader if the namespace is not cached or is expired
+    Collection<Chunk> getChunks(final String namespace, final Loader loader) throws IOException {
+        return getTableNameToChunk(namespace, loader).values();
+    }
+
+    // returns the chunk with the given table name, or null if there is none
+    Chunk getChunk(final String namespace, final String tableName, final Loader loader) throws IOException {
+        return getTableNameToChunk(namespace, loader).get(tableName);
+    }
+
+    private Map<String, Chunk> getTableNameToChunk(final String namespace, final Loader loader) throws IOException {
+        synchronized (this.entries) {
+            final Entry entry = this.entries.get(namespace);
+            if (entry != null && System.currentTimeMillis() - entry.loadedMillis < this.ttlMillis) {
+                return entry.chunks;
+            }
+        }
+        final long modificationsBeforeLoad = this.modifications.get();
+        final Map<String, Chunk> chunks = new ConcurrentHashMap<>(loader.load(namespace));
+        synchronized (this.entries) {
+            if (this.modifications.get() == modificationsBeforeLoad) {
+                this.entries.put(namespace, new Entry(chunks));
+            }
+        }
+        return chunks;
+    }
+
+    void addChunk(final String namespace, final Chunk chunk) {
+        synchronized (this.entries) {
+            this.modifications.incrementAndGet();
+            final Entry entry = this.entries.get(namespace);
+            if (entry != null) {
+                entry.chunks.put(chunk.getTableName(), chunk);
+            }
+        }
+    }
+
+    void removeChunk(final String namespace, final String tableName) {
+        synchronized (this.entries) {
+            this.modifications.incrementAndGet();
+            final Entry entry = this.entries.get(namespace);
+            if (entry != null) {
+                entry.chunks.remove(tableName);
+            }
+        }
+    }
+
+    void invalidate(final String namespace) {
+        synchronized (this.entries) {
+            this.modifications.incrementAndGet();
+            this.entries.remove(namespace);
+        }
+    }
+
+    interface Loader {
+        Map<String, Chunk> load(String namespace) throws IOException;
+    }
+
+    /**
+     * Describes a single chunk table: its name, the start and end of its window and the map of its metadata and
+     * dimension column names to key names. Cold chunks have been compacted to columnar segments and no longer have
+     * a chunk table.
+     */
+    static class Chunk {
+        private final String tableName;
+        private final long startTimestampMillis;
+        private final long endTimestampMillis;
+        private final Map<String, String> columnNameToKeyName;
+        private final boolean cold;
+
+        Chunk(final String tableName,
+              final long startTimestampMillis,
+              final long endTimestampMillis,
+              final Map<String, String> columnNameToKeyName) {
+            this(tableName, startTimestampMillis, endTimestampMillis, columnNameToKeyName, false);
+        }
+
+        Chunk(final String tableName,
+              final long startTimestampMillis,
+              final long endTimestampMillis,
+              final Map<String, String> columnNameToKeyName,
+              final boolean cold) {
+            this.tableName = tableName;
+            this.startTimestampMillis = startTimestampMillis;
+            this.endTimestampMillis = endTimestampMillis;
+            this.columnNameToKeyName = Collections.unmodifiableMap(columnNameToKeyName);
+            this.cold = cold;
+        }
+
+        String getTableName() {
+            return this.tableName;
+        }
+
+        long getStartTimestampMillis() {
+            return this.startTimestampMillis;
+        }
+
+        // exclusive; all events in the chunk have timestamp before this
+        long getEndTimestampMillis() {
+            return this.endTimestampMillis;
+        }
+
+        boolean overlaps(final long startTimestampMillis, final long endTimestampMillis) {
+            return this.startTimestampMillis <= endTimestampMillis && this.endTimestampMillis > startTimestampMillis;
+        }
+
+        // e.g., "M_HOST_12345" -> "Host"
+        Map<String, String> getColumnNameToKeyName() {
+            return this.columnNameToKeyName;
+        }
+
+        boolean hasColumns(final Collection<String> columnNames) {
+            return this.columnNameToKeyName.keySet().containsAll(columnNames);
+        }
+
+        boolean isCold() {
+            return this.cold;
+        }
+
+        Chunk withCold(final boolean cold) {
+            return new Chunk(this.tableName, this.startTimestampMillis, this.endTimestampMillis, this.columnNameToKeyName, cold);
+        }
+    }
+
+    private static class Entry {
+        private final Map<String, Chunk> chunks;
+        private final long loadedMillis = System.currentTimeMillis();
+
+        private Entry(final Map<String, Chunk> chunks) {
+            this.chunks = chunks;
+        }
+    }
+}
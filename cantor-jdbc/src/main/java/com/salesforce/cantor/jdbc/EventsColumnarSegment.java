@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import com.salesforce.cantor.Events.Event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Columnar encoding of a run of events ordered by timestamp, used for cold chunks. Each column is encoded on its own
+ * and prefixed with its length, so columns that are not needed are skipped without being decoded:
+ * <ul>
+ *     <li>timestamps are delta-of-delta encoded, mostly one byte per event for regularly spaced events;</li>
+ *     <li>metadata values are dictionary encoded, one small index per event;</li>
+ *     <li>dimension values are xor encoded against the previous value (as in facebook's gorilla), down to a single
+ *     bit for repeated values;</li>
+ *     <li>payloads are deflated together.</li>
+ * </ul>
+ */
+class EventsColumnarSegment {
+    private static final byte version = 1;
+
+    private EventsColumnarSegment() {
+    }
+
+    // events must be ordered by timestamp, and should all have the same metadata and dimension keys
+    static byte[] encode(final List<Event> events) {
+        final Set<String> metadataKeys = new TreeSet<>();
+        final Set<String> dimensionKeys = new TreeSet<>();
+        for (final Event event : events) {
+            metadataKeys.addAll(event.getMetadata().keySet());
+            dimensionKeys.addAll(event.getDimensions().keySet());
+        }
+
+        final ByteOutput output = new ByteOutput();
+        output.write(version);
+        output.writeVarLong(events.size());
+        output.writeSection(encodeTimestamps(events));
+        output.writeVarLong(metadataKeys.size());
+        for (final String metadataKey : metadataKeys) {
+            output.writeString(metadataKey);
+            output.writeSection(encodeMetadata(events, metadataKey));
+        }
+        output.writeVarLong(dimensionKeys.size());
+        for (final String dimensionKey : dimensionKeys) {
+            output.writeString(dimensionKey);
+            output.writeSection(encodeDimension(events, dimensionKey));
+        }
+        output.writeSection(encodePayloads(events));
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes events with timestamp between start and end, with only the given metadata and dimension keys, or all
+     * keys if null, and with payloads only if asked for.
+     */
+    static List<Event> decode(final byte[] data,
+                              final long startTimestampMillis,
+                              final long endTimestampMillis,
+                              final Set<String> metadataKeys,
+                              final Set<String> dimensionKeys,
+                              final boolean includePayloads) throws IOException {
+        final ByteInput input = new ByteInput(data, 0, data.length);
+        if (input.read() != version) {
+            throw new IOException("unknown columnar segment version");
+        }
+        final int count = (int) input.readVarLong();
+        final long[] timestamps = decodeTimestamps(input.readSection(), count);
+
+        // timestamps are ordered, the events in range are contiguous
+        int from = 0;
+        while (from < count && timestamps[from] < startTimestampMillis) {
+            ++from;
+        }
+        int to = from;
+        while (to < count && timestamps[to] <= endTimestampMillis) {
+            ++to;
+        }
+        final List<Map<String, String>> metadata = new ArrayList<>(to - from);
+        final List<Map<String, Double>> dimensions = new ArrayList<>(to - from);
+        for (int i = from; i < to; ++i) {
+            metadata.add(new HashMap<>());
+            dimensions.add(new HashMap<>());
+        }
+
+        final int metadataCount = (int) input.readVarLong();
+        for (int i = 0; i < metadataCount; ++i) {
+            final String metadataKey = input.readString();
+            final ByteInput section = input.readSection();
+            if (from < to && (metadataKeys == null || metadataKeys.contains(metadataKey))) {
+                final String[] values = decodeMetadata(section, to);
+                for (int j = from; j < to; ++j) {
+                    if (values[j] != null) {
+                        metadata.get(j - from).put(metadataKey, values[j]);
+                    }
+                }
+            }
+        }
+        final int dimensionsCount = (int) input.readVarLong();
+        for (int i = 0; i < dimensionsCount; ++i) {
+            final String dimensionKey = input.readString();
+            final ByteInput section = input.readSection();
+            if (from < to && (dimensionKeys == null || dimensionKeys.contains(dimensionKey))) {
+                final double[] values = decodeDimension(section, to);
+                for (int j = from; j < to; ++j) {
+                    dimensions.get(j - from).put(dimensionKey, values[j]);
+                }
+            }
+        }
+        final ByteInput payloadsSection = input.readSection();
+        final byte[][] payloads = from < to && includePayloads ? decodePayloads(payloadsSection, to) : null;
+
+        final List<Event> events = new ArrayList<>(to - from);
+        for (int i = from; i < to; ++i) {
+            events.add(new Event(timestamps[i],
+                    metadata.get(i - from),
+                    dimensions.get(i - from),
+                    payloads != null ? payloads[i] : null)
+            );
+        }
+        return events;
+    }
+
+    private static byte[] encodeTimestamps(final List<Event> events) {
+        final ByteOutput output = new ByteOutput();
+        long previous = 0;
+        long previousDelta = 0;
+        for (final Event event : events) {
+            final long delta = event.getTimestampMillis() - previous;
+            output.writeVarLong(zigZag(delta - previousDelta));
+            previous = event.getTimestampMillis();
+            previousDelta = delta;
+        }
+        return output.toByteArray();
+    }
+
+    private static long[] decodeTimestamps(final ByteInput input, final int count) throws IOException {
+        final long[] timestamps = new long[count];
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; ++i) {
+            final long delta = previousDelta + unZigZag(input.readVarLong());
+            timestamps[i] = previous + delta;
+            previous = timestamps[i];
+            previousDelta = delta;
+        }
+        return timestamps;
+    }
+
+    // dictionary of distinct values in order of first appearance, then the index of each value, zero for null
+    private static byte[] encodeMetadata(final List<Event> events, final String metadataKey) {
+        final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        final int[] indexes = new int[events.size()];
+        for (int i = 0; i < events.size(); ++i) {
+            final String value = events.get(i).getMetadata().get(metadataKey);
+            indexes[i] = value == null ? 0 : dictionary.computeIfAbsent(value, ignored -> dictionary.size() + 1);
+        }
+        final ByteOutput output = new ByteOutput();
+        output.writeVarLong(dictionary.size());
+        for (final String value : dictionary.keySet()) {
+            output.writeString(value);
+        }
+        for (final int index : indexes) {
+            output.writeVarLong(index);
+        }
+        return output.toByteArray();
+    }
+
+    private static String[] decodeMetadata(final ByteInput input, final int count) throws IOException {
+        final String[] dictionary = new String[(int) input.readVarLong() + 1];
+        for (int i = 1; i < dictionary.length; ++i) {
+            dictionary[i] = input.readString();
+        }
+        final String[] values = new String[count];
+        for (int i = 0; i < count; ++i) {
+            values[i] = dictionary[(int) input.readVarLong()];
+        }
+        return values;
+    }
+
+    // a zero bit for a value equal to the previous one; otherwise the meaningful bits of the xor with the previous
+    // value, reusing the previous leading and trailing zero counts if they fit
+    private static byte[] encodeDimension(final List<Event> events, final String dimensionKey) {
+        final BitOutput output = new BitOutput();
+        long previous = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (final Event event : events) {
+            final Double value = event.getDimensions().get(dimensionKey);
+            final long bits = Double.doubleToRawLongBits(value != null ? value : 0.0);
+            final long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                output.writeBit(0);
+                continue;
+            }
+            output.writeBit(1);
+            final int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            final int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                output.writeBit(0);
+                output.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                final int meaningful = 64 - leading - trailing;
+                output.writeBit(1);
+                output.writeBits(leading, 5);
+                output.writeBits(meaningful - 1, 6);
+                output.writeBits(xor >>> trailing, meaningful);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static double[] decodeDimension(final ByteInput input, final int count) throws IOException {
+        final BitInput bits = new BitInput(input);
+        final double[] values = new double[count];
+        long previous = 0;
+        int previousLeading = 0;
+        int previousTrailing = 0;
+        for (int i = 0; i < count; ++i) {
+            if (bits.readBit() == 1) {
+                final long xor;
+                if (bits.readBit() == 0) {
+                    xor = bits.readBits(64 - previousLeading - previousTrailing) << previousTrailing;
+                } else {
+                    final int leading = (int) bits.readBits(5);
+                    final int meaningful = (int) bits.readBits(6) + 1;
+                    final int trailing = 64 - leading - meaningful;
+                    xor = bits.readBits(meaningful) << trailing;
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+                previous ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    // length of each payload plus one, zero for null, then all payloads, deflated together
+    private static byte[] encodePayloads(final List<Event> events) {
+        final ByteOutput raw = new ByteOutput();
+        for (final Event event : events) {
+            raw.writeVarLong(event.getPayload() != null ? event.getPayload().length + 1 : 0);
+        }
+        for (final Event event : events) {
+            if (event.getPayload() != null) {
+                raw.write(event.getPayload(), 0, event.getPayload().length);
+            }
+        }
+        final byte[] bytes = raw.toByteArray();
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            final ByteOutput output = new ByteOutput();
+            output.writeVarLong(bytes.length);
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[][] decodePayloads(final ByteInput input, final int count) throws IOException {
+        final byte[] bytes = new byte[(int) input.readVarLong()];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input.data, input.position, input.limit - input.position);
+            int inflated = 0;
+            while (inflated < bytes.length) {
+                final int read = inflater.inflate(bytes, inflated, bytes.length - inflated);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("truncated payloads in columnar segment");
+                }
+                inflated += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        final ByteInput raw = new ByteInput(bytes, 0, bytes.length);
+        final byte[][] payloads = new byte[count][];
+        for (int i = 0; i < count; ++i) {
+            final int length = (int) raw.readVarLong();
+            payloads[i] = length > 0 ? new byte[length - 1] : null;
+        }
+        for (final byte[] payload : payloads) {
+            if (payload != null) {
+                raw.read(payload);
+            }
+        }
+        return payloads;
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static class ByteOutput extends ByteArrayOutputStream {
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeString(final String value) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        private void writeSection(final byte[] section) {
+            writeVarLong(section.length);
+            write(section, 0, section.length);
+        }
+    }
+
+    private static class ByteInput {
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        private ByteInput(final byte[] data, final int offset, final int limit) {
+            this.data = data;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        private int read() throws IOException {
+            if (this.position >= this.limit) {
+                throw new IOException("truncated columnar segment");
+            }
+            return this.data[this.position++] & 0xFF;
+        }
+
+        private void read(final byte[] bytes) throws IOException {
+            if (this.limit - this.position < bytes.length) {
+                throw new IOException("truncated columnar segment");
+            }
+            System.arraycopy(this.data, this.position, bytes, 0, bytes.length);
+            this.position += bytes.length;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("malformed varint in columnar segment");
+        }
+
+        private String readString() throws IOException {
+            final byte[] bytes = new byte[(int) readVarLong()];
+            read(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // returns the next section and moves past it
+        private ByteInput readSection() throws IOException {
+            final int length = (int) readVarLong();
+            if (this.limit - this.position < length) {
+                throw new IOException("truncated columnar segment");
+            }
+            final ByteInput section = new ByteInput(this.data, this.position, this.position + length);
+            this.position += length;
+            return section;
+        }
+    }
+
+    private static class BitOutput {
+        private final ByteOutput output = new ByteOutput();
+        private int current;
+        private int bitsInCurrent;
+
+        private void writeBit(final int bit) {
+            this.current = (this.current << 1) | bit;
+            if (++this.bitsInCurrent == 8) {
+                this.output.write(this.current);
+                this.current = 0;
+                this.bitsInCurrent = 0;
+            }
+        }
+
+        // writes the given number of low bits of the value, most significant first
+        private void writeBits(final long value, final int bits) {
+            for (int i = bits - 1; i >= 0; --i) {
+                writeBit((int) ((value >>> i) & 1));
+            }
+        }
+
+        private byte[] toByteArray() {
+            if (this.bitsInCurrent > 0) {
+                this.output.write(this.current << (8 - this.bitsInCurrent));
+                this.current = 0;
+                this.bitsInCurrent = 0;
+            }
+            return this.output.toByteArray();
+        }
+    }
+
+    private static class BitInput {
+        private final ByteInput input;
+        private int current;
+        private int bitsInCurrent;
+
+        private BitInput(final ByteInput input) {
+            this.input = input;
+        }
+
+        private int readBit() throws IOException {
+            if (this.bitsInCurrent == 0) {
+                this.current = this.input.read();
+                this.bitsInCurrent = 8;
+            }
+            return (this.current >>> --this.bitsInCurrent) & 1;
+        }
+
+        private long readBits(final int bits) throws IOException {
+            long value = 0;
+            for (int i = 0; i < bits; ++i) {
+                value = (value << 1) | readBit();
+            }
+            return value;
+        }
+    }
+}
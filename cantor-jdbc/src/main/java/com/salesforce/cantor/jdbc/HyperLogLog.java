@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Mergeable distinct count sketch. Small sets are counted exactly by keeping the hashes of the values; past a few
+ * hundred values the hashes are folded into HyperLogLog registers, with a standard error of about 1.6%, so memory
+ * stays bounded at 4KB per sketch however many values are added.
+ */
+class HyperLogLog {
+    private static final int precision = 12;
+    private static final int registersCount = 1 << precision;
+    private static final int maxExactHashes = 512;
+
+    // hashes of the values while the set is small, null once folded into registers
+    private Set<Long> hashes = new HashSet<>();
+    private byte[] registers;
+
+    void add(final double value) {
+        // -0.0 and 0.0 are the same value
+        addHash(hash(Double.doubleToLongBits(value == 0.0 ? 0.0 : value)));
+    }
+
+    void merge(final HyperLogLog other) {
+        if (other.hashes != null) {
+            for (final long hash : other.hashes) {
+                addHash(hash);
+            }
+            return;
+        }
+        if (this.registers == null) {
+            toRegisters();
+        }
+        for (int i = 0; i < registersCount; ++i) {
+            this.registers[i] = (byte) Math.max(this.registers[i], other.registers[i]);
+        }
+    }
+
+    long getEstimate() {
+        if (this.hashes != null) {
+            return this.hashes.size();
+        }
+        double sum = 0.0;
+        int zeros = 0;
+        for (final byte register : this.registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                ++zeros;
+            }
+        }
+        final double alpha = 0.7213 / (1 + 1.079 / registersCount);
+        final double estimate = alpha * registersCount * registersCount / sum;
+        // linear counting is more accurate for small cardinalities
+        if (estimate <= 2.5 * registersCount && zeros > 0) {
+            return Math.round(registersCount * Math.log((double) registersCount / zeros));
+        }
+        return Math.round(estimate);
+    }
+
+    private void addHash(final long hash) {
+        if (this.hashes != null) {
+            this.hashes.add(hash);
+            if (this.hashes.size() > maxExactHashes) {
+                toRegisters();
+            }
+            return;
+        }
+        final int index = (int) (hash >>> (64 - precision));
+        // position of the first set bit in the rest of the hash; the sentinel bit bounds it
+        final byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (rank > this.registers[index]) {
+            this.registers[index] = rank;
+        }
+    }
+
+    private void toRegisters() {
+        final Set<Long> exactHashes = this.hashes;
+        this.hashes = null;
+        this.registers = new byte[registersCount];
+        for (final long hash : exactHashes) {
+            addHash(hash);
+        }
+    }
+
+    // murmur3 64 bit finalizer, spreads the bits of doubles close to each other
+    private static long hash(final long bits) {
+        long hash = bits;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3f94fac6e53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
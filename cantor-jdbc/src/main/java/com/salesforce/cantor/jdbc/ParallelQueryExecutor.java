@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.salesforce.cantor.common.CommonPreconditions.checkArgument;
+
+/**
+ * Executor used to fan out queries, e.g., one per chunk table, and wait for all of them to finish.
+ * <p>
+ * A single instance is meant to be shared by all callers on the same data source: the number of queries running at
+ * the same time is limited across all calls, so fan-outs cannot exhaust the connection pool. Each call has a deadline;
+ * if one of the queries fails or the deadline passes, all outstanding queries of that call are cancelled.
+ */
+public class ParallelQueryExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelQueryExecutor.class);
+    private static final Map<DataSource, ParallelQueryExecutor> defaultExecutors = new WeakHashMap<>();
+    private static final ThreadLocal<Query> currentQuery = new ThreadLocal<>();
+
+    private static final long defaultTimeoutMillis = TimeUnit.MINUTES.toMillis(1);
+    private static final long idleThreadKeepAliveMillis = TimeUnit.MINUTES.toMillis(1);
+
+    private final ExecutorService executorService;
+    private final Semaphore permits;
+    private final int maxConcurrentQueries;
+    private final long timeoutMillis;
+
+    /**
+     * Create an executor with its own thread pool, running at most the given number of queries at the same time;
+     * idle threads of the pool exit after a minute, so the executor does not need to be shutdown when dropped.
+     *
+     * @param maxConcurrentQueries maximum number of queries running at the same time, across all calls
+     * @param timeoutMillis maximum time in milli-seconds to wait for all queries of a call
+     */
+    public ParallelQueryExecutor(final int maxConcurrentQueries, final long timeoutMillis) {
+        this(newThreadPool(maxConcurrentQueries), maxConcurrentQueries, timeoutMillis);
+    }
+
+    /**
+     * Create an executor on top of the given executor service, running at most the given number of queries at the
+     * same time.
+     *
+     * @param executorService executor service to run queries on
+     * @param maxConcurrentQueries maximum number of queries running at the same time, across all calls
+     * @param timeoutMillis maximum time in milli-seconds to wait for all queries of a call
+     */
+    public ParallelQueryExecutor(final ExecutorService executorService,
+                                 final int maxConcurrentQueries,
+                                 final long timeoutMillis) {
+        checkArgument(executorService != null, "null executor service");
+        checkArgument(maxConcurrentQueries > 0, "max concurrent queries must be positive");
+        checkArgument(timeoutMillis > 0, "timeout must be positive");
+        this.executorService = executorService;
+        this.permits = new Semaphore(maxConcurrentQueries, true);
+        this.maxConcurrentQueries = maxConcurrentQueries;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Get the executor shared by all callers on the given data source. For a hikari data source, at most half of
+     * the connections in the pool are used by parallel queries, leaving the rest for writes.
+     *
+     * @param dataSource the data source queries are executed against
+     * @return the shared executor for the data source
+     */
+    public static synchronized ParallelQueryExecutor getDefault(final DataSource dataSource) {
+        return defaultExecutors.computeIfAbsent(dataSource, ignored -> {
+            final int maxConcurrentQueries = dataSource instanceof HikariDataSource
+                    ? Math.max(1, ((HikariDataSource) dataSource).getMaximumPoolSize() / 2)
+                    : 10;
+            logger.info("creating parallel query executor with {} max concurrent queries", maxConcurrentQueries);
+            return new ParallelQueryExecutor(maxConcurrentQueries, defaultTimeoutMillis);
+        });
+    }
+
+    /**
+     * Execute all callables in parallel and return their results in the same order.
+     *
+     * @param callables the queries to execute
+     * @param <R> type of results
+     * @return list of results, one per callable
+     * @throws IOException if any of the callables fails, or not all finish before the deadline
+     */
+    public <R> List<R> invokeAll(final List<? extends Callable<R>> callables) throws IOException {
+        if (callables.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+        final List<Query> queries = new ArrayList<>(callables.size());
+        final ExecutorCompletionService<R> completionService = new ExecutorCompletionService<>(this.executorService);
+        final Map<Future<R>, Integer> futureToIndex = new HashMap<>();
+        try {
+            for (final Callable<R> callable : callables) {
+                final Query query = new Query(deadlineNanos);
+                queries.add(query);
+                futureToIndex.put(completionService.submit(() -> query.call(callable)), futureToIndex.size());
+            }
+            final List<R> results = new ArrayList<>(Collections.nCopies(callables.size(), null));
+            for (int completed = 0; completed < callables.size(); ++completed) {
+                final Future<R> future = completionService.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new IOException("parallel queries did not finish in " + this.timeoutMillis + "ms");
+                }
+                // fails fast on the first query that fails
+                results.set(futureToIndex.get(future), future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted waiting for parallel queries", e);
+        } catch (RejectedExecutionException e) {
+            throw new IOException("failed to submit parallel queries", e);
+        } finally {
+            // cancel anything still running or waiting; no-op for queries already completed
+            for (final Query query : queries) {
+                query.cancel();
+            }
+            for (final Future<R> future : futureToIndex.keySet()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Take permits for queries running on the caller's thread instead of the executor, e.g., cursors kept open while
+     * results are streamed, so they count against the same limit; all permits are taken at once, waiting at most the
+     * timeout of the executor. Permits must be given back with {@link #release(int)}.
+     *
+     * @param count number of permits to take, at most the max concurrent queries of the executor
+     * @throws IOException if the permits are not available before the timeout
+     */
+    void acquire(final int count) throws IOException {
+        checkArgument(count > 0 && count <= this.maxConcurrentQueries, "invalid number of permits");
+        try {
+            if (!this.permits.tryAcquire(count, this.timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("timed out waiting to execute " + count + " queries");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted waiting to execute queries", e);
+        }
+    }
+
+    /**
+     * Give back permits taken with {@link #acquire(int)}.
+     *
+     * @param count number of permits to give back
+     */
+    void release(final int count) {
+        this.permits.release(count);
+    }
+
+    /**
+     * Get the maximum number of queries running at the same time, across all calls.
+     *
+     * @return the max concurrent queries
+     */
+    int getMaxConcurrentQueries() {
+        return this.maxConcurrentQueries;
+    }
+
+    /**
+     * Register a statement about to be executed by the current query, so it can be cancelled if the call fails or
+     * times out; also limits the statement timeout to the time left before the call's deadline. No-op if the current
+     * thread is not running a query for this executor.
+     *
+     * @param statement the statement about to be executed
+     * @throws SQLException if the call is already cancelled, or the statement cannot be configured
+     */
+    static void register(final Statement statement) throws SQLException {
+        final Query query = currentQuery.get();
+        if (query != null) {
+            query.setStatement(statement);
+        }
+    }
+
+    /**
+     * Shutdown the underlying executor service.
+     */
+    public void shutdown() {
+        this.executorService.shutdownNow();
+    }
+
+    private static ExecutorService newThreadPool(final int threads) {
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+                threads, threads,
+                idleThreadKeepAliveMillis, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "cantor-parallel-query-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // no thread is kept around once idle, so shared executors of data sources no longer in use do not leak threads
+        threadPool.allowCoreThreadTimeOut(true);
+        return threadPool;
+    }
+
+    private class Query {
+        private final long deadlineNanos;
+        private volatile Statement statement;
+        private volatile boolean cancelled;
+
+        private Query(final long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        private <R> R call(final Callable<R> callable) throws Exception {
+            if (!permits.tryAcquire(this.deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("timed out waiting to execute query");
+            }
+            final String threadName = Thread.currentThread().getName();
+            currentQuery.set(this);
+            try {
+                if (this.cancelled) {
+                    throw new CancellationException();
+                }
+                return callable.call();
+            } finally {
+                currentQuery.remove();
+                Thread.currentThread().setName(threadName);
+                permits.release();
+            }
+        }
+
+        private void setStatement(final Statement statement) throws SQLException {
+            if (this.cancelled) {
+                throw new SQLException("query cancelled");
+            }
+            final long secondsLeft = TimeUnit.NANOSECONDS.toSeconds(this.deadlineNanos - System.nanoTime());
+            statement.setQueryTimeout((int) Math.max(1, Math.min(Integer.MAX_VALUE, secondsLeft + 1)));
+            this.statement = statement;
+            // cancelled while registering
+            if (this.cancelled) {
+                cancel();
+            }
+        }
+
+        private void cancel() {
+            this.cancelled = true;
+            final Statement statement = this.statement;
+            if (statement == null) {
+                return;
+            }
+            try {
+                if (!statement.isClosed()) {
+                    statement.cancel();
+                }
+            } catch (SQLException e) {
+                logger.debug("failed to cancel statement", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Mergeable quantile sketch with relative accuracy, after DDSketch: values are counted in buckets with exponentially
+ * growing bounds, bucket i holding values in (gamma^(i-1), gamma^i], so any quantile is estimated within 1% of the
+ * true value. Sketches are merged by adding bucket counts, and the bucket index of a value is simple enough to be
+ * computed in sql, next to the values.
+ */
+class QuantileSketch {
+    static final double relativeAccuracy = 0.01;
+    static final double gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    static final double logGamma = Math.log(gamma);
+
+    // bucket index to count, for positive values and for the absolute of negative values
+    private final NavigableMap<Integer, Long> positives = new TreeMap<>();
+    private final NavigableMap<Integer, Long> negatives = new TreeMap<>();
+    private long zeros;
+    private long count;
+
+    static int getIndex(final double absoluteValue) {
+        return (int) Math.ceil(Math.log(absoluteValue) / logGamma);
+    }
+
+    void add(final double value) {
+        if (value == 0.0) {
+            add(0, 0, 1);
+        } else {
+            add(value > 0 ? 1 : -1, getIndex(Math.abs(value)), 1);
+        }
+    }
+
+    void add(final int sign, final int index, final long count) {
+        if (sign > 0) {
+            this.positives.merge(index, count, Long::sum);
+        } else if (sign < 0) {
+            this.negatives.merge(index, count, Long::sum);
+        } else {
+            this.zeros += count;
+        }
+        this.count += count;
+    }
+
+    void merge(final QuantileSketch other) {
+        for (final Map.Entry<Integer, Long> entry : other.positives.entrySet()) {
+            this.positives.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        for (final Map.Entry<Integer, Long> entry : other.negatives.entrySet()) {
+            this.negatives.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        this.zeros += other.zeros;
+        this.count += other.count;
+    }
+
+    long getCount() {
+        return this.count;
+    }
+
+    // returns the value at the given rank, 0 for the lowest value and count - 1 for the highest; 0 if empty
+    double getQuantile(final double quantile) {
+        if (this.count == 0) {
+            return 0.0;
+        }
+        final long rank = (long) Math.floor(quantile * (this.count - 1));
+        long seen = 0;
+        // lowest values first: negatives by decreasing magnitude, zeros, then positives by increasing magnitude
+        for (final Map.Entry<Integer, Long> entry : this.negatives.descendingMap().entrySet()) {
+            seen += entry.getValue();
+            if (seen > rank) {
+                return -getValue(entry.getKey());
+            }
+        }
+        seen += this.zeros;
+        if (seen > rank) {
+            return 0.0;
+        }
+        for (final Map.Entry<Integer, Long> entry : this.positives.entrySet()) {
+            seen += entry.getValue();
+            if (seen > rank) {
+                return getValue(entry.getKey());
+            }
+        }
+        return getValue(this.positives.lastKey());
+    }
+
+    // the value with the same relative distance to both bounds of the bucket
+    private static double getValue(final int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import com.salesforce.cantor.Events.AggregationFunction;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class EventsAggregateTest {
+
+    @Test
+    public void testMergedEqualsWhole() {
+        final double[] values = {2, 4, 4, 4, 5, 5, 7, 9};
+        final EventsAggregate whole = new EventsAggregate();
+        final EventsAggregate first = new EventsAggregate();
+        final EventsAggregate second = new EventsAggregate();
+        for (int i = 0; i < values.length; ++i) {
+            whole.add(values[i]);
+            (i < 3 ? first : second).add(values[i]);
+        }
+        final EventsAggregate merged = new EventsAggregate();
+        merged.merge(first);
+        merged.merge(new EventsAggregate());
+        merged.merge(second);
+
+        for (final AggregationFunction function : AggregationFunction.values()) {
+            assertEquals(merged.getValue(function), whole.getValue(function), 1e-9, function.toString());
+        }
+        assertEquals(merged.getValue(AggregationFunction.COUNT), 8.0);
+        assertEquals(merged.getValue(AggregationFunction.SUM), 40.0);
+        assertEquals(merged.getValue(AggregationFunction.AVG), 5.0);
+        assertEquals(merged.getValue(AggregationFunction.MIN), 2.0);
+        assertEquals(merged.getValue(AggregationFunction.MAX), 9.0);
+        assertEquals(merged.getValue(AggregationFunction.VAR_POP), 4.0, 1e-9);
+        assertEquals(merged.getValue(AggregationFunction.STDDEV_POP), 2.0, 1e-9);
+        assertEquals(merged.getValue(AggregationFunction.VAR_SAMP), 32.0 / 7, 1e-9);
+    }
+
+    @Test
+    public void testSketchesMergedEqualsWhole() {
+        final EventsAggregate whole = new EventsAggregate(EventsAggregate.Kind.QUANTILES);
+        final EventsAggregate first = new EventsAggregate(EventsAggregate.Kind.QUANTILES);
+        final EventsAggregate second = new EventsAggregate(EventsAggregate.Kind.QUANTILES);
+        for (int i = 1; i <= 10_000; ++i) {
+            whole.add(i);
+            (i % 3 == 0 ? first : second).add(i);
+        }
+        final EventsAggregate merged = new EventsAggregate();
+        merged.merge(first);
+        merged.merge(second);
+        for (final AggregationFunction function
+                : new AggregationFunction[] {AggregationFunction.P50, AggregationFunction.P95, AggregationFunction.P99}) {
+            assertEquals(merged.getValue(function), whole.getValue(function), function.toString());
+        }
+        assertEquals(merged.getValue(AggregationFunction.P50), 5_000.0, 50.0);
+        assertEquals(merged.getValue(AggregationFunction.P99), 9_900.0, 99.0);
+
+        final EventsAggregate distinct = new EventsAggregate(EventsAggregate.Kind.DISTINCT_VALUES);
+        final EventsAggregate other = new EventsAggregate(EventsAggregate.Kind.DISTINCT_VALUES);
+        for (int i = 0; i < 100_000; ++i) {
+            distinct.add(i % 50_000);
+            other.add(25_000 + i % 50_000);
+        }
+        distinct.merge(other);
+        // standard error of the estimate is about 1.6%
+        assertEquals(distinct.getValue(AggregationFunction.DISTINCT_COUNT), 75_000.0, 75_000 * 0.05);
+    }
+
+    @Test
+    public void testEmpty() {
+        final EventsAggregate empty = new EventsAggregate();
+        for (final AggregationFunction function : AggregationFunction.values()) {
+            assertEquals(empty.getValue(function), 0.0, function.toString());
+        }
+        final EventsAggregate single = new EventsAggregate();
+        single.add(3.0);
+        assertEquals(single.getValue(AggregationFunction.VAR_SAMP), 0.0);
+        assertEquals(single.getValue(AggregationFunction.VAR_POP), 0.0);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import com.salesforce.cantor.jdbc.EventsChunksCache.Chunk;
+import com.zaxxer.hikari.HikariDataSource;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class EventsChunksCacheTest {
+
+    @Test
+    public void testSharedPerDataSourceAndSettings() {
+        final DataSource dataSource = new HikariDataSource();
+        final EventsChunksCache cache = EventsChunksCache.getInstance(dataSource, 10, 60_000);
+        assertSame(EventsChunksCache.getInstance(dataSource, 10, 60_000), cache);
+        assertNotSame(EventsChunksCache.getInstance(new HikariDataSource(), 10, 60_000), cache);
+        assertNotSame(EventsChunksCache.getInstance(dataSource, 20, 60_000), cache);
+        assertNotSame(EventsChunksCache.getInstance(dataSource, 10, 0), cache);
+    }
+
+    @Test
+    public void testLoadOnce() throws Exception {
+        final EventsChunksCache cache = new EventsChunksCache(10, 60_000);
+        final AtomicInteger loads = new AtomicInteger();
+        final EventsChunksCache.Loader loader = namespace -> {
+            loads.incrementAndGet();
+            return chunks("chunk-1");
+        };
+        assertEquals(cache.getChunks("namespace", loader).size(), 1);
+        assertEquals(cache.getChunks("namespace", loader).size(), 1);
+        assertEquals(loads.get(), 1);
+
+        cache.addChunk("namespace", new Chunk("chunk-2", 0, 1, Collections.emptyMap()));
+        assertEquals(cache.getChunks("namespace", loader).size(), 2);
+        cache.removeChunk("namespace", "chunk-1");
+        assertEquals(cache.getChunks("namespace", loader).size(), 1);
+        assertEquals(loads.get(), 1);
+
+        cache.invalidate("namespace");
+        assertEquals(cache.getChunks("namespace", loader).size(), 1);
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testExpiredAndEvicted() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final EventsChunksCache.Loader loader = namespace -> {
+            loads.incrementAndGet();
+            return chunks("chunk");
+        };
+
+        // zero ttl reloads on every call
+        final EventsChunksCache expiring = new EventsChunksCache(10, 0);
+        expiring.getChunks("namespace", loader);
+        expiring.getChunks("namespace", loader);
+        assertEquals(loads.get(), 2);
+
+        // only the most recently used namespace is kept
+        loads.set(0);
+        final EventsChunksCache bounded = new EventsChunksCache(1, 60_000);
+        bounded.getChunks("namespace-1", loader);
+        bounded.getChunks("namespace-2", loader);
+        bounded.getChunks("namespace-2", loader);
+        assertEquals(loads.get(), 2);
+        bounded.getChunks("namespace-1", loader);
+        assertEquals(loads.get(), 3);
+    }
+
+    @Test
+    public void testConcurrentModificationNotCached() throws Exception {
+        final EventsChunksCache cache = new EventsChunksCache(10, 60_000);
+        final AtomicInteger loads = new AtomicInteger();
+        final EventsChunksCache.Loader loader = namespace -> {
+            // a chunk is created while loading; the loaded result may be stale and must not be cached
+            if (loads.incrementAndGet() == 1) {
+                cache.addChunk(namespace, new Chunk("chunk-2", 0, 1, Collections.emptyMap()));
+            }
+            return chunks("chunk-1");
+        };
+        cache.getChunks("namespace", loader);
+        cache.getChunks("namespace", loader);
+        cache.getChunks("namespace", loader);
+        assertEquals(loads.get(), 2);
+    }
+
+    private static Map<String, Chunk> chunks(final String... tableNames) {
+        final Map<String, Chunk> chunks = new HashMap<>();
+        for (final String tableName : tableNames) {
+            chunks.put(tableName, new Chunk(tableName, 0, 1, Collections.emptyMap()));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import com.salesforce.cantor.Events.Event;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class EventsColumnarSegmentTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final List<Event> events = events();
+        final List<Event> decoded = EventsColumnarSegment.decode(EventsColumnarSegment.encode(events),
+                0, Long.MAX_VALUE, null, null, true);
+        assertEquals(decoded.size(), events.size());
+        for (int i = 0; i < events.size(); ++i) {
+            assertEquals(decoded.get(i).getTimestampMillis(), events.get(i).getTimestampMillis());
+            assertEquals(decoded.get(i).getMetadata(), events.get(i).getMetadata());
+            assertEquals(decoded.get(i).getDimensions(), events.get(i).getDimensions());
+            assertEquals(decoded.get(i).getPayload(), events.get(i).getPayload());
+        }
+    }
+
+    @Test
+    public void testProjectionAndTimeRange() throws Exception {
+        final List<Event> decoded = EventsColumnarSegment.decode(EventsColumnarSegment.encode(events()),
+                100, 199, Collections.singleton("host"), Collections.emptySet(), false);
+        assertEquals(decoded.size(), 100);
+        for (final Event event : decoded) {
+            assertTrue(event.getTimestampMillis() >= 100 && event.getTimestampMillis() <= 199);
+            assertEquals(event.getMetadata().keySet(), Collections.singleton("host"));
+            assertTrue(event.getDimensions().isEmpty());
+            assertNull(event.getPayload());
+        }
+    }
+
+    @Test
+    public void testSpecialValues() throws Exception {
+        final double[] values = {0.0, -0.0, Double.NaN, Double.MAX_VALUE, -Double.MIN_VALUE, Double.NEGATIVE_INFINITY};
+        final List<Event> events = new ArrayList<>();
+        for (int i = 0; i < values.length; ++i) {
+            events.add(new Event(i, null, Collections.singletonMap("value", values[i])));
+        }
+        final List<Event> decoded = EventsColumnarSegment.decode(EventsColumnarSegment.encode(events),
+                0, Long.MAX_VALUE, null, null, false);
+        for (int i = 0; i < values.length; ++i) {
+            assertEquals(Double.doubleToRawLongBits(decoded.get(i).getDimensions().get("value")),
+                    Double.doubleToRawLongBits(values[i]));
+        }
+    }
+
+    private static List<Event> events() {
+        final Random random = new Random(42);
+        final List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 1_000; ++i) {
+            final Map<String, String> metadata = new HashMap<>();
+            metadata.put("host", "host-" + (i % 5));
+            // a missing metadata value is kept as missing
+            if (i % 3 == 0) {
+                metadata.put("tag", "tag-" + random.nextInt(1000));
+            }
+            final Map<String, Double> dimensions = new HashMap<>();
+            dimensions.put("value", random.nextDouble() * 100);
+            dimensions.put("count", (double) (i / 10));
+            final byte[] payload = i % 2 == 0 ? ("payload-" + i).getBytes() : null;
+            events.add(new Event(i, metadata, dimensions, payload));
+        }
+        return events;
+    }
+}
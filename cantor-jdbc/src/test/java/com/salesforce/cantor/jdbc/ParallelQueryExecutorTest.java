@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.jdbc;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class ParallelQueryExecutorTest {
+
+    @Test
+    public void testResultsInOrder() throws Exception {
+        final ParallelQueryExecutor executor = new ParallelQueryExecutor(4, 10_000);
+        final List<Callable<Integer>> callables = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            final int value = i;
+            callables.add(() -> {
+                Thread.sleep(100 - value);
+                return value;
+            });
+        }
+        final List<Integer> results = executor.invokeAll(callables);
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(results.get(i).intValue(), i);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testMaxConcurrentQueries() throws Exception {
+        final ParallelQueryExecutor executor = new ParallelQueryExecutor(3, 10_000);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Callable<Void>> callables = new ArrayList<>();
+        for (int i = 0; i < 30; ++i) {
+            callables.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return null;
+            });
+        }
+        executor.invokeAll(callables);
+        assertTrue(maxRunning.get() <= 3);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFailureCancelsOutstanding() throws Exception {
+        final ParallelQueryExecutor executor = new ParallelQueryExecutor(2, 10_000);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Callable<Integer> slow = () -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return 0;
+        };
+        final Callable<Integer> failing = () -> {
+            // fail only once the slow query is running, so it gets interrupted rather than never started
+            started.await();
+            throw new IOException("failed");
+        };
+        final IOException exception = expectThrows(IOException.class, () -> executor.invokeAll(Arrays.asList(slow, failing)));
+        assertEquals(exception.getMessage(), "failed");
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        final ParallelQueryExecutor executor = new ParallelQueryExecutor(2, 100);
+        final Callable<Integer> slow = () -> {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            return 0;
+        };
+        final long startMillis = System.currentTimeMillis();
+        assertThrows(IOException.class, () -> executor.invokeAll(Arrays.asList(slow, slow, slow)));
+        assertTrue(System.currentTimeMillis() - startMillis < TimeUnit.SECONDS.toMillis(5));
+        executor.shutdown();
+    }
+}
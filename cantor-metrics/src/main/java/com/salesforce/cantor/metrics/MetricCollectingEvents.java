@@ -15,8 +15,11 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
+import static com.salesforce.cantor.common.EventsPreconditions.checkStream;
+
 public class MetricCollectingEvents extends BaseMetricCollectingCantor implements Events {
    private final Events delegate;
 
@@ -56,6 +59,93 @@ public class MetricCollectingEvents extends BaseMetricCollectingCantor implement
                 "get", namespace, super::size);
     }
 
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads,
+                           final Set<String> metadataKeys,
+                           final Set<String> dimensionKeys) throws IOException {
+        return metrics(() -> this.delegate
+                .get(namespace,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads,
+                        metadataKeys,
+                        dimensionKeys
+                ),
+                "get", namespace, super::size);
+    }
+
+    @Override
+    public void stream(final String namespace,
+                       final long startTimestampMillis,
+                       final long endTimestampMillis,
+                       final Map<String, String> metadataQuery,
+                       final Map<String, String> dimensionsQuery,
+                       final boolean includePayloads,
+                       final EventHandler handler) throws IOException {
+        checkStream(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, handler);
+        // count events as they pass through, instead of buffering them
+        final AtomicInteger count = new AtomicInteger();
+        metrics(() -> {
+            this.delegate.stream(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, includePayloads,
+                    event -> {
+                        count.incrementAndGet();
+                        return handler.handle(event);
+                    });
+            return count.get();
+        }, "stream", namespace, Function.identity());
+    }
+
+    @Override
+    public Page get(final String namespace,
+                    final long startTimestampMillis,
+                    final long endTimestampMillis,
+                    final Map<String, String> metadataQuery,
+                    final Map<String, String> dimensionsQuery,
+                    final boolean includePayloads,
+                    final Order order,
+                    final int limit,
+                    final String continuationToken) throws IOException {
+        return metrics(() -> this.delegate
+                .get(namespace,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads,
+                        order,
+                        limit,
+                        continuationToken
+                ),
+                "get", namespace, page -> page.getEvents().size());
+    }
+
+    @Override
+    public long count(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        return metrics(() -> this.delegate.count(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery),
+                "count", namespace, count -> (int) Math.min(Integer.MAX_VALUE, count));
+    }
+
+    @Override
+    public boolean exists(final String namespace,
+                          final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery) throws IOException {
+        return metrics(() -> this.delegate.exists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery),
+                "exists", namespace, exists -> exists ? 1 : 0);
+    }
+
     @Override
     public int delete(final String namespace,
                       final long startTimestampMillis,
@@ -87,6 +177,35 @@ public class MetricCollectingEvents extends BaseMetricCollectingCantor implement
                 ), "aggregate", namespace, m -> m != null ? m.size() : 0);
     }
 
+    @Override
+    public List<GroupAggregate> aggregateGroups(final String namespace,
+                                                final String dimension,
+                                                final long startTimestampMillis,
+                                                final long endTimestampMillis,
+                                                final Map<String, String> metadataQuery,
+                                                final Map<String, String> dimensionsQuery,
+                                                final List<String> groupByMetadataKeys,
+                                                final int aggregateIntervalMillis,
+                                                final AggregationFunction aggregationFunction,
+                                                final Order order,
+                                                final int limit) throws IOException {
+        return metrics(() -> this.delegate
+                .aggregateGroups(namespace,
+                        dimension,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        groupByMetadataKeys,
+                        aggregateIntervalMillis,
+                        aggregationFunction,
+                        order,
+                        limit
+                ),
+                "aggregateGroups", namespace, super::size
+        );
+    }
+
     @Override
     public Set<String> metadata(final String namespace,
                                 final String metadataKey,
@@ -104,8 +223,39 @@ public class MetricCollectingEvents extends BaseMetricCollectingCantor implement
                 ), "metadata", namespace, super::size);
     }
 
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final String prefix,
+                                final int limit) throws IOException {
+        return metrics(() -> this.delegate
+                .metadata(namespace,
+                        metadataKey,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        prefix,
+                        limit
+                ), "metadata", namespace, super::size);
+    }
+
     @Override
     public void expire(final String namespace, final long endTimestampMillis) throws IOException {
         metrics(() -> this.delegate.expire(namespace, endTimestampMillis), "expire", namespace);
     }
+
+    @Override
+    public void setRetention(final String namespace, final long retentionMillis) throws IOException {
+        metrics(() -> this.delegate.setRetention(namespace, retentionMillis), "setRetention", namespace);
+    }
+
+    @Override
+    public long getRetention(final String namespace) throws IOException {
+        return metrics(() -> this.delegate.getRetention(namespace), "getRetention", namespace);
+    }
 }
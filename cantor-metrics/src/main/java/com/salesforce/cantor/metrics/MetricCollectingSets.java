@@ -88,17 +88,70 @@ public class MetricCollectingSets extends BaseMetricCollectingCantor implements
     }
 
     @Override
-    public Map<String, Long> intersect(final String namespace, final Collection<String> sets, final long min, final long max, final int start, final int count, final boolean ascending) throws IOException {
-        return metrics(() -> this.delegate.intersect(namespace, sets, min, max, start, count, ascending),
+    public Map<String, Long> union(final String namespace, final Collection<String> sets, final long min, final long max, final int start, final int count, final boolean ascending, final Aggregate aggregate) throws IOException {
+        return metrics(() -> this.delegate.union(namespace, sets, min, max, start, count, ascending, aggregate),
+                "union", "cantor", m -> m != null ? m.size() : 0);
+    }
+
+    @Override
+    public int unionStore(final String namespace, final String destination, final Collection<String> sets, final Aggregate aggregate) throws IOException {
+        return metrics(() -> this.delegate.unionStore(namespace, destination, sets, aggregate), "unionStore", namespace, Function.identity());
+    }
+
+    @Override
+    public Map<String, Long> intersect(final String namespace, final Collection<String> sets, final long min, final long max, final int start, final int count, final boolean ascending, final Aggregate aggregate) throws IOException {
+        return metrics(() -> this.delegate.intersect(namespace, sets, min, max, start, count, ascending, aggregate),
                 "intersect", "cantor", m -> m != null ? m.size() : 0);
     }
 
+    @Override
+    public int interStore(final String namespace, final String destination, final Collection<String> sets, final Aggregate aggregate) throws IOException {
+        return metrics(() -> this.delegate.interStore(namespace, destination, sets, aggregate), "interStore", namespace, Function.identity());
+    }
+
+    @Override
+    public Map<String, Long> diff(final String namespace, final String set, final Collection<String> sets, final long min, final long max, final int start, final int count, final boolean ascending) throws IOException {
+        return metrics(() -> this.delegate.diff(namespace, set, sets, min, max, start, count, ascending),
+                "diff", namespace, m -> m != null ? m.size() : 0);
+    }
+
+    @Override
+    public int diffStore(final String namespace, final String destination, final String set, final Collection<String> sets) throws IOException {
+        return metrics(() -> this.delegate.diffStore(namespace, destination, set, sets), "diffStore", namespace, Function.identity());
+    }
+
+    @Override
+    public boolean move(final String namespace, final String source, final String destination, final String entry) throws IOException {
+        return metrics(() -> this.delegate.move(namespace, source, destination, entry), "move", namespace, bool -> bool ? 1 : 0);
+    }
+
+    @Override
+    public int copy(final String namespace, final String source, final String destination) throws IOException {
+        return metrics(() -> this.delegate.copy(namespace, source, destination), "copy", namespace, Function.identity());
+    }
+
     @Override
     public Map<String, Long> pop(final String namespace, final String set, final long min, final long max, final int start, final int count, final boolean ascending) throws IOException {
         return metrics(() -> this.delegate.pop(namespace, set, min, max, start, count, ascending),
                 "pop", "cantor", m -> m != null ? m.size() : 0);
     }
 
+    @Override
+    public Claim claim(final String namespace, final String set, final long min, final long max, final int count, final boolean ascending, final long leaseMillis) throws IOException {
+        return metrics(() -> this.delegate.claim(namespace, set, min, max, count, ascending, leaseMillis),
+                "claim", namespace, c -> c != null ? c.getEntries().size() : 0);
+    }
+
+    @Override
+    public void ack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        metrics(() -> this.delegate.ack(namespace, set, leaseId, entries), "ack", namespace);
+    }
+
+    @Override
+    public void nack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        metrics(() -> this.delegate.nack(namespace, set, leaseId, entries), "nack", namespace);
+    }
+
     @Override
     public Collection<String> sets(final String namespace) throws IOException {
         return metrics(() -> this.delegate.sets(namespace), "sets", namespace, super::size);
@@ -119,4 +172,14 @@ public class MetricCollectingSets extends BaseMetricCollectingCantor implements
     public void inc(final String namespace, final String set, final String entry, final long count) throws IOException {
         metrics(() -> this.delegate.inc(namespace, set, entry, count), "inc", namespace);
     }
+
+    @Override
+    public void inc(final String namespace, final String set, final Map<String, Long> entries, final boolean updateOnly) throws IOException {
+        metrics(() -> this.delegate.inc(namespace, set, entries, updateOnly), "inc", namespace);
+    }
+
+    @Override
+    public boolean compareAndSet(final String namespace, final String set, final String entry, final Long expected, final long weight) throws IOException {
+        return metrics(() -> this.delegate.compareAndSet(namespace, set, entry, expected, weight), "compareAndSet", namespace, bool -> bool ? 1 : 0);
+    }
 }
@@ -70,6 +70,115 @@ public class AsyncEvents extends AbstractBaseAsyncCantor implements Events {
         );
     }
 
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads,
+                           final Set<String> metadataKeys,
+                           final Set<String> dimensionKeys) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                metadataKeys,
+                dimensionKeys
+        );
+        return submitCall(() -> this.delegate
+                .get(namespace,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads,
+                        metadataKeys,
+                        dimensionKeys
+                )
+        );
+    }
+
+    @Override
+    public void stream(final String namespace,
+                       final long startTimestampMillis,
+                       final long endTimestampMillis,
+                       final Map<String, String> metadataQuery,
+                       final Map<String, String> dimensionsQuery,
+                       final boolean includePayloads,
+                       final EventHandler handler) throws IOException {
+        checkStream(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, handler);
+        submitCall(() -> {
+            this.delegate.stream(namespace,
+                    startTimestampMillis,
+                    endTimestampMillis,
+                    metadataQuery,
+                    dimensionsQuery,
+                    includePayloads,
+                    handler
+            );
+            return null;
+        });
+    }
+
+    @Override
+    public Page get(final String namespace,
+                    final long startTimestampMillis,
+                    final long endTimestampMillis,
+                    final Map<String, String> metadataQuery,
+                    final Map<String, String> dimensionsQuery,
+                    final boolean includePayloads,
+                    final Order order,
+                    final int limit,
+                    final String continuationToken) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                order,
+                limit,
+                continuationToken
+        );
+        return submitCall(() -> this.delegate
+                .get(namespace,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads,
+                        order,
+                        limit,
+                        continuationToken
+                )
+        );
+    }
+
+    @Override
+    public long count(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        checkCount(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return submitCall(() -> this.delegate
+                .count(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery)
+        );
+    }
+
+    @Override
+    public boolean exists(final String namespace,
+                          final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery) throws IOException {
+        checkExists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return submitCall(() -> this.delegate
+                .exists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery)
+        );
+    }
+
     @Override
     public int delete(final String namespace,
                       final long startTimestampMillis,
@@ -118,6 +227,46 @@ public class AsyncEvents extends AbstractBaseAsyncCantor implements Events {
         );
     }
 
+    @Override
+    public List<GroupAggregate> aggregateGroups(final String namespace,
+                                                final String dimension,
+                                                final long startTimestampMillis,
+                                                final long endTimestampMillis,
+                                                final Map<String, String> metadataQuery,
+                                                final Map<String, String> dimensionsQuery,
+                                                final List<String> groupByMetadataKeys,
+                                                final int aggregateIntervalMillis,
+                                                final AggregationFunction aggregationFunction,
+                                                final Order order,
+                                                final int limit) throws IOException {
+        checkAggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+        return submitCall(() -> this.delegate
+                .aggregateGroups(namespace,
+                        dimension,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        groupByMetadataKeys,
+                        aggregateIntervalMillis,
+                        aggregationFunction,
+                        order,
+                        limit
+                )
+        );
+    }
+
     @Override
     public Set<String> metadata(final String namespace,
                                 final String metadataKey,
@@ -137,10 +286,53 @@ public class AsyncEvents extends AbstractBaseAsyncCantor implements Events {
         );
     }
 
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final String prefix,
+                                final int limit) throws IOException {
+        checkMetadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                prefix,
+                limit
+        );
+        return submitCall(() -> this.delegate
+                .metadata(namespace,
+                        metadataKey,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        prefix,
+                        limit
+                )
+        );
+    }
+
     @Override
     public void expire(final String namespace, final long endTimestampMillis) throws IOException {
         checkExpire(namespace, endTimestampMillis);
         submitCall(() -> { this.delegate.expire(namespace, endTimestampMillis); return null; });
     }
+
+    @Override
+    public void setRetention(final String namespace, final long retentionMillis) throws IOException {
+        checkSetRetention(namespace, retentionMillis);
+        submitCall(() -> { this.delegate.setRetention(namespace, retentionMillis); return null; });
+    }
+
+    @Override
+    public long getRetention(final String namespace) throws IOException {
+        checkGetRetention(namespace);
+        return submitCall(() -> this.delegate.getRetention(namespace));
+    }
 }
 
@@ -109,6 +109,28 @@ public class AsyncSets extends AbstractBaseAsyncCantor implements Sets {
         return submitCall(() -> this.delegate.union(namespace, sets, min, max, start, count, ascending));
     }
 
+    @Override
+    public Map<String, Long> union(final String namespace,
+                                   final Collection<String> sets,
+                                   final long min,
+                                   final long max,
+                                   final int start,
+                                   final int count,
+                                   final boolean ascending,
+                                   final Aggregate aggregate) throws IOException {
+        checkUnion(namespace, sets, min, max, start, count, ascending, aggregate);
+        return submitCall(() -> this.delegate.union(namespace, sets, min, max, start, count, ascending, aggregate));
+    }
+
+    @Override
+    public int unionStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkUnionStore(namespace, destination, sets, aggregate);
+        return submitCall(() -> this.delegate.unionStore(namespace, destination, sets, aggregate));
+    }
+
     @Override
     public Map<String, Long> intersect(final String namespace,
                                        final Collection<String> sets,
@@ -116,9 +138,56 @@ public class AsyncSets extends AbstractBaseAsyncCantor implements Sets {
                                        final long max,
                                        final int start,
                                        final int count,
-                                       final boolean ascending) throws IOException {
-        checkIntersect(namespace, sets, min, max, start, count, ascending);
-        return submitCall(() -> this.delegate.intersect(namespace, sets, min, max, start, count, ascending));
+                                       final boolean ascending,
+                                       final Aggregate aggregate) throws IOException {
+        checkIntersect(namespace, sets, min, max, start, count, ascending, aggregate);
+        return submitCall(() -> this.delegate.intersect(namespace, sets, min, max, start, count, ascending, aggregate));
+    }
+
+    @Override
+    public int interStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkInterStore(namespace, destination, sets, aggregate);
+        return submitCall(() -> this.delegate.interStore(namespace, destination, sets, aggregate));
+    }
+
+    @Override
+    public Map<String, Long> diff(final String namespace,
+                                  final String set,
+                                  final Collection<String> sets,
+                                  final long min,
+                                  final long max,
+                                  final int start,
+                                  final int count,
+                                  final boolean ascending) throws IOException {
+        checkDiff(namespace, set, sets, min, max, start, count, ascending);
+        return submitCall(() -> this.delegate.diff(namespace, set, sets, min, max, start, count, ascending));
+    }
+
+    @Override
+    public int diffStore(final String namespace,
+                         final String destination,
+                         final String set,
+                         final Collection<String> sets) throws IOException {
+        checkDiffStore(namespace, destination, set, sets);
+        return submitCall(() -> this.delegate.diffStore(namespace, destination, set, sets));
+    }
+
+    @Override
+    public boolean move(final String namespace,
+                        final String source,
+                        final String destination,
+                        final String entry) throws IOException {
+        checkMove(namespace, source, destination, entry);
+        return submitCall(() -> this.delegate.move(namespace, source, destination, entry));
+    }
+
+    @Override
+    public int copy(final String namespace, final String source, final String destination) throws IOException {
+        checkCopy(namespace, source, destination);
+        return submitCall(() -> this.delegate.copy(namespace, source, destination));
     }
 
     @Override
@@ -133,6 +202,30 @@ public class AsyncSets extends AbstractBaseAsyncCantor implements Sets {
         return submitCall(() -> this.delegate.pop(namespace, set, min, max, start, count, ascending));
     }
 
+    @Override
+    public Claim claim(final String namespace,
+                       final String set,
+                       final long min,
+                       final long max,
+                       final int count,
+                       final boolean ascending,
+                       final long leaseMillis) throws IOException {
+        checkClaim(namespace, set, min, max, count, ascending, leaseMillis);
+        return submitCall(() -> this.delegate.claim(namespace, set, min, max, count, ascending, leaseMillis));
+    }
+
+    @Override
+    public void ack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkAck(namespace, set, leaseId, entries);
+        submitCall(() -> { this.delegate.ack(namespace, set, leaseId, entries); return null; });
+    }
+
+    @Override
+    public void nack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkNack(namespace, set, leaseId, entries);
+        submitCall(() -> { this.delegate.nack(namespace, set, leaseId, entries); return null; });
+    }
+
     @Override
     public Collection<String> sets(final String namespace) throws IOException {
         checkSets(namespace);
@@ -156,4 +249,23 @@ public class AsyncSets extends AbstractBaseAsyncCantor implements Sets {
         checkInc(namespace, set, entry, count);
         submitCall(() -> { this.delegate.inc(namespace, set, entry, count); return null; });
     }
+
+    @Override
+    public void inc(final String namespace,
+                    final String set,
+                    final Map<String, Long> entries,
+                    final boolean updateOnly) throws IOException {
+        checkInc(namespace, set, entries);
+        submitCall(() -> { this.delegate.inc(namespace, set, entries, updateOnly); return null; });
+    }
+
+    @Override
+    public boolean compareAndSet(final String namespace,
+                                 final String set,
+                                 final String entry,
+                                 final Long expected,
+                                 final long weight) throws IOException {
+        checkCompareAndSet(namespace, set, entry, expected, weight);
+        return submitCall(() -> this.delegate.compareAndSet(namespace, set, entry, expected, weight));
+    }
 }
@@ -0,0 +1,637 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.misc.buffered;
+
+import com.salesforce.cantor.Events;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.salesforce.cantor.common.CommonPreconditions.*;
+import static com.salesforce.cantor.common.EventsPreconditions.*;
+
+/**
+ * Wrapper class around a delegate Events instance, buffering small store calls per namespace and writing them to
+ * the delegate as a single grouped store, once enough events or bytes are pending or the flush interval passes.
+ * <p>
+ * With {@link Durability#ACK_ON_FLUSH} a store call returns once its events are stored by the delegate; concurrent
+ * callers are grouped in the same flush. With {@link Durability#ACK_ON_ENQUEUE} a store call returns as soon as its
+ * events are buffered; failed flushes are logged and their events are lost. Reads and deletes flush the pending
+ * events of the namespace first, so callers always see their own writes. Store calls block while the buffer is
+ * full; call {@link #shutdown()} to flush pending events before exiting.
+ */
+public class BufferedEvents implements Events {
+    private static final Logger logger = LoggerFactory.getLogger(BufferedEvents.class);
+
+    private static final int defaultMaxBufferedEvents = 100_000;
+    private static final int defaultMaxBatchEvents = 10_000;
+    private static final long defaultMaxBatchBytes = 8 * 1024 * 1024;
+    private static final long defaultFlushIntervalMillis = TimeUnit.SECONDS.toMillis(1);
+    private static final long maxBlockMillis = TimeUnit.SECONDS.toMillis(30);
+
+    public enum Durability {
+        ACK_ON_ENQUEUE,
+        ACK_ON_FLUSH,
+    }
+
+    private final Events delegate;
+    private final Durability durability;
+    private final int maxBatchEvents;
+    private final long maxBatchBytes;
+    private final Semaphore permits;
+    private final Map<String, NamespaceBuffer> buffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private volatile boolean isShutdown = false;
+
+    public BufferedEvents(final Events delegate, final Durability durability) {
+        this(delegate,
+                durability,
+                defaultMaxBufferedEvents,
+                defaultMaxBatchEvents,
+                defaultMaxBatchBytes,
+                defaultFlushIntervalMillis
+        );
+    }
+
+    /**
+     * Create a buffered events instance on top of the given delegate.
+     *
+     * @param delegate the events instance to store grouped batches to
+     * @param durability when store calls return, once events are buffered or once they are stored by the delegate
+     * @param maxBufferedEvents maximum number of events buffered across all namespaces; store calls block beyond this
+     * @param maxBatchEvents maximum number of events in a grouped store; larger store calls go to the delegate as is
+     * @param maxBatchBytes approximate maximum size of the events in a grouped store
+     * @param flushIntervalMillis maximum time in milli-seconds events are kept in the buffer
+     */
+    public BufferedEvents(final Events delegate,
+                          final Durability durability,
+                          final int maxBufferedEvents,
+                          final int maxBatchEvents,
+                          final long maxBatchBytes,
+                          final long flushIntervalMillis) {
+        checkArgument(delegate != null, "null delegate");
+        checkArgument(durability != null, "null durability");
+        checkArgument(maxBatchEvents > 0, "max batch events must be positive");
+        checkArgument(maxBufferedEvents >= maxBatchEvents, "max buffered events must be at least max batch events");
+        checkArgument(maxBatchBytes > 0, "max batch bytes must be positive");
+        checkArgument(flushIntervalMillis > 0, "flush interval must be positive");
+        this.delegate = delegate;
+        this.durability = durability;
+        this.maxBatchEvents = maxBatchEvents;
+        this.maxBatchBytes = maxBatchBytes;
+        this.permits = new Semaphore(maxBufferedEvents);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "cantor-buffered-events-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Collection<String> namespaces() throws IOException {
+        return this.delegate.namespaces();
+    }
+
+    @Override
+    public void create(final String namespace) throws IOException {
+        checkCreate(namespace);
+        this.delegate.create(namespace);
+    }
+
+    @Override
+    public void drop(final String namespace) throws IOException {
+        checkDrop(namespace);
+        final NamespaceBuffer buffer = this.buffers.remove(namespace);
+        if (buffer != null) {
+            // stores that fetched the buffer before it was removed take their batch back, or see it flushed here
+            synchronized (buffer) {
+                buffer.close();
+            }
+            flush(buffer);
+        }
+        this.delegate.drop(namespace);
+    }
+
+    @Override
+    public void store(final String namespace, final Collection<Event> batch) throws IOException {
+        checkStore(namespace, batch);
+        checkState(!this.isShutdown, "buffered events is shutdown");
+        // large batches gain nothing from buffering
+        if (batch.size() >= this.maxBatchEvents) {
+            this.delegate.store(namespace, batch);
+            return;
+        }
+        acquirePermits(batch.size());
+
+        // copy the batch, callers may reuse it once the call returns
+        final PendingBatch pendingBatch = new PendingBatch(new ArrayList<>(batch));
+        final NamespaceBuffer buffer = enqueue(namespace, pendingBatch);
+
+        if (this.durability == Durability.ACK_ON_FLUSH) {
+            // group commit: flush whatever is pending, including batches of other callers; if another caller is
+            // flushing already, this batch is either part of that flush or of the next one
+            flush(buffer);
+            pendingBatch.await();
+        } else if (buffer.getEventsCount() >= this.maxBatchEvents || buffer.getBytes() >= this.maxBatchBytes) {
+            scheduleFlush(() -> flush(buffer));
+        }
+    }
+
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads) throws IOException {
+        checkGet(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        flush(namespace);
+        return this.delegate.get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads
+        );
+    }
+
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads,
+                           final Set<String> metadataKeys,
+                           final Set<String> dimensionKeys) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                metadataKeys,
+                dimensionKeys
+        );
+        flush(namespace);
+        return this.delegate.get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads,
+                metadataKeys,
+                dimensionKeys
+        );
+    }
+
+    @Override
+    public void stream(final String namespace,
+                       final long startTimestampMillis,
+                       final long endTimestampMillis,
+                       final Map<String, String> metadataQuery,
+                       final Map<String, String> dimensionsQuery,
+                       final boolean includePayloads,
+                       final EventHandler handler) throws IOException {
+        checkStream(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, handler);
+        flush(namespace);
+        this.delegate.stream(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads,
+                handler
+        );
+    }
+
+    @Override
+    public Page get(final String namespace,
+                    final long startTimestampMillis,
+                    final long endTimestampMillis,
+                    final Map<String, String> metadataQuery,
+                    final Map<String, String> dimensionsQuery,
+                    final boolean includePayloads,
+                    final Order order,
+                    final int limit,
+                    final String continuationToken) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                order,
+                limit,
+                continuationToken
+        );
+        flush(namespace);
+        return this.delegate.get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads,
+                order,
+                limit,
+                continuationToken
+        );
+    }
+
+    @Override
+    public long count(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        checkCount(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        flush(namespace);
+        return this.delegate.count(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+    }
+
+    @Override
+    public boolean exists(final String namespace,
+                          final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery) throws IOException {
+        checkExists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        flush(namespace);
+        return this.delegate.exists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+    }
+
+    @Override
+    public int delete(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        checkDelete(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        flush(namespace);
+        return this.delegate.delete(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+    }
+
+    @Override
+    public Map<Long, Double> aggregate(final String namespace,
+                                       final String dimension,
+                                       final long startTimestampMillis,
+                                       final long endTimestampMillis,
+                                       final Map<String, String> metadataQuery,
+                                       final Map<String, String> dimensionsQuery,
+                                       final int aggregateIntervalMillis,
+                                       final AggregationFunction aggregationFunction) throws IOException {
+        checkAggregate(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                aggregateIntervalMillis,
+                aggregationFunction
+        );
+        flush(namespace);
+        return this.delegate.aggregate(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                aggregateIntervalMillis,
+                aggregationFunction
+        );
+    }
+
+    @Override
+    public List<GroupAggregate> aggregateGroups(final String namespace,
+                                                final String dimension,
+                                                final long startTimestampMillis,
+                                                final long endTimestampMillis,
+                                                final Map<String, String> metadataQuery,
+                                                final Map<String, String> dimensionsQuery,
+                                                final List<String> groupByMetadataKeys,
+                                                final int aggregateIntervalMillis,
+                                                final AggregationFunction aggregationFunction,
+                                                final Order order,
+                                                final int limit) throws IOException {
+        checkAggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+        flush(namespace);
+        return this.delegate.aggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+    }
+
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery) throws IOException {
+        checkMetadata(namespace, metadataKey, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        flush(namespace);
+        return this.delegate.metadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery
+        );
+    }
+
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final String prefix,
+                                final int limit) throws IOException {
+        checkMetadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                prefix,
+                limit
+        );
+        flush(namespace);
+        return this.delegate.metadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                prefix,
+                limit
+        );
+    }
+
+    @Override
+    public void expire(final String namespace, final long endTimestampMillis) throws IOException {
+        checkExpire(namespace, endTimestampMillis);
+        flush(namespace);
+        this.delegate.expire(namespace, endTimestampMillis);
+    }
+
+    @Override
+    public void setRetention(final String namespace, final long retentionMillis) throws IOException {
+        checkSetRetention(namespace, retentionMillis);
+        this.delegate.setRetention(namespace, retentionMillis);
+    }
+
+    @Override
+    public long getRetention(final String namespace) throws IOException {
+        checkGetRetention(namespace);
+        return this.delegate.getRetention(namespace);
+    }
+
+    /**
+     * Flush all pending events and stop the background flusher; store calls fail after this.
+     */
+    public void shutdown() {
+        this.isShutdown = true;
+        this.flusher.shutdown();
+        try {
+            this.flusher.awaitTermination(maxBlockMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+    }
+
+    private void acquirePermits(final int count) throws IOException {
+        try {
+            if (this.permits.tryAcquire(count)) {
+                return;
+            }
+            // buffer is full; flush everything and wait for room
+            scheduleFlush(this::flushAll);
+            if (!this.permits.tryAcquire(count, maxBlockMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("timed out waiting for room in buffer");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    // adds the batch to the buffer of the namespace, and returns that buffer
+    private NamespaceBuffer enqueue(final String namespace, final PendingBatch pendingBatch) {
+        NamespaceBuffer buffer;
+        do {
+            buffer = this.buffers.computeIfAbsent(namespace, NamespaceBuffer::new);
+            buffer.add(pendingBatch);
+            // the namespace was dropped meanwhile; unless the drop flushed the batch, add it to the new buffer
+        } while (buffer.isClosed() && buffer.remove(pendingBatch));
+        return buffer;
+    }
+
+    private void scheduleFlush(final Runnable flush) {
+        try {
+            this.flusher.execute(flush);
+        } catch (RejectedExecutionException e) {
+            // shutting down; pending events are flushed by shutdown
+            logger.debug("flusher is shutdown, not scheduling flush");
+        }
+    }
+
+    private void flushAll() {
+        for (final NamespaceBuffer buffer : this.buffers.values()) {
+            flush(buffer);
+        }
+    }
+
+    private void flush(final String namespace) {
+        final NamespaceBuffer buffer = this.buffers.get(namespace);
+        if (buffer != null) {
+            flush(buffer);
+        }
+    }
+
+    // store pending batches of the namespace, grouped in as few delegate store calls as the limits allow; only
+    // batches pending when the flush starts are stored, so a flush cannot run forever under constant load
+    private void flush(final NamespaceBuffer buffer) {
+        synchronized (buffer) {
+            int remainingBatches = buffer.getBatchesCount();
+            while (remainingBatches > 0) {
+                final List<PendingBatch> group = new ArrayList<>();
+                final List<Event> events = new ArrayList<>();
+                long bytes = 0;
+                PendingBatch pendingBatch;
+                while (remainingBatches > 0
+                        && events.size() < this.maxBatchEvents
+                        && bytes < this.maxBatchBytes
+                        && (pendingBatch = buffer.poll()) != null) {
+                    --remainingBatches;
+                    group.add(pendingBatch);
+                    events.addAll(pendingBatch.events);
+                    bytes += pendingBatch.bytes;
+                }
+                if (group.isEmpty()) {
+                    return;
+                }
+                IOException exception = null;
+                try {
+                    this.delegate.store(buffer.namespace, events);
+                } catch (IOException e) {
+                    exception = e;
+                } catch (RuntimeException e) {
+                    exception = new IOException(e);
+                } finally {
+                    this.permits.release(events.size());
+                }
+                if (exception != null && this.durability == Durability.ACK_ON_ENQUEUE) {
+                    logger.warn("failed to flush {} events to namespace '{}', events are lost: ",
+                            events.size(), buffer.namespace, exception);
+                }
+                for (final PendingBatch flushed : group) {
+                    flushed.complete(exception);
+                }
+            }
+        }
+    }
+
+    // approximate size of an event, used to bound the size of grouped store calls
+    private static long getEstimatedBytes(final Event event) {
+        long bytes = 8 + 8 * event.getDimensions().size();
+        for (final Map.Entry<String, String> entry : event.getMetadata().entrySet()) {
+            bytes += entry.getKey().length() + entry.getValue().length();
+        }
+        for (final String dimensionKey : event.getDimensions().keySet()) {
+            bytes += dimensionKey.length();
+        }
+        if (event.getPayload() != null) {
+            bytes += event.getPayload().length;
+        }
+        return bytes;
+    }
+
+    // events pending for a namespace, in a lock-free queue; flushes of a namespace are serialized
+    private static class NamespaceBuffer {
+        private final String namespace;
+        private final Queue<PendingBatch> batches = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger batchesCount = new AtomicInteger();
+        private final AtomicInteger eventsCount = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        // set under the monitor once the buffer is removed by a drop; no flush looks at the buffer after that
+        private volatile boolean closed = false;
+
+        private NamespaceBuffer(final String namespace) {
+            this.namespace = namespace;
+        }
+
+        private void close() {
+            this.closed = true;
+        }
+
+        private boolean isClosed() {
+            return this.closed;
+        }
+
+        // takes back a batch not flushed yet
+        private boolean remove(final PendingBatch batch) {
+            if (!this.batches.remove(batch)) {
+                return false;
+            }
+            this.batchesCount.decrementAndGet();
+            this.eventsCount.addAndGet(-batch.events.size());
+            this.bytes.addAndGet(-batch.bytes);
+            return true;
+        }
+
+        private void add(final PendingBatch batch) {
+            this.batches.add(batch);
+            this.batchesCount.incrementAndGet();
+            this.eventsCount.addAndGet(batch.events.size());
+            this.bytes.addAndGet(batch.bytes);
+        }
+
+        private PendingBatch poll() {
+            final PendingBatch batch = this.batches.poll();
+            if (batch != null) {
+                this.batchesCount.decrementAndGet();
+                this.eventsCount.addAndGet(-batch.events.size());
+                this.bytes.addAndGet(-batch.bytes);
+            }
+            return batch;
+        }
+
+        private int getBatchesCount() {
+            return this.batchesCount.get();
+        }
+
+        private int getEventsCount() {
+            return this.eventsCount.get();
+        }
+
+        private long getBytes() {
+            return this.bytes.get();
+        }
+    }
+
+    // events of a single store call, flushed together
+    private static class PendingBatch {
+        private final Collection<Event> events;
+        private final long bytes;
+        private final CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+        private PendingBatch(final Collection<Event> events) {
+            this.events = events;
+            long bytes = 0;
+            for (final Event event : events) {
+                bytes += getEstimatedBytes(event);
+            }
+            this.bytes = bytes;
+        }
+
+        private void complete(final IOException exception) {
+            if (exception == null) {
+                this.flushed.complete(null);
+            } else {
+                this.flushed.completeExceptionally(exception);
+            }
+        }
+
+        private void await() throws IOException {
+            try {
+                this.flushed.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                throw (IOException) e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.misc.coalescing;
+
+import com.salesforce.cantor.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.salesforce.cantor.common.CommonPreconditions.*;
+import static com.salesforce.cantor.common.SetsPreconditions.*;
+
+/**
+ * Wrapper class around a delegate Sets instance, merging increments to the same entry in memory and writing them to
+ * the delegate once enough entries are pending or the flush interval passes.
+ * <p>
+ * Increments keep the semantics of the delegate: each set's merged increments are written with one update only batch
+ * increment, for the entries only incremented one at a time, which leaves entries not in the set alone, and one batch
+ * increment for the others, which adds them. Increment calls return as soon as they are merged, and block while too many entries are
+ * pending; failed flushes are logged and their increments are lost. All other calls flush the pending increments of
+ * the namespace first, so callers see their own writes unless a flush fails. Call {@link #shutdown()} to flush
+ * pending increments before exiting.
+ */
+public class CoalescingSets implements Sets {
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingSets.class);
+
+    private static final int defaultMaxPendingEntries = 100_000;
+    private static final int defaultMaxBatchEntries = 10_000;
+    private static final long defaultFlushIntervalMillis = 100;
+    private static final long maxBlockMillis = TimeUnit.SECONDS.toMillis(30);
+
+    private final Sets delegate;
+    private final int maxBatchEntries;
+    private final Semaphore permits;
+    private final Map<String, NamespaceBuffer> buffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private volatile boolean isShutdown = false;
+
+    public CoalescingSets(final Sets delegate) {
+        this(delegate, defaultMaxPendingEntries, defaultMaxBatchEntries, defaultFlushIntervalMillis);
+    }
+
+    /**
+     * Create a coalescing sets instance on top of the given delegate.
+     *
+     * @param delegate the sets instance to write merged increments to
+     * @param maxPendingEntries maximum number of distinct entries pending across all namespaces; increment calls
+     *                          block beyond this
+     * @param maxBatchEntries number of distinct entries pending in a namespace that triggers a flush
+     * @param flushIntervalMillis maximum time in milli-seconds increments are kept in memory
+     */
+    public CoalescingSets(final Sets delegate,
+                          final int maxPendingEntries,
+                          final int maxBatchEntries,
+                          final long flushIntervalMillis) {
+        checkArgument(delegate != null, "null delegate");
+        checkArgument(maxBatchEntries > 0, "max batch entries must be positive");
+        checkArgument(maxPendingEntries >= maxBatchEntries, "max pending entries must be at least max batch entries");
+        checkArgument(flushIntervalMillis > 0, "flush interval must be positive");
+        this.delegate = delegate;
+        this.maxBatchEntries = maxBatchEntries;
+        this.permits = new Semaphore(maxPendingEntries);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "cantor-coalescing-sets-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Collection<String> namespaces() throws IOException {
+        return this.delegate.namespaces();
+    }
+
+    @Override
+    public void create(final String namespace) throws IOException {
+        checkCreate(namespace);
+        this.delegate.create(namespace);
+    }
+
+    @Override
+    public void drop(final String namespace) throws IOException {
+        checkDrop(namespace);
+        // pending increments of a dropped namespace are discarded
+        final NamespaceBuffer buffer = this.buffers.remove(namespace);
+        if (buffer != null) {
+            synchronized (buffer) {
+                this.permits.release(buffer.drain().getEntriesCount());
+            }
+        }
+        this.delegate.drop(namespace);
+    }
+
+    @Override
+    public void add(final String namespace, final String set, final String entry, final long weight) throws IOException {
+        checkAdd(namespace, set, entry, weight);
+        flush(namespace);
+        this.delegate.add(namespace, set, entry, weight);
+    }
+
+    @Override
+    public void add(final String namespace, final String set, final Map<String, Long> entries) throws IOException {
+        checkAdd(namespace, set, entries);
+        flush(namespace);
+        this.delegate.add(namespace, set, entries);
+    }
+
+    @Override
+    public Collection<String> entries(final String namespace,
+                                      final String set,
+                                      final long min,
+                                      final long max,
+                                      final int start,
+                                      final int count,
+                                      final boolean ascending) throws IOException {
+        checkEntries(namespace, set, min, max, start, count, ascending);
+        flush(namespace);
+        return this.delegate.entries(namespace, set, min, max, start, count, ascending);
+    }
+
+    @Override
+    public Map<String, Long> get(final String namespace,
+                                 final String set,
+                                 final long min,
+                                 final long max,
+                                 final int start,
+                                 final int count,
+                                 final boolean ascending) throws IOException {
+        checkGet(namespace, set, min, max, start, count, ascending);
+        flush(namespace);
+        return this.delegate.get(namespace, set, min, max, start, count, ascending);
+    }
+
+    @Override
+    public void delete(final String namespace, final String set, final long min, final long max) throws IOException {
+        checkDelete(namespace, set, min, max);
+        flush(namespace);
+        this.delegate.delete(namespace, set, min, max);
+    }
+
+    @Override
+    public boolean delete(final String namespace, final String set, final String entry) throws IOException {
+        checkDelete(namespace, set, entry);
+        flush(namespace);
+        return this.delegate.delete(namespace, set, entry);
+    }
+
+    @Override
+    public void delete(final String namespace, final String set, final Collection<String> entries) throws IOException {
+        checkDelete(namespace, set, entries);
+        flush(namespace);
+        this.delegate.delete(namespace, set, entries);
+    }
+
+    @Override
+    public Map<String, Long> union(final String namespace,
+                                   final Collection<String> sets,
+                                   final long min,
+                                   final long max,
+                                   final int start,
+                                   final int count,
+                                   final boolean ascending) throws IOException {
+        checkUnion(namespace, sets, min, max, start, count, ascending);
+        flush(namespace);
+        return this.delegate.union(namespace, sets, min, max, start, count, ascending);
+    }
+
+    @Override
+    public Map<String, Long> union(final String namespace,
+                                   final Collection<String> sets,
+                                   final long min,
+                                   final long max,
+                                   final int start,
+                                   final int count,
+                                   final boolean ascending,
+                                   final Aggregate aggregate) throws IOException {
+        checkUnion(namespace, sets, min, max, start, count, ascending, aggregate);
+        flush(namespace);
+        return this.delegate.union(namespace, sets, min, max, start, count, ascending, aggregate);
+    }
+
+    @Override
+    public int unionStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkUnionStore(namespace, destination, sets, aggregate);
+        flush(namespace);
+        return this.delegate.unionStore(namespace, destination, sets, aggregate);
+    }
+
+    @Override
+    public Map<String, Long> intersect(final String namespace,
+                                       final Collection<String> sets,
+                                       final long min,
+                                       final long max,
+                                       final int start,
+                                       final int count,
+                                       final boolean ascending,
+                                       final Aggregate aggregate) throws IOException {
+        checkIntersect(namespace, sets, min, max, start, count, ascending, aggregate);
+        flush(namespace);
+        return this.delegate.intersect(namespace, sets, min, max, start, count, ascending, aggregate);
+    }
+
+    @Override
+    public int interStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkInterStore(namespace, destination, sets, aggregate);
+        flush(namespace);
+        return this.delegate.interStore(namespace, destination, sets, aggregate);
+    }
+
+    @Override
+    public Map<String, Long> diff(final String namespace,
+                                  final String set,
+                                  final Collection<String> sets,
+                                  final long min,
+                                  final long max,
+                                  final int start,
+                                  final int count,
+                                  final boolean ascending) throws IOException {
+        checkDiff(namespace, set, sets, min, max, start, count, ascending);
+        flush(namespace);
+        return this.delegate.diff(namespace, set, sets, min, max, start, count, ascending);
+    }
+
+    @Override
+    public int diffStore(final String namespace,
+                         final String destination,
+                         final String set,
+                         final Collection<String> sets) throws IOException {
+        checkDiffStore(namespace, destination, set, sets);
+        flush(namespace);
+        return this.delegate.diffStore(namespace, destination, set, sets);
+    }
+
+    @Override
+    public boolean move(final String namespace,
+                        final String source,
+                        final String destination,
+                        final String entry) throws IOException {
+        checkMove(namespace, source, destination, entry);
+        flush(namespace);
+        return this.delegate.move(namespace, source, destination, entry);
+    }
+
+    @Override
+    public int copy(final String namespace, final String source, final String destination) throws IOException {
+        checkCopy(namespace, source, destination);
+        flush(namespace);
+        return this.delegate.copy(namespace, source, destination);
+    }
+
+    @Override
+    public Map<String, Long> pop(final String namespace,
+                                 final String set,
+                                 final long min,
+                                 final long max,
+                                 final int start,
+                                 final int count,
+                                 final boolean ascending) throws IOException {
+        checkPop(namespace, set, min, max, start, count, ascending);
+        flush(namespace);
+        return this.delegate.pop(namespace, set, min, max, start, count, ascending);
+    }
+
+    @Override
+    public Claim claim(final String namespace,
+                       final String set,
+                       final long min,
+                       final long max,
+                       final int count,
+                       final boolean ascending,
+                       final long leaseMillis) throws IOException {
+        checkClaim(namespace, set, min, max, count, ascending, leaseMillis);
+        flush(namespace);
+        return this.delegate.claim(namespace, set, min, max, count, ascending, leaseMillis);
+    }
+
+    @Override
+    public void ack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkAck(namespace, set, leaseId, entries);
+        flush(namespace);
+        this.delegate.ack(namespace, set, leaseId, entries);
+    }
+
+    @Override
+    public void nack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkNack(namespace, set, leaseId, entries);
+        flush(namespace);
+        this.delegate.nack(namespace, set, leaseId, entries);
+    }
+
+    @Override
+    public Collection<String> sets(final String namespace) throws IOException {
+        checkSets(namespace);
+        flush(namespace);
+        return this.delegate.sets(namespace);
+    }
+
+    @Override
+    public int size(final String namespace, final String set) throws IOException {
+        checkSize(namespace, set);
+        flush(namespace);
+        return this.delegate.size(namespace, set);
+    }
+
+    @Override
+    public Long weight(final String namespace, final String set, final String entry) throws IOException {
+        checkWeight(namespace, set, entry);
+        flush(namespace);
+        return this.delegate.weight(namespace, set, entry);
+    }
+
+    @Override
+    public void inc(final String namespace, final String set, final String entry, final long count) throws IOException {
+        checkInc(namespace, set, entry, count);
+        checkState(!this.isShutdown, "coalescing sets is shutdown");
+        final NamespaceBuffer buffer = this.buffers.computeIfAbsent(namespace, NamespaceBuffer::new);
+        add(buffer, set, entry, count, false);
+        scheduleFlushIfFull(buffer);
+    }
+
+    @Override
+    public void inc(final String namespace,
+                    final String set,
+                    final Map<String, Long> entries,
+                    final boolean updateOnly) throws IOException {
+        checkInc(namespace, set, entries);
+        checkState(!this.isShutdown, "coalescing sets is shutdown");
+        final NamespaceBuffer buffer = this.buffers.computeIfAbsent(namespace, NamespaceBuffer::new);
+        for (final Map.Entry<String, Long> entry : entries.entrySet()) {
+            add(buffer, set, entry.getKey(), entry.getValue(), !updateOnly);
+        }
+        scheduleFlushIfFull(buffer);
+    }
+
+    @Override
+    public boolean compareAndSet(final String namespace,
+                                 final String set,
+                                 final String entry,
+                                 final Long expected,
+                                 final long weight) throws IOException {
+        checkCompareAndSet(namespace, set, entry, expected, weight);
+        flush(namespace);
+        return this.delegate.compareAndSet(namespace, set, entry, expected, weight);
+    }
+
+    /**
+     * Flush all pending increments and stop the background flusher; increment calls fail after this.
+     */
+    public void shutdown() {
+        this.isShutdown = true;
+        this.flusher.shutdown();
+        try {
+            this.flusher.awaitTermination(maxBlockMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+    }
+
+    // each distinct pending entry holds a permit until it is flushed, so memory is bounded with a slow delegate
+    private void add(final NamespaceBuffer buffer,
+                     final String set,
+                     final String entry,
+                     final long count,
+                     final boolean upsert) throws IOException {
+        acquirePermit();
+        if (!buffer.add(set, entry, count, upsert)) {
+            this.permits.release();
+        }
+    }
+
+    private void acquirePermit() throws IOException {
+        try {
+            if (this.permits.tryAcquire()) {
+                return;
+            }
+            // too many entries pending; flush everything and wait for room
+            scheduleFlush(this::flushAll);
+            if (!this.permits.tryAcquire(maxBlockMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("timed out waiting for room in buffer");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private void scheduleFlushIfFull(final NamespaceBuffer buffer) {
+        if (buffer.getEntriesCount() >= this.maxBatchEntries) {
+            scheduleFlush(() -> flush(buffer));
+        }
+    }
+
+    private void scheduleFlush(final Runnable flush) {
+        try {
+            this.flusher.execute(flush);
+        } catch (RejectedExecutionException e) {
+            // shutting down; pending increments are flushed by shutdown
+            logger.debug("flusher is shutdown, not scheduling flush");
+        }
+    }
+
+    private void flushAll() {
+        for (final NamespaceBuffer buffer : this.buffers.values()) {
+            flush(buffer);
+        }
+    }
+
+    private void flush(final String namespace) {
+        final NamespaceBuffer buffer = this.buffers.get(namespace);
+        if (buffer != null) {
+            flush(buffer);
+        }
+    }
+
+    // write merged increments of the namespace; flushes of a namespace are serialized, so a caller flushing before a
+    // read waits for an in-flight background flush to complete. Failures are logged rather than thrown, since the
+    // caller flushing is not necessarily the one that made the increments.
+    private void flush(final NamespaceBuffer buffer) {
+        synchronized (buffer) {
+            final PendingIncrements drained = buffer.drain();
+            try {
+                for (final Map.Entry<String, Map<String, Increment>> pending : drained.sets.entrySet()) {
+                    flush(buffer.namespace, pending.getKey(), pending.getValue());
+                }
+            } finally {
+                this.permits.release(drained.getEntriesCount());
+            }
+        }
+    }
+
+    // update only increments of an entry come before its batch increments, so they are written first
+    private void flush(final String namespace, final String set, final Map<String, Increment> increments) {
+        final Map<String, Long> updates = new HashMap<>();
+        final Map<String, Long> upserts = new HashMap<>();
+        for (final Map.Entry<String, Increment> entry : increments.entrySet()) {
+            final Increment increment = entry.getValue();
+            if (increment.update != 0) {
+                updates.put(entry.getKey(), increment.update);
+            }
+            if (increment.isUpsert) {
+                upserts.put(entry.getKey(), increment.upsert);
+            }
+        }
+        int failed = 0;
+        Exception exception = null;
+        if (!updates.isEmpty()) {
+            try {
+                this.delegate.inc(namespace, set, updates, true);
+            } catch (IOException | RuntimeException e) {
+                failed += updates.size();
+                exception = e;
+            }
+        }
+        if (!upserts.isEmpty()) {
+            try {
+                this.delegate.inc(namespace, set, upserts);
+            } catch (IOException | RuntimeException e) {
+                failed += upserts.size();
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            logger.warn("failed to flush increments of {} entries to set/namespace {}/{}, increments are lost: ",
+                    failed, set, namespace, exception);
+        }
+    }
+
+    // pending increments of an entry: update only increments made before any batch increment that adds the entry,
+    // which only apply if the entry is in the set, and the adding increments plus any increments after them
+    private static class Increment {
+        private final long update;
+        private final long upsert;
+        private final boolean isUpsert;
+
+        private Increment(final long update, final long upsert, final boolean isUpsert) {
+            this.update = update;
+            this.upsert = upsert;
+            this.isUpsert = isUpsert;
+        }
+
+        private Increment merge(final long count, final boolean upsert) {
+            if (upsert || this.isUpsert) {
+                return new Increment(this.update, this.upsert + count, true);
+            }
+            return new Increment(this.update + count, 0, false);
+        }
+    }
+
+    // increments pending for a namespace, merged per set and entry
+    private static class PendingIncrements {
+        private final Map<String, Map<String, Increment>> sets = new ConcurrentHashMap<>();
+        private final AtomicInteger entriesCount = new AtomicInteger();
+
+        private int getEntriesCount() {
+            return this.entriesCount.get();
+        }
+    }
+
+    // adds share the read lock, so they only contend with each other on the same entry, and drains take the write
+    // lock to swap the pending increments out
+    private static class NamespaceBuffer {
+        private final String namespace;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile PendingIncrements pending = new PendingIncrements();
+
+        private NamespaceBuffer(final String namespace) {
+            this.namespace = namespace;
+        }
+
+        // returns true if the entry was not pending already
+        private boolean add(final String set, final String entry, final long count, final boolean upsert) {
+            this.lock.readLock().lock();
+            try {
+                final boolean[] added = {false};
+                this.pending.sets.computeIfAbsent(set, key -> new ConcurrentHashMap<>())
+                        .compute(entry, (key, increment) -> {
+                            if (increment != null) {
+                                return increment.merge(count, upsert);
+                            }
+                            added[0] = true;
+                            return upsert ? new Increment(0, count, true) : new Increment(count, 0, false);
+                        });
+                if (added[0]) {
+                    this.pending.entriesCount.incrementAndGet();
+                }
+                return added[0];
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        }
+
+        private PendingIncrements drain() {
+            this.lock.writeLock().lock();
+            try {
+                final PendingIncrements drained = this.pending;
+                this.pending = new PendingIncrements();
+                return drained;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        private int getEntriesCount() {
+            return this.pending.getEntriesCount();
+        }
+    }
+}
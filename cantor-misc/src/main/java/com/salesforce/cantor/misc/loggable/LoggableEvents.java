@@ -75,6 +75,122 @@ public class LoggableEvents extends AbstractBaseLoggableCantor implements Events
         );
     }
 
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads,
+                           final Set<String> metadataKeys,
+                           final Set<String> dimensionKeys) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                metadataKeys,
+                dimensionKeys
+        );
+        return logCall(() -> this.delegate
+                .get(namespace,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads,
+                        metadataKeys,
+                        dimensionKeys
+                ),
+                "get", namespace,
+                startTimestampMillis, endTimestampMillis,
+                nullToEmpty(metadataQuery).keySet(), nullToEmpty(dimensionsQuery).keySet(),
+                includePayloads, metadataKeys, dimensionKeys
+        );
+    }
+
+    @Override
+    public void stream(final String namespace,
+                       final long startTimestampMillis,
+                       final long endTimestampMillis,
+                       final Map<String, String> metadataQuery,
+                       final Map<String, String> dimensionsQuery,
+                       final boolean includePayloads,
+                       final EventHandler handler) throws IOException {
+        checkStream(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, handler);
+        logCall(() -> { this.delegate.stream(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, includePayloads, handler); return null; },
+                "stream", namespace,
+                startTimestampMillis, endTimestampMillis,
+                nullToEmpty(metadataQuery).keySet(), nullToEmpty(dimensionsQuery).keySet(),
+                includePayloads
+        );
+    }
+
+    @Override
+    public Page get(final String namespace,
+                    final long startTimestampMillis,
+                    final long endTimestampMillis,
+                    final Map<String, String> metadataQuery,
+                    final Map<String, String> dimensionsQuery,
+                    final boolean includePayloads,
+                    final Order order,
+                    final int limit,
+                    final String continuationToken) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                order,
+                limit,
+                continuationToken
+        );
+        return logCall(() -> this.delegate
+                .get(namespace,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads,
+                        order,
+                        limit,
+                        continuationToken
+                ),
+                "get", namespace,
+                startTimestampMillis, endTimestampMillis,
+                nullToEmpty(metadataQuery).keySet(), nullToEmpty(dimensionsQuery).keySet(),
+                includePayloads, order, limit
+        );
+    }
+
+    @Override
+    public long count(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        checkCount(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return logCall(() -> this.delegate.count(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery),
+                "count", namespace,
+                startTimestampMillis, endTimestampMillis,
+                nullToEmpty(metadataQuery).keySet(), nullToEmpty(dimensionsQuery).keySet()
+        );
+    }
+
+    @Override
+    public boolean exists(final String namespace,
+                          final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery) throws IOException {
+        checkExists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return logCall(() -> this.delegate.exists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery),
+                "exists", namespace,
+                startTimestampMillis, endTimestampMillis,
+                nullToEmpty(metadataQuery).keySet(), nullToEmpty(dimensionsQuery).keySet()
+        );
+    }
+
     @Override
     public int delete(final String namespace,
                       final long startTimestampMillis,
@@ -124,6 +240,50 @@ public class LoggableEvents extends AbstractBaseLoggableCantor implements Events
         );
     }
 
+    @Override
+    public List<GroupAggregate> aggregateGroups(final String namespace,
+                                                final String dimension,
+                                                final long startTimestampMillis,
+                                                final long endTimestampMillis,
+                                                final Map<String, String> metadataQuery,
+                                                final Map<String, String> dimensionsQuery,
+                                                final List<String> groupByMetadataKeys,
+                                                final int aggregateIntervalMillis,
+                                                final AggregationFunction aggregationFunction,
+                                                final Order order,
+                                                final int limit) throws IOException {
+        checkAggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+        return logCall(() -> this.delegate
+                .aggregateGroups(namespace,
+                        dimension,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        groupByMetadataKeys,
+                        aggregateIntervalMillis,
+                        aggregationFunction,
+                        order,
+                        limit
+                ),
+                "aggregateGroups", namespace,
+                dimension, startTimestampMillis, endTimestampMillis,
+                nullToEmpty(metadataQuery).keySet(), nullToEmpty(dimensionsQuery).keySet(), groupByMetadataKeys,
+                aggregateIntervalMillis, aggregationFunction, order, limit
+        );
+    }
+
     @Override
     public Set<String> metadata(final String namespace,
                                 final String metadataKey,
@@ -146,6 +306,40 @@ public class LoggableEvents extends AbstractBaseLoggableCantor implements Events
         );
     }
 
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final String prefix,
+                                final int limit) throws IOException {
+        checkMetadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                prefix,
+                limit
+        );
+        return logCall(() -> this.delegate
+                .metadata(namespace,
+                        metadataKey,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        prefix,
+                        limit
+                ),
+                "metadata", namespace,
+                metadataKey, startTimestampMillis, endTimestampMillis,
+                nullToEmpty(metadataQuery).keySet(), nullToEmpty(dimensionsQuery).keySet(), prefix, limit
+        );
+    }
+
     @Override
     public void expire(final String namespace, final long endTimestampMillis) throws IOException {
         checkExpire(namespace, endTimestampMillis);
@@ -153,5 +347,21 @@ public class LoggableEvents extends AbstractBaseLoggableCantor implements Events
                 "expire", namespace, endTimestampMillis
         );
     }
+
+    @Override
+    public void setRetention(final String namespace, final long retentionMillis) throws IOException {
+        checkSetRetention(namespace, retentionMillis);
+        logCall(() -> { this.delegate.setRetention(namespace, retentionMillis); return null; },
+                "setRetention", namespace, retentionMillis
+        );
+    }
+
+    @Override
+    public long getRetention(final String namespace) throws IOException {
+        checkGetRetention(namespace);
+        return logCall(() -> this.delegate.getRetention(namespace),
+                "getRetention", namespace
+        );
+    }
 }
 
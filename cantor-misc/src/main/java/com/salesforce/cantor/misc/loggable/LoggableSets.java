@@ -138,6 +138,34 @@ public class LoggableSets extends AbstractBaseLoggableCantor implements Sets {
         );
     }
 
+    @Override
+    public Map<String, Long> union(final String namespace,
+                                   final Collection<String> sets,
+                                   final long min,
+                                   final long max,
+                                   final int start,
+                                   final int count,
+                                   final boolean ascending,
+                                   final Aggregate aggregate) throws IOException {
+        checkUnion(namespace, sets, min, max, start, count, ascending, aggregate);
+        return logCall(
+                () -> this.delegate.union(namespace, sets, min, max, start, count, ascending, aggregate),
+                "union", namespace, sets, min, max, start, count, ascending, aggregate
+        );
+    }
+
+    @Override
+    public int unionStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkUnionStore(namespace, destination, sets, aggregate);
+        return logCall(
+                () -> this.delegate.unionStore(namespace, destination, sets, aggregate),
+                "unionStore", namespace, destination, sets, aggregate
+        );
+    }
+
     @Override
     public Map<String, Long> intersect(final String namespace,
                                        final Collection<String> sets,
@@ -145,11 +173,73 @@ public class LoggableSets extends AbstractBaseLoggableCantor implements Sets {
                                        final long max,
                                        final int start,
                                        final int count,
-                                       final boolean ascending) throws IOException {
-        checkIntersect(namespace, sets, min, max, start, count, ascending);
+                                       final boolean ascending,
+                                       final Aggregate aggregate) throws IOException {
+        checkIntersect(namespace, sets, min, max, start, count, ascending, aggregate);
+        return logCall(
+                () -> this.delegate.intersect(namespace, sets, min, max, start, count, ascending, aggregate),
+                "intersect", namespace, sets, min, max, start, count, ascending, aggregate
+        );
+    }
+
+    @Override
+    public int interStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkInterStore(namespace, destination, sets, aggregate);
+        return logCall(
+                () -> this.delegate.interStore(namespace, destination, sets, aggregate),
+                "interStore", namespace, destination, sets, aggregate
+        );
+    }
+
+    @Override
+    public Map<String, Long> diff(final String namespace,
+                                  final String set,
+                                  final Collection<String> sets,
+                                  final long min,
+                                  final long max,
+                                  final int start,
+                                  final int count,
+                                  final boolean ascending) throws IOException {
+        checkDiff(namespace, set, sets, min, max, start, count, ascending);
         return logCall(
-                () -> this.delegate.intersect(namespace, sets, min, max, start, count, ascending),
-                "intersect", namespace, sets, min, max, start, count, ascending
+                () -> this.delegate.diff(namespace, set, sets, min, max, start, count, ascending),
+                "diff", namespace, set, sets, min, max, start, count, ascending
+        );
+    }
+
+    @Override
+    public int diffStore(final String namespace,
+                         final String destination,
+                         final String set,
+                         final Collection<String> sets) throws IOException {
+        checkDiffStore(namespace, destination, set, sets);
+        return logCall(
+                () -> this.delegate.diffStore(namespace, destination, set, sets),
+                "diffStore", namespace, destination, set, sets
+        );
+    }
+
+    @Override
+    public boolean move(final String namespace,
+                        final String source,
+                        final String destination,
+                        final String entry) throws IOException {
+        checkMove(namespace, source, destination, entry);
+        return logCall(
+                () -> this.delegate.move(namespace, source, destination, entry),
+                "move", namespace, source, destination, entry
+        );
+    }
+
+    @Override
+    public int copy(final String namespace, final String source, final String destination) throws IOException {
+        checkCopy(namespace, source, destination);
+        return logCall(
+                () -> this.delegate.copy(namespace, source, destination),
+                "copy", namespace, source, destination
         );
     }
 
@@ -168,6 +258,39 @@ public class LoggableSets extends AbstractBaseLoggableCantor implements Sets {
         );
     }
 
+    @Override
+    public Claim claim(final String namespace,
+                       final String set,
+                       final long min,
+                       final long max,
+                       final int count,
+                       final boolean ascending,
+                       final long leaseMillis) throws IOException {
+        checkClaim(namespace, set, min, max, count, ascending, leaseMillis);
+        return logCall(
+                () -> this.delegate.claim(namespace, set, min, max, count, ascending, leaseMillis),
+                "claim", namespace, set, min, max, count, ascending, leaseMillis
+        );
+    }
+
+    @Override
+    public void ack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkAck(namespace, set, leaseId, entries);
+        logCall(
+                () -> { this.delegate.ack(namespace, set, leaseId, entries); return null; },
+                "ack", namespace, set, leaseId, entries
+        );
+    }
+
+    @Override
+    public void nack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkNack(namespace, set, leaseId, entries);
+        logCall(
+                () -> { this.delegate.nack(namespace, set, leaseId, entries); return null; },
+                "nack", namespace, set, leaseId, entries
+        );
+    }
+
     @Override
     public Collection<String> sets(final String namespace) throws IOException {
         checkSets(namespace);
@@ -203,4 +326,29 @@ public class LoggableSets extends AbstractBaseLoggableCantor implements Sets {
                 "inc", namespace, set, entry, count
         );
     }
+
+    @Override
+    public void inc(final String namespace,
+                    final String set,
+                    final Map<String, Long> entries,
+                    final boolean updateOnly) throws IOException {
+        checkInc(namespace, set, entries);
+        logCall(
+                () -> { this.delegate.inc(namespace, set, entries, updateOnly); return null; },
+                "inc", namespace, set, entries.size(), updateOnly
+        );
+    }
+
+    @Override
+    public boolean compareAndSet(final String namespace,
+                                 final String set,
+                                 final String entry,
+                                 final Long expected,
+                                 final long weight) throws IOException {
+        checkCompareAndSet(namespace, set, entry, expected, weight);
+        return logCall(
+                () -> this.delegate.compareAndSet(namespace, set, entry, expected, weight),
+                "compareAndSet", namespace, set, entry, expected, weight
+        );
+    }
 }
@@ -0,0 +1,771 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.misc.offloaded;
+
+import com.salesforce.cantor.Events;
+import com.salesforce.cantor.Objects;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.salesforce.cantor.common.CommonPreconditions.*;
+import static com.salesforce.cantor.common.EventsPreconditions.*;
+
+/**
+ * Wrapper class around a delegate Events instance, storing payloads larger than a threshold in an Objects instance
+ * and only a reference to them in the event, so large payloads do not bloat the delegate storage and slow down reads
+ * that do not need them.
+ * <p>
+ * The reference takes the place of the payload in the delegate, so reads without payloads cost the same as before;
+ * it is also kept in a metadata key of the event, so deletes can find references without reading payloads; events
+ * that already have the maximum number of metadata keys keep their payload in the delegate. Payloads of events in a
+ * namespace are stored in one objects namespace per day, returned by {@link #getPayloadsNamespace(String, long)}, so
+ * expiry drops whole days of payloads instead of looking at each of them. Reads with payloads fetch the referenced
+ * payloads in batches, in parallel. Deletes and expiry remove the payloads of the events they remove.
+ * <p>
+ * A delete finds the payloads to remove with one query and removes the events with another, so the payloads of
+ * events stored in between are left behind. Deletes therefore mark the days they cover, and expiry sweeps the marked
+ * days that it keeps, removing payloads that no event refers to; payloads stored in the last hour are skipped, as
+ * their events may not be stored yet, and their day stays marked.
+ */
+public class OffloadedEvents implements Events {
+    // marks a stored payload as a reference; payloads starting with it are always offloaded, so it is never ambiguous
+    private static final byte[] referencePrefix = "\0cantor-offloaded-payload\0".getBytes(StandardCharsets.UTF_8);
+
+    private static final int defaultThresholdBytes = 16 * 1024;
+    private static final int defaultFetchThreads = 16;
+    private static final int fetchBatchSize = 64;
+    private static final int streamBatchSize = 256;
+    private static final int expireKeysPageSize = 10_000;
+    // payloads stored more recently than this may belong to events not stored yet, and are never swept
+    private static final long sweepAfterMillis = TimeUnit.HOURS.toMillis(1);
+    // metadata key holding the payload reference of offloaded events; never returned to callers
+    private static final String referenceMetadataKey = "cantor-offloaded-payload";
+    // events can have at most this many metadata keys, see EventsPreconditions
+    private static final int maxMetadataKeys = 100;
+    private static final DateTimeFormatter payloadsDayFormatter =
+            DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private final Events delegate;
+    private final Objects payloads;
+    private final int thresholdBytes;
+    private final ExecutorService fetchExecutor;
+    // payloads namespaces known to exist
+    private final Set<String> payloadsNamespaces = ConcurrentHashMap.newKeySet();
+
+    public OffloadedEvents(final Events delegate, final Objects payloads) {
+        this(delegate, payloads, defaultThresholdBytes, newFetchExecutor());
+    }
+
+    /**
+     * Create an offloaded events instance on top of the given delegate.
+     *
+     * @param delegate the events instance to store events to
+     * @param payloads the objects instance to store large payloads to
+     * @param thresholdBytes payloads larger than this many bytes are stored in the objects instance
+     * @param fetchExecutor the executor to fetch batches of payloads on
+     */
+    public OffloadedEvents(final Events delegate,
+                           final Objects payloads,
+                           final int thresholdBytes,
+                           final ExecutorService fetchExecutor) {
+        checkArgument(delegate != null, "null delegate");
+        checkArgument(payloads != null, "null payloads");
+        checkArgument(thresholdBytes >= 0, "invalid threshold");
+        checkArgument(fetchExecutor != null, "null fetch executor");
+        this.delegate = delegate;
+        this.payloads = payloads;
+        this.thresholdBytes = thresholdBytes;
+        this.fetchExecutor = fetchExecutor;
+    }
+
+    @Override
+    public Collection<String> namespaces() throws IOException {
+        return this.delegate.namespaces();
+    }
+
+    @Override
+    public void create(final String namespace) throws IOException {
+        checkCreate(namespace);
+        // payloads namespaces are created on first store of a payload for their day
+        this.delegate.create(namespace);
+    }
+
+    @Override
+    public void drop(final String namespace) throws IOException {
+        checkDrop(namespace);
+        this.delegate.drop(namespace);
+        for (final String payloadsNamespace : getPayloadsNamespaces(namespace).values()) {
+            dropPayloads(payloadsNamespace);
+        }
+        final String sweepNamespace = getSweepNamespace(namespace);
+        if (this.payloads.namespaces().contains(sweepNamespace)) {
+            dropPayloads(sweepNamespace);
+        }
+    }
+
+    @Override
+    public void store(final String namespace, final Collection<Event> batch) throws IOException {
+        checkStore(namespace, batch);
+        // offloaded payloads for each payloads namespace
+        final Map<String, Map<String, byte[]>> offloaded = new HashMap<>();
+        final List<Event> events = new ArrayList<>(batch.size());
+        for (final Event event : batch) {
+            checkArgument(!event.getMetadata().containsKey(referenceMetadataKey),
+                    "metadata key '" + referenceMetadataKey + "' is reserved");
+            final byte[] payload = event.getPayload();
+            // events without room for the reference metadata keep their payload; references are never inline
+            if (payload == null
+                    || (payload.length <= this.thresholdBytes && !isReference(payload))
+                    || (event.getMetadata().size() >= maxMetadataKeys && !isReference(payload))) {
+                events.add(event);
+                continue;
+            }
+            // keys start with the zero padded timestamp of the event, to tell its payloads namespace, and for expiry
+            // to tell which ones to remove; then the time of the store, for sweeps to tell which ones to skip
+            final String key = String.format("%019d-%019d-%016x",
+                    event.getTimestampMillis(), System.currentTimeMillis(), ThreadLocalRandom.current().nextLong());
+            final String payloadsNamespace = getPayloadsNamespace(namespace, event.getTimestampMillis());
+            offloaded.computeIfAbsent(payloadsNamespace, ignored -> new HashMap<>()).put(key, payload);
+            final Map<String, String> metadata = new HashMap<>(event.getMetadata());
+            metadata.put(referenceMetadataKey, key);
+            events.add(new Event(event.getTimestampMillis(), metadata, event.getDimensions(), toReference(key)));
+        }
+        // payloads go first, an event is never stored with a reference to a missing payload
+        for (final Map.Entry<String, Map<String, byte[]>> entry : offloaded.entrySet()) {
+            storePayloads(entry.getKey(), entry.getValue());
+        }
+        this.delegate.store(namespace, events);
+    }
+
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads) throws IOException {
+        checkGet(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return resolve(namespace,
+                this.delegate.get(namespace,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads
+                ),
+                includePayloads
+        );
+    }
+
+    @Override
+    public List<Event> get(final String namespace,
+                           final long startTimestampMillis,
+                           final long endTimestampMillis,
+                           final Map<String, String> metadataQuery,
+                           final Map<String, String> dimensionsQuery,
+                           final boolean includePayloads,
+                           final Set<String> metadataKeys,
+                           final Set<String> dimensionKeys) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                metadataKeys,
+                dimensionKeys
+        );
+        return resolve(namespace,
+                this.delegate.get(namespace,
+                        startTimestampMillis,
+                        endTimestampMillis,
+                        metadataQuery,
+                        dimensionsQuery,
+                        includePayloads,
+                        metadataKeys,
+                        dimensionKeys
+                ),
+                includePayloads
+        );
+    }
+
+    @Override
+    public void stream(final String namespace,
+                       final long startTimestampMillis,
+                       final long endTimestampMillis,
+                       final Map<String, String> metadataQuery,
+                       final Map<String, String> dimensionsQuery,
+                       final boolean includePayloads,
+                       final EventHandler handler) throws IOException {
+        checkStream(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery, handler);
+        if (!includePayloads) {
+            this.delegate.stream(namespace,
+                    startTimestampMillis,
+                    endTimestampMillis,
+                    metadataQuery,
+                    dimensionsQuery,
+                    false,
+                    handler
+            );
+            return;
+        }
+        // events are resolved and handed over in small batches, to fetch payloads in parallel
+        final List<Event> pending = new ArrayList<>(streamBatchSize);
+        final boolean[] stopped = {false};
+        this.delegate.stream(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                true,
+                event -> {
+                    pending.add(event);
+                    if (pending.size() < streamBatchSize) {
+                        return true;
+                    }
+                    stopped[0] = !handle(namespace, pending, handler);
+                    return !stopped[0];
+                }
+        );
+        if (!stopped[0]) {
+            handle(namespace, pending, handler);
+        }
+    }
+
+    @Override
+    public Page get(final String namespace,
+                    final long startTimestampMillis,
+                    final long endTimestampMillis,
+                    final Map<String, String> metadataQuery,
+                    final Map<String, String> dimensionsQuery,
+                    final boolean includePayloads,
+                    final Order order,
+                    final int limit,
+                    final String continuationToken) throws IOException {
+        checkGet(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                order,
+                limit,
+                continuationToken
+        );
+        final Page page = this.delegate.get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                includePayloads,
+                order,
+                limit,
+                continuationToken
+        );
+        return new Page(resolve(namespace, page.getEvents(), includePayloads), page.getContinuationToken());
+    }
+
+    @Override
+    public long count(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        checkCount(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return this.delegate.count(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+    }
+
+    @Override
+    public boolean exists(final String namespace,
+                          final long startTimestampMillis,
+                          final long endTimestampMillis,
+                          final Map<String, String> metadataQuery,
+                          final Map<String, String> dimensionsQuery) throws IOException {
+        checkExists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        return this.delegate.exists(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+    }
+
+    @Override
+    public int delete(final String namespace,
+                      final long startTimestampMillis,
+                      final long endTimestampMillis,
+                      final Map<String, String> metadataQuery,
+                      final Map<String, String> dimensionsQuery) throws IOException {
+        checkDelete(namespace, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        // only offloaded events are read, and only their reference metadata
+        final Map<String, String> offloadedQuery = metadataQuery != null ? new HashMap<>(metadataQuery) : new HashMap<>();
+        offloadedQuery.put(referenceMetadataKey, "~.*");
+        final List<String> keys = new ArrayList<>();
+        for (final Event event : this.delegate.get(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                offloadedQuery,
+                dimensionsQuery,
+                false,
+                Collections.singleton(referenceMetadataKey),
+                Collections.emptySet())) {
+            keys.add(event.getMetadata().get(referenceMetadataKey));
+        }
+        // payloads go last, an event is never left with a reference to a missing payload
+        final int deleted = this.delegate.delete(namespace,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery
+        );
+        for (final Map.Entry<String, List<String>> entry : groupByPayloadsNamespace(namespace, keys).entrySet()) {
+            this.payloads.delete(entry.getKey(), entry.getValue());
+        }
+        // payloads of events stored since the query are left to expiry to sweep
+        final Map<String, byte[]> sweepDays = new HashMap<>();
+        for (final long dayStartMillis : getPayloadsNamespaces(namespace).keySet()) {
+            if (dayStartMillis <= endTimestampMillis && dayStartMillis + TimeUnit.DAYS.toMillis(1) > startTimestampMillis) {
+                sweepDays.put(payloadsDayFormatter.format(Instant.ofEpochMilli(dayStartMillis)), new byte[0]);
+            }
+        }
+        if (!sweepDays.isEmpty()) {
+            storePayloads(getSweepNamespace(namespace), sweepDays);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Map<Long, Double> aggregate(final String namespace,
+                                       final String dimension,
+                                       final long startTimestampMillis,
+                                       final long endTimestampMillis,
+                                       final Map<String, String> metadataQuery,
+                                       final Map<String, String> dimensionsQuery,
+                                       final int aggregateIntervalMillis,
+                                       final AggregationFunction aggregationFunction) throws IOException {
+        checkAggregate(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                aggregateIntervalMillis,
+                aggregationFunction
+        );
+        return this.delegate.aggregate(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                aggregateIntervalMillis,
+                aggregationFunction
+        );
+    }
+
+    @Override
+    public List<GroupAggregate> aggregateGroups(final String namespace,
+                                                final String dimension,
+                                                final long startTimestampMillis,
+                                                final long endTimestampMillis,
+                                                final Map<String, String> metadataQuery,
+                                                final Map<String, String> dimensionsQuery,
+                                                final List<String> groupByMetadataKeys,
+                                                final int aggregateIntervalMillis,
+                                                final AggregationFunction aggregationFunction,
+                                                final Order order,
+                                                final int limit) throws IOException {
+        checkAggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+        // no event has the reference metadata, as far as callers can tell
+        if (groupByMetadataKeys.contains(referenceMetadataKey)) {
+            return Collections.emptyList();
+        }
+        return this.delegate.aggregateGroups(namespace,
+                dimension,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                groupByMetadataKeys,
+                aggregateIntervalMillis,
+                aggregationFunction,
+                order,
+                limit
+        );
+    }
+
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery) throws IOException {
+        checkMetadata(namespace, metadataKey, startTimestampMillis, endTimestampMillis, metadataQuery, dimensionsQuery);
+        if (referenceMetadataKey.equals(metadataKey)) {
+            return Collections.emptySet();
+        }
+        return this.delegate.metadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery
+        );
+    }
+
+    @Override
+    public Set<String> metadata(final String namespace,
+                                final String metadataKey,
+                                final long startTimestampMillis,
+                                final long endTimestampMillis,
+                                final Map<String, String> metadataQuery,
+                                final Map<String, String> dimensionsQuery,
+                                final String prefix,
+                                final int limit) throws IOException {
+        checkMetadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                prefix,
+                limit
+        );
+        if (referenceMetadataKey.equals(metadataKey)) {
+            return Collections.emptySet();
+        }
+        return this.delegate.metadata(namespace,
+                metadataKey,
+                startTimestampMillis,
+                endTimestampMillis,
+                metadataQuery,
+                dimensionsQuery,
+                prefix,
+                limit
+        );
+    }
+
+    @Override
+    public void expire(final String namespace, final long endTimestampMillis) throws IOException {
+        checkExpire(namespace, endTimestampMillis);
+        this.delegate.expire(namespace, endTimestampMillis);
+        // events before the end timestamp are gone, so are the payloads with keys before it; days entirely before it
+        // are dropped, only the day containing it is looked at key by key
+        final String endKey = String.format("%019d", endTimestampMillis);
+        for (final Map.Entry<Long, String> entry : getPayloadsNamespaces(namespace).entrySet()) {
+            final long dayStartMillis = entry.getKey();
+            if (dayStartMillis >= endTimestampMillis) {
+                continue;
+            }
+            if (dayStartMillis + TimeUnit.DAYS.toMillis(1) <= endTimestampMillis) {
+                dropPayloads(entry.getValue());
+                continue;
+            }
+            final List<String> keys = new ArrayList<>();
+            int start = 0;
+            Collection<String> page;
+            do {
+                page = this.payloads.keys(entry.getValue(), start, expireKeysPageSize);
+                for (final String key : page) {
+                    if (key.compareTo(endKey) < 0) {
+                        keys.add(key);
+                    }
+                }
+                start += page.size();
+            } while (page.size() == expireKeysPageSize);
+            if (!keys.isEmpty()) {
+                this.payloads.delete(entry.getValue(), keys);
+            }
+        }
+        sweep(namespace);
+    }
+
+    @Override
+    public void setRetention(final String namespace, final long retentionMillis) throws IOException {
+        checkSetRetention(namespace, retentionMillis);
+        this.delegate.setRetention(namespace, retentionMillis);
+    }
+
+    @Override
+    public long getRetention(final String namespace) throws IOException {
+        checkGetRetention(namespace);
+        return this.delegate.getRetention(namespace);
+    }
+
+    /**
+     * Returns the objects namespace holding the offloaded payloads of events in the given events namespace, on the
+     * UTC day of the given timestamp.
+     *
+     * @param namespace the events namespace identifier
+     * @param timestampMillis timestamp of the events
+     * @return the objects namespace identifier
+     */
+    public String getPayloadsNamespace(final String namespace, final long timestampMillis) {
+        return getPayloadsNamespacePrefix(namespace) + payloadsDayFormatter.format(Instant.ofEpochMilli(timestampMillis));
+    }
+
+    private static String getPayloadsNamespacePrefix(final String namespace) {
+        return "payloads-" + namespace + "-";
+    }
+
+    // holds the days marked for sweeping; never ends with a day, so it is not taken for a payloads namespace
+    private static String getSweepNamespace(final String namespace) {
+        return getPayloadsNamespacePrefix(namespace) + "sweep";
+    }
+
+    // removes payloads that no event refers to from the days marked by deletes
+    private void sweep(final String namespace) throws IOException {
+        final String sweepNamespace = getSweepNamespace(namespace);
+        if (!this.payloads.namespaces().contains(sweepNamespace)) {
+            return;
+        }
+        final Map<Long, String> payloadsNamespaces = getPayloadsNamespaces(namespace);
+        for (final String day : this.payloads.keys(sweepNamespace, 0, -1)) {
+            // unmarked first, so deletes from now on mark the day again
+            this.payloads.delete(sweepNamespace, day);
+            final long dayStartMillis = LocalDate.parse(day, payloadsDayFormatter)
+                    .atStartOfDay(ZoneOffset.UTC)
+                    .toInstant()
+                    .toEpochMilli();
+            final String payloadsNamespace = payloadsNamespaces.get(dayStartMillis);
+            // expired meanwhile
+            if (payloadsNamespace == null) {
+                continue;
+            }
+            if (!sweepDay(namespace, dayStartMillis, payloadsNamespace)) {
+                this.payloads.store(sweepNamespace, day, new byte[0]);
+            }
+        }
+    }
+
+    // returns false if some payloads were too recent to tell whether they are left behind
+    private boolean sweepDay(final String namespace,
+                             final long dayStartMillis,
+                             final String payloadsNamespace) throws IOException {
+        final Set<String> referenced = new HashSet<>();
+        for (final Event event : this.delegate.get(namespace,
+                dayStartMillis,
+                dayStartMillis + TimeUnit.DAYS.toMillis(1) - 1,
+                Collections.singletonMap(referenceMetadataKey, "~.*"),
+                null,
+                false,
+                Collections.singleton(referenceMetadataKey),
+                Collections.emptySet())) {
+            referenced.add(event.getMetadata().get(referenceMetadataKey));
+        }
+        final long sweepBeforeMillis = System.currentTimeMillis() - sweepAfterMillis;
+        boolean swept = true;
+        final List<String> orphans = new ArrayList<>();
+        int start = 0;
+        Collection<String> page;
+        do {
+            page = this.payloads.keys(payloadsNamespace, start, expireKeysPageSize);
+            for (final String key : page) {
+                if (referenced.contains(key)) {
+                    continue;
+                }
+                if (toStoredMillis(key) < sweepBeforeMillis) {
+                    orphans.add(key);
+                } else {
+                    swept = false;
+                }
+            }
+            start += page.size();
+        } while (page.size() == expireKeysPageSize);
+        if (!orphans.isEmpty()) {
+            this.payloads.delete(payloadsNamespace, orphans);
+        }
+        return swept;
+    }
+
+    // returns the payloads namespaces of the events namespace, by start of their day
+    private Map<Long, String> getPayloadsNamespaces(final String namespace) throws IOException {
+        final String prefix = getPayloadsNamespacePrefix(namespace);
+        final Map<Long, String> results = new TreeMap<>();
+        for (final String payloadsNamespace : this.payloads.namespaces()) {
+            if (!payloadsNamespace.startsWith(prefix)) {
+                continue;
+            }
+            final String day = payloadsNamespace.substring(prefix.length());
+            // namespaces of other events namespaces can share the prefix, but not end with a day
+            if (day.length() != 8 || !day.chars().allMatch(Character::isDigit)) {
+                continue;
+            }
+            final long dayStartMillis = LocalDate.parse(day, payloadsDayFormatter)
+                    .atStartOfDay(ZoneOffset.UTC)
+                    .toInstant()
+                    .toEpochMilli();
+            results.put(dayStartMillis, payloadsNamespace);
+        }
+        return results;
+    }
+
+    private Map<String, List<String>> groupByPayloadsNamespace(final String namespace, final List<String> keys) {
+        final Map<String, List<String>> results = new HashMap<>();
+        for (final String key : keys) {
+            final String payloadsNamespace = getPayloadsNamespace(namespace, toTimestampMillis(key));
+            results.computeIfAbsent(payloadsNamespace, ignored -> new ArrayList<>()).add(key);
+        }
+        return results;
+    }
+
+    private void storePayloads(final String payloadsNamespace, final Map<String, byte[]> payloads) throws IOException {
+        if (this.payloadsNamespaces.add(payloadsNamespace)) {
+            this.payloads.create(payloadsNamespace);
+        }
+        try {
+            this.payloads.store(payloadsNamespace, payloads);
+        } catch (IOException e) {
+            // the namespace may have been dropped by expiry in another process; create it and try once more
+            this.payloads.create(payloadsNamespace);
+            this.payloads.store(payloadsNamespace, payloads);
+        }
+    }
+
+    private void dropPayloads(final String payloadsNamespace) throws IOException {
+        this.payloadsNamespaces.remove(payloadsNamespace);
+        this.payloads.drop(payloadsNamespace);
+    }
+
+    private boolean handle(final String namespace,
+                           final List<Event> pending,
+                           final EventHandler handler) throws IOException {
+        final List<Event> events = resolve(namespace, new ArrayList<>(pending), true);
+        pending.clear();
+        for (final Event event : events) {
+            if (!handler.handle(event)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // replaces payload references with the payloads they refer to, and removes the reference metadata
+    private List<Event> resolve(final String namespace,
+                                final List<Event> events,
+                                final boolean includePayloads) throws IOException {
+        final List<String> keys = new ArrayList<>();
+        boolean hasReferenceMetadata = false;
+        for (final Event event : events) {
+            if (includePayloads && isReference(event.getPayload())) {
+                keys.add(toKey(event.getPayload()));
+            }
+            hasReferenceMetadata |= event.getMetadata().containsKey(referenceMetadataKey);
+        }
+        if (keys.isEmpty() && !hasReferenceMetadata) {
+            return events;
+        }
+        final Map<String, byte[]> fetched = new HashMap<>();
+        for (final Map.Entry<String, List<String>> entry : groupByPayloadsNamespace(namespace, keys).entrySet()) {
+            fetched.putAll(fetch(entry.getKey(), entry.getValue()));
+        }
+        final List<Event> results = new ArrayList<>(events.size());
+        for (final Event event : events) {
+            if (!isReference(event.getPayload()) && !event.getMetadata().containsKey(referenceMetadataKey)) {
+                results.add(event);
+                continue;
+            }
+            final Map<String, String> metadata = new HashMap<>(event.getMetadata());
+            metadata.remove(referenceMetadataKey);
+            final byte[] payload = includePayloads && isReference(event.getPayload())
+                    ? fetched.get(toKey(event.getPayload()))
+                    : event.getPayload();
+            results.add(new Event(event.getTimestampMillis(), metadata, event.getDimensions(), payload));
+        }
+        return results;
+    }
+
+    private Map<String, byte[]> fetch(final String namespace, final List<String> keys) throws IOException {
+        if (keys.size() <= fetchBatchSize) {
+            return this.payloads.get(namespace, keys);
+        }
+        final List<Future<Map<String, byte[]>>> futures = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += fetchBatchSize) {
+            final List<String> batch = keys.subList(from, Math.min(keys.size(), from + fetchBatchSize));
+            futures.add(this.fetchExecutor.submit(() -> this.payloads.get(namespace, batch)));
+        }
+        final Map<String, byte[]> results = new HashMap<>();
+        try {
+            for (final Future<Map<String, byte[]>> future : futures) {
+                results.putAll(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            for (final Future<Map<String, byte[]>> future : futures) {
+                future.cancel(true);
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e);
+        }
+        return results;
+    }
+
+    private static boolean isReference(final byte[] payload) {
+        if (payload == null || payload.length < referencePrefix.length) {
+            return false;
+        }
+        for (int i = 0; i < referencePrefix.length; ++i) {
+            if (payload[i] != referencePrefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] toReference(final String key) {
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final byte[] reference = Arrays.copyOf(referencePrefix, referencePrefix.length + keyBytes.length);
+        System.arraycopy(keyBytes, 0, reference, referencePrefix.length, keyBytes.length);
+        return reference;
+    }
+
+    private static String toKey(final byte[] reference) {
+        return new String(reference, referencePrefix.length, reference.length - referencePrefix.length, StandardCharsets.UTF_8);
+    }
+
+    private static long toTimestampMillis(final String key) {
+        return Long.parseLong(key.substring(0, 19));
+    }
+
+    // keys stored before the time of the store was part of them are old enough to sweep
+    private static long toStoredMillis(final String key) {
+        if (key.length() < 40 || !key.substring(20, 39).chars().allMatch(Character::isDigit)) {
+            return 0;
+        }
+        return Long.parseLong(key.substring(20, 39));
+    }
+
+    private static ExecutorService newFetchExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(defaultFetchThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "cantor-offloaded-payloads-fetcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -110,6 +110,28 @@ public class ReadWriteSets implements Sets {
         return this.readable.union(namespace, sets, min, max, start, count, ascending);
     }
 
+    @Override
+    public Map<String, Long> union(final String namespace,
+                                   final Collection<String> sets,
+                                   final long min,
+                                   final long max,
+                                   final int start,
+                                   final int count,
+                                   final boolean ascending,
+                                   final Aggregate aggregate) throws IOException {
+        checkUnion(namespace, sets, min, max, start, count, ascending, aggregate);
+        return this.readable.union(namespace, sets, min, max, start, count, ascending, aggregate);
+    }
+
+    @Override
+    public int unionStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkUnionStore(namespace, destination, sets, aggregate);
+        return this.writable.unionStore(namespace, destination, sets, aggregate);
+    }
+
     @Override
     public Map<String, Long> intersect(final String namespace,
                                        final Collection<String> sets,
@@ -117,9 +139,56 @@ public class ReadWriteSets implements Sets {
                                        final long max,
                                        final int start,
                                        final int count,
-                                       final boolean ascending) throws IOException {
-        checkIntersect(namespace, sets, min, max, start, count, ascending);
-        return this.readable.intersect(namespace, sets, min, max, start, count, ascending);
+                                       final boolean ascending,
+                                       final Aggregate aggregate) throws IOException {
+        checkIntersect(namespace, sets, min, max, start, count, ascending, aggregate);
+        return this.readable.intersect(namespace, sets, min, max, start, count, ascending, aggregate);
+    }
+
+    @Override
+    public int interStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkInterStore(namespace, destination, sets, aggregate);
+        return this.writable.interStore(namespace, destination, sets, aggregate);
+    }
+
+    @Override
+    public Map<String, Long> diff(final String namespace,
+                                  final String set,
+                                  final Collection<String> sets,
+                                  final long min,
+                                  final long max,
+                                  final int start,
+                                  final int count,
+                                  final boolean ascending) throws IOException {
+        checkDiff(namespace, set, sets, min, max, start, count, ascending);
+        return this.readable.diff(namespace, set, sets, min, max, start, count, ascending);
+    }
+
+    @Override
+    public int diffStore(final String namespace,
+                         final String destination,
+                         final String set,
+                         final Collection<String> sets) throws IOException {
+        checkDiffStore(namespace, destination, set, sets);
+        return this.writable.diffStore(namespace, destination, set, sets);
+    }
+
+    @Override
+    public boolean move(final String namespace,
+                        final String source,
+                        final String destination,
+                        final String entry) throws IOException {
+        checkMove(namespace, source, destination, entry);
+        return this.writable.move(namespace, source, destination, entry);
+    }
+
+    @Override
+    public int copy(final String namespace, final String source, final String destination) throws IOException {
+        checkCopy(namespace, source, destination);
+        return this.writable.copy(namespace, source, destination);
     }
 
     @Override
@@ -134,6 +203,30 @@ public class ReadWriteSets implements Sets {
         return this.writable.pop(namespace, set, min, max, start, count, ascending);
     }
 
+    @Override
+    public Claim claim(final String namespace,
+                       final String set,
+                       final long min,
+                       final long max,
+                       final int count,
+                       final boolean ascending,
+                       final long leaseMillis) throws IOException {
+        checkClaim(namespace, set, min, max, count, ascending, leaseMillis);
+        return this.writable.claim(namespace, set, min, max, count, ascending, leaseMillis);
+    }
+
+    @Override
+    public void ack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkAck(namespace, set, leaseId, entries);
+        this.writable.ack(namespace, set, leaseId, entries);
+    }
+
+    @Override
+    public void nack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkNack(namespace, set, leaseId, entries);
+        this.writable.nack(namespace, set, leaseId, entries);
+    }
+
     @Override
     public Collection<String> sets(final String namespace) throws IOException {
         checkSets(namespace);
@@ -157,4 +250,23 @@ public class ReadWriteSets implements Sets {
         checkInc(namespace, set, entry, count);
         this.writable.inc(namespace, set, entry, count);
     }
+
+    @Override
+    public void inc(final String namespace,
+                    final String set,
+                    final Map<String, Long> entries,
+                    final boolean updateOnly) throws IOException {
+        checkInc(namespace, set, entries);
+        this.writable.inc(namespace, set, entries, updateOnly);
+    }
+
+    @Override
+    public boolean compareAndSet(final String namespace,
+                                 final String set,
+                                 final String entry,
+                                 final Long expected,
+                                 final long weight) throws IOException {
+        checkCompareAndSet(namespace, set, entry, expected, weight);
+        return this.writable.compareAndSet(namespace, set, entry, expected, weight);
+    }
 }
@@ -109,6 +109,28 @@ public class ShardedSets implements Sets {
         return getSets(namespace).union(namespace, sets, min, max, start, count, ascending);
     }
 
+    @Override
+    public Map<String, Long> union(final String namespace,
+                                   final Collection<String> sets,
+                                   final long min,
+                                   final long max,
+                                   final int start,
+                                   final int count,
+                                   final boolean ascending,
+                                   final Aggregate aggregate) throws IOException {
+        checkUnion(namespace, sets, min, max, start, count, ascending, aggregate);
+        return getSets(namespace).union(namespace, sets, min, max, start, count, ascending, aggregate);
+    }
+
+    @Override
+    public int unionStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkUnionStore(namespace, destination, sets, aggregate);
+        return getSets(namespace).unionStore(namespace, destination, sets, aggregate);
+    }
+
     @Override
     public Map<String, Long> intersect(final String namespace,
                                        final Collection<String> sets,
@@ -116,9 +138,56 @@ public class ShardedSets implements Sets {
                                        final long max,
                                        final int start,
                                        final int count,
-                                       final boolean ascending) throws IOException {
-        checkIntersect(namespace, sets, min, max, start, count, ascending);
-        return getSets(namespace).intersect(namespace, sets, min, max, start, count, ascending);
+                                       final boolean ascending,
+                                       final Aggregate aggregate) throws IOException {
+        checkIntersect(namespace, sets, min, max, start, count, ascending, aggregate);
+        return getSets(namespace).intersect(namespace, sets, min, max, start, count, ascending, aggregate);
+    }
+
+    @Override
+    public int interStore(final String namespace,
+                          final String destination,
+                          final Collection<String> sets,
+                          final Aggregate aggregate) throws IOException {
+        checkInterStore(namespace, destination, sets, aggregate);
+        return getSets(namespace).interStore(namespace, destination, sets, aggregate);
+    }
+
+    @Override
+    public Map<String, Long> diff(final String namespace,
+                                  final String set,
+                                  final Collection<String> sets,
+                                  final long min,
+                                  final long max,
+                                  final int start,
+                                  final int count,
+                                  final boolean ascending) throws IOException {
+        checkDiff(namespace, set, sets, min, max, start, count, ascending);
+        return getSets(namespace).diff(namespace, set, sets, min, max, start, count, ascending);
+    }
+
+    @Override
+    public int diffStore(final String namespace,
+                         final String destination,
+                         final String set,
+                         final Collection<String> sets) throws IOException {
+        checkDiffStore(namespace, destination, set, sets);
+        return getSets(namespace).diffStore(namespace, destination, set, sets);
+    }
+
+    @Override
+    public boolean move(final String namespace,
+                        final String source,
+                        final String destination,
+                        final String entry) throws IOException {
+        checkMove(namespace, source, destination, entry);
+        return getSets(namespace).move(namespace, source, destination, entry);
+    }
+
+    @Override
+    public int copy(final String namespace, final String source, final String destination) throws IOException {
+        checkCopy(namespace, source, destination);
+        return getSets(namespace).copy(namespace, source, destination);
     }
 
     @Override
@@ -133,6 +202,30 @@ public class ShardedSets implements Sets {
         return getSets(namespace).pop(namespace, set, min, max, start, count, ascending);
     }
 
+    @Override
+    public Claim claim(final String namespace,
+                       final String set,
+                       final long min,
+                       final long max,
+                       final int count,
+                       final boolean ascending,
+                       final long leaseMillis) throws IOException {
+        checkClaim(namespace, set, min, max, count, ascending, leaseMillis);
+        return getSets(namespace).claim(namespace, set, min, max, count, ascending, leaseMillis);
+    }
+
+    @Override
+    public void ack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkAck(namespace, set, leaseId, entries);
+        getSets(namespace).ack(namespace, set, leaseId, entries);
+    }
+
+    @Override
+    public void nack(final String namespace, final String set, final String leaseId, final Collection<String> entries) throws IOException {
+        checkNack(namespace, set, leaseId, entries);
+        getSets(namespace).nack(namespace, set, leaseId, entries);
+    }
+
     @Override
     public Collection<String> sets(final String namespace) throws IOException {
         checkSets(namespace);
@@ -157,6 +250,25 @@ public class ShardedSets implements Sets {
         getSets(namespace).inc(namespace, set, entry, count);
     }
 
+    @Override
+    public void inc(final String namespace,
+                    final String set,
+                    final Map<String, Long> entries,
+                    final boolean updateOnly) throws IOException {
+        checkInc(namespace, set, entries);
+        getSets(namespace).inc(namespace, set, entries, updateOnly);
+    }
+
+    @Override
+    public boolean compareAndSet(final String namespace,
+                                 final String set,
+                                 final String entry,
+                                 final Long expected,
+                                 final long weight) throws IOException {
+        checkCompareAndSet(namespace, set, entry, expected, weight);
+        return getSets(namespace).compareAndSet(namespace, set, entry, expected, weight);
+    }
+
     private Collection<String> doNamespaces() throws IOException {
         final List<String> results = new ArrayList<>();
         for (final Sets delegate : this.delegates) {
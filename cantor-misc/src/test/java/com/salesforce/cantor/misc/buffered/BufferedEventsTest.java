@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.misc.buffered;
+
+import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.Events;
+import com.salesforce.cantor.common.AbstractBaseEventsTest;
+import com.salesforce.cantor.h2.EventsOnH2;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class BufferedEventsTest extends AbstractBaseEventsTest {
+    @Override
+    public Cantor getCantor() throws IOException {
+        return BufferedTests.getCantor();
+    }
+
+    @Test
+    public void testStoresAreGrouped() throws Exception {
+        final AtomicInteger storeCalls = new AtomicInteger();
+        final Events delegate = new EventsOnH2(BufferedTests.getPath()) {
+            @Override
+            public void store(final String namespace, final Collection<Event> batch) throws IOException {
+                storeCalls.incrementAndGet();
+                super.store(namespace, batch);
+            }
+        };
+        // long flush interval, events are flushed on size or on read only
+        final BufferedEvents buffered = new BufferedEvents(delegate,
+                BufferedEvents.Durability.ACK_ON_ENQUEUE,
+                1000,
+                100,
+                1024 * 1024,
+                TimeUnit.HOURS.toMillis(1)
+        );
+        final String namespace = UUID.randomUUID().toString();
+        buffered.create(namespace);
+
+        final long timestampMillis = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            final long eventTimestampMillis = timestampMillis + i;
+            futures.add(executor.submit(() -> {
+                buffered.store(namespace, eventTimestampMillis, null, null);
+                return null;
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // reads flush pending events first
+        assertEquals(buffered.get(namespace, timestampMillis, timestampMillis + 1000).size(), 1000);
+        assertTrue(storeCalls.get() < 100, "store calls: " + storeCalls.get());
+        buffered.drop(namespace);
+        buffered.shutdown();
+    }
+
+    @Test
+    public void testDropWhileStoring() throws Exception {
+        final AtomicInteger storedEvents = new AtomicInteger();
+        final Events delegate = new EventsOnH2(BufferedTests.getPath()) {
+            @Override
+            public void store(final String namespace, final Collection<Event> batch) {
+                storedEvents.addAndGet(batch.size());
+            }
+
+            @Override
+            public void drop(final String namespace) {
+            }
+        };
+        // few permits, so batches left in dropped buffers would soon block stores
+        final BufferedEvents buffered = new BufferedEvents(delegate,
+                BufferedEvents.Durability.ACK_ON_ENQUEUE,
+                20,
+                10,
+                1024 * 1024,
+                TimeUnit.HOURS.toMillis(1)
+        );
+        final String namespace = UUID.randomUUID().toString();
+        final ExecutorService executor = Executors.newFixedThreadPool(5);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2_000; ++i) {
+                    buffered.store(namespace, System.currentTimeMillis(), null, null);
+                }
+                return null;
+            }));
+        }
+        final Future<?> drops = executor.submit(() -> {
+            for (int i = 0; i < 2_000; ++i) {
+                buffered.drop(namespace);
+            }
+            return null;
+        });
+        for (final Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        drops.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        // every batch is flushed by a drop or by shutdown, none is left in a dropped buffer
+        buffered.shutdown();
+        assertEquals(storedEvents.get(), 4 * 2_000);
+    }
+
+    @Test
+    public void testShutdownFlushesPending() throws Exception {
+        final Events delegate = new EventsOnH2(BufferedTests.getPath());
+        final BufferedEvents buffered = new BufferedEvents(delegate,
+                BufferedEvents.Durability.ACK_ON_ENQUEUE,
+                1000,
+                100,
+                1024 * 1024,
+                TimeUnit.HOURS.toMillis(1)
+        );
+        final String namespace = UUID.randomUUID().toString();
+        buffered.create(namespace);
+
+        final long timestampMillis = System.currentTimeMillis();
+        for (int i = 0; i < 10; ++i) {
+            buffered.store(namespace, timestampMillis + i, null, null);
+        }
+        assertEquals(delegate.get(namespace, timestampMillis, timestampMillis + 10).size(), 0);
+        buffered.shutdown();
+        assertEquals(delegate.get(namespace, timestampMillis, timestampMillis + 10).size(), 10);
+        delegate.drop(namespace);
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.misc.buffered;
+
+import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.Events;
+import com.salesforce.cantor.common.DelegatingCantor;
+import com.salesforce.cantor.h2.CantorOnH2;
+
+import java.io.IOException;
+import java.util.UUID;
+
+class BufferedTests {
+    private static final String path = "/tmp/cantor-buffered-test/" + UUID.randomUUID().toString();
+
+    public static Cantor getCantor() throws IOException {
+        final Cantor cantor = new CantorOnH2(path);
+        final Events events = new BufferedEvents(cantor.events(), BufferedEvents.Durability.ACK_ON_FLUSH);
+        return DelegatingCantor.withEvents(cantor, events);
+    }
+
+    static String getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.misc.coalescing;
+
+import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.common.AbstractBaseSetsTest;
+import com.salesforce.cantor.h2.SetsOnH2;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class CoalescingSetsTest extends AbstractBaseSetsTest {
+    @Override
+    public Cantor getCantor() throws IOException {
+        return CoalescingTests.getCantor();
+    }
+
+    @Test
+    public void testIncrementsAreCoalesced() throws Exception {
+        final AtomicInteger singleIncs = new AtomicInteger();
+        final AtomicInteger updateIncs = new AtomicInteger();
+        final AtomicInteger batchIncs = new AtomicInteger();
+        final SetsOnH2 delegate = new SetsOnH2(CoalescingTests.getPath()) {
+            @Override
+            public void inc(final String namespace, final String set, final String entry, final long count) throws IOException {
+                singleIncs.incrementAndGet();
+                super.inc(namespace, set, entry, count);
+            }
+
+            @Override
+            public void inc(final String namespace,
+                            final String set,
+                            final Map<String, Long> entries,
+                            final boolean updateOnly) throws IOException {
+                (updateOnly ? updateIncs : batchIncs).incrementAndGet();
+                super.inc(namespace, set, entries, updateOnly);
+            }
+        };
+        final CoalescingSets coalescing = new CoalescingSets(delegate, 1_000, 1_000, TimeUnit.HOURS.toMillis(1));
+        final String namespace = UUID.randomUUID().toString();
+        final String set = UUID.randomUUID().toString();
+        coalescing.create(namespace);
+        for (int i = 0; i < 10; ++i) {
+            coalescing.add(namespace, set, "entry-" + i, 0);
+        }
+
+        for (int i = 0; i < 1000; ++i) {
+            coalescing.inc(namespace, set, "entry-" + i % 10, 1);
+        }
+        coalescing.inc(namespace, set, "missing", 1);
+        assertEquals(singleIncs.get(), 0);
+
+        // reads flush pending increments, merged in a single update only batch increment per set
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(coalescing.weight(namespace, set, "entry-" + i).longValue(), 100L);
+        }
+        assertEquals(updateIncs.get(), 1);
+        assertEquals(batchIncs.get(), 0);
+
+        // single entry increments leave missing entries alone, batch increments add them
+        assertNull(coalescing.weight(namespace, set, "missing"));
+        coalescing.inc(namespace, set, Collections.singletonMap("missing", 5L));
+        coalescing.inc(namespace, set, "missing", 1);
+        assertEquals(coalescing.weight(namespace, set, "missing").longValue(), 6L);
+        assertEquals(batchIncs.get(), 1);
+        assertEquals(updateIncs.get(), 1);
+
+        // update only batch increments are merged with single entry ones
+        coalescing.inc(namespace, set, "entry-0", 5);
+        coalescing.inc(namespace, set, Collections.singletonMap("other-missing", 5L), true);
+        coalescing.shutdown();
+        assertEquals(delegate.weight(namespace, set, "entry-0").longValue(), 105L);
+        assertNull(delegate.weight(namespace, set, "other-missing"));
+        assertEquals(updateIncs.get(), 2);
+        assertEquals(singleIncs.get(), 0);
+        assertThrows(IllegalStateException.class, () -> coalescing.inc(namespace, set, "entry-0", 1));
+
+        delegate.drop(namespace);
+    }
+
+    @Test
+    public void testFlushFailuresAreNotThrownToReaders() throws Exception {
+        final SetsOnH2 delegate = new SetsOnH2(CoalescingTests.getPath()) {
+            @Override
+            public void inc(final String namespace,
+                            final String set,
+                            final Map<String, Long> entries,
+                            final boolean updateOnly) throws IOException {
+                throw new IOException("failed to increment");
+            }
+        };
+        final CoalescingSets coalescing = new CoalescingSets(delegate, 10, 10, TimeUnit.HOURS.toMillis(1));
+        final String namespace = UUID.randomUUID().toString();
+        final String set = UUID.randomUUID().toString();
+        coalescing.create(namespace);
+        coalescing.add(namespace, set, "entry", 0);
+
+        // increments beyond the pending limit wait for a flush; failed increments are lost, but free their room
+        for (int i = 0; i < 100; ++i) {
+            coalescing.inc(namespace, set, "entry-" + i, 1);
+        }
+        assertEquals(coalescing.weight(namespace, set, "entry").longValue(), 0L);
+        coalescing.shutdown();
+
+        delegate.drop(namespace);
+    }
+}
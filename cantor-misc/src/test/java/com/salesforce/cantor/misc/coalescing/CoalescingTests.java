@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.misc.coalescing;
+
+import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.Sets;
+import com.salesforce.cantor.common.DelegatingCantor;
+import com.salesforce.cantor.h2.CantorOnH2;
+
+import java.io.IOException;
+import java.util.UUID;
+
+class CoalescingTests {
+    private static final String path = "/tmp/cantor-coalescing-test/" + UUID.randomUUID().toString();
+
+    public static Cantor getCantor() throws IOException {
+        final Cantor cantor = new CantorOnH2(path);
+        final Sets sets = new CoalescingSets(cantor.sets());
+        return DelegatingCantor.withSets(cantor, sets);
+    }
+
+    static String getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.misc.offloaded;
+
+import com.salesforce.cantor.Cantor;
+import com.salesforce.cantor.Events;
+import com.salesforce.cantor.Objects;
+import com.salesforce.cantor.common.AbstractBaseEventsTest;
+import com.salesforce.cantor.h2.EventsOnH2;
+import com.salesforce.cantor.h2.ObjectsOnH2;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class OffloadedEventsTest extends AbstractBaseEventsTest {
+    @Override
+    public Cantor getCantor() throws IOException {
+        return OffloadedTests.getCantor();
+    }
+
+    @Test
+    public void testLargePayloadsAreOffloaded() throws Exception {
+        final Events delegate = new EventsOnH2(OffloadedTests.getPath());
+        final Objects payloads = new ObjectsOnH2(OffloadedTests.getPath());
+        final OffloadedEvents offloaded = new OffloadedEvents(delegate, payloads, 100, Executors.newFixedThreadPool(4));
+        final String namespace = UUID.randomUUID().toString();
+        offloaded.create(namespace);
+
+        // an hour into yesterday, so all events fall on the same day
+        final long dayMillis = TimeUnit.DAYS.toMillis(1);
+        final long timestampMillis = (System.currentTimeMillis() / dayMillis - 1) * dayMillis + TimeUnit.HOURS.toMillis(1);
+        final String payloadsNamespace = offloaded.getPayloadsNamespace(namespace, timestampMillis);
+        final List<Events.Event> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            final byte[] payload = new byte[i % 2 == 0 ? 10 : 1000];
+            Arrays.fill(payload, (byte) i);
+            batch.add(new Events.Event(timestampMillis + i,
+                    Collections.singletonMap("host", "host-" + i % 3),
+                    null,
+                    payload)
+            );
+        }
+        offloaded.store(namespace, batch);
+        assertEquals(payloads.size(payloadsNamespace), 500);
+
+        // small payloads stay inline, large ones are replaced with a reference
+        final List<Events.Event> stored = delegate.get(namespace, timestampMillis, timestampMillis + 1000, true);
+        for (final Events.Event event : stored) {
+            final int i = (int) (event.getTimestampMillis() - timestampMillis);
+            assertTrue(event.getPayload().length <= 100);
+            assertEquals(Arrays.equals(event.getPayload(), batch.get(i).getPayload()), i % 2 == 0);
+        }
+
+        final List<Events.Event> events = offloaded.get(namespace, timestampMillis, timestampMillis + 1000, true);
+        assertEquals(events.size(), 1000);
+        for (final Events.Event event : events) {
+            final int i = (int) (event.getTimestampMillis() - timestampMillis);
+            assertEquals(event.getPayload(), batch.get(i).getPayload());
+            assertEquals(event.getMetadata(), batch.get(i).getMetadata());
+        }
+
+        // payloads are removed with their events
+        offloaded.delete(namespace, timestampMillis, timestampMillis + 99, Collections.singletonMap("host", "host-1"), null);
+        assertEquals(payloads.size(payloadsNamespace), 500 - 17);
+        offloaded.expire(namespace, timestampMillis + 500);
+        assertEquals(payloads.size(payloadsNamespace), 250);
+
+        // payloads of a day entirely expired are dropped with their namespace
+        offloaded.store(namespace, Collections.singletonList(
+                new Events.Event(timestampMillis + dayMillis, Collections.emptyMap(), null, new byte[1000]))
+        );
+        offloaded.expire(namespace, timestampMillis + dayMillis - TimeUnit.HOURS.toMillis(1));
+        assertFalse(payloads.namespaces().contains(payloadsNamespace));
+        assertEquals(payloads.size(offloaded.getPayloadsNamespace(namespace, timestampMillis + dayMillis)), 1);
+        assertEquals(offloaded.get(namespace, 0, Long.MAX_VALUE, true).size(), 1);
+
+        offloaded.drop(namespace);
+        assertFalse(payloads.namespaces().contains(offloaded.getPayloadsNamespace(namespace, timestampMillis + dayMillis)));
+    }
+
+    @Test
+    public void testLeftoverPayloadsAreSwept() throws Exception {
+        final Objects payloads = new ObjectsOnH2(OffloadedTests.getPath());
+        final OffloadedEvents offloaded = new OffloadedEvents(new EventsOnH2(OffloadedTests.getPath()),
+                payloads, 100, Executors.newFixedThreadPool(4));
+        final String namespace = UUID.randomUUID().toString();
+        offloaded.create(namespace);
+        final long timestampMillis = System.currentTimeMillis();
+        final String payloadsNamespace = offloaded.getPayloadsNamespace(namespace, timestampMillis);
+        offloaded.store(namespace, Collections.singletonList(
+                new Events.Event(timestampMillis, Collections.emptyMap(), null, new byte[1000]))
+        );
+
+        // payloads of events deleted as they were stored; only the old one is swept, the recent one may still get
+        // its event
+        payloads.store(payloadsNamespace, String.format("%019d-%019d-%s", timestampMillis, 0, UUID.randomUUID()), new byte[1000]);
+        payloads.store(payloadsNamespace, String.format("%019d-%019d-%s", timestampMillis, timestampMillis, UUID.randomUUID()), new byte[1000]);
+        assertEquals(payloads.size(payloadsNamespace), 3);
+        offloaded.expire(namespace, 0);
+        assertEquals(payloads.size(payloadsNamespace), 3);
+
+        // days are only swept after a delete
+        offloaded.delete(namespace, timestampMillis + 1, timestampMillis + 1, null, null);
+        offloaded.expire(namespace, 0);
+        assertEquals(payloads.size(payloadsNamespace), 2);
+        assertEquals(offloaded.get(namespace, timestampMillis, timestampMillis, true).get(0).getPayload(), new byte[1000]);
+
+        offloaded.drop(namespace);
+        assertFalse(payloads.namespaces().stream().anyMatch(name -> name.contains(namespace)));
+    }
+
+    @Test
+    public void testReferenceMetadataIsHidden() throws Exception {
+        final Events offloaded = new OffloadedEvents(new EventsOnH2(OffloadedTests.getPath()),
+                new ObjectsOnH2(OffloadedTests.getPath()), 100, Executors.newFixedThreadPool(4));
+        final String namespace = UUID.randomUUID().toString();
+        offloaded.create(namespace);
+        final long timestampMillis = System.currentTimeMillis();
+        offloaded.store(namespace, Collections.singletonList(new Events.Event(timestampMillis,
+                Collections.singletonMap("host", "host-1"), Collections.singletonMap("value", 1.0), new byte[1000]))
+        );
+
+        final String referenceMetadataKey = "cantor-offloaded-payload";
+        assertTrue(offloaded.metadata(namespace, referenceMetadataKey, 0, Long.MAX_VALUE, null, null).isEmpty());
+        assertTrue(offloaded.metadata(namespace, referenceMetadataKey, 0, Long.MAX_VALUE, null, null, "", 10).isEmpty());
+        assertTrue(offloaded.aggregateGroups(namespace, "value", 0, Long.MAX_VALUE, null, null,
+                Collections.singletonList(referenceMetadataKey), 0, Events.AggregationFunction.SUM,
+                Events.Order.DESCENDING, 10).isEmpty());
+        assertEquals(offloaded.aggregateGroups(namespace, "value", 0, Long.MAX_VALUE, null, null,
+                Collections.singletonList("host"), 0, Events.AggregationFunction.SUM,
+                Events.Order.DESCENDING, 10).get(0).getGroup(), Collections.singletonMap("host", "host-1"));
+        assertThrows(IllegalArgumentException.class, () -> offloaded.store(namespace, Collections.singletonList(
+                new Events.Event(timestampMillis, Collections.singletonMap(referenceMetadataKey, "key"), null)))
+        );
+
+        offloaded.drop(namespace);
+    }
+}
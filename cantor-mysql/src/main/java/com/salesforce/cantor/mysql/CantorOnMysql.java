@@ -8,6 +8,7 @@
 package com.salesforce.cantor.mysql;
 
 import com.salesforce.cantor.*;
+import com.salesforce.cantor.jdbc.ParallelQueryExecutor;
 
 import javax.sql.DataSource;
 import java.io.IOException;
@@ -33,6 +34,13 @@ public class CantorOnMysql implements Cantor {
         this.events = new EventsOnMysql(dataSource);
     }
 
+    public CantorOnMysql(final DataSource dataSource, final ParallelQueryExecutor queryExecutor) throws IOException {
+        this.objects = new ObjectsOnMysql(dataSource);
+        this.sets = new SetsOnMysql(dataSource);
+        this.maps = new MapsOnMysql(dataSource);
+        this.events = new EventsOnMysql(dataSource, queryExecutor);
+    }
+
     @Override
     public Objects objects() {
         return this.objects;
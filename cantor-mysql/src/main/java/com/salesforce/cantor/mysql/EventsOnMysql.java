@@ -9,18 +9,29 @@ package com.salesforce.cantor.mysql;
 
 import com.salesforce.cantor.Events;
 import com.salesforce.cantor.jdbc.AbstractBaseEventsOnJdbc;
+import com.salesforce.cantor.jdbc.ParallelQueryExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.salesforce.cantor.jdbc.JdbcUtils.quote;
 
 public class EventsOnMysql extends AbstractBaseEventsOnJdbc implements Events {
     private static final Logger logger = LoggerFactory.getLogger(EventsOnMysql.class);
 
+    // mysql's max_allowed_packet, loaded on first bulk insert
+    private volatile int maxAllowedPacket;
+
     public EventsOnMysql(final String hostname, final int port, final String username, final String password)
             throws IOException {
         this(MysqlDataSourceProvider.getDatasource(
@@ -37,6 +48,10 @@ public class EventsOnMysql extends AbstractBaseEventsOnJdbc implements Events {
         super(dataSource);
     }
 
+    public EventsOnMysql(final DataSource dataSource, final ParallelQueryExecutor queryExecutor) throws IOException {
+        super(dataSource, queryExecutor);
+    }
+
     @Override
     protected String getCreateChunkLookupTableSql(final String namespace) {
         // sql to create chunk lookup table
@@ -77,31 +92,33 @@ public class EventsOnMysql extends AbstractBaseEventsOnJdbc implements Events {
         for (final String dimensionKey : getOrderedKeys(dimensions)) {
             sqlBuilder.append(quote(getDimensionKeyColumnName(dimensionKey))).append(" DOUBLE, ");
         }
-        sqlBuilder.append(quote(getPayloadColumnName())).append(" LONGBLOB, ")
-                .append("INDEX ").append(getEventTimestampColumnName())
-                .append(" (").append(quote(getEventTimestampColumnName())).append(") ");
+        sqlBuilder.append(quote(getPayloadColumnName())).append(" LONGBLOB");
 
-        final int maxIndexedColumns = 63;
-        int indexedColumnsCount = 0;
-        // add index to as many metadata as possible
-        for (final String metadataKey : getOrderedKeys(metadata)) {
-            if (++indexedColumnsCount > maxIndexedColumns) {
-                // only so many columns can be indexed
-                break;
-            }
-            sqlBuilder.append(", INDEX ")
-                    .append(quote(getMetadataKeyColumnName(metadataKey)))
-                    .append(" (").append(quote(getMetadataKeyColumnName(metadataKey))).append("(256)) ");
+        final Set<String> metadataColumnNames = new HashSet<>();
+        for (final String metadataKey : metadata.keySet()) {
+            metadataColumnNames.add(getMetadataKeyColumnName(metadataKey));
         }
-        // add index for dimensions if possible
-        for (final String dimensionKey : getOrderedKeys(dimensions)) {
-            if (++indexedColumnsCount > maxIndexedColumns) {
+        // innodb allows up to 64 indexes per table and 16 columns per index
+        final int maxIndexes = 64;
+        final int maxIndexColumns = 16;
+        int indexesCount = 0;
+        for (final List<String> columnNames : getChunkTableIndexesColumnNames(namespace, metadata, dimensions)) {
+            if (++indexesCount > maxIndexes) {
                 // only so many columns can be indexed
                 break;
             }
-            sqlBuilder.append(", INDEX ")
-                    .append(quote(getDimensionKeyColumnName(dimensionKey)))
-                    .append(" (").append(quote(getDimensionKeyColumnName(dimensionKey))).append(") ");
+            // single column indexes are named after the column
+            final String indexName = columnNames.size() == 1 ? columnNames.get(0) : "COMPOSITE_" + indexesCount;
+            sqlBuilder.append(", INDEX ").append(quote(indexName)).append(" (");
+            for (final String columnName : columnNames.subList(0, Math.min(maxIndexColumns, columnNames.size()))) {
+                sqlBuilder.append(quote(columnName));
+                // text columns can only be indexed on a prefix
+                if (metadataColumnNames.contains(columnName)) {
+                    sqlBuilder.append("(256)");
+                }
+                sqlBuilder.append(",");
+            }
+            sqlBuilder.setCharAt(sqlBuilder.length() - 1, ')');
         }
 
         sqlBuilder.append(")");
@@ -109,6 +126,55 @@ public class EventsOnMysql extends AbstractBaseEventsOnJdbc implements Events {
         return sqlBuilder.toString();
     }
 
+    @Override
+    protected String getCreateRollupsTableSql(final String namespace) {
+        return super.getCreateRollupsTableSql(namespace) + " ENGINE=InnoDB DEFAULT CHARSET=utf8 ";
+    }
+
+    @Override
+    protected String getCreateColdSegmentsTableSql(final String namespace) {
+        return super.getCreateColdSegmentsTableSql(namespace) + " ENGINE=InnoDB DEFAULT CHARSET=utf8 ";
+    }
+
+    @Override
+    protected String getColdSegmentDataColumnType() {
+        return "LONGBLOB";
+    }
+
+    @Override
+    protected int getBulkInsertMaxStatementBytes() {
+        if (this.maxAllowedPacket == 0) {
+            this.maxAllowedPacket = loadMaxAllowedPacket();
+        }
+        // leave some room for the packet header and the connection's own overhead
+        return this.maxAllowedPacket - 1024;
+    }
+
+    @Override
+    protected int getStreamingFetchSize() {
+        // tells the mysql driver to stream rows one by one instead of reading the whole result set into memory
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    protected String getSharedLockClause() {
+        // concurrent stores to the same chunk do not wait for each other
+        return "LOCK IN SHARE MODE";
+    }
+
+    private int loadMaxAllowedPacket() {
+        try (final Connection connection = getConnection();
+             final Statement statement = connection.createStatement();
+             final ResultSet resultSet = statement.executeQuery("SELECT @@max_allowed_packet")) {
+            if (resultSet.next()) {
+                return (int) Math.min(Integer.MAX_VALUE, resultSet.getLong(1));
+            }
+        } catch (IOException | SQLException e) {
+            logger.warn("failed to get max_allowed_packet, falling back to default: ", e);
+        }
+        return super.getBulkInsertMaxStatementBytes();
+    }
+
     @Override
     protected String getRegexQuery(final String column) {
         return String.format(" %s REGEXP ? ", column);
@@ -9,13 +9,20 @@ package com.salesforce.cantor.mysql;
 
 import com.salesforce.cantor.Sets;
 import com.salesforce.cantor.jdbc.AbstractBaseSetsOnJdbc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
 
 import static com.salesforce.cantor.jdbc.JdbcUtils.quote;
 
 public class SetsOnMysql extends AbstractBaseSetsOnJdbc implements Sets {
+    private static final Logger logger = LoggerFactory.getLogger(SetsOnMysql.class);
+
+    private volatile Boolean skipLockedSupported;
 
     public SetsOnMysql(final String hostname, final int port, final String username, final String password)
             throws IOException {
@@ -44,5 +51,32 @@ public class SetsOnMysql extends AbstractBaseSetsOnJdbc implements Sets {
                 " INDEX (" + quote(getWeightColumnName()) + ")) " +
                 " ENGINE=InnoDB DEFAULT CHARSET=utf8 ";
     }
+
+    @Override
+    protected String getCreateSetsLeasesTableSql(final String namespace) {
+        return "CREATE TABLE IF NOT EXISTS " + getTableFullName(namespace, getSetsLeasesTableName()) + " ( " +
+                quote(getSetKeyColumnName()) + " VARCHAR(512) NOT NULL, " +
+                quote(getEntryColumnName()) + " TEXT NOT NULL, " +
+                quote(getWeightColumnName()) + " BIGINT, " +
+                quote(getLeaseIdColumnName()) + " VARCHAR(64) NOT NULL, " +
+                quote(getLeaseExpiresColumnName()) + " BIGINT NOT NULL, " +
+                " PRIMARY KEY (" + quote(getSetKeyColumnName()) + ", " + quote(getEntryColumnName()) + "(512)), " +
+                " INDEX (" + quote(getSetKeyColumnName()) + ", " + quote(getLeaseExpiresColumnName()) + ")) " +
+                " ENGINE=InnoDB DEFAULT CHARSET=utf8 ";
+    }
+
+    // skip locked is available from mysql 8.0
+    @Override
+    protected boolean isSkipLockedSupported() {
+        if (this.skipLockedSupported == null) {
+            try (final Connection connection = getConnection()) {
+                this.skipLockedSupported = connection.getMetaData().getDatabaseMajorVersion() >= 8;
+            } catch (IOException | SQLException e) {
+                logger.warn("failed to get mysql version, assuming skip locked is not supported", e);
+                return false;
+            }
+        }
+        return this.skipLockedSupported;
+    }
 }
 
@@ -19,6 +19,8 @@ public class Constants {
     // general configurations
     public static final String CANTOR_STORAGE_TYPE = "storage.type";
     public static final String CANTOR_PORT_GRPC = "grpc.port";
+    // how often to expire events older than the retention period of their namespace; 0 to disable
+    public static final String CANTOR_EVENTS_RETENTION_INTERVAL_SECONDS = "events.retention.interval-seconds";
 
     // h2 configurations
     public static final String CANTOR_H2_PATH = "path";
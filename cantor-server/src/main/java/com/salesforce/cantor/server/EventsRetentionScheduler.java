@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.server;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.cantor.Events;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.salesforce.cantor.common.CommonPreconditions.checkArgument;
+
+/**
+ * Enforces the retention policy of events namespaces in the background: periodically expires events older than the
+ * retention period of each namespace, one namespace at a time, so that retention never competes with itself for
+ * locks on the storage.
+ */
+public class EventsRetentionScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(EventsRetentionScheduler.class);
+
+    private final Events events;
+    private final long intervalMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("cantor-events-retention-%d").setDaemon(true).build()
+    );
+
+    public EventsRetentionScheduler(final Events events, final long intervalMillis) {
+        checkArgument(events != null, "null events");
+        checkArgument(intervalMillis > 0, "invalid interval");
+        this.events = events;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void start() {
+        logger.info("enforcing events retention every {}ms", this.intervalMillis);
+        // wait a full interval first, to not add to the load of starting up
+        this.executor.scheduleWithFixedDelay(this::expireAll,
+                this.intervalMillis, this.intervalMillis, TimeUnit.MILLISECONDS
+        );
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    // visible for testing
+    void expireAll() {
+        try {
+            for (final String namespace : this.events.namespaces()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                expire(namespace);
+            }
+        } catch (Exception e) {
+            // exceptions would cancel the scheduled task
+            logger.warn("failed to enforce events retention: ", e);
+        }
+    }
+
+    private void expire(final String namespace) {
+        try {
+            final long retentionMillis = this.events.getRetention(namespace);
+            if (retentionMillis > 0) {
+                logger.info("expiring events older than {}ms from namespace {}", retentionMillis, namespace);
+                this.events.expire(namespace, Math.max(0, System.currentTimeMillis() - retentionMillis));
+            }
+        } catch (IOException e) {
+            // the namespace may have been dropped meanwhile; try the others
+            logger.warn("failed to enforce retention for namespace {}: ", namespace, e);
+        }
+    }
+}
@@ -15,6 +15,7 @@ import com.salesforce.cantor.grpc.ObjectsGrpcService;
 import com.salesforce.cantor.grpc.SetsGrpcService;
 import com.salesforce.cantor.server.CantorEnvironment;
 import com.salesforce.cantor.server.Constants;
+import com.salesforce.cantor.server.EventsRetentionScheduler;
 import com.salesforce.cantor.server.utils.CantorFactory;
 import io.grpc.Server;
 import io.grpc.netty.NettyServerBuilder;
@@ -25,11 +26,13 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class GrpcServer {
     private static final Logger logger = LoggerFactory.getLogger(GrpcServer.class);
 
     private final Server server;
+    private final EventsRetentionScheduler retentionScheduler;
 
     public GrpcServer(final CantorEnvironment cantorEnvironment) throws IOException {
         final CantorFactory cantorProvider = new CantorFactory(cantorEnvironment);
@@ -58,6 +61,13 @@ public class GrpcServer {
                 )
                 .build();
 
+        final int retentionIntervalSeconds = cantorEnvironment.getConfigAsInteger(
+                Constants.CANTOR_EVENTS_RETENTION_INTERVAL_SECONDS, 600
+        );
+        this.retentionScheduler = retentionIntervalSeconds > 0
+                ? new EventsRetentionScheduler(cantor.events(), TimeUnit.SECONDS.toMillis(retentionIntervalSeconds))
+                : null;
+
         addShutdownHook();
     }
 
@@ -67,6 +77,9 @@ public class GrpcServer {
                 Thread.currentThread().setName("cantor-grpc-server");
                 logger.info("starting grpc server...");
                 this.server.start();
+                if (this.retentionScheduler != null) {
+                    this.retentionScheduler.start();
+                }
                 blockUntilShutdown();
             } catch (Exception e) {
                 throw new RuntimeException(e);
@@ -76,6 +89,9 @@ public class GrpcServer {
 
     public void shutdown() {
         this.server.shutdown();
+        if (this.retentionScheduler != null) {
+            this.retentionScheduler.shutdown();
+        }
     }
 
     private void addShutdownHook() {
@@ -86,6 +102,9 @@ public class GrpcServer {
         if (this.server != null) {
             this.server.shutdown();
         }
+        if (this.retentionScheduler != null) {
+            this.retentionScheduler.shutdown();
+        }
     }
 
     private void blockUntilShutdown() throws InterruptedException {
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2019, Salesforce.com, Inc.
+ * All rights reserved.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * For full license text, see the LICENSE file in the repo root or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.cantor.server;
+
+import com.salesforce.cantor.Events;
+import com.salesforce.cantor.h2.CantorOnH2;
+import org.testng.annotations.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+
+public class EventsRetentionSchedulerTest {
+    private static final String path = "/tmp/cantor-test-db/" + UUID.randomUUID().toString();
+
+    @Test
+    public void testExpireAll() throws Exception {
+        final Events events = new CantorOnH2(path).events();
+        final long now = System.currentTimeMillis();
+        final long dayMillis = TimeUnit.DAYS.toMillis(1);
+        for (final String namespace : new String[] {"with-retention", "without-retention"}) {
+            events.create(namespace);
+            for (int i = 0; i < 10; ++i) {
+                events.store(namespace, now - i * dayMillis, null, null);
+            }
+        }
+        events.setRetention("with-retention", 3 * dayMillis + dayMillis / 2);
+
+        new EventsRetentionScheduler(events, 1000).expireAll();
+        assertEquals(events.get("with-retention", 0, Long.MAX_VALUE).size(), 4);
+        assertEquals(events.get("without-retention", 0, Long.MAX_VALUE).size(), 10);
+    }
+}